@@ -8,8 +8,10 @@ import com.ffms.resqeats.security.CustomUserDetails;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import jakarta.validation.Valid;
+import jakarta.validation.constraints.NotEmpty;
 import jakarta.validation.constraints.NotNull;
 import jakarta.validation.constraints.Positive;
+import jakarta.validation.constraints.Size;
 import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
@@ -18,12 +20,17 @@ import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
 
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
 /**
  * Cart controller per SRS Section 6.2.
  *
  * Endpoints:
  * GET /cart - Get user's cart
  * POST /cart/items - Add item to cart
+ * POST /cart/items/bulk - Add several items to cart at once
  * PUT /cart/items/{outletItemId} - Update item quantity
  * DELETE /cart/items/{outletItemId} - Remove item from cart
  * DELETE /cart - Clear cart
@@ -58,6 +65,17 @@ public class CartController {
         return ResponseEntity.ok(ApiResponse.success(cart, "Item added to cart"));
     }
 
+    @PostMapping("/items/bulk")
+    @Operation(summary = "Add several items to cart at once")
+    public ResponseEntity<ApiResponse<CartDto>> addItems(
+            @CurrentUser CustomUserDetails currentUser,
+            @Valid @RequestBody BulkAddToCartRequest request) {
+        Map<Long, Integer> quantities = new LinkedHashMap<>();
+        request.getItems().forEach(item -> quantities.merge(item.getOutletItemId(), item.getQuantity(), Integer::sum));
+        CartDto cart = cartService.addItems(currentUser.getId(), quantities);
+        return ResponseEntity.ok(ApiResponse.success(cart, "Items added to cart"));
+    }
+
     @PutMapping("/items/{outletItemId}")
     @Operation(summary = "Update item quantity")
     public ResponseEntity<ApiResponse<CartDto>> updateItemQuantity(
@@ -112,6 +130,15 @@ public class CartController {
         private Integer quantity;
     }
 
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class BulkAddToCartRequest {
+        @NotEmpty(message = "At least one item is required")
+        @Size(max = 50, message = "At most 50 items can be added at once")
+        private List<@Valid AddToCartRequest> items;
+    }
+
     @Data
     @NoArgsConstructor
     @AllArgsConstructor
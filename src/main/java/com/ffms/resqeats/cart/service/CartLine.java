@@ -0,0 +1,30 @@
+package com.ffms.resqeats.cart.service;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+
+/**
+ * Immutable part of a cart line, stored once per line in the {@code l:{outletItemId}} field of
+ * the cart hash. The quantity lives in its own {@code q:{outletItemId}} field so it can be
+ * changed with HINCRBY/HSET without rewriting this one.
+ *
+ * <p>Prices are locked when the line is first added.</p>
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class CartLine {
+
+    private Long itemId;
+
+    private String itemName;
+
+    private BigDecimal unitPrice;
+
+    private BigDecimal originalPrice;
+}
@@ -0,0 +1,85 @@
+package com.ffms.resqeats.cart.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.ffms.resqeats.common.codec.CompactBinaryCodec;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.serializer.SerializationException;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+
+/**
+ * Compact binary encoding of {@link CartLine} values ({@code l:{outletItemId}} cart fields).
+ *
+ * <p>Format version 1: item id, item name, unit price and original price, each nullable.
+ * Lines written as JSON before this codec are still read.</p>
+ *
+ * <p>During a rolling upgrade, set {@code resqeats.cart.line-format=json} until every node
+ * runs this codec, so nodes that only read JSON never see a binary line; then switch to
+ * {@code compact}.</p>
+ *
+ * @author ResqEats Team
+ * @version 1.0
+ * @since 2024-01-01
+ */
+@Component
+@Slf4j
+public class CartLineCodec extends CompactBinaryCodec<CartLine> {
+
+    static final int VERSION_1 = 1;
+
+    private final ObjectMapper objectMapper;
+    private final boolean writeJson;
+
+    public CartLineCodec(ObjectMapper objectMapper,
+                         @Value("${resqeats.cart.line-format:compact}") String lineFormat) {
+        this.objectMapper = objectMapper;
+        this.writeJson = "json".equalsIgnoreCase(lineFormat);
+        log.info("Cart line format: {}", writeJson ? "json" : "compact v" + VERSION_1);
+    }
+
+    @Override
+    public byte[] encode(CartLine value) {
+        if (!writeJson) {
+            return super.encode(value);
+        }
+        try {
+            return objectMapper.writeValueAsBytes(value);
+        } catch (IOException e) {
+            throw new SerializationException("Could not encode cart line", e);
+        }
+    }
+
+    @Override
+    protected int currentVersion() {
+        return VERSION_1;
+    }
+
+    @Override
+    protected void write(CartLine value, Writer writer) {
+        writer.writeNullableLong(value.getItemId());
+        writer.writeNullableString(value.getItemName());
+        writer.writeNullableDecimal(value.getUnitPrice());
+        writer.writeNullableDecimal(value.getOriginalPrice());
+    }
+
+    @Override
+    protected CartLine read(Reader reader, int version) {
+        return CartLine.builder()
+                .itemId(reader.readNullableLong())
+                .itemName(reader.readNullableString())
+                .unitPrice(reader.readNullableDecimal())
+                .originalPrice(reader.readNullableDecimal())
+                .build();
+    }
+
+    @Override
+    protected CartLine decodeLegacy(byte[] bytes) {
+        try {
+            return objectMapper.readValue(bytes, CartLine.class);
+        } catch (IOException e) {
+            throw new SerializationException("Could not decode cart line", e);
+        }
+    }
+}
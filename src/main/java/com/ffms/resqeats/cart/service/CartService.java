@@ -2,15 +2,23 @@ package com.ffms.resqeats.cart.service;
 
 import com.ffms.resqeats.cart.dto.CartDto;
 import com.ffms.resqeats.cart.dto.CartItemDto;
+import com.ffms.resqeats.common.codec.CounterCodec;
 import com.ffms.resqeats.common.exception.BusinessException;
+import com.ffms.resqeats.drop.service.WaitingRoomService;
+import com.ffms.resqeats.inventory.service.CartCheckout;
+import com.ffms.resqeats.inventory.service.CartLineChange;
+import com.ffms.resqeats.inventory.service.CartLineResult;
+import com.ffms.resqeats.inventory.service.InventoryKeys;
+import com.ffms.resqeats.inventory.service.InventoryScripts;
 import com.ffms.resqeats.inventory.service.InventoryService;
-import com.ffms.resqeats.item.entity.Item;
-import com.ffms.resqeats.item.entity.OutletItem;
-import com.ffms.resqeats.item.repository.ItemRepository;
-import com.ffms.resqeats.item.repository.OutletItemRepository;
+import com.ffms.resqeats.item.service.CatalogueCache;
+import com.ffms.resqeats.item.service.CatalogueEntry;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.redis.RedisSystemException;
+import org.springframework.data.redis.connection.DataType;
 import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.serializer.SerializationException;
 import org.springframework.stereotype.Service;
 
 import java.math.BigDecimal;
@@ -28,6 +36,32 @@ import java.util.*;
  *   <li>Price locked when item added to cart</li>
  * </ul>
  *
+ * <p><strong>Storage:</strong> {@code cart:{userId}} is a hash with one header field
+ * ({@code outletId}) and two fields per line: {@code l:{outletItemId}} holds the {@link CartLine}
+ * written once when the line is added, encoded by {@link CartLineCodec}; {@code q:{outletItemId}}
+ * holds its quantity as a plain decimal counter. Mutations
+ * touch only the fields they change, so concurrent requests on the same cart (two tabs) no
+ * longer overwrite each other's lines.</p>
+ *
+ * <p>Item details come from the {@link CatalogueCache}, so adding to the cart makes no
+ * database calls once the item's snapshot is cached.</p>
+ *
+ * <p>Adding, changing and removing a line go through
+ * {@link InventoryService#updateCartLines(CartLineChange)}: one script checks the outlet, updates
+ * the line, moves the stock hold by exactly the quantity difference and returns the cart, so a
+ * user action is one Redis round trip and the cart never disagrees with its holds. Checkout
+ * validation adjusts lines through the same script.</p>
+ *
+ * <p>Reservation quotas cap how much one user can hold: per item, over the whole cart, and in
+ * time (holds are not extended past a maximum hold time however often the cart is read). The
+ * caps are checked by the same script that takes the holds.</p>
+ *
+ * <p>While an outlet runs a scheduled drop, only users admitted from its waiting room can add
+ * its items (see {@link WaitingRoomService}).</p>
+ *
+ * <p>A cart whose last line was removed keeps its header until the TTL expires; it is treated
+ * as empty and does not restrict the outlet of the next item.</p>
+ *
  * @author ResqEats Team
  * @version 1.0
  * @since 2024-01-01
@@ -37,12 +71,16 @@ import java.util.*;
 @Slf4j
 public class CartService {
 
-    private final RedisTemplate<String, Object> redisTemplate;
+    private final RedisTemplate<String, byte[]> binaryRedisTemplate;
     private final InventoryService inventoryService;
-    private final OutletItemRepository outletItemRepository;
-    private final ItemRepository itemRepository;
+    private final CatalogueCache catalogueCache;
+    private final CartLineCodec cartLineCodec;
+    private final WaitingRoomService waitingRoomService;
 
     private static final String CART_KEY_PREFIX = "cart:";
+    private static final String OUTLET_FIELD = "outletId";
+    private static final String LINE_FIELD_PREFIX = "l:";
+    private static final String QUANTITY_FIELD_PREFIX = "q:";
     private static final Duration CART_TTL = Duration.ofMinutes(10);
 
     /**
@@ -51,18 +89,21 @@ public class CartService {
      * @param userId the user ID
      * @return the cart DTO or empty cart if none exists
      */
-    @SuppressWarnings("unchecked")
     public CartDto getCart(Long userId) {
         log.info("Retrieving cart for userId: {}", userId);
         String cartKey = CART_KEY_PREFIX + userId;
-        Map<String, Object> cartData = (Map<String, Object>) redisTemplate.opsForValue().get(cartKey);
+        Map<String, byte[]> cartData = readCart(cartKey);
 
-        if (cartData == null) {
+        if (cartData.isEmpty()) {
             log.debug("No cart found for userId: {}, returning empty cart", userId);
             return CartDto.empty(userId);
         }
 
-        redisTemplate.expire(cartKey, CART_TTL);
+        binaryRedisTemplate.expire(cartKey, CART_TTL);
+        List<Long> outletItemIds = lineIds(cartData);
+        if (!outletItemIds.isEmpty()) {
+            inventoryService.extendCartReservations(outletItemIds, userId.toString());
+        }
         log.debug("Cart retrieved and TTL refreshed for userId: {}", userId);
         return mapToCartDto(cartData, userId);
     }
@@ -76,104 +117,105 @@ public class CartService {
      * @return the updated cart DTO
      * @throws BusinessException if item not found, insufficient stock, or outlet mismatch
      */
-    @SuppressWarnings("unchecked")
     public CartDto addItem(Long userId, Long outletItemId, int quantity) {
         log.info("Adding item to cart - userId: {}, outletItemId: {}, quantity: {}", userId, outletItemId, quantity);
-        
+
         if (quantity <= 0) {
             log.warn("Invalid quantity provided: {}", quantity);
             throw new BusinessException("CART_001", "Quantity must be positive");
         }
 
-        OutletItem outletItem = outletItemRepository.findById(outletItemId)
+        CatalogueEntry entry = catalogueCache.get(outletItemId)
                 .orElseThrow(() -> {
                     log.warn("Outlet item not found: {}", outletItemId);
                     return new BusinessException("CART_002", "Item not found");
                 });
-
-        Item item = itemRepository.findById(outletItem.getItemId())
-                .orElseThrow(() -> {
-                    log.warn("Item not found for outletItem: {}", outletItemId);
-                    return new BusinessException("CART_002", "Item not found");
-                });
-
-        Long outletId = outletItem.getOutletId();
-
-        int available = inventoryService.getAvailableStock(outletItemId);
-        if (available < quantity) {
-            log.warn("Insufficient stock - requested: {}, available: {}", quantity, available);
-            throw new BusinessException("CART_003", "Insufficient stock. Available: " + available);
+        if (!entry.isPurchasable()) {
+            log.warn("Outlet item not available for purchase: {}", outletItemId);
+            throw new BusinessException("CART_002", "Item not available");
         }
+        waitingRoomService.checkAdmission(userId, entry.getOutletId());
+
+        byte[] line = encodeLine(entry);
+        Map<String, byte[]> updated = applyLineChange(CartLineChange.builder()
+                .cartKey(CART_KEY_PREFIX + userId)
+                .cartId(userId.toString())
+                .outletId(entry.getOutletId())
+                .increment(true)
+                .cartTtl(CART_TTL)
+                .line(new CartLineChange.Line(outletItemId, quantity, line))
+                .build());
+        log.info("Item added to cart successfully - userId: {}, item: {}", userId, entry.getItemName());
+        return mapToCartDto(updated, userId);
+    }
 
-        String cartKey = CART_KEY_PREFIX + userId;
-        Map<String, Object> cartData = (Map<String, Object>) redisTemplate.opsForValue().get(cartKey);
-
-        if (cartData == null) {
-            cartData = new HashMap<>();
-            cartData.put("outletId", outletId.toString());
-            cartData.put("items", new HashMap<String, Map<String, Object>>());
-            log.debug("Created new cart for userId: {}", userId);
-        }
+    /**
+     * Adds several items to the user's cart at once, e.g. a re-order or a bundle.
+     *
+     * <p>All lines are resolved with one catalogue lookup and reserved and written with one
+     * script call; either every line is added or none is. Repeated items are merged.</p>
+     *
+     * @param userId the user ID
+     * @param quantities the quantity to add per outlet item ID
+     * @return the updated cart DTO
+     * @throws BusinessException if an item is not found, stock is insufficient for any line,
+     *                           or the items do not all belong to the cart's outlet
+     */
+    public CartDto addItems(Long userId, Map<Long, Integer> quantities) {
+        log.info("Adding items to cart - userId: {}, lines: {}", userId, quantities.size());
 
-        String existingOutletId = (String) cartData.get("outletId");
-        if (existingOutletId != null && !existingOutletId.equals(outletId.toString())) {
-            log.warn("Cannot add items from different outlets - existing: {}, attempted: {}", existingOutletId, outletId);
-            throw new BusinessException("CART_004", "Cannot add items from different outlets. Clear cart first.");
+        if (quantities.isEmpty()) {
+            log.warn("No items provided for bulk add");
+            throw new BusinessException("CART_001", "At least one item is required");
         }
-
-        cartData.put("outletId", outletId.toString());
-
-        Map<String, Map<String, Object>> items = (Map<String, Map<String, Object>>) cartData.get("items");
-        if (items == null) {
-            items = new HashMap<>();
-            cartData.put("items", items);
+        if (quantities.values().stream().anyMatch(quantity -> quantity == null || quantity <= 0)) {
+            log.warn("Invalid quantity provided in bulk add: {}", quantities);
+            throw new BusinessException("CART_001", "Quantity must be positive");
         }
 
-        Map<String, Object> cartItem = items.get(outletItemId.toString());
-        if (cartItem == null) {
-            cartItem = new HashMap<>();
-            cartItem.put("outletItemId", outletItemId.toString());
-            cartItem.put("itemId", item.getId().toString());
-            cartItem.put("itemName", item.getName());
-            cartItem.put("unitPrice", item.getSalePrice().toString());
-            cartItem.put("originalPrice", item.getBasePrice().toString());
-            cartItem.put("quantity", quantity);
-            log.debug("Added new item to cart: {}", item.getName());
-        } else {
-            int existingQty = (int) cartItem.get("quantity");
-            int newQty = existingQty + quantity;
-            if (newQty > available) {
-                log.warn("Cannot add more items - total would exceed available stock: {}", available);
-                throw new BusinessException("CART_003", "Cannot add more. Available: " + available);
+        Map<Long, CatalogueEntry> entries = catalogueCache.getAll(quantities.keySet());
+        Long outletId = null;
+        CartLineChange.CartLineChangeBuilder change = CartLineChange.builder()
+                .cartKey(CART_KEY_PREFIX + userId)
+                .cartId(userId.toString())
+                .increment(true)
+                .cartTtl(CART_TTL);
+        for (Map.Entry<Long, Integer> requested : quantities.entrySet()) {
+            CatalogueEntry entry = entries.get(requested.getKey());
+            if (entry == null || !entry.isPurchasable()) {
+                log.warn("Outlet item not found or not available: {}", requested.getKey());
+                throw new BusinessException("CART_002", "Item not found");
+            }
+            if (outletId != null && !outletId.equals(entry.getOutletId())) {
+                log.warn("Bulk add spans several outlets - {} and {}", outletId, entry.getOutletId());
+                throw new BusinessException("CART_004", "Cannot add items from different outlets. Clear cart first.");
             }
-            cartItem.put("quantity", newQty);
-            log.debug("Updated item quantity in cart: {} -> {}", existingQty, newQty);
+            outletId = entry.getOutletId();
+            change.line(new CartLineChange.Line(requested.getKey(), requested.getValue(), encodeLine(entry)));
         }
 
-        items.put(outletItemId.toString(), cartItem);
+        waitingRoomService.checkAdmission(userId, outletId);
 
-        String cartId = userId.toString();
-        inventoryService.reserveForCart(outletItemId, quantity, cartId);
-        log.debug("Stock reserved for cart: {}", cartId);
-
-        redisTemplate.opsForValue().set(cartKey, cartData, CART_TTL);
-        log.info("Item added to cart successfully - userId: {}, item: {}", userId, item.getName());
-        return mapToCartDto(cartData, userId);
+        Map<String, byte[]> updated = applyLineChange(change.outletId(outletId).build());
+        log.info("Items added to cart successfully - userId: {}, lines: {}", userId, quantities.size());
+        return mapToCartDto(updated, userId);
     }
 
     /**
      * Updates the quantity of an item in the cart.
      *
+     * <p>Raising a line during a drop needs admission from the outlet's waiting room, like adding
+     * the item.</p>
+     *
      * @param userId the user ID
      * @param outletItemId the outlet item ID to update
      * @param quantity the new quantity
      * @return the updated cart DTO
      * @throws BusinessException if cart empty, item not in cart, or insufficient stock
      */
-    @SuppressWarnings("unchecked")
     public CartDto updateItemQuantity(Long userId, Long outletItemId, int quantity) {
         log.info("Updating cart item - userId: {}, outletItemId: {}, newQuantity: {}", userId, outletItemId, quantity);
-        
+
         if (quantity < 0) {
             log.warn("Invalid quantity provided: {}", quantity);
             throw new BusinessException("CART_001", "Quantity cannot be negative");
@@ -185,47 +227,27 @@ public class CartService {
         }
 
         String cartKey = CART_KEY_PREFIX + userId;
-        Map<String, Object> cartData = (Map<String, Object>) redisTemplate.opsForValue().get(cartKey);
-
-        if (cartData == null) {
-            log.warn("Cart not found for userId: {}", userId);
-            throw new BusinessException("CART_005", "Cart is empty");
-        }
-
-        Map<String, Map<String, Object>> items = (Map<String, Map<String, Object>>) cartData.get("items");
-        Map<String, Object> cartItem = items.get(outletItemId.toString());
-
-        if (cartItem == null) {
-            log.warn("Item not found in cart: {}", outletItemId);
-            throw new BusinessException("CART_006", "Item not in cart");
-        }
-
-        int available = inventoryService.getAvailableStock(outletItemId);
-        if (available < quantity) {
-            log.warn("Insufficient stock - requested: {}, available: {}", quantity, available);
-            throw new BusinessException("CART_003", "Insufficient stock. Available: " + available);
-        }
-
-        int oldQty = (int) cartItem.get("quantity");
-        int qtyDiff = quantity - oldQty;
-
-        String cartId = userId.toString();
-        if (qtyDiff > 0) {
-            if (!inventoryService.reserveForCart(outletItemId, qtyDiff, cartId)) {
-                log.warn("Failed to reserve additional stock for cart");
-                throw new BusinessException("CART_003", "Cannot reserve additional stock");
+        // Only raising a line takes more stock, so lowering stays open during a drop
+        Optional<CatalogueEntry> entry = catalogueCache.get(outletItemId);
+        if (entry.isPresent()) {
+            byte[] current = binaryRedisTemplate.<String, byte[]>opsForHash()
+                    .get(cartKey, QUANTITY_FIELD_PREFIX + outletItemId);
+            if (current == null || quantity > CounterCodec.INSTANCE.decodeInt(current)) {
+                waitingRoomService.checkAdmission(userId, entry.get().getOutletId());
             }
-        } else if (qtyDiff < 0) {
-            inventoryService.releaseCartReservation(outletItemId, cartId);
-            inventoryService.reserveForCart(outletItemId, quantity, cartId);
         }
 
-        cartItem.put("quantity", quantity);
-        redisTemplate.opsForValue().set(cartKey, cartData, CART_TTL);
-
-        log.info("Cart item quantity updated - userId: {}, outletItemId: {}, oldQty: {}, newQty: {}", 
-                userId, outletItemId, oldQty, quantity);
-        return mapToCartDto(cartData, userId);
+        Map<String, byte[]> updated = applyLineChange(CartLineChange.builder()
+                .cartKey(cartKey)
+                .cartId(userId.toString())
+                .increment(false)
+                .cartTtl(CART_TTL)
+                .line(new CartLineChange.Line(outletItemId, quantity, null))
+                .build());
+
+        log.info("Cart item quantity updated - userId: {}, outletItemId: {}, newQty: {}",
+                userId, outletItemId, quantity);
+        return mapToCartDto(updated, userId);
     }
 
     /**
@@ -235,130 +257,140 @@ public class CartService {
      * @param outletItemId the outlet item ID to remove
      * @return the updated cart DTO
      */
-    @SuppressWarnings("unchecked")
     public CartDto removeItem(Long userId, Long outletItemId) {
         log.info("Removing item from cart - userId: {}, outletItemId: {}", userId, outletItemId);
-        String cartKey = CART_KEY_PREFIX + userId;
-        Map<String, Object> cartData = (Map<String, Object>) redisTemplate.opsForValue().get(cartKey);
-
-        if (cartData == null) {
-            log.debug("Cart already empty for userId: {}", userId);
-            return CartDto.empty(userId);
-        }
-
-        Map<String, Map<String, Object>> items = (Map<String, Map<String, Object>>) cartData.get("items");
-        if (items != null) {
-            items.remove(outletItemId.toString());
-            String cartId = userId.toString();
-            inventoryService.releaseCartReservation(outletItemId, cartId);
-            log.debug("Released cart reservation for outletItemId: {}", outletItemId);
-        }
-
-        if (items == null || items.isEmpty()) {
-            redisTemplate.delete(cartKey);
+        Map<String, byte[]> updated = applyLineChange(CartLineChange.builder()
+                .cartKey(CART_KEY_PREFIX + userId)
+                .cartId(userId.toString())
+                .increment(false)
+                .cartTtl(CART_TTL)
+                .line(new CartLineChange.Line(outletItemId, 0, null))
+                .build());
+        log.debug("Released cart reservation for outletItemId: {}", outletItemId);
+
+        if (lineIds(updated).isEmpty()) {
             log.info("Cart cleared (last item removed) for userId: {}", userId);
             return CartDto.empty(userId);
         }
 
-        redisTemplate.opsForValue().set(cartKey, cartData, CART_TTL);
         log.info("Item removed from cart successfully - userId: {}, outletItemId: {}", userId, outletItemId);
-        return mapToCartDto(cartData, userId);
+        return mapToCartDto(updated, userId);
     }
 
     /**
      * Clears the entire cart for a user.
      *
+     * <p>Every line is set to 0 in one call of the cart lines script, so the lines, their holds
+     * and the reservation quota go in one atomic step; a change racing from another tab either
+     * lands before the clear or after it. The emptied cart keeps its header until the TTL
+     * expires, like a cart whose last line was removed.</p>
+     *
      * @param userId the user ID
      */
-    @SuppressWarnings("unchecked")
     public void clearCart(Long userId) {
         log.info("Clearing cart for userId: {}", userId);
         String cartKey = CART_KEY_PREFIX + userId;
-        Map<String, Object> cartData = (Map<String, Object>) redisTemplate.opsForValue().get(cartKey);
-
-        if (cartData != null) {
-            Map<String, Map<String, Object>> items = (Map<String, Map<String, Object>>) cartData.get("items");
-            if (items != null) {
-                String cartId = userId.toString();
-                items.keySet().forEach(outletItemId -> {
-                    inventoryService.releaseCartReservation(Long.valueOf(outletItemId), cartId);
-                    log.debug("Released cart reservation for outletItemId: {}", outletItemId);
-                });
+        Map<String, byte[]> cartData = readCart(cartKey);
+
+        // Every quantity field, complete line or not, so no hold is left behind
+        CartLineChange.CartLineChangeBuilder change = CartLineChange.builder()
+                .cartKey(cartKey)
+                .cartId(userId.toString())
+                .increment(false)
+                .cartTtl(CART_TTL);
+        int lines = 0;
+        for (String field : cartData.keySet()) {
+            if (field.startsWith(QUANTITY_FIELD_PREFIX)) {
+                Long outletItemId = Long.valueOf(field.substring(QUANTITY_FIELD_PREFIX.length()));
+                change.line(new CartLineChange.Line(outletItemId, 0, null));
+                lines++;
             }
         }
+        if (lines == 0) {
+            log.debug("Cart already empty for userId: {}", userId);
+            return;
+        }
 
-        redisTemplate.delete(cartKey);
-        log.info("Cart cleared successfully for userId: {}", userId);
+        applyLineChange(change.build());
+        log.info("Cart cleared successfully - userId: {}, lines: {}", userId, lines);
     }
 
     /**
      * Validates cart before checkout, removing out-of-stock items and adjusting quantities.
      *
+     * <p>Every line is re-asserted at its current quantity through the cart lines script, which
+     * checks it against the free stock plus the units this cart already holds, read from the
+     * authoritative counters, and re-takes holds reclaimed by the expiry sweep. A line that
+     * cannot be held is cut to what the cart can hold, or removed, and the rest retried.</p>
+     *
      * @param userId the user ID
      * @return the validated cart DTO with removed/adjusted item lists
      * @throws BusinessException if cart is empty or all items out of stock
      */
-    @SuppressWarnings("unchecked")
     public CartDto validateCart(Long userId) {
         log.info("Validating cart for checkout - userId: {}", userId);
         String cartKey = CART_KEY_PREFIX + userId;
-        Map<String, Object> cartData = (Map<String, Object>) redisTemplate.opsForValue().get(cartKey);
+        Map<String, byte[]> cartData = readCart(cartKey);
 
-        if (cartData == null) {
+        List<Long> outletItemIds = lineIds(cartData);
+        if (outletItemIds.isEmpty()) {
             log.warn("Cart validation failed - cart is empty for userId: {}", userId);
             throw new BusinessException("CART_005", "Cart is empty");
         }
 
-        Map<String, Map<String, Object>> items = (Map<String, Map<String, Object>>) cartData.get("items");
-        if (items == null || items.isEmpty()) {
-            log.warn("Cart validation failed - no items in cart for userId: {}", userId);
-            throw new BusinessException("CART_005", "Cart is empty");
-        }
-
-        List<String> removedItems = new ArrayList<>();
-        List<String> adjustedItems = new ArrayList<>();
-
-        List<Long> outletItemIds = items.keySet().stream()
-            .map(Long::valueOf)
-            .collect(java.util.stream.Collectors.toList());
-        Map<Long, Integer> stockLevels = inventoryService.getStockLevels(outletItemIds);
-        log.debug("Batch fetched stock levels for {} items", outletItemIds.size());
-
-        Iterator<Map.Entry<String, Map<String, Object>>> iterator = items.entrySet().iterator();
-        while (iterator.hasNext()) {
-            Map.Entry<String, Map<String, Object>> entry = iterator.next();
-            Long outletItemId = Long.valueOf(entry.getKey());
-            Map<String, Object> cartItem = entry.getValue();
-
-            int requestedQty = (int) cartItem.get("quantity");
-            int available = stockLevels.getOrDefault(outletItemId, 0);
+        Map<Long, Integer> targets = new LinkedHashMap<>();
+        outletItemIds.forEach(outletItemId -> targets.put(outletItemId, lineQuantity(cartData, outletItemId)));
+        Map<Long, String> removed = new LinkedHashMap<>();
+        Map<Long, String> adjusted = new LinkedHashMap<>();
+
+        // Each rejection lowers one target, so this ends within the cart's total quantity
+        Map<String, byte[]> updated;
+        while (true) {
+            CartLineChange.CartLineChangeBuilder change = CartLineChange.builder()
+                    .cartKey(cartKey)
+                    .cartId(userId.toString())
+                    .increment(false)
+                    .cartTtl(CART_TTL);
+            targets.forEach((outletItemId, quantity) ->
+                    change.line(new CartLineChange.Line(outletItemId, quantity, null)));
+            CartLineChange lineChange = change.build();
+
+            CartLineResult result = inventoryService.updateCartLines(lineChange);
+            if (result.isOk()) {
+                updated = result.getCart();
+                break;
+            }
+            if (result.getStatus() != InventoryScripts.STATUS_INSUFFICIENT) {
+                throw lineChangeFailure(lineChange, result);
+            }
 
+            Long outletItemId = result.getOutletItemId();
+            int available = result.getAvailable();
+            String itemName = decodeLine(cartData.get(LINE_FIELD_PREFIX + outletItemId)).getItemName();
+            targets.put(outletItemId, available);
             if (available == 0) {
-                iterator.remove();
-                String itemName = (String) cartItem.get("itemName");
-                removedItems.add(itemName);
+                adjusted.remove(outletItemId);
+                removed.put(outletItemId, itemName);
                 log.warn("Item removed from cart (out of stock): {}", itemName);
-            } else if (available < requestedQty) {
-                cartItem.put("quantity", available);
-                String itemName = (String) cartItem.get("itemName");
-                adjustedItems.add(itemName + " (adjusted to " + available + ")");
-                log.warn("Item quantity adjusted in cart: {} from {} to {}", itemName, requestedQty, available);
+            } else {
+                adjusted.put(outletItemId, itemName + " (adjusted to " + available + ")");
+                log.warn("Item quantity adjusted in cart: {} to {}", itemName, available);
             }
-        }
 
-        if (items.isEmpty()) {
-            redisTemplate.delete(cartKey);
-            log.error("Cart validation failed - all items out of stock for userId: {}", userId);
-            throw new BusinessException("CART_007", "All items are out of stock");
+            if (removed.size() == targets.size()) {
+                clearCart(userId);
+                log.error("Cart validation failed - all items out of stock for userId: {}", userId);
+                throw new BusinessException("CART_007", "All items are out of stock");
+            }
         }
+        List<String> removedItems = new ArrayList<>(removed.values());
+        List<String> adjustedItems = new ArrayList<>(adjusted.values());
 
-        redisTemplate.opsForValue().set(cartKey, cartData, CART_TTL);
-
-        CartDto cart = mapToCartDto(cartData, userId);
+        CartDto cart = mapToCartDto(updated, userId);
         cart.setRemovedItems(removedItems);
         cart.setAdjustedItems(adjustedItems);
 
-        log.info("Cart validated successfully - userId: {}, removed: {}, adjusted: {}", 
+        log.info("Cart validated successfully - userId: {}, removed: {}, adjusted: {}",
                 userId, removedItems.size(), adjustedItems.size());
         return cart;
     }
@@ -376,47 +408,247 @@ public class CartService {
         return validatedCart;
     }
 
+    /**
+     * Hands the cart's stock holds over to an order and removes the cart.
+     *
+     * <p>The cart must still match the checked-out cart exactly; a change made in another tab
+     * since checkout started fails the step and leaves the cart and its holds untouched.</p>
+     *
+     * @param userId the user ID
+     * @param cart the cart returned by {@link #getCartForCheckout(Long)}
+     * @param orderId the order taking over the holds
+     * @param deadline epoch millis until which the order keeps its holds
+     * @throws BusinessException if the cart changed or a reclaimed hold cannot be taken again
+     */
+    public void transferToOrder(Long userId, CartDto cart, Long orderId, long deadline) {
+        log.info("Transferring cart holds to order - userId: {}, orderId: {}", userId, orderId);
+        CartCheckout.CartCheckoutBuilder checkout = CartCheckout.builder()
+                .cartKey(CART_KEY_PREFIX + userId)
+                .cartId(userId.toString())
+                .outletId(cart.getOutletId())
+                .holderId(InventoryKeys.orderHolder(orderId))
+                .deadline(deadline);
+        cart.getItems().forEach(item -> checkout.quantity(item.getOutletItemId(), item.getQuantity()));
+
+        CartLineResult result = inventoryService.checkoutCart(checkout.build());
+        if (result.isOk()) {
+            log.info("Cart checked out - userId: {}, orderId: {}", userId, orderId);
+            return;
+        }
+        if (result.getStatus() == CartLineResult.STATUS_CART_CHANGED) {
+            log.warn("Cart changed during checkout - userId: {}", userId);
+            throw new BusinessException("CART_009", "Cart changed during checkout, please review it and retry");
+        }
+        log.warn("Insufficient stock at checkout - outletItemId: {}, available: {}",
+                result.getOutletItemId(), result.getAvailable());
+        throw new BusinessException("CART_003", "Insufficient stock. Available: " + result.getAvailable());
+    }
+
+    /**
+     * Puts a checked-out cart back after the order it was handed to rolled back.
+     *
+     * <p>The order's holds are released and the lines re-added with the prices locked at
+     * checkout, taking their holds again in one script call. If the stock was taken in between,
+     * or the user started a cart at another outlet, the cart is not restored; its holds are
+     * released either way.</p>
+     *
+     * @param userId the user ID
+     * @param cart the cart passed to {@link #transferToOrder(Long, CartDto, Long, long)}
+     * @param orderId the order that took over the holds
+     * @return true if the cart was restored
+     */
+    public boolean restoreFromOrder(Long userId, CartDto cart, Long orderId) {
+        log.info("Restoring cart after rolled back checkout - userId: {}, orderId: {}", userId, orderId);
+        List<Long> outletItemIds = cart.getItems().stream().map(CartItemDto::getOutletItemId).toList();
+        inventoryService.releaseHolds(outletItemIds, InventoryKeys.orderHolder(orderId));
+
+        CartLineChange.CartLineChangeBuilder change = CartLineChange.builder()
+                .cartKey(CART_KEY_PREFIX + userId)
+                .cartId(userId.toString())
+                .outletId(cart.getOutletId())
+                .increment(true)
+                .cartTtl(CART_TTL);
+        for (CartItemDto item : cart.getItems()) {
+            CartLine line = CartLine.builder()
+                    .itemId(item.getItemId())
+                    .itemName(item.getItemName())
+                    .unitPrice(item.getUnitPrice())
+                    .originalPrice(item.getOriginalPrice())
+                    .build();
+            change.line(new CartLineChange.Line(item.getOutletItemId(), item.getQuantity(), cartLineCodec.encode(line)));
+        }
+
+        CartLineResult result = inventoryService.updateCartLines(change.build());
+        if (!result.isOk()) {
+            log.warn("Cart not restored after rolled back checkout - userId: {}, orderId: {}, status: {}",
+                    userId, orderId, result.getStatus());
+            return false;
+        }
+        log.info("Cart restored - userId: {}, orderId: {}, lines: {}", userId, orderId, outletItemIds.size());
+        return true;
+    }
+
+    /**
+     * Applies a line change and the matching hold adjustment in one script call.
+     *
+     * @param change the cart line change
+     * @return the cart fields after the change
+     * @throws BusinessException if stock is insufficient, the outlet differs or the line is missing
+     */
+    private Map<String, byte[]> applyLineChange(CartLineChange change) {
+        CartLineResult result = inventoryService.updateCartLines(change);
+        if (result.isOk()) {
+            return result.getCart();
+        }
+        throw lineChangeFailure(change, result);
+    }
+
+    /**
+     * Maps a rejected line change to the error reported to the user.
+     */
+    private BusinessException lineChangeFailure(CartLineChange change, CartLineResult result) {
+        if (result.getStatus() == CartLineResult.STATUS_OUTLET_MISMATCH) {
+            log.warn("Cannot add items from different outlets - attempted outlet: {}", change.getOutletId());
+            return new BusinessException("CART_004", "Cannot add items from different outlets. Clear cart first.");
+        }
+        if (result.getStatus() == CartLineResult.STATUS_NOT_IN_CART) {
+            log.warn("Item not found in cart: {}", result.getOutletItemId());
+            return new BusinessException("CART_006", "Item not in cart");
+        }
+        if (result.getStatus() == CartLineResult.STATUS_ITEM_QUOTA) {
+            log.warn("Per-item reservation cap reached - outletItemId: {}, cap: {}",
+                    result.getOutletItemId(), result.getAvailable());
+            return new BusinessException("CART_010", "You can hold at most " + result.getAvailable() + " of this item");
+        }
+        if (result.getStatus() == CartLineResult.STATUS_USER_QUOTA) {
+            log.warn("Per-user reservation cap reached - outletItemId: {}, remaining: {}",
+                    result.getOutletItemId(), result.getAvailable());
+            return new BusinessException("CART_011",
+                    "Cart limit reached. You can add " + result.getAvailable() + " more item(s)");
+        }
+        log.warn("Insufficient stock - outletItemId: {}, available: {}", result.getOutletItemId(), result.getAvailable());
+        return new BusinessException("CART_003", "Insufficient stock. Available: " + result.getAvailable());
+    }
+
+    /**
+     * Reads every field of a cart hash.
+     *
+     * <p>Carts written as a single JSON value before the hash layout are dropped; they expire
+     * within {@link #CART_TTL} anyway and their holds are reclaimed by the inventory sweep.</p>
+     *
+     * @param cartKey the cart key
+     * @return the cart fields, empty if the cart does not exist
+     */
+    private Map<String, byte[]> readCart(String cartKey) {
+        Map<String, byte[]> cartData = new HashMap<>();
+        try {
+            cartData.putAll(binaryRedisTemplate.<String, byte[]>opsForHash().entries(cartKey));
+        } catch (RedisSystemException e) {
+            if (binaryRedisTemplate.type(cartKey) != DataType.STRING) {
+                throw e;
+            }
+            log.warn("Dropping cart in legacy single-value format: {}", cartKey);
+            binaryRedisTemplate.delete(cartKey);
+        }
+        return cartData;
+    }
+
+    /**
+     * Lists the outlet items that have a complete line (metadata and positive quantity).
+     */
+    private List<Long> lineIds(Map<String, byte[]> cartData) {
+        List<Long> ids = new ArrayList<>();
+        for (String field : cartData.keySet()) {
+            if (field.startsWith(QUANTITY_FIELD_PREFIX)) {
+                Long outletItemId = Long.valueOf(field.substring(QUANTITY_FIELD_PREFIX.length()));
+                if (lineQuantity(cartData, outletItemId) > 0) {
+                    ids.add(outletItemId);
+                }
+            }
+        }
+        return ids;
+    }
+
+    /**
+     * @return the quantity of a line, or 0 if the cart has no complete line for the item
+     */
+    private int lineQuantity(Map<String, byte[]> cartData, Long outletItemId) {
+        byte[] quantity = cartData.get(QUANTITY_FIELD_PREFIX + outletItemId);
+        if (quantity == null || !cartData.containsKey(LINE_FIELD_PREFIX + outletItemId)) {
+            return 0;
+        }
+        return CounterCodec.INSTANCE.decodeInt(quantity);
+    }
+
+    /**
+     * Encodes the locked details of a new line from its catalogue snapshot.
+     */
+    private byte[] encodeLine(CatalogueEntry entry) {
+        CartLine line = CartLine.builder()
+                .itemId(entry.getItemId())
+                .itemName(entry.getItemName())
+                .unitPrice(entry.getSalePrice())
+                .originalPrice(entry.getBasePrice())
+                .build();
+        try {
+            return cartLineCodec.encode(line);
+        } catch (SerializationException e) {
+            throw new BusinessException("CART_008", "Cart update failed");
+        }
+    }
+
+    private CartLine decodeLine(byte[] value) {
+        try {
+            return cartLineCodec.decode(value);
+        } catch (SerializationException e) {
+            log.error("Corrupt cart line ({} bytes): {}", value.length, e.getMessage());
+            throw new BusinessException("CART_008", "Cart is corrupt");
+        }
+    }
+
     /**
      * Maps cart data from Redis to CartDto.
      *
-     * @param cartData the raw cart data map
+     * @param cartData the cart hash fields
      * @param userId the user ID
      * @return the mapped CartDto
      */
-    @SuppressWarnings("unchecked")
-    private CartDto mapToCartDto(Map<String, Object> cartData, Long userId) {
+    private CartDto mapToCartDto(Map<String, byte[]> cartData, Long userId) {
+        List<Long> outletItemIds = lineIds(cartData);
+        if (outletItemIds.isEmpty()) {
+            return CartDto.empty(userId);
+        }
+
         CartDto cart = new CartDto();
         cart.setUserId(userId);
-        cart.setOutletId(cartData.get("outletId") != null 
-                ? Long.valueOf((String) cartData.get("outletId")) : null);
+        cart.setOutletId(cartData.get(OUTLET_FIELD) != null
+                ? CounterCodec.INSTANCE.decode(cartData.get(OUTLET_FIELD)) : null);
 
-        Map<String, Map<String, Object>> items = (Map<String, Map<String, Object>>) cartData.get("items");
         List<CartItemDto> cartItems = new ArrayList<>();
         BigDecimal subtotal = BigDecimal.ZERO;
         BigDecimal totalSavings = BigDecimal.ZERO;
 
-        if (items != null) {
-            for (Map<String, Object> itemData : items.values()) {
-                CartItemDto item = new CartItemDto();
-                item.setOutletItemId(Long.valueOf((String) itemData.get("outletItemId")));
-                item.setItemId(Long.valueOf((String) itemData.get("itemId")));
-                item.setItemName((String) itemData.get("itemName"));
-                item.setUnitPrice(new BigDecimal((String) itemData.get("unitPrice")));
-                item.setOriginalPrice(new BigDecimal((String) itemData.get("originalPrice")));
-                item.setQuantity((int) itemData.get("quantity"));
-
-                BigDecimal lineTotal = item.getUnitPrice().multiply(BigDecimal.valueOf(item.getQuantity()));
-                BigDecimal lineSavings = item.getOriginalPrice()
-                        .subtract(item.getUnitPrice())
-                        .multiply(BigDecimal.valueOf(item.getQuantity()));
-
-                item.setLineTotal(lineTotal);
-                item.setLineSavings(lineSavings);
-
-                cartItems.add(item);
-                subtotal = subtotal.add(lineTotal);
-                totalSavings = totalSavings.add(lineSavings);
-            }
+        for (Long outletItemId : outletItemIds) {
+            CartLine line = decodeLine(cartData.get(LINE_FIELD_PREFIX + outletItemId));
+            CartItemDto item = new CartItemDto();
+            item.setOutletItemId(outletItemId);
+            item.setItemId(line.getItemId());
+            item.setItemName(line.getItemName());
+            item.setUnitPrice(line.getUnitPrice());
+            item.setOriginalPrice(line.getOriginalPrice());
+            item.setQuantity(lineQuantity(cartData, outletItemId));
+
+            BigDecimal lineTotal = item.getUnitPrice().multiply(BigDecimal.valueOf(item.getQuantity()));
+            BigDecimal lineSavings = item.getOriginalPrice()
+                    .subtract(item.getUnitPrice())
+                    .multiply(BigDecimal.valueOf(item.getQuantity()));
+
+            item.setLineTotal(lineTotal);
+            item.setLineSavings(lineSavings);
+
+            cartItems.add(item);
+            subtotal = subtotal.add(lineTotal);
+            totalSavings = totalSavings.add(lineSavings);
         }
 
         cart.setItems(cartItems);
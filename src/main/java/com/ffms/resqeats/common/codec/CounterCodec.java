@@ -0,0 +1,46 @@
+package com.ffms.resqeats.common.codec;
+
+import org.springframework.data.redis.serializer.SerializationException;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Raw decimal encoding for numeric values, e.g. {@code 42} is stored as the two bytes
+ * {@code "42"}.
+ *
+ * <p>This is the only form INCRBY, HINCRBY and Lua's {@code tonumber} accept, so counters and
+ * quantities never carry a version byte or type metadata.</p>
+ *
+ * @author ResqEats Team
+ * @version 1.0
+ * @since 2024-01-01
+ */
+public final class CounterCodec implements RedisCodec<Long> {
+
+    public static final CounterCodec INSTANCE = new CounterCodec();
+
+    private CounterCodec() {
+    }
+
+    @Override
+    public byte[] encode(Long value) {
+        return Long.toString(value).getBytes(StandardCharsets.US_ASCII);
+    }
+
+    @Override
+    public Long decode(byte[] bytes) {
+        try {
+            return Long.parseLong(new String(bytes, StandardCharsets.US_ASCII));
+        } catch (NumberFormatException e) {
+            throw new SerializationException("Not a counter value", e);
+        }
+    }
+
+    public byte[] encode(int value) {
+        return encode((long) value);
+    }
+
+    public int decodeInt(byte[] bytes) {
+        return Math.toIntExact(decode(bytes));
+    }
+}
@@ -0,0 +1,32 @@
+package com.ffms.resqeats.common.codec;
+
+import org.springframework.data.redis.serializer.SerializationException;
+
+/**
+ * Encodes one kind of value stored in Redis.
+ *
+ * <p>Codecs are chosen per value type rather than per template: counters must stay plain
+ * decimal so INCRBY and the inventory scripts can do arithmetic on them, while structured
+ * values (cart lines) use a compact binary form. Callers encode and decode explicitly around
+ * a byte-array template, so one template serves every value type.</p>
+ *
+ * @param <T> the decoded value type
+ * @author ResqEats Team
+ * @version 1.0
+ * @since 2024-01-01
+ */
+public interface RedisCodec<T> {
+
+    /**
+     * @param value the value to encode, never {@code null}
+     * @return the stored bytes
+     */
+    byte[] encode(T value);
+
+    /**
+     * @param bytes the stored bytes, never {@code null}
+     * @return the decoded value
+     * @throws SerializationException if the bytes are not a valid encoding
+     */
+    T decode(byte[] bytes);
+}
@@ -0,0 +1,52 @@
+package com.ffms.resqeats.common.entity;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import jakarta.persistence.*;
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.data.annotation.CreatedBy;
+import org.springframework.data.annotation.CreatedDate;
+import org.springframework.data.annotation.LastModifiedBy;
+import org.springframework.data.annotation.LastModifiedDate;
+import org.springframework.data.jpa.domain.support.AuditingEntityListener;
+
+import java.io.Serializable;
+import java.time.LocalDateTime;
+
+/**
+ * Audit fields shared by all entities, without the primary key.
+ *
+ * Most entities extend {@link BaseEntity}, which adds an IDENTITY key. High-volume entities
+ * (orders, order items, notifications) extend this class directly and declare a pooled
+ * sequence key instead, because IDENTITY keys disable Hibernate's JDBC insert batching.
+ */
+@MappedSuperclass
+@Getter
+@Setter
+@EntityListeners(AuditingEntityListener.class)
+public abstract class AuditableEntity implements Serializable {
+
+    @CreatedDate
+    @Column(name = "created_at", updatable = false, nullable = false)
+    @JsonProperty("created_at")
+    private LocalDateTime createdAt;
+
+    @LastModifiedDate
+    @Column(name = "updated_at", nullable = false)
+    @JsonProperty("updated_at")
+    private LocalDateTime updatedAt;
+
+    @CreatedBy
+    @Column(name = "created_by", length = 100)
+    @JsonProperty("created_by")
+    private String createdBy;
+
+    @LastModifiedBy
+    @Column(name = "updated_by", length = 100)
+    @JsonProperty("updated_by")
+    private String updatedBy;
+
+    public abstract Long getId();
+
+    public abstract void setId(Long id);
+}
@@ -1,21 +1,13 @@
 package com.ffms.resqeats.common.entity;
 
-import com.fasterxml.jackson.annotation.JsonProperty;
 import jakarta.persistence.*;
 import lombok.Getter;
 import lombok.Setter;
-import org.springframework.data.annotation.CreatedBy;
-import org.springframework.data.annotation.CreatedDate;
-import org.springframework.data.annotation.LastModifiedBy;
-import org.springframework.data.annotation.LastModifiedDate;
-import org.springframework.data.jpa.domain.support.AuditingEntityListener;
-
-import java.io.Serializable;
-import java.time.LocalDateTime;
 
 /**
  * Base entity with BIGINT primary key and audit fields.
- * All entities in Resqeats extend this class per SRS Section 7.2.
+ * All entities in Resqeats extend this class per SRS Section 7.2, except the
+ * high-volume ones with pooled sequence keys (see {@link AuditableEntity}).
  * 
  * MEDIUM FIX (Issue #9): Uses JPA Auditing with AuditorAware to properly
  * track who created/modified entities from SecurityContext.
@@ -23,31 +15,10 @@ import java.time.LocalDateTime;
 @MappedSuperclass
 @Getter
 @Setter
-@EntityListeners(AuditingEntityListener.class)
-public abstract class BaseEntity implements Serializable {
+public abstract class BaseEntity extends AuditableEntity {
 
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
     @Column(name = "id", updatable = false, nullable = false)
     private Long id;
-
-    @CreatedDate
-    @Column(name = "created_at", updatable = false, nullable = false)
-    @JsonProperty("created_at")
-    private LocalDateTime createdAt;
-
-    @LastModifiedDate
-    @Column(name = "updated_at", nullable = false)
-    @JsonProperty("updated_at")
-    private LocalDateTime updatedAt;
-
-    @CreatedBy
-    @Column(name = "created_by", length = 100)
-    @JsonProperty("created_by")
-    private String createdBy;
-
-    @LastModifiedBy
-    @Column(name = "updated_by", length = 100)
-    @JsonProperty("updated_by")
-    private String updatedBy;
 }
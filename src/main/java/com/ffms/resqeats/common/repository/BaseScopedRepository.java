@@ -1,6 +1,6 @@
 package com.ffms.resqeats.common.repository;
 
-import com.ffms.resqeats.common.entity.BaseEntity;
+import com.ffms.resqeats.common.entity.AuditableEntity;
 import com.ffms.resqeats.exception.security.AccessDeniedException;
 import com.ffms.resqeats.security.context.ResqeatsSecurityContext;
 import com.ffms.resqeats.security.context.SecurityContextHolder;
@@ -21,7 +21,7 @@ import java.util.Optional;
  * This provides additional GUARD layer for explicit scope validation.
  */
 @NoRepositoryBean
-public interface BaseScopedRepository<T extends BaseEntity> extends JpaRepository<T, Long> {
+public interface BaseScopedRepository<T extends AuditableEntity> extends JpaRepository<T, Long> {
 
     /**
      * Find by ID with scope validation.
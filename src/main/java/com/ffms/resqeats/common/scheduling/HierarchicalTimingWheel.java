@@ -0,0 +1,169 @@
+package com.ffms.resqeats.common.scheduling;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Hierarchical timing wheel for a large number of deadlines with tick precision.
+ *
+ * <p>Level 0 has one slot per tick; each higher level has slots as wide as the whole level
+ * below it. A timer is placed on the lowest level whose span covers its distance from the
+ * current tick and cascades down a level each time the wheel reaches its slot, so scheduling,
+ * cancelling and advancing by one tick are O(1) regardless of how many timers are pending.
+ * Timers never fire before their deadline and at most one tick after it.</p>
+ *
+ * <p>Rescheduling a key replaces its deadline; cancelled and replaced entries are dropped
+ * lazily when their slot is reached. Not thread-safe: schedule and advance from one thread.</p>
+ *
+ * @author ResqEats Team
+ * @version 1.0
+ * @since 2024-01-01
+ */
+public class HierarchicalTimingWheel {
+
+    private final long tickMillis;
+    private final int slots;
+    private final long[] levelSpans;
+    private final List<List<List<Timer>>> levels;
+    private final Map<String, Long> deadlines = new HashMap<>();
+    private final List<Timer> overdue = new ArrayList<>();
+    private long currentTick;
+
+    /**
+     * @param tickMillis width of a level-0 slot in milliseconds
+     * @param slots slots per level
+     * @param levelCount number of levels; the wheel spans {@code slots^levelCount} ticks
+     * @param nowMillis the current time
+     */
+    public HierarchicalTimingWheel(long tickMillis, int slots, int levelCount, long nowMillis) {
+        this.tickMillis = tickMillis;
+        this.slots = slots;
+        this.levelSpans = new long[levelCount + 1];
+        this.levels = new ArrayList<>(levelCount);
+        long span = 1;
+        for (int level = 0; level <= levelCount; level++) {
+            levelSpans[level] = span;
+            span *= slots;
+        }
+        for (int level = 0; level < levelCount; level++) {
+            List<List<Timer>> wheel = new ArrayList<>(slots);
+            for (int slot = 0; slot < slots; slot++) {
+                wheel.add(new ArrayList<>());
+            }
+            levels.add(wheel);
+        }
+        this.currentTick = nowMillis / tickMillis;
+    }
+
+    /**
+     * Time covered by the wheel from the current tick; later deadlines are refused.
+     */
+    public long horizonMillis() {
+        return (levelSpans[levels.size()] - 1) * tickMillis;
+    }
+
+    /**
+     * Schedules or reschedules a key.
+     *
+     * @param key the timer key
+     * @param deadlineMillis the deadline in epoch millis; past deadlines fire on the next advance
+     * @return false if the deadline lies beyond the wheel's horizon and was not scheduled
+     */
+    public boolean schedule(String key, long deadlineMillis) {
+        long tick = Math.floorDiv(deadlineMillis + tickMillis - 1, tickMillis);
+        if (tick - currentTick >= levelSpans[levels.size()]) {
+            return false;
+        }
+        deadlines.put(key, tick);
+        place(new Timer(key, tick));
+        return true;
+    }
+
+    /**
+     * Cancels a key; a no-op if it is not scheduled.
+     */
+    public void cancel(String key) {
+        deadlines.remove(key);
+    }
+
+    /**
+     * Number of scheduled keys.
+     */
+    public int size() {
+        return deadlines.size();
+    }
+
+    /**
+     * Advances the wheel to the given time and returns the keys that fell due.
+     *
+     * @param nowMillis the current time
+     * @return the keys due at or before now; each key is returned once
+     */
+    public List<String> advance(long nowMillis) {
+        List<String> due = new ArrayList<>();
+        fire(overdue, due);
+
+        long target = nowMillis / tickMillis;
+        while (currentTick < target) {
+            currentTick++;
+            for (int level = levels.size() - 1; level > 0; level--) {
+                if (currentTick % levelSpans[level] == 0) {
+                    cascade(level);
+                }
+            }
+            fire(levels.get(0).get((int) (currentTick % slots)), due);
+            fire(overdue, due);
+        }
+        return due;
+    }
+
+    /**
+     * Collects the live timers of a slot and empties it.
+     */
+    private void fire(List<Timer> timers, List<String> due) {
+        for (Timer timer : timers) {
+            if (isLive(timer)) {
+                deadlines.remove(timer.key());
+                due.add(timer.key());
+            }
+        }
+        timers.clear();
+    }
+
+    /**
+     * Moves the timers of the level's current slot to lower levels.
+     */
+    private void cascade(int level) {
+        List<Timer> slot = levels.get(level).get((int) ((currentTick / levelSpans[level]) % slots));
+        List<Timer> timers = new ArrayList<>(slot);
+        slot.clear();
+        for (Timer timer : timers) {
+            if (isLive(timer)) {
+                place(timer);
+            }
+        }
+    }
+
+    private void place(Timer timer) {
+        long distance = timer.tick() - currentTick;
+        if (distance <= 0) {
+            overdue.add(timer);
+            return;
+        }
+        int level = 0;
+        while (distance >= levelSpans[level + 1]) {
+            level++;
+        }
+        levels.get(level).get((int) ((timer.tick() / levelSpans[level]) % slots)).add(timer);
+    }
+
+    private boolean isLive(Timer timer) {
+        Long tick = deadlines.get(timer.key());
+        return tick != null && tick == timer.tick();
+    }
+
+    private record Timer(String key, long tick) {
+    }
+}
@@ -1,6 +1,7 @@
 package com.ffms.resqeats.config;
 
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.scheduling.annotation.EnableAsync;
@@ -55,4 +56,42 @@ public class AsyncConfig {
         executor.initialize();
         return executor;
     }
+
+    /**
+     * Bounded pool for the chunks of the order expiry sweeps. The queue holds one chunk per
+     * worker; when it is full the sweep thread runs the next chunk itself, so it never pages
+     * further ahead than the workers can keep up with.
+     */
+    @Bean(name = "orderExpiryExecutor")
+    public Executor orderExpiryExecutor(@Value("${resqeats.order.deadlines.sweep-workers:4}") int workers) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(workers);
+        executor.setMaxPoolSize(workers);
+        executor.setQueueCapacity(workers);
+        executor.setThreadNamePrefix("order-expiry-");
+        executor.setWaitForTasksToCompleteOnShutdown(true);
+        executor.setAwaitTerminationSeconds(60);
+        executor.setRejectedExecutionHandler(new ThreadPoolExecutor.CallerRunsPolicy());
+        executor.initialize();
+        return executor;
+    }
+
+    /**
+     * Workers that expire the orders fired by the deadline tick, so the tick thread only
+     * advances the wheel. The queue absorbs a burst of deadlines falling due together; a
+     * deadline rejected when it is full is left to the polling sweep.
+     */
+    @Bean(name = "orderDeadlineExecutor")
+    public Executor orderDeadlineExecutor(@Value("${resqeats.order.deadlines.workers:4}") int workers,
+                                          @Value("${resqeats.order.deadlines.queue-capacity:10000}") int queueCapacity) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(workers);
+        executor.setMaxPoolSize(workers);
+        executor.setQueueCapacity(queueCapacity);
+        executor.setThreadNamePrefix("order-deadline-");
+        executor.setWaitForTasksToCompleteOnShutdown(true);
+        executor.setAwaitTerminationSeconds(60);
+        executor.initialize();
+        return executor;
+    }
 }
@@ -1,5 +1,8 @@
 package com.ffms.resqeats.config;
 
+import com.ffms.resqeats.inventory.service.InventoryKeys;
+import com.ffms.resqeats.inventory.service.InventoryNearCache;
+import com.ffms.resqeats.item.service.CatalogueCache;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.cache.Cache;
 import org.springframework.cache.annotation.CachingConfigurer;
@@ -8,7 +11,10 @@ import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.data.redis.connection.RedisConnectionFactory;
 import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
 import org.springframework.data.redis.serializer.GenericJackson2JsonRedisSerializer;
+import org.springframework.data.redis.serializer.RedisSerializer;
 import org.springframework.data.redis.serializer.StringRedisSerializer;
 
 /**
@@ -18,6 +24,7 @@ import org.springframework.data.redis.serializer.StringRedisSerializer;
  * - Session management
  * - Cart storage (soft-state with TTL)
  * - Inventory caching (real-time stock)
+ * - Inventory near-cache and catalogue cache invalidation (pub/sub)
  * - Geo index for nearby outlets
  * - Rate limiting
  * 
@@ -45,6 +52,36 @@ public class RedisConfig implements CachingConfigurer {
         return template;
     }
 
+    /**
+     * Template with raw byte values, for hashes whose fields use different {@code RedisCodec}s
+     * (carts: binary line details next to plain decimal quantities).
+     */
+    @Bean
+    public RedisTemplate<String, byte[]> binaryRedisTemplate(RedisConnectionFactory connectionFactory) {
+        RedisTemplate<String, byte[]> template = new RedisTemplate<>();
+        template.setConnectionFactory(connectionFactory);
+        template.setKeySerializer(StringRedisSerializer.UTF_8);
+        template.setHashKeySerializer(StringRedisSerializer.UTF_8);
+        template.setValueSerializer(RedisSerializer.byteArray());
+        template.setHashValueSerializer(RedisSerializer.byteArray());
+        template.afterPropertiesSet();
+        return template;
+    }
+
+    /**
+     * Subscribes the inventory near cache and the catalogue cache to changes published by any node.
+     */
+    @Bean
+    public RedisMessageListenerContainer redisMessageListenerContainer(RedisConnectionFactory connectionFactory,
+                                                                       InventoryNearCache inventoryNearCache,
+                                                                       CatalogueCache catalogueCache) {
+        RedisMessageListenerContainer container = new RedisMessageListenerContainer();
+        container.setConnectionFactory(connectionFactory);
+        container.addMessageListener(inventoryNearCache, new ChannelTopic(InventoryKeys.INVALIDATION_CHANNEL));
+        container.addMessageListener(catalogueCache, new ChannelTopic(CatalogueCache.INVALIDATION_CHANNEL));
+        return container;
+    }
+
     /**
      * MEDIUM-005 FIX: Custom error handler for Redis cache operations.
      * Logs errors and fails gracefully without crashing the application.
@@ -3,16 +3,22 @@ package com.ffms.resqeats.config;
 import net.javacrumbs.shedlock.core.LockProvider;
 import net.javacrumbs.shedlock.provider.redis.spring.RedisLockProvider;
 import net.javacrumbs.shedlock.spring.annotation.EnableSchedulerLock;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.data.redis.connection.RedisConnectionFactory;
 import org.springframework.scheduling.annotation.EnableScheduling;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskScheduler;
 
 /**
  * Scheduling configuration with ShedLock for distributed task locking.
  * 
  * MEDIUM FIX (Issue #10): Added ShedLock to prevent duplicate task execution
  * in multi-instance deployments.
+ *
+ * Scheduled tasks run on a shared pool rather than Spring's single default thread, so a
+ * long sweep or daily reset cannot hold back the one-second deadline tick, the deadline
+ * lease renewal, drop admission or the inventory recovery probe.
  */
 @Configuration
 @EnableScheduling
@@ -27,4 +33,18 @@ public class SchedulingConfig {
     public LockProvider lockProvider(RedisConnectionFactory connectionFactory) {
         return new RedisLockProvider(connectionFactory, "resqeats", "shedlock:");
     }
+
+    /**
+     * Thread pool for @Scheduled methods. A fixed-delay or fixed-rate task still never
+     * overlaps itself; the pool only lets different tasks run side by side.
+     */
+    @Bean
+    public ThreadPoolTaskScheduler taskScheduler(@Value("${resqeats.scheduling.pool-size:8}") int poolSize) {
+        ThreadPoolTaskScheduler scheduler = new ThreadPoolTaskScheduler();
+        scheduler.setPoolSize(poolSize);
+        scheduler.setThreadNamePrefix("scheduling-");
+        scheduler.setWaitForTasksToCompleteOnShutdown(true);
+        scheduler.setAwaitTerminationSeconds(30);
+        return scheduler;
+    }
 }
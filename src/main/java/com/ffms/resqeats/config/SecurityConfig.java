@@ -167,7 +167,7 @@ public class SecurityConfig {
                                 .requestMatchers("/admin/**").hasRole("ADMIN")
 
                                 // All API endpoints require authentication by default;
-                                .requestMatchers("/users/**", "/cart/**", "/orders/**", "/admin/**", "/items/**", "/payments/**", "/notifications/**").authenticated()
+                                .requestMatchers("/users/**", "/cart/**", "/drops/**", "/orders/**", "/admin/**", "/items/**", "/payments/**", "/notifications/**").authenticated()
                                 
                                 // All other requests require authentication
                                 .anyRequest().authenticated();
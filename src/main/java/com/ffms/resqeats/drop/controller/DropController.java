@@ -0,0 +1,44 @@
+package com.ffms.resqeats.drop.controller;
+
+import com.ffms.resqeats.common.dto.ApiResponse;
+import com.ffms.resqeats.drop.dto.DropTicketDto;
+import com.ffms.resqeats.drop.service.WaitingRoomService;
+import com.ffms.resqeats.security.CurrentUser;
+import com.ffms.resqeats.security.CustomUserDetails;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+/**
+ * Waiting room controller for scheduled drops.
+ *
+ * Endpoints:
+ * POST /drops/{outletId}/queue - Join an outlet's waiting room (idempotent; returns the current place)
+ *
+ * Queue progress is pushed on /topic/drop/{outletId}. Drops are scheduled through
+ * POST /outlets/{id}/drop.
+ */
+@RestController
+@RequestMapping("/drops")
+@RequiredArgsConstructor
+@Tag(name = "Drops", description = "Scheduled drop waiting room APIs")
+@PreAuthorize("hasRole('CUSTOMER_USER')")
+public class DropController {
+
+    private final WaitingRoomService waitingRoomService;
+
+    @PostMapping("/{outletId}/queue")
+    @Operation(summary = "Join a drop's waiting room")
+    public ResponseEntity<ApiResponse<DropTicketDto>> joinQueue(
+            @CurrentUser CustomUserDetails currentUser,
+            @PathVariable Long outletId) {
+        DropTicketDto ticket = waitingRoomService.join(currentUser.getId(), outletId);
+        return ResponseEntity.ok(ApiResponse.success(ticket));
+    }
+}
@@ -0,0 +1,46 @@
+package com.ffms.resqeats.drop.dto;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * A user's place in a drop's waiting room.
+ *
+ * While queued, the client follows /topic/drop/{outletId}: its position is
+ * ticket - admitted_through, and it is admitted once admitted_through reaches its ticket.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class DropTicketDto {
+
+    @JsonProperty("outlet_id")
+    private Long outletId;
+
+    /**
+     * QUEUED or ADMITTED.
+     */
+    private String status;
+
+    private Long ticket;
+
+    private Long position;
+
+    @JsonProperty("admitted_through")
+    private Long admittedThrough;
+
+    @JsonProperty("queue_length")
+    private Long queueLength;
+
+    @JsonProperty("release_at")
+    private LocalDateTime releaseAt;
+
+    @JsonProperty("admitted_until")
+    private LocalDateTime admittedUntil;
+}
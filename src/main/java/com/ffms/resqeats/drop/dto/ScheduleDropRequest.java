@@ -0,0 +1,49 @@
+package com.ffms.resqeats.drop.dto;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import jakarta.validation.constraints.Future;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Positive;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * Request to release an outlet's items at a scheduled instant behind a waiting room.
+ *
+ * Unset limits take the configured defaults (resqeats.drop.*).
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class ScheduleDropRequest {
+
+    @NotNull
+    @Future
+    @JsonProperty("release_at")
+    private LocalDateTime releaseAt;
+
+    @Positive
+    @JsonProperty("duration_minutes")
+    private Integer durationMinutes;
+
+    @Positive
+    @JsonProperty("admit_rate_per_second")
+    private Integer admitRatePerSecond;
+
+    @Positive
+    @JsonProperty("max_active")
+    private Integer maxActive;
+
+    @Positive
+    @JsonProperty("max_queue")
+    private Integer maxQueue;
+
+    @Positive
+    @JsonProperty("admission_seconds")
+    private Integer admissionSeconds;
+}
@@ -0,0 +1,41 @@
+package com.ffms.resqeats.drop.service;
+
+/**
+ * Redis key layout for scheduled drops and their waiting rooms.
+ *
+ * <ul>
+ *   <li>{@code drop:{outletId}} - Drop definition and admission state: release and end
+ *       instants, limits, ticket sequence ({@code seq}), highest admitted ticket ({@code head})
+ *       and the admission token bucket ({@code credit}, {@code lastTick})</li>
+ *   <li>{@code drop:queue:{outletId}} - Waiting users, sorted set of userId scored by ticket</li>
+ *   <li>{@code drop:admitted:{outletId}} - Admitted users, sorted set of userId scored by
+ *       admission deadline</li>
+ *   <li>{@code drop:active} - Outlets with a scheduled or running drop, scored by end instant</li>
+ * </ul>
+ *
+ * @author ResqEats Team
+ * @version 1.0
+ * @since 2024-01-01
+ */
+public final class DropKeys {
+
+    public static final String DROP_KEY_PREFIX = "drop:";
+    public static final String QUEUE_KEY_PREFIX = "drop:queue:";
+    public static final String ADMITTED_KEY_PREFIX = "drop:admitted:";
+    public static final String ACTIVE = "drop:active";
+
+    private DropKeys() {
+    }
+
+    public static String drop(Long outletId) {
+        return DROP_KEY_PREFIX + outletId;
+    }
+
+    public static String queue(Long outletId) {
+        return QUEUE_KEY_PREFIX + outletId;
+    }
+
+    public static String admitted(Long outletId) {
+        return ADMITTED_KEY_PREFIX + outletId;
+    }
+}
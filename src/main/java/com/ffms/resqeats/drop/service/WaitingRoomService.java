@@ -0,0 +1,292 @@
+package com.ffms.resqeats.drop.service;
+
+import com.ffms.resqeats.common.exception.BusinessException;
+import com.ffms.resqeats.drop.dto.DropTicketDto;
+import com.ffms.resqeats.drop.dto.ScheduleDropRequest;
+import com.ffms.resqeats.websocket.service.WebSocketService;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.redis.core.RedisOperations;
+import org.springframework.data.redis.core.SessionCallback;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.stereotype.Service;
+
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+
+/**
+ * Virtual waiting room for scheduled inventory drops.
+ *
+ * <p>An outlet can release its items at a scheduled instant instead of as soon as they are
+ * listed. From scheduling until the drop ends, users join a FIFO queue and receive a ticket;
+ * after the release instant users are admitted in ticket order at the drop's admission rate,
+ * and only admitted users get into the reservation path ({@code CartService.addItem}). A
+ * burst of any size therefore costs one cheap queue script per user, while stock reservations
+ * run at a flat, configured rate.</p>
+ *
+ * <p>All state lives in Redis (see {@link DropKeys}), so the queue is shared by every node.
+ * Each node ticks {@link #admitNext()}; the admission token bucket is kept in the drop hash
+ * and updated by the same script that admits, so the combined rate does not grow with the
+ * number of nodes. No per-user push is needed: every node broadcasts the highest admitted
+ * ticket on {@code /topic/drop/{outletId}} to its own subscribers, and clients derive their
+ * position from their ticket.</p>
+ *
+ * <p>Outlets without a drop pay nothing on the cart path: the set of outlets with a drop is
+ * mirrored on every node and refreshed on each tick.</p>
+ *
+ * @author ResqEats Team
+ * @version 1.0
+ * @since 2024-01-01
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+@SuppressWarnings("rawtypes")
+public class WaitingRoomService {
+
+    private static final RedisScript<List> JOIN = script("join.lua");
+    private static final RedisScript<List> ADMIT = script("admit.lua");
+    private static final RedisScript<Long> GATE = RedisScript.of(new ClassPathResource("scripts/drop/gate.lua"), Long.class);
+
+    private final StringRedisTemplate redisTemplate;
+    private final WebSocketService webSocketService;
+    private final MeterRegistry meterRegistry;
+
+    @Value("${resqeats.drop.duration-minutes:60}")
+    private int defaultDurationMinutes = 60;
+
+    @Value("${resqeats.drop.admit-rate-per-second:50}")
+    private int defaultAdmitRate = 50;
+
+    @Value("${resqeats.drop.max-active:500}")
+    private int defaultMaxActive = 500;
+
+    @Value("${resqeats.drop.max-queue:100000}")
+    private int defaultMaxQueue = 100000;
+
+    @Value("${resqeats.drop.admission-seconds:300}")
+    private int defaultAdmissionSeconds = 300;
+
+    /** Outlets with a scheduled or running drop, mirrored from {@link DropKeys#ACTIVE}. */
+    private final Set<Long> dropOutlets = ConcurrentHashMap.newKeySet();
+
+    /**
+     * Schedules a drop for an outlet, replacing any drop not yet released or already ended.
+     *
+     * @param outletId the outlet whose items are released at the drop
+     * @param request the release instant and optional limits
+     * @return the request with every limit resolved
+     * @throws BusinessException with code DROP_004 if the outlet's current drop has been released and not yet ended
+     */
+    public ScheduleDropRequest scheduleDrop(Long outletId, ScheduleDropRequest request) {
+        log.info("Scheduling drop: outletId={}, releaseAt={}", outletId, request.getReleaseAt());
+
+        // The drop hash outlives the drop by the admission window; an ended drop can be replaced
+        List<String> current = redisTemplate.<String, String>opsForHash()
+                .multiGet(DropKeys.drop(outletId), List.of("releaseAt", "endsAt"));
+        long now = System.currentTimeMillis();
+        if (current.get(0) != null && current.get(1) != null
+                && Long.parseLong(current.get(0)) <= now && now < Long.parseLong(current.get(1))) {
+            log.warn("Drop already running for outlet: {}", outletId);
+            throw new BusinessException("DROP_004", "A drop is already running for this outlet");
+        }
+
+        ScheduleDropRequest resolved = ScheduleDropRequest.builder()
+                .releaseAt(request.getReleaseAt())
+                .durationMinutes(orDefault(request.getDurationMinutes(), defaultDurationMinutes))
+                .admitRatePerSecond(orDefault(request.getAdmitRatePerSecond(), defaultAdmitRate))
+                .maxActive(orDefault(request.getMaxActive(), defaultMaxActive))
+                .maxQueue(orDefault(request.getMaxQueue(), defaultMaxQueue))
+                .admissionSeconds(orDefault(request.getAdmissionSeconds(), defaultAdmissionSeconds))
+                .build();
+        long releaseAt = toEpochMillis(resolved.getReleaseAt());
+        long endsAt = releaseAt + resolved.getDurationMinutes() * 60_000L;
+        long admitMillis = resolved.getAdmissionSeconds() * 1000L;
+        Instant expireAt = Instant.ofEpochMilli(endsAt + admitMillis);
+
+        redisTemplate.execute(new SessionCallback<List<Object>>() {
+            @Override
+            @SuppressWarnings("unchecked")
+            public <K, V> List<Object> execute(RedisOperations<K, V> operations) throws DataAccessException {
+                RedisOperations<String, String> ops = (RedisOperations<String, String>) operations;
+                ops.multi();
+                ops.delete(List.of(DropKeys.drop(outletId), DropKeys.queue(outletId), DropKeys.admitted(outletId)));
+                ops.opsForHash().putAll(DropKeys.drop(outletId), Map.of(
+                        "releaseAt", String.valueOf(releaseAt),
+                        "endsAt", String.valueOf(endsAt),
+                        "rate", String.valueOf(resolved.getAdmitRatePerSecond()),
+                        "maxActive", String.valueOf(resolved.getMaxActive()),
+                        "maxQueue", String.valueOf(resolved.getMaxQueue()),
+                        "admitMillis", String.valueOf(admitMillis)));
+                ops.expireAt(DropKeys.drop(outletId), expireAt);
+                ops.opsForZSet().add(DropKeys.ACTIVE, outletId.toString(), endsAt);
+                return ops.exec();
+            }
+        });
+        dropOutlets.add(outletId);
+
+        log.info("Drop scheduled: outletId={}, releaseAt={}, endsAt={}, ratePerSecond={}",
+                outletId, resolved.getReleaseAt(), toLocalDateTime(endsAt), resolved.getAdmitRatePerSecond());
+        return resolved;
+    }
+
+    /**
+     * Cancels an outlet's drop and empties its waiting room; the items become available to everyone.
+     *
+     * @param outletId the outlet whose drop is cancelled
+     */
+    public void cancelDrop(Long outletId) {
+        log.info("Cancelling drop: outletId={}", outletId);
+        redisTemplate.delete(List.of(DropKeys.drop(outletId), DropKeys.queue(outletId), DropKeys.admitted(outletId)));
+        redisTemplate.opsForZSet().remove(DropKeys.ACTIVE, outletId.toString());
+        dropOutlets.remove(outletId);
+    }
+
+    /**
+     * Joins an outlet's waiting room, or returns the user's current place in it.
+     *
+     * @param userId the joining user
+     * @param outletId the outlet running the drop
+     * @return the user's ticket, or their admission if already admitted
+     * @throws BusinessException with code DROP_001 if the outlet has no drop
+     * @throws BusinessException with code DROP_005 if the waiting room is full
+     */
+    public DropTicketDto join(Long userId, Long outletId) {
+        log.info("Joining waiting room - userId: {}, outletId: {}", userId, outletId);
+
+        long now = System.currentTimeMillis();
+        List result = redisTemplate.execute(JOIN,
+                List.of(DropKeys.drop(outletId), DropKeys.queue(outletId), DropKeys.admitted(outletId)),
+                userId.toString(), String.valueOf(now));
+        if (result == null || result.size() < 4) {
+            throw new BusinessException("DROP_006", "Waiting room unavailable");
+        }
+        long status = number(result, 0);
+        long ticket = number(result, 1);
+        long head = number(result, 2);
+        long value = number(result, 3);
+
+        if (status == -1) {
+            log.warn("No drop running for outlet: {}", outletId);
+            throw new BusinessException("DROP_001", "No drop is scheduled for this outlet");
+        }
+        if (status == -2) {
+            log.warn("Waiting room full - outletId: {}, queueLength: {}", outletId, value);
+            meterRegistry.counter("resqeats.drop.rejected").increment();
+            throw new BusinessException("DROP_005", "The waiting room is full, please try again later");
+        }
+
+        Object releaseAt = redisTemplate.opsForHash().get(DropKeys.drop(outletId), "releaseAt");
+        DropTicketDto.DropTicketDtoBuilder ticketDto = DropTicketDto.builder()
+                .outletId(outletId)
+                .admittedThrough(head)
+                .releaseAt(releaseAt != null ? toLocalDateTime(Long.parseLong(releaseAt.toString())) : null);
+        if (status == 2) {
+            log.debug("User already admitted - userId: {}, outletId: {}", userId, outletId);
+            return ticketDto.status("ADMITTED").position(0L).admittedUntil(toLocalDateTime(value)).build();
+        }
+
+        meterRegistry.counter("resqeats.drop.joined").increment();
+        log.info("User queued - userId: {}, outletId: {}, ticket: {}, position: {}",
+                userId, outletId, ticket, ticket - head);
+        return ticketDto.status("QUEUED")
+                .ticket(ticket)
+                .position(Math.max(ticket - head, 0))
+                .queueLength(value)
+                .build();
+    }
+
+    /**
+     * Lets a user into the reservation path of an outlet's items.
+     *
+     * <p>Free for outlets without a drop. During a drop costs one Redis round trip.</p>
+     *
+     * @param userId the user reserving stock
+     * @param outletId the outlet the items belong to
+     * @throws BusinessException with code DROP_002 if the drop has not been released yet
+     * @throws BusinessException with code DROP_003 if the user has not been admitted from the waiting room
+     */
+    public void checkAdmission(Long userId, Long outletId) {
+        if (outletId == null || !dropOutlets.contains(outletId)) {
+            return;
+        }
+        Long gate = redisTemplate.execute(GATE, List.of(DropKeys.drop(outletId), DropKeys.admitted(outletId)),
+                userId.toString(), String.valueOf(System.currentTimeMillis()));
+        if (gate == null || gate == 1) {
+            return;
+        }
+        if (gate == 0) {
+            log.debug("Drop not released yet - userId: {}, outletId: {}", userId, outletId);
+            throw new BusinessException("DROP_002", "These items have not been released yet");
+        }
+        log.debug("User not admitted to drop - userId: {}, outletId: {}", userId, outletId);
+        throw new BusinessException("DROP_003", "Please join the waiting room for this drop");
+    }
+
+    /**
+     * Admits the next users of every running drop and broadcasts the queue heads.
+     *
+     * <p>Safe to run on every node at once; see {@code admit.lua}.</p>
+     *
+     * @return the number of users admitted by this node
+     */
+    public int admitNext() {
+        long now = System.currentTimeMillis();
+        redisTemplate.opsForZSet().removeRangeByScore(DropKeys.ACTIVE, Double.NEGATIVE_INFINITY, now);
+        Set<String> active = redisTemplate.opsForZSet().rangeByScore(DropKeys.ACTIVE, now, Double.POSITIVE_INFINITY);
+        Set<Long> outlets = active == null ? Set.of()
+                : active.stream().map(Long::valueOf).collect(Collectors.toSet());
+        dropOutlets.retainAll(outlets);
+        dropOutlets.addAll(outlets);
+
+        int total = 0;
+        for (Long outletId : outlets) {
+            List result = redisTemplate.execute(ADMIT,
+                    List.of(DropKeys.drop(outletId), DropKeys.queue(outletId), DropKeys.admitted(outletId)),
+                    String.valueOf(now));
+            if (result == null || result.size() < 4 || number(result, 3) != 1) {
+                continue;
+            }
+            long admitted = number(result, 0);
+            total += admitted;
+            if (admitted > 0) {
+                meterRegistry.counter("resqeats.drop.admitted").increment(admitted);
+                log.debug("Drop admission - outletId: {}, admitted: {}, head: {}, waiting: {}",
+                        outletId, admitted, number(result, 1), number(result, 2));
+            }
+            webSocketService.broadcastDropQueue(outletId, number(result, 1), number(result, 2));
+        }
+        return total;
+    }
+
+    private static RedisScript<List> script(String name) {
+        return RedisScript.of(new ClassPathResource("scripts/drop/" + name), List.class);
+    }
+
+    private static long number(List result, int index) {
+        return ((Number) result.get(index)).longValue();
+    }
+
+    private static int orDefault(Integer value, int defaultValue) {
+        return value != null ? value : defaultValue;
+    }
+
+    private static long toEpochMillis(LocalDateTime time) {
+        return time.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+    }
+
+    private static LocalDateTime toLocalDateTime(long epochMillis) {
+        return LocalDateTime.ofInstant(Instant.ofEpochMilli(epochMillis), ZoneId.systemDefault());
+    }
+}
@@ -0,0 +1,35 @@
+package com.ffms.resqeats.inventory.entity;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.ffms.resqeats.common.entity.BaseEntity;
+import jakarta.persistence.*;
+import jakarta.validation.constraints.NotNull;
+import lombok.*;
+
+/**
+ * Applied write-behind batch marker.
+ * Written in the same transaction as the batch's stock updates so a batch
+ * replayed after a crash is recognised and not applied twice.
+ */
+@Entity
+@Table(name = "inventory_delta_batches", indexes = {
+        @Index(name = "idx_inventory_delta_batch_id", columnList = "batch_id", unique = true),
+        @Index(name = "idx_inventory_delta_batch_created", columnList = "created_at")
+})
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class InventoryDeltaBatch extends BaseEntity {
+
+    @NotNull
+    @Column(name = "batch_id", length = 36, nullable = false, unique = true)
+    @JsonProperty("batch_id")
+    private String batchId;
+
+    @NotNull
+    @Column(name = "item_count", nullable = false)
+    @JsonProperty("item_count")
+    private Integer itemCount;
+}
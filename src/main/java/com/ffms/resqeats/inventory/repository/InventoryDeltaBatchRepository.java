@@ -0,0 +1,28 @@
+package com.ffms.resqeats.inventory.repository;
+
+import com.ffms.resqeats.common.repository.BaseScopedRepository;
+import com.ffms.resqeats.inventory.entity.InventoryDeltaBatch;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+
+/**
+ * InventoryDeltaBatch repository for write-behind idempotency markers.
+ */
+@Repository
+public interface InventoryDeltaBatchRepository extends BaseScopedRepository<InventoryDeltaBatch> {
+
+    boolean existsByBatchId(String batchId);
+
+    @Modifying
+    @Query("DELETE FROM InventoryDeltaBatch b WHERE b.createdAt < :before")
+    int deleteCreatedBefore(@Param("before") LocalDateTime before);
+
+    @Override
+    default void validateScope(InventoryDeltaBatch entity) {
+        // System table written only by the inventory write-behind job; no tenant scope.
+    }
+}
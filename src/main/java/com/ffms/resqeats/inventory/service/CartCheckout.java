@@ -0,0 +1,30 @@
+package com.ffms.resqeats.inventory.service;
+
+import lombok.Builder;
+import lombok.Singular;
+import lombok.Value;
+
+import java.util.Map;
+
+/**
+ * Hand-over of a Redis cart's holds to an order, applied by
+ * {@link InventoryService#checkoutCart(CartCheckout)}. All lines succeed or none does.
+ */
+@Value
+@Builder
+public class CartCheckout {
+
+    String cartKey;
+    String cartId;
+    Long outletId;
+
+    /** Holder id the order keeps its holds under, see {@link InventoryKeys#orderHolder(Long)}. */
+    String holderId;
+
+    /** Epoch millis after which the order's holds may be reclaimed. */
+    long deadline;
+
+    /** Checked-out quantity per outlet item id; must match the cart exactly. */
+    @Singular
+    Map<Long, Integer> quantities;
+}
@@ -0,0 +1,45 @@
+package com.ffms.resqeats.inventory.service;
+
+import lombok.Builder;
+import lombok.Singular;
+import lombok.Value;
+
+import java.time.Duration;
+import java.util.List;
+
+/**
+ * A change to one or more lines of a Redis cart, applied together with the cart's stock holds
+ * by {@link InventoryService#updateCartLines(CartLineChange)}. All lines succeed or none does.
+ */
+@Value
+@Builder
+public class CartLineChange {
+
+    String cartKey;
+    String cartId;
+
+    /** Outlet of the items; required when {@link #increment} is set, which may start new lines. */
+    Long outletId;
+
+    /** {@code true} to add each line's quantity to the cart, {@code false} to replace it. */
+    boolean increment;
+
+    Duration cartTtl;
+
+    @Singular
+    List<Line> lines;
+
+    /**
+     * One line of the change; an outlet item appears at most once per change.
+     */
+    @Value
+    public static class Line {
+
+        Long outletItemId;
+
+        int quantity;
+
+        /** Encoded line details, written only when the line is new; may be {@code null} otherwise. */
+        byte[] details;
+    }
+}
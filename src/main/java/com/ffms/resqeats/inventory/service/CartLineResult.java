@@ -0,0 +1,38 @@
+package com.ffms.resqeats.inventory.service;
+
+import lombok.Value;
+
+import java.util.Map;
+
+/**
+ * Outcome of a {@link CartLineChange} or a {@link CartCheckout}, as returned by
+ * {@code cart_lines.lua} and {@code cart_checkout.lua}.
+ */
+@Value
+public class CartLineResult {
+
+    public static final long STATUS_OUTLET_MISMATCH = -2L;
+    public static final long STATUS_NOT_IN_CART = -3L;
+    public static final long STATUS_CART_CHANGED = -4L;
+    public static final long STATUS_ITEM_QUOTA = -5L;
+    public static final long STATUS_USER_QUOTA = -6L;
+
+    /** {@link InventoryScripts#STATUS_OK}, {@link InventoryScripts#STATUS_INSUFFICIENT} or one of the above. */
+    long status;
+
+    /** The rejected line's outlet item, or {@code null} after a success or a cart-wide rejection. */
+    Long outletItemId;
+
+    /**
+     * The most the cart can hold of {@link #outletItemId} when stock is insufficient, the per-item
+     * cap for {@link #STATUS_ITEM_QUOTA}, or the units the cart may still add for {@link #STATUS_USER_QUOTA}.
+     */
+    int available;
+
+    /** Cart hash fields after the change; empty unless the change succeeded. */
+    Map<String, byte[]> cart;
+
+    public boolean isOk() {
+        return status == InventoryScripts.STATUS_OK;
+    }
+}
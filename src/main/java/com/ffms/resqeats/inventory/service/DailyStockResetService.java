@@ -0,0 +1,208 @@
+package com.ffms.resqeats.inventory.service;
+
+import com.ffms.resqeats.item.repository.OutletItemRepository;
+import com.ffms.resqeats.outlet.entity.OutletHours;
+import com.ffms.resqeats.outlet.enums.OutletStatus;
+import com.ffms.resqeats.outlet.repository.OutletHoursRepository;
+import com.ffms.resqeats.outlet.repository.OutletRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.DateTimeException;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+/**
+ * Resets outlet stock to the daily quantities at each outlet's local opening time.
+ *
+ * <p>Every active outlet carries the time of its next reset in {@code next_stock_reset_at}
+ * (server time), computed from its operating hours in its own time zone. Due outlets are
+ * reset a batch at a time: the batch's resets are claimed with a conditional UPDATE that moves
+ * each one to the following opening, and the claimed outlets are reset with one bulk UPDATE
+ * of {@code outlet_items}, all in one transaction. A claim only succeeds for the node that
+ * still sees the expected reset time, so several nodes can sweep concurrently and each outlet
+ * is reset exactly once per day without a cluster-wide lock.</p>
+ *
+ * <p>The Redis counters are rebuilt by {@link InventoryService#resetDailyStock(List)} once the
+ * batch has committed; see {@code DailyStockResetTask}.</p>
+ *
+ * @author ResqEats Team
+ * @version 1.0
+ * @since 2024-01-01
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class DailyStockResetService {
+
+    /** Days searched for the next opening; a week covers every weekly schedule. */
+    private static final int LOOKAHEAD_DAYS = 7;
+
+    private final OutletRepository outletRepository;
+    private final OutletHoursRepository outletHoursRepository;
+    private final OutletItemRepository outletItemRepository;
+    private final MeterRegistry meterRegistry;
+
+    @Value("${resqeats.inventory.daily-reset.default-time:06:00}")
+    private String defaultTime = "06:00";
+
+    @Value("${resqeats.inventory.daily-reset.default-zone:}")
+    private String defaultZone = "";
+
+    /**
+     * Plans the first reset of active outlets that have none yet.
+     *
+     * @param limit the maximum number of outlets to plan
+     * @return the number of outlets planned by this call
+     */
+    @Transactional
+    public int planUnplannedResets(int limit) {
+        List<OutletRepository.StockResetSlot> outlets =
+                outletRepository.findUnplannedStockResets(OutletStatus.ACTIVE, PageRequest.ofSize(limit));
+        if (outlets.isEmpty()) {
+            return 0;
+        }
+
+        LocalDateTime now = LocalDateTime.now();
+        Map<Long, List<OutletHours>> hours = hoursByOutlet(outlets);
+        int planned = 0;
+        for (OutletRepository.StockResetSlot outlet : outlets) {
+            LocalDateTime next = nextOpening(outlet, hours.getOrDefault(outlet.getId(), List.of()), now);
+            planned += outletRepository.planStockReset(outlet.getId(), next);
+            log.debug("Daily stock reset planned: outletId={}, at={}", outlet.getId(), next);
+        }
+        log.info("Daily stock resets planned: outlets={}", planned);
+        return planned;
+    }
+
+    /**
+     * Claims and resets one batch of due outlets.
+     *
+     * <p>Outlets claimed by another node in the meantime are skipped. Outlets whose reset is
+     * overdue by more than a day (e.g. after downtime) are reset once and moved to their next
+     * opening after now, not replayed day by day.</p>
+     *
+     * @param batchSize the maximum number of outlets to reset
+     * @return the reset items with their new stock; empty when nothing was due
+     */
+    @Transactional
+    public ResetBatch resetDueBatch(int batchSize) {
+        LocalDateTime now = LocalDateTime.now();
+        List<OutletRepository.StockResetSlot> due =
+                outletRepository.findDueStockResets(now, OutletStatus.ACTIVE, PageRequest.ofSize(batchSize));
+        if (due.isEmpty()) {
+            return ResetBatch.EMPTY;
+        }
+
+        Map<Long, List<OutletHours>> hours = hoursByOutlet(due);
+        List<Long> claimed = new ArrayList<>(due.size());
+        for (OutletRepository.StockResetSlot outlet : due) {
+            LocalDateTime next = nextOpening(outlet, hours.getOrDefault(outlet.getId(), List.of()), now);
+            if (outletRepository.claimStockReset(outlet.getId(), outlet.getNextStockResetAt(), next) == 1) {
+                claimed.add(outlet.getId());
+                log.debug("Daily stock reset claimed: outletId={}, dueAt={}, nextAt={}",
+                        outlet.getId(), outlet.getNextStockResetAt(), next);
+            }
+        }
+        if (claimed.isEmpty()) {
+            return new ResetBatch(due.size(), List.of());
+        }
+
+        int reset = outletItemRepository.resetDailyQuantities(claimed);
+        List<OutletItemRepository.StockLevel> items = outletItemRepository.findStockLevelsByOutletIds(claimed);
+
+        meterRegistry.counter("resqeats.inventory.daily-reset.outlets").increment(claimed.size());
+        meterRegistry.counter("resqeats.inventory.daily-reset.items").increment(reset);
+        log.info("Daily stock reset in database: outlets={}, items={}, skipped={}",
+                claimed.size(), reset, due.size() - claimed.size());
+        return new ResetBatch(due.size(), items);
+    }
+
+    /**
+     * Next opening of an outlet after a point in time, in server time.
+     *
+     * <p>Uses the opening time of each day the outlet is open, or the configured default time
+     * when the outlet has no hours for that day. Falls back to the default time tomorrow when
+     * the outlet is closed all week.</p>
+     */
+    LocalDateTime nextOpening(OutletRepository.StockResetSlot outlet, List<OutletHours> hours, LocalDateTime after) {
+        ZoneId zone = zoneOf(outlet);
+        ZonedDateTime reference = after.atZone(ZoneId.systemDefault()).withZoneSameInstant(zone);
+        LocalDate today = reference.toLocalDate();
+
+        for (int day = 0; day <= LOOKAHEAD_DAYS; day++) {
+            LocalDate date = today.plusDays(day);
+            LocalTime opening = openingTime(hours, date.getDayOfWeek().getValue() % 7);
+            if (opening == null) {
+                continue;
+            }
+            ZonedDateTime candidate = date.atTime(opening).atZone(zone);
+            if (candidate.isAfter(reference)) {
+                return candidate.withZoneSameInstant(ZoneId.systemDefault()).toLocalDateTime();
+            }
+        }
+
+        log.warn("Outlet has no opening day, using default reset time: outletId={}", outlet.getId());
+        return today.plusDays(1).atTime(LocalTime.parse(defaultTime)).atZone(zone)
+                .withZoneSameInstant(ZoneId.systemDefault()).toLocalDateTime();
+    }
+
+    /**
+     * @param dayOfWeek 0=Sunday .. 6=Saturday, as stored in {@code outlet_hours}
+     * @return the opening time, the default time when the day has no hours, or null if closed
+     */
+    private LocalTime openingTime(List<OutletHours> hours, int dayOfWeek) {
+        for (OutletHours day : hours) {
+            if (day.getDayOfWeek() == dayOfWeek) {
+                if (Boolean.TRUE.equals(day.getIsClosed())) {
+                    return null;
+                }
+                return day.getOpenTime() != null ? day.getOpenTime() : LocalTime.parse(defaultTime);
+            }
+        }
+        return LocalTime.parse(defaultTime);
+    }
+
+    private ZoneId zoneOf(OutletRepository.StockResetSlot outlet) {
+        String zone = outlet.getTimezone() != null && !outlet.getTimezone().isBlank()
+                ? outlet.getTimezone() : defaultZone;
+        if (zone == null || zone.isBlank()) {
+            return ZoneId.systemDefault();
+        }
+        try {
+            return ZoneId.of(zone);
+        } catch (DateTimeException e) {
+            log.warn("Invalid outlet time zone, using server zone: outletId={}, timezone={}", outlet.getId(), zone);
+            return ZoneId.systemDefault();
+        }
+    }
+
+    private Map<Long, List<OutletHours>> hoursByOutlet(List<OutletRepository.StockResetSlot> outlets) {
+        List<Long> ids = outlets.stream().map(OutletRepository.StockResetSlot::getId).collect(Collectors.toList());
+        return outletHoursRepository.findByOutletIdIn(ids).stream()
+                .collect(Collectors.groupingBy(OutletHours::getOutletId));
+    }
+
+    /**
+     * Outcome of one reset batch.
+     *
+     * @param due the number of due outlets found, claimed or not
+     * @param items the items reset by this node with their new stock
+     */
+    public record ResetBatch(int due, List<OutletItemRepository.StockLevel> items) {
+        static final ResetBatch EMPTY = new ResetBatch(0, Collections.emptyList());
+    }
+}
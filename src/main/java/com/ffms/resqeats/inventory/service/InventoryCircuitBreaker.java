@@ -0,0 +1,149 @@
+package com.ffms.resqeats.inventory.service;
+
+import io.lettuce.core.RedisConnectionException;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.QueryTimeoutException;
+import org.springframework.data.redis.RedisConnectionFailureException;
+import org.springframework.stereotype.Component;
+
+import java.net.ConnectException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Tracks whether Redis can serve inventory operations on this node.
+ *
+ * <p><strong>States:</strong></p>
+ * <ul>
+ *   <li>{@code CLOSED} - Redis is healthy; inventory runs on the Redis counters</li>
+ *   <li>{@code OPEN} - {@code resqeats.inventory.degraded.failure-threshold} consecutive Redis
+ *       connection failures were seen; inventory runs on conditional SQL updates against
+ *       {@code outlet_items}</li>
+ *   <li>{@code RECOVERING} - Redis answers again and its counters are being rebuilt from the
+ *       database; operations stay on the database until the rebuild completes</li>
+ * </ul>
+ *
+ * <p>Transitions out of {@code OPEN} are driven by {@link InventoryRecoveryService#probeRedis()},
+ * never by request threads, so a flapping Redis does not make orders wait on a rebuild. Items changed
+ * through the database while the breaker is not closed are remembered so the rebuild can
+ * revisit any it already passed.</p>
+ *
+ * <p>The state is exposed as {@code resqeats.inventory.redis.degraded} (1 while not closed).</p>
+ *
+ * @author ResqEats Team
+ * @version 1.0
+ * @since 2024-01-01
+ */
+@Component
+@Slf4j
+public class InventoryCircuitBreaker {
+
+    public enum State { CLOSED, OPEN, RECOVERING }
+
+    private final int failureThreshold;
+    private final AtomicReference<State> state = new AtomicReference<>(State.CLOSED);
+    private final AtomicInteger consecutiveFailures = new AtomicInteger();
+    private final Set<Long> changedWhileDegraded = ConcurrentHashMap.newKeySet();
+
+    public InventoryCircuitBreaker(MeterRegistry meterRegistry,
+                                   @Value("${resqeats.inventory.degraded.failure-threshold:3}") int failureThreshold) {
+        this.failureThreshold = failureThreshold;
+        meterRegistry.gauge("resqeats.inventory.redis.degraded", state, s -> s.get() == State.CLOSED ? 0 : 1);
+    }
+
+    /**
+     * @return {@code true} if inventory operations should use Redis
+     */
+    public boolean isClosed() {
+        return state.get() == State.CLOSED;
+    }
+
+    public State state() {
+        return state.get();
+    }
+
+    /**
+     * Whether an exception means Redis itself is unreachable, as opposed to a script or data error.
+     */
+    public boolean isRedisFailure(RuntimeException e) {
+        return e instanceof RedisConnectionFailureException || e instanceof QueryTimeoutException;
+    }
+
+    /**
+     * Whether a Redis failure proves the command never reached Redis, because no connection
+     * could be established. After a timeout or a connection lost mid-command the command may
+     * already have run.
+     */
+    public boolean isConnectRefused(RuntimeException e) {
+        if (!(e instanceof RedisConnectionFailureException)) {
+            return false;
+        }
+        for (Throwable cause = e.getCause(); cause != null; cause = cause.getCause()) {
+            if (cause instanceof RedisConnectionException || cause instanceof ConnectException) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    public void recordSuccess() {
+        if (consecutiveFailures.get() > 0) {
+            consecutiveFailures.set(0);
+        }
+    }
+
+    public void recordFailure(RuntimeException e) {
+        int failures = consecutiveFailures.incrementAndGet();
+        if (failures >= failureThreshold && state.compareAndSet(State.CLOSED, State.OPEN)) {
+            log.error("Redis unavailable after {} consecutive failures, inventory switched to database mode: {}",
+                    failures, e.getMessage());
+        }
+    }
+
+    /**
+     * Records items whose stock changed in the database while Redis was bypassed.
+     */
+    public void markChanged(Collection<Long> outletItemIds) {
+        changedWhileDegraded.addAll(outletItemIds);
+    }
+
+    /**
+     * Removes and returns the items changed in the database since the last call.
+     */
+    public List<Long> drainChanged() {
+        List<Long> drained = new ArrayList<>(changedWhileDegraded);
+        changedWhileDegraded.removeAll(drained);
+        return drained;
+    }
+
+    /**
+     * Moves an open breaker to {@code RECOVERING}; returns {@code false} if it was not open.
+     */
+    public boolean beginRecovery() {
+        return state.compareAndSet(State.OPEN, State.RECOVERING);
+    }
+
+    /**
+     * Completes a recovery and returns inventory to Redis.
+     */
+    public void close() {
+        consecutiveFailures.set(0);
+        if (state.compareAndSet(State.RECOVERING, State.CLOSED)) {
+            log.info("Redis recovered, inventory switched back to Redis counters");
+        }
+    }
+
+    /**
+     * Abandons a recovery whose rebuild failed; the next probe tries again.
+     */
+    public void reopen() {
+        state.compareAndSet(State.RECOVERING, State.OPEN);
+    }
+}
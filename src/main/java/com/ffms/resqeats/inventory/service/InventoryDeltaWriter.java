@@ -0,0 +1,91 @@
+package com.ffms.resqeats.inventory.service;
+
+import com.ffms.resqeats.inventory.entity.InventoryDeltaBatch;
+import com.ffms.resqeats.inventory.repository.InventoryDeltaBatchRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Applies a claimed batch of write-behind inventory deltas to {@code outlet_items}.
+ *
+ * <p>Net deltas are written with the same conditional UPDATEs as
+ * {@code OutletItemRepository.decrementQuantity} / {@code incrementQuantity}, issued through
+ * {@link JdbcTemplate#batchUpdate} because JPQL {@code @Modifying} queries cannot be JDBC-batched.
+ * The batch marker is saved in the same transaction, making a replayed batch a no-op.</p>
+ *
+ * @author ResqEats Team
+ * @version 1.0
+ * @since 2024-01-01
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class InventoryDeltaWriter {
+
+    private static final String DECREMENT_SQL =
+            "UPDATE outlet_items SET current_quantity = current_quantity - ? WHERE id = ? AND current_quantity >= ?";
+    private static final String INCREMENT_SQL =
+            "UPDATE outlet_items SET current_quantity = current_quantity + ? WHERE id = ?";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final InventoryDeltaBatchRepository batchRepository;
+
+    /**
+     * Applies net per-item deltas for a batch exactly once.
+     *
+     * @param batchId the batch identifier assigned when the deltas were claimed
+     * @param deltas net quantity change per outlet item id
+     * @return the number of decrements the database rejected because stock would go negative,
+     *         or 0 when the batch had already been applied
+     */
+    @Transactional
+    public int applyBatch(String batchId, Map<Long, Integer> deltas) {
+        if (batchRepository.existsByBatchId(batchId)) {
+            log.info("Inventory delta batch already applied, skipping: batchId={}", batchId);
+            return 0;
+        }
+
+        List<Object[]> decrements = new ArrayList<>();
+        List<Object[]> increments = new ArrayList<>();
+        List<Long> decrementIds = new ArrayList<>();
+        deltas.forEach((outletItemId, delta) -> {
+            if (delta < 0) {
+                decrements.add(new Object[]{-delta, outletItemId, -delta});
+                decrementIds.add(outletItemId);
+            } else if (delta > 0) {
+                increments.add(new Object[]{delta, outletItemId});
+            }
+        });
+
+        int rejected = 0;
+        if (!decrements.isEmpty()) {
+            int[] counts = jdbcTemplate.batchUpdate(DECREMENT_SQL, decrements);
+            for (int i = 0; i < counts.length; i++) {
+                if (counts[i] == 0) {
+                    rejected++;
+                    log.warn("Write-behind decrement rejected by database guard: outletItemId={}, quantity={}",
+                            decrementIds.get(i), decrements.get(i)[0]);
+                }
+            }
+        }
+        if (!increments.isEmpty()) {
+            jdbcTemplate.batchUpdate(INCREMENT_SQL, increments);
+        }
+
+        batchRepository.save(InventoryDeltaBatch.builder()
+                .batchId(batchId)
+                .itemCount(deltas.size())
+                .build());
+
+        log.info("Inventory delta batch applied: batchId={}, decrements={}, increments={}, rejected={}",
+                batchId, decrements.size(), increments.size(), rejected);
+        return rejected;
+    }
+}
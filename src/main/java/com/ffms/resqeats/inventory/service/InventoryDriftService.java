@@ -0,0 +1,319 @@
+package com.ffms.resqeats.inventory.service;
+
+import com.ffms.resqeats.item.repository.OutletItemRepository;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import net.javacrumbs.shedlock.spring.annotation.SchedulerLock;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Detects drift between the Redis inventory counters and the database, and optionally heals it.
+ *
+ * <p>The Redis stock counter of an item should always equal its persisted
+ * {@code outlet_items.current_quantity} plus its unflushed write-behind delta, and its reserved
+ * counter should equal the sum of its live cart holds. Lost writes, manual edits and bugs break
+ * those invariants silently; this job finds them.</p>
+ *
+ * <p><strong>Incremental:</strong> each run inspects at most
+ * {@code resqeats.inventory.drift.max-items-per-run} items in keyset-paginated chunks of
+ * {@code resqeats.inventory.drift.chunk-size}, continuing from the cursor stored in
+ * {@value InventoryKeys#DRIFT_CURSOR}, so a full pass spreads over several runs (and nodes) and
+ * no single Redis call holds the server for long. The Redis side of a chunk is snapshotted with
+ * one {@code inspect_drift.lua} call.</p>
+ *
+ * <p><strong>Races:</strong> the database side of a chunk is read before and after the snapshot;
+ * items whose persisted quantity changed in between, or that have a write-behind batch in flight,
+ * are skipped for this pass rather than reported.</p>
+ *
+ * <p><strong>Healing:</strong> with {@code resqeats.inventory.drift.auto-heal} enabled, drift of
+ * at most {@code resqeats.inventory.drift.max-heal-units} units is corrected: stock counters with
+ * a compare-and-set script that gives up if the counter moved since the snapshot, reserved
+ * counters by resetting them to their live holds. Larger drift is only reported.</p>
+ *
+ * <p><strong>Metrics:</strong></p>
+ * <ul>
+ *   <li>{@code resqeats.inventory.drift.inspected} - Items compared</li>
+ *   <li>{@code resqeats.inventory.drift.skipped} - Items skipped because they changed mid-inspection</li>
+ *   <li>{@code resqeats.inventory.drift.items{type}} - Items found drifting ({@code stock} or {@code reserved})</li>
+ *   <li>{@code resqeats.inventory.drift.units{type}} - Histogram of absolute drift per drifting item</li>
+ *   <li>{@code resqeats.inventory.drift.healed{type}} - Items corrected by auto-heal</li>
+ * </ul>
+ *
+ * @author ResqEats Team
+ * @version 1.0
+ * @since 2024-01-01
+ */
+@Service
+@Slf4j
+public class InventoryDriftService {
+
+    private static final String STOCK = "stock";
+    private static final String RESERVED = "reserved";
+    private static final int VALUES_PER_ITEM = 5;
+
+    private final StringRedisTemplate redisTemplate;
+    private final OutletItemRepository outletItemRepository;
+    private final InventoryScripts inventoryScripts;
+    private final InventoryLayout inventoryLayout;
+    private final InventoryCircuitBreaker circuitBreaker;
+    private final InventoryNearCache nearCache;
+    private final MeterRegistry meterRegistry;
+    private final DistributionSummary stockDrift;
+    private final DistributionSummary reservedDrift;
+
+    @Value("${resqeats.inventory.drift.chunk-size:200}")
+    private int chunkSize = 200;
+
+    @Value("${resqeats.inventory.drift.max-items-per-run:5000}")
+    private int maxItemsPerRun = 5000;
+
+    @Value("${resqeats.inventory.drift.auto-heal:false}")
+    private boolean autoHeal;
+
+    @Value("${resqeats.inventory.drift.max-heal-units:5}")
+    private int maxHealUnits = 5;
+
+    public InventoryDriftService(StringRedisTemplate redisTemplate,
+                                 OutletItemRepository outletItemRepository,
+                                 InventoryScripts inventoryScripts,
+                                 InventoryLayout inventoryLayout,
+                                 InventoryCircuitBreaker circuitBreaker,
+                                 InventoryNearCache nearCache,
+                                 MeterRegistry meterRegistry) {
+        this.redisTemplate = redisTemplate;
+        this.outletItemRepository = outletItemRepository;
+        this.inventoryScripts = inventoryScripts;
+        this.inventoryLayout = inventoryLayout;
+        this.circuitBreaker = circuitBreaker;
+        this.nearCache = nearCache;
+        this.meterRegistry = meterRegistry;
+        this.stockDrift = driftSummary(meterRegistry, STOCK);
+        this.reservedDrift = driftSummary(meterRegistry, RESERVED);
+    }
+
+    /**
+     * Inspects the next slice of outlet items and logs a drift report for it.
+     */
+    @Scheduled(fixedDelayString = "${resqeats.inventory.drift.interval-ms:60000}")
+    @SchedulerLock(name = "inspectInventoryDrift", lockAtMostFor = "PT5M", lockAtLeastFor = "PT10S")
+    public void inspectDrift() {
+        if (!circuitBreaker.isClosed()) {
+            log.info("Inventory drift inspection skipped: inventory is in database mode");
+            return;
+        }
+
+        DriftReport report = new DriftReport();
+        long lastId = readCursor();
+        long startId = lastId;
+        boolean passCompleted = false;
+        while (report.inspected + report.skipped < maxItemsPerRun) {
+            List<OutletItemRepository.StockLevel> chunk =
+                    outletItemRepository.findStockLevelsAfter(lastId, PageRequest.ofSize(chunkSize));
+            if (!chunk.isEmpty()) {
+                inspectChunk(chunk, report);
+                lastId = chunk.get(chunk.size() - 1).getId();
+            }
+            if (chunk.size() < chunkSize) {
+                passCompleted = true;
+                lastId = 0;
+                break;
+            }
+        }
+        redisTemplate.opsForValue().set(InventoryKeys.DRIFT_CURSOR, String.valueOf(lastId));
+
+        if (report.stockDrifting > 0 || report.reservedDrifting > 0) {
+            log.warn("Inventory drift report: range=({}, {}], inspected={}, skipped={}, stockDrifting={}, "
+                            + "reservedDrifting={}, largestDrift={}, healed={}",
+                    startId, passCompleted ? "end" : lastId, report.inspected, report.skipped,
+                    report.stockDrifting, report.reservedDrifting, report.largestDrift, report.healed);
+        } else {
+            log.info("Inventory drift report: range=({}, {}], inspected={}, skipped={}, no drift",
+                    startId, passCompleted ? "end" : lastId, report.inspected, report.skipped);
+        }
+    }
+
+    private void inspectChunk(List<OutletItemRepository.StockLevel> chunk, DriftReport report) {
+        List<InventorySlots> slots = new ArrayList<>(chunk.size());
+        List<String> keys = new ArrayList<>(chunk.size() * 3 + 2);
+        List<String> args = new ArrayList<>(chunk.size() * 3 + 1);
+        keys.add(InventoryKeys.PENDING_DELTAS);
+        keys.add(InventoryKeys.INFLIGHT_DELTAS);
+        args.add(String.valueOf(chunk.size()));
+        for (OutletItemRepository.StockLevel item : chunk) {
+            InventorySlots itemSlots = inventoryLayout.slots(item.getId(), item.getOutletId());
+            slots.add(itemSlots);
+            keys.add(itemSlots.getStockKey());
+            keys.add(itemSlots.getReservedKey());
+            keys.add(InventoryKeys.holds(item.getId()));
+            args.add(itemSlots.getStockField());
+            args.add(itemSlots.getReservedField());
+            args.add(item.getId().toString());
+        }
+
+        List<?> snapshot = redisTemplate.execute(inventoryScripts.inspectDrift(), keys, args.toArray());
+        if (snapshot == null || snapshot.size() != chunk.size() * VALUES_PER_ITEM) {
+            log.warn("Inventory drift snapshot failed for {} items", chunk.size());
+            return;
+        }
+        Map<Long, Integer> persistedAfter = readPersistedQuantities(chunk);
+
+        List<Long> healed = new ArrayList<>();
+        int inspected = 0;
+        int skipped = 0;
+        for (int i = 0; i < chunk.size(); i++) {
+            OutletItemRepository.StockLevel item = chunk.get(i);
+            long state = value(snapshot, i, 0);
+            if (state == 0) {
+                continue;
+            }
+            int persisted = quantity(item.getCurrentQuantity());
+            if (state == 2 || persistedAfter.getOrDefault(item.getId(), persisted) != persisted) {
+                skipped++;
+                continue;
+            }
+            inspected++;
+
+            long stock = value(snapshot, i, 1);
+            long reserved = value(snapshot, i, 2);
+            long pending = value(snapshot, i, 3);
+            long held = value(snapshot, i, 4);
+
+            long expectedStock = persisted + pending;
+            long stockDelta = stock - expectedStock;
+            if (stockDelta != 0) {
+                record(report, STOCK, stockDrift, stockDelta);
+                log.warn("Inventory stock drift: outletItemId={}, redis={}, persisted={}, pending={}, drift={}",
+                        item.getId(), stock, persisted, pending, stockDelta);
+                if (canHeal(stockDelta) && healStock(slots.get(i), stock, pending, expectedStock)) {
+                    healed.add(item.getId());
+                    meterRegistry.counter("resqeats.inventory.drift.healed", "type", STOCK).increment();
+                }
+            }
+
+            long reservedDelta = reserved - held;
+            if (reservedDelta != 0) {
+                record(report, RESERVED, reservedDrift, reservedDelta);
+                log.warn("Inventory reserved drift: outletItemId={}, reserved={}, liveHolds={}, drift={}",
+                        item.getId(), reserved, held, reservedDelta);
+                if (canHeal(reservedDelta) && healReserved(slots.get(i))) {
+                    healed.add(item.getId());
+                    meterRegistry.counter("resqeats.inventory.drift.healed", "type", RESERVED).increment();
+                }
+            }
+        }
+
+        report.inspected += inspected;
+        report.skipped += skipped;
+        meterRegistry.counter("resqeats.inventory.drift.inspected").increment(inspected);
+        meterRegistry.counter("resqeats.inventory.drift.skipped").increment(skipped);
+        if (!healed.isEmpty()) {
+            report.healed += healed.size();
+            nearCache.invalidate(healed);
+        }
+    }
+
+    /**
+     * Re-reads persisted quantities of a chunk so items written to the database during the
+     * snapshot can be told apart from real drift.
+     */
+    private Map<Long, Integer> readPersistedQuantities(List<OutletItemRepository.StockLevel> chunk) {
+        Map<Long, Integer> quantities = new HashMap<>();
+        long afterId = chunk.get(0).getId() - 1;
+        for (OutletItemRepository.StockLevel item :
+                outletItemRepository.findStockLevelsAfter(afterId, PageRequest.ofSize(chunk.size()))) {
+            quantities.put(item.getId(), quantity(item.getCurrentQuantity()));
+        }
+        return quantities;
+    }
+
+    private boolean canHeal(long drift) {
+        return autoHeal && Math.abs(drift) <= maxHealUnits;
+    }
+
+    private boolean healStock(InventorySlots slots, long observedStock, long observedPending, long expectedStock) {
+        Long corrected = redisTemplate.execute(inventoryScripts.healStock(),
+                List.of(InventoryKeys.PENDING_DELTAS, InventoryKeys.INFLIGHT_DELTAS, slots.getStockKey()),
+                slots.getStockField(), String.valueOf(observedStock), String.valueOf(observedPending),
+                String.valueOf(expectedStock), slots.getOutletItemId().toString());
+        if (corrected != null && corrected == 1) {
+            log.info("Inventory stock drift healed: outletItemId={}, from={}, to={}",
+                    slots.getOutletItemId(), observedStock, expectedStock);
+            return true;
+        }
+        log.debug("Inventory stock counter changed since inspection, not healed: outletItemId={}",
+                slots.getOutletItemId());
+        return false;
+    }
+
+    private boolean healReserved(InventorySlots slots) {
+        Long correction = redisTemplate.execute(inventoryScripts.reconcileReserved(),
+                List.of(slots.getReservedKey(), InventoryKeys.holds(slots.getOutletItemId())),
+                slots.getReservedField());
+        if (correction != null && correction != 0) {
+            log.info("Inventory reserved drift healed: outletItemId={}, correction={}",
+                    slots.getOutletItemId(), correction);
+            return true;
+        }
+        return false;
+    }
+
+    private void record(DriftReport report, String type, DistributionSummary summary, long drift) {
+        summary.record(Math.abs(drift));
+        meterRegistry.counter("resqeats.inventory.drift.items", "type", type).increment();
+        if (STOCK.equals(type)) {
+            report.stockDrifting++;
+        } else {
+            report.reservedDrifting++;
+        }
+        report.largestDrift = Math.max(report.largestDrift, Math.abs(drift));
+    }
+
+    private long readCursor() {
+        String cursor = redisTemplate.opsForValue().get(InventoryKeys.DRIFT_CURSOR);
+        try {
+            return cursor != null ? Long.parseLong(cursor) : 0;
+        } catch (NumberFormatException e) {
+            log.warn("Ignoring malformed inventory drift cursor: {}", cursor);
+            return 0;
+        }
+    }
+
+    private static long value(List<?> snapshot, int item, int offset) {
+        return ((Number) snapshot.get(item * VALUES_PER_ITEM + offset)).longValue();
+    }
+
+    private static int quantity(Integer quantity) {
+        return quantity != null ? quantity : 0;
+    }
+
+    private static DistributionSummary driftSummary(MeterRegistry meterRegistry, String type) {
+        return DistributionSummary.builder("resqeats.inventory.drift.units")
+                .description("Absolute drift of drifting inventory counters")
+                .baseUnit("units")
+                .tag("type", type)
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+    }
+
+    /**
+     * Totals of one run, logged as the drift report.
+     */
+    private static final class DriftReport {
+        private int inspected;
+        private int skipped;
+        private int stockDrifting;
+        private int reservedDrifting;
+        private long largestDrift;
+        private int healed;
+    }
+}
@@ -0,0 +1,119 @@
+package com.ffms.resqeats.inventory.service;
+
+import com.ffms.resqeats.common.exception.BusinessException;
+import com.ffms.resqeats.item.entity.OutletItem;
+import com.ffms.resqeats.item.repository.OutletItemRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Database-only inventory operations used while Redis is unavailable.
+ *
+ * <p>Stock is read from and written to {@code outlet_items.current_quantity} directly. Decrements
+ * use the conditional {@link OutletItemRepository#decrementQuantity(Long, int)} update, which only
+ * succeeds while {@code currentQuantity >= quantity}, so BR-007 and BR-009 still hold without
+ * Redis. Cart reservations cannot be tracked in this mode; availability ignores them and the
+ * conditional update at order acceptance is the only guard.</p>
+ *
+ * <p>Writes run in their own transaction, like the Redis scripts they stand in for, so a caller
+ * that rolls back restores stock through {@link InventoryService#restoreStock(Map)} either way.</p>
+ *
+ * <p>Every item changed here is reported to the {@link InventoryCircuitBreaker} so the Redis
+ * rebuild picks it up.</p>
+ *
+ * @author ResqEats Team
+ * @version 1.0
+ * @since 2024-01-01
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class InventoryFallbackService {
+
+    private final OutletItemRepository outletItemRepository;
+    private final InventoryCircuitBreaker circuitBreaker;
+
+    /**
+     * @param outletItemId the unique identifier of the outlet item
+     * @return the persisted stock quantity, or 0 if the item does not exist
+     */
+    public int getAvailableStock(Long outletItemId) {
+        return outletItemRepository.findById(outletItemId)
+                .map(this::quantity)
+                .orElse(0);
+    }
+
+    /**
+     * @param outletItemIds the outlet item identifiers
+     * @return the persisted stock quantity per item; missing items map to 0
+     */
+    public Map<Long, Integer> getStockLevels(Collection<? extends Long> outletItemIds) {
+        Map<Long, Integer> levels = new HashMap<>();
+        outletItemIds.forEach(id -> levels.put(id, 0));
+        outletItemRepository.findAllById(List.copyOf(outletItemIds))
+                .forEach(item -> levels.put(item.getId(), quantity(item)));
+        return levels;
+    }
+
+    /**
+     * @param outletId the unique identifier of the outlet
+     * @return the persisted stock quantity of every item of the outlet
+     */
+    public Map<Long, Integer> getOutletStockLevels(Long outletId) {
+        Map<Long, Integer> levels = new HashMap<>();
+        outletItemRepository.findByOutletId(outletId)
+                .forEach(item -> levels.put(item.getId(), quantity(item)));
+        return levels;
+    }
+
+    /**
+     * Decrements stock with a conditional update.
+     *
+     * @throws BusinessException with code INV_001 if insufficient stock is available
+     */
+    @Transactional(propagation = Propagation.REQUIRES_NEW)
+    public void decrementStock(Long outletItemId, int quantity) {
+        if (outletItemRepository.decrementQuantity(outletItemId, quantity) == 0) {
+            int available = getAvailableStock(outletItemId);
+            log.error("Insufficient stock for database decrement: outletItemId={}, available={}, requested={}",
+                    outletItemId, available, quantity);
+            throw new BusinessException("INV_001",
+                    "Insufficient stock. Available: " + available + ", Requested: " + quantity);
+        }
+        circuitBreaker.markChanged(List.of(outletItemId));
+        log.info("Stock decremented in database mode: outletItemId={}, decrementedBy={}", outletItemId, quantity);
+    }
+
+    /**
+     * Decrements every line of an order in one transaction; a failing line rolls back the others.
+     *
+     * <p>Lines are updated in id order so concurrent orders lock rows in the same order.</p>
+     *
+     * @throws BusinessException with code INV_001 if any line has insufficient stock
+     */
+    @Transactional(propagation = Propagation.REQUIRES_NEW)
+    public void commitStock(Map<Long, Integer> quantities) {
+        new TreeMap<>(quantities).forEach(this::decrementStock);
+        log.info("Stock committed in database mode for {} order lines", quantities.size());
+    }
+
+    @Transactional(propagation = Propagation.REQUIRES_NEW)
+    public void incrementStock(Long outletItemId, int quantity) {
+        outletItemRepository.incrementQuantity(outletItemId, quantity);
+        circuitBreaker.markChanged(List.of(outletItemId));
+        log.info("Stock incremented in database mode: outletItemId={}, incrementedBy={}", outletItemId, quantity);
+    }
+
+    private int quantity(OutletItem item) {
+        return item.getCurrentQuantity() != null ? item.getCurrentQuantity() : 0;
+    }
+}
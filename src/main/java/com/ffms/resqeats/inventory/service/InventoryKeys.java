@@ -0,0 +1,117 @@
+package com.ffms.resqeats.inventory.service;
+
+/**
+ * Redis key layout for inventory state.
+ *
+ * <p>Shared by the inventory service, its scripts and the background stages that
+ * persist and repair inventory so every component addresses the same keys.</p>
+ *
+ * <ul>
+ *   <li>{@code inventory:{outletItemId}} - Current stock count (authoritative)</li>
+ *   <li>{@code inventory:reserved:{outletItemId}} - Temporarily reserved stock (cart holds)</li>
+ *   <li>{@code inventory:holds:{outletItemId}} - Per-cart holds, hash of cartId (or order:{orderId}) to quantity</li>
+ *   <li>{@code inventory:holds:deadlines} - Hold expiry ledger, sorted set of
+ *       {@code {outletItemId}:{cartId}} scored by deadline</li>
+ *   <li>{@code inventory:quota:{cartId}} - Reservation quota of a cart: units held ({@code units})
+ *       and time of its first hold ({@code since}); expires with the cart's holds</li>
+ *   <li>{@code inventory:outlet:{outletId}} - Outlet-hash layout: stock ({@code s:{id}}) and
+ *       reserved ({@code r:{id}}) counters for every item of one outlet</li>
+ *   <li>{@code inventory:item-outlet} - Outlet item id to outlet id, for the outlet-hash layout</li>
+ *   <li>{@code inventory:shard:{outletItemId}:{n}} - Sharded hot items: shard {@code n} of the
+ *       item's counters, a hash with stock ({@code s}) and reserved ({@code r}) fields</li>
+ *   <li>{@code inventory:deltas:pending} - Per-item stock deltas not yet written to the database</li>
+ *   <li>{@code inventory:deltas:inflight} - Delta batch currently being written to the database</li>
+ *   <li>{@code inventory:drift:cursor} - Last outlet item id inspected by the drift detector</li>
+ *   <li>{@code inventory:invalidations} - Pub/sub channel of outlet item ids whose availability changed</li>
+ * </ul>
+ *
+ * @author ResqEats Team
+ * @version 1.0
+ * @since 2024-01-01
+ */
+public final class InventoryKeys {
+
+    public static final String INVENTORY_KEY_PREFIX = "inventory:";
+    public static final String RESERVED_KEY_PREFIX = "inventory:reserved:";
+    public static final String OUTLET_KEY_PREFIX = "inventory:outlet:";
+    public static final String ITEM_OUTLET = "inventory:item-outlet";
+    public static final String STOCK_FIELD_PREFIX = "s:";
+    public static final String RESERVED_FIELD_PREFIX = "r:";
+    public static final String SHARD_KEY_PREFIX = "inventory:shard:";
+    public static final String HOLDS_KEY_PREFIX = "inventory:holds:";
+    public static final String HOLD_DEADLINES = "inventory:holds:deadlines";
+    public static final String ORDER_HOLDER_PREFIX = "order:";
+    public static final String QUOTA_KEY_PREFIX = "inventory:quota:";
+
+    public static final String PENDING_DELTAS = "inventory:deltas:pending";
+    public static final String PENDING_DELTAS_SINCE = "inventory:deltas:pending:since";
+    public static final String INFLIGHT_DELTAS = "inventory:deltas:inflight";
+
+    public static final String DRIFT_CURSOR = "inventory:drift:cursor";
+    public static final String INVALIDATION_CHANNEL = "inventory:invalidations";
+
+    /**
+     * Hash fields of the in-flight delta batch that are metadata rather than item deltas.
+     */
+    public static final String BATCH_ID_FIELD = "_batch";
+    public static final String BATCH_SINCE_FIELD = "_since";
+
+    private InventoryKeys() {
+    }
+
+    public static String stock(Long outletItemId) {
+        return INVENTORY_KEY_PREFIX + outletItemId;
+    }
+
+    public static String reserved(Long outletItemId) {
+        return RESERVED_KEY_PREFIX + outletItemId;
+    }
+
+    public static String outlet(Long outletId) {
+        return OUTLET_KEY_PREFIX + outletId;
+    }
+
+    public static String stockField(Long outletItemId) {
+        return STOCK_FIELD_PREFIX + outletItemId;
+    }
+
+    public static String reservedField(Long outletItemId) {
+        return RESERVED_FIELD_PREFIX + outletItemId;
+    }
+
+    /**
+     * Base key of a sharded item's counters; shard {@code n} lives at {@code {base}:{n}}.
+     */
+    public static String shard(Long outletItemId) {
+        return SHARD_KEY_PREFIX + outletItemId;
+    }
+
+    /**
+     * Slot field addressing field {@code name} summed over {@code shards} shard hashes.
+     */
+    public static String shardField(int shards, String name) {
+        return "#" + shards + ":" + name;
+    }
+
+    public static String holds(Long outletItemId) {
+        return HOLDS_KEY_PREFIX + outletItemId;
+    }
+
+    /**
+     * Member of the hold deadline ledger; the item id comes first so scripts can parse it.
+     */
+    public static String holdMember(String cartId, Long outletItemId) {
+        return outletItemId + ":" + cartId;
+    }
+
+    public static String quota(String cartId) {
+        return QUOTA_KEY_PREFIX + cartId;
+    }
+
+    /**
+     * Holder id under which an order keeps the holds it took over from its cart.
+     */
+    public static String orderHolder(Long orderId) {
+        return ORDER_HOLDER_PREFIX + orderId;
+    }
+}
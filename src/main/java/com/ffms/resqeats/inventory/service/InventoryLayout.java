@@ -0,0 +1,198 @@
+package com.ffms.resqeats.inventory.service;
+
+import com.ffms.resqeats.common.exception.BusinessException;
+import com.ffms.resqeats.item.entity.OutletItem;
+import com.ffms.resqeats.item.repository.OutletItemRepository;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.stereotype.Component;
+
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * Selects where inventory counters live in Redis.
+ *
+ * <p><strong>Layouts</strong> ({@code resqeats.inventory.layout}):</p>
+ * <ul>
+ *   <li>{@code keys} (default) - two string keys per outlet item:
+ *       {@code inventory:{id}} and {@code inventory:reserved:{id}}</li>
+ *   <li>{@code outlet-hash} - one hash per outlet, {@code inventory:outlet:{outletId}}, with
+ *       fields {@code s:{id}} and {@code r:{id}}. A menu's availability is a single HGETALL,
+ *       and small outlets stay in Redis' compact listpack encoding; raise
+ *       {@code hash-max-listpack-entries} above twice the largest menu to keep it there.</li>
+ * </ul>
+ *
+ * <p>Switching to {@code outlet-hash} migrates lazily: the first script that finds an
+ * item's hash field missing moves its per-item keys into the hash (see {@code load_stock.lua}),
+ * and the periodic {@link InventoryService#syncInventoryWithDb()} moves the remainder.</p>
+ *
+ * <p><strong>Sharding</strong> ({@code resqeats.inventory.sharding.items}): listed outlet items,
+ * typically flash-sale boxes, keep their counters split over {@code resqeats.inventory.sharding.shards}
+ * shard hashes regardless of the layout. Each shard owns part of the stock, a reservation
+ * draws from one random shard and takes unreserved stock from its siblings only when that
+ * shard runs dry; totals are always the exact sum of the shards. Adding an item migrates its
+ * counters lazily in the same way as a layout switch; so does removing one in the {@code keys}
+ * layout, while in the {@code outlet-hash} layout a removed item is reloaded from the database.</p>
+ *
+ * @author ResqEats Team
+ * @version 1.0
+ * @since 2024-01-01
+ */
+@Component
+@Slf4j
+public class InventoryLayout {
+
+    public static final String KEYS = "keys";
+    public static final String OUTLET_HASH = "outlet-hash";
+
+    private final StringRedisTemplate redisTemplate;
+    private final OutletItemRepository outletItemRepository;
+    private final String layout;
+    private final Set<Long> shardedItems;
+    private final int shards;
+
+    /**
+     * Outlet assignment of an outlet item never changes, so the mapping is cached without expiry.
+     */
+    private final Cache<Long, Long> outletByItem = Caffeine.newBuilder()
+            .maximumSize(100_000)
+            .build();
+
+    public InventoryLayout(StringRedisTemplate redisTemplate,
+                           OutletItemRepository outletItemRepository,
+                           @Value("${resqeats.inventory.layout:keys}") String layout,
+                           @Value("${resqeats.inventory.sharding.items:}") String shardedItems,
+                           @Value("${resqeats.inventory.sharding.shards:8}") int shards) {
+        this.redisTemplate = redisTemplate;
+        this.outletItemRepository = outletItemRepository;
+        this.layout = layout.trim().toLowerCase(Locale.ROOT);
+        if (!KEYS.equals(this.layout) && !OUTLET_HASH.equals(this.layout)) {
+            throw new IllegalArgumentException("Unknown inventory layout: " + layout);
+        }
+        if (shards < 2) {
+            throw new IllegalArgumentException("Inventory sharding needs at least 2 shards: " + shards);
+        }
+        this.shardedItems = Arrays.stream(shardedItems.split(","))
+                .map(String::trim)
+                .filter(id -> !id.isEmpty())
+                .map(Long::valueOf)
+                .collect(Collectors.toUnmodifiableSet());
+        this.shards = shards;
+        log.info("Inventory Redis layout: {}, sharded items: {} x {} shards", this.layout, this.shardedItems, shards);
+    }
+
+    /**
+     * @return the configured layout name, as passed to scripts
+     */
+    public String name() {
+        return layout;
+    }
+
+    public boolean isOutletHash() {
+        return OUTLET_HASH.equals(layout);
+    }
+
+    /**
+     * @return the outlet items whose counters are sharded
+     */
+    public Set<Long> shardedItems() {
+        return shardedItems;
+    }
+
+    /**
+     * @return the number of shards per sharded item
+     */
+    public int shards() {
+        return shards;
+    }
+
+    /**
+     * Resolves the counters of an outlet item in the configured layout.
+     *
+     * @param outletItemId the unique identifier of the outlet item
+     * @return the item's counter locations
+     * @throws BusinessException with code INV_003 if the outlet item is not found
+     */
+    public InventorySlots slots(Long outletItemId) {
+        if (shardedItems.contains(outletItemId)) {
+            return InventorySlots.sharded(outletItemId, shards);
+        }
+        if (!isOutletHash()) {
+            return InventorySlots.perItem(outletItemId);
+        }
+        return InventorySlots.outletHash(outletItemId, outletOf(outletItemId));
+    }
+
+    /**
+     * Resolves the counters of an outlet item whose outlet is already known.
+     */
+    public InventorySlots slots(Long outletItemId, Long outletId) {
+        if (shardedItems.contains(outletItemId)) {
+            return InventorySlots.sharded(outletItemId, shards);
+        }
+        if (!isOutletHash()) {
+            return InventorySlots.perItem(outletItemId);
+        }
+        remember(outletItemId, outletId);
+        return InventorySlots.outletHash(outletItemId, outletId);
+    }
+
+    /**
+     * Resolves where an item's counters lived before the current configuration, so
+     * {@code load_stock.lua} can migrate them instead of reloading from the database.
+     *
+     * @param slots the item's current counter locations
+     * @return the sharding-switch counterpart, or the per-item keys for the outlet-hash layout
+     */
+    public InventorySlots previousSlots(InventorySlots slots) {
+        Long outletItemId = slots.getOutletItemId();
+        if (slots.isSharded()) {
+            return isOutletHash()
+                    ? InventorySlots.outletHash(outletItemId, outletOf(outletItemId))
+                    : InventorySlots.perItem(outletItemId);
+        }
+        return isOutletHash() ? InventorySlots.perItem(outletItemId) : InventorySlots.sharded(outletItemId, shards);
+    }
+
+    /**
+     * Looks up the outlet of an outlet item: local cache, then Redis, then the database.
+     *
+     * <p>The Redis mapping is also read by {@code reclaim_expired.lua}, so it is always
+     * written before an item's counters are used in the outlet-hash layout.</p>
+     */
+    public Long outletOf(Long outletItemId) {
+        Long cached = outletByItem.getIfPresent(outletItemId);
+        if (cached != null) {
+            return cached;
+        }
+
+        Object stored = redisTemplate.opsForHash().get(InventoryKeys.ITEM_OUTLET, outletItemId.toString());
+        if (stored != null) {
+            Long outletId = Long.valueOf(stored.toString());
+            outletByItem.put(outletItemId, outletId);
+            return outletId;
+        }
+
+        Long outletId = outletItemRepository.findById(outletItemId)
+                .map(OutletItem::getOutletId)
+                .orElseThrow(() -> {
+                    log.error("Outlet item not found: outletItemId={}", outletItemId);
+                    return new BusinessException("INV_003", "Outlet item not found");
+                });
+        remember(outletItemId, outletId);
+        return outletId;
+    }
+
+    private void remember(Long outletItemId, Long outletId) {
+        if (outletByItem.getIfPresent(outletItemId) == null) {
+            redisTemplate.opsForHash().put(InventoryKeys.ITEM_OUTLET, outletItemId.toString(), outletId.toString());
+            outletByItem.put(outletItemId, outletId);
+        }
+    }
+}
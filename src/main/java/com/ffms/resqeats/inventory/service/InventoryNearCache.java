@@ -0,0 +1,138 @@
+package com.ffms.resqeats.inventory.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Node-local cache of available stock for browse reads.
+ *
+ * <p>Menus and "in stock" badges read availability far more often than it changes, so
+ * {@link InventoryService#getAvailableStock(Long)}, {@link InventoryService#isInStock(Long)} and
+ * {@link InventoryService#getStockLevels(Iterable)} are served from here. Reservation, decrement and
+ * order commit never read this cache; their scripts check the authoritative Redis counters.</p>
+ *
+ * <p>Every stock or reservation change evicts the item locally and publishes its id on
+ * {@value InventoryKeys#INVALIDATION_CHANNEL}, which every node (this one included) consumes.
+ * Pub/sub delivery is best effort, so entries also expire after
+ * {@code resqeats.inventory.near-cache.ttl-ms}; that TTL bounds how stale a browse read can be.</p>
+ *
+ * <p>Hit and miss counts are exposed as {@code cache.gets{cache="inventory.available"}}, and the
+ * hit ratio as {@code resqeats.inventory.near_cache.hit_ratio}.</p>
+ *
+ * @author ResqEats Team
+ * @version 1.0
+ * @since 2024-01-01
+ */
+@Component
+@Slf4j
+public class InventoryNearCache implements MessageListener {
+
+    private static final String INVALIDATE_ALL = "*";
+
+    private final StringRedisTemplate redisTemplate;
+    private final Cache<Long, Integer> available;
+
+    public InventoryNearCache(StringRedisTemplate redisTemplate,
+                              MeterRegistry meterRegistry,
+                              @Value("${resqeats.inventory.near-cache.ttl-ms:1000}") long ttlMillis,
+                              @Value("${resqeats.inventory.near-cache.max-size:100000}") long maxSize) {
+        this.redisTemplate = redisTemplate;
+        this.available = Caffeine.newBuilder()
+                .expireAfterWrite(Duration.ofMillis(ttlMillis))
+                .maximumSize(maxSize)
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, available, "inventory.available");
+        meterRegistry.gauge("resqeats.inventory.near_cache.hit_ratio", available, cache -> cache.stats().hitRate());
+        log.info("Inventory near cache: ttlMs={}, maxSize={}", ttlMillis, maxSize);
+    }
+
+    /**
+     * Returns the cached availability of an item, reading it through on a miss.
+     */
+    public int get(Long outletItemId, Function<Long, Integer> loader) {
+        return available.get(outletItemId, loader);
+    }
+
+    /**
+     * Returns the cached availability of the given items, reading all misses through in one call.
+     */
+    public Map<Long, Integer> getAll(Collection<Long> outletItemIds,
+                                     Function<Collection<? extends Long>, Map<Long, Integer>> loader) {
+        return available.getAll(outletItemIds, loader);
+    }
+
+    /**
+     * Seeds the cache with values just read from Redis.
+     */
+    public void putAll(Map<Long, Integer> levels) {
+        available.putAll(levels);
+    }
+
+    /**
+     * Evicts items on this node and broadcasts the eviction to every other node.
+     *
+     * @param outletItemIds the outlet items whose stock or reservations changed
+     */
+    public void invalidate(Collection<Long> outletItemIds) {
+        if (outletItemIds.isEmpty()) {
+            return;
+        }
+        available.invalidateAll(outletItemIds);
+        publish(outletItemIds.stream().map(String::valueOf).collect(Collectors.joining(",")));
+    }
+
+    public void invalidate(Long outletItemId) {
+        available.invalidate(outletItemId);
+        publish(outletItemId.toString());
+    }
+
+    /**
+     * Evicts every item on every node, for bulk changes such as the expired-hold sweep.
+     */
+    public void invalidateAll() {
+        available.invalidateAll();
+        publish(INVALIDATE_ALL);
+    }
+
+    @Override
+    public void onMessage(Message message, byte[] pattern) {
+        String body = new String(message.getBody(), StandardCharsets.UTF_8);
+        if (INVALIDATE_ALL.equals(body)) {
+            available.invalidateAll();
+            return;
+        }
+        try {
+            available.invalidateAll(Arrays.stream(body.split(","))
+                    .map(Long::valueOf)
+                    .collect(Collectors.toList()));
+        } catch (NumberFormatException e) {
+            log.warn("Ignoring malformed inventory invalidation: {}", body);
+        }
+    }
+
+    private void publish(String message) {
+        try {
+            redisTemplate.convertAndSend(InventoryKeys.INVALIDATION_CHANNEL, message);
+        } catch (RuntimeException e) {
+            // Other nodes fall back to the TTL; the stock change itself has already succeeded
+            log.warn("Failed to publish inventory invalidation: {}", e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,184 @@
+package com.ffms.resqeats.inventory.service;
+
+import com.ffms.resqeats.item.entity.OutletItem;
+import com.ffms.resqeats.item.repository.OutletItemRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Brings inventory back onto Redis after an outage.
+ *
+ * <p>While the {@link InventoryCircuitBreaker} is open, stock changes are written to
+ * {@code outlet_items} only, so the Redis counters are stale when Redis returns. Each node probes
+ * Redis on a short fixed delay; once it answers, pending write-behind deltas are flushed and every
+ * stock counter is rewritten from the database in keyset-paginated chunks of
+ * {@code resqeats.inventory.sync.chunk-size} (one script call per chunk). Items changed through the
+ * database during the rebuild are rewritten again before inventory switches back to Redis. A
+ * write-behind batch still in flight before or after the rebuild aborts it until the batch is
+ * written.</p>
+ *
+ * <p>The probe is deliberately not under ShedLock: the breaker is per node and the lock provider
+ * itself lives in Redis. Concurrent rebuilds from several nodes write the same values.</p>
+ *
+ * @author ResqEats Team
+ * @version 1.0
+ * @since 2024-01-01
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class InventoryRecoveryService {
+
+    private static final int MAX_CHANGED_PASSES = 3;
+
+    private final StringRedisTemplate redisTemplate;
+    private final OutletItemRepository outletItemRepository;
+    private final InventoryScripts inventoryScripts;
+    private final InventoryLayout inventoryLayout;
+    private final InventoryCircuitBreaker circuitBreaker;
+    private final InventoryWriteBehindService writeBehindService;
+    private final InventoryNearCache nearCache;
+    private final MeterRegistry meterRegistry;
+
+    @Value("${resqeats.inventory.sync.chunk-size:500}")
+    private int chunkSize = 500;
+
+    /**
+     * Checks whether Redis is back and, if so, rebuilds the counters and closes the breaker.
+     */
+    @Scheduled(fixedDelayString = "${resqeats.inventory.degraded.probe-interval-ms:5000}")
+    public void probeRedis() {
+        if (circuitBreaker.state() != InventoryCircuitBreaker.State.OPEN) {
+            return;
+        }
+        try {
+            redisTemplate.execute((RedisCallback<String>) connection -> connection.ping());
+        } catch (RuntimeException e) {
+            log.debug("Redis still unavailable: {}", e.getMessage());
+            return;
+        }
+        if (!circuitBreaker.beginRecovery()) {
+            return;
+        }
+
+        log.info("Redis reachable again, rebuilding inventory counters from the database");
+        Timer.Sample sample = Timer.start(meterRegistry);
+        try {
+            flushPendingDeltas();
+            if (deltasInFlight("before")) {
+                return;
+            }
+            int rebuilt = rebuildAll();
+            for (int pass = 0; pass < MAX_CHANGED_PASSES; pass++) {
+                List<Long> changed = circuitBreaker.drainChanged();
+                if (changed.isEmpty()) {
+                    break;
+                }
+                rebuilt += rebuildItems(changed);
+            }
+            if (deltasInFlight("during")) {
+                return;
+            }
+            nearCache.invalidateAll();
+            circuitBreaker.close();
+
+            long durationNanos = sample.stop(meterRegistry.timer("resqeats.inventory.redis.rebuild.duration"));
+            log.info("Inventory counters rebuilt after Redis outage: counters={}, durationMs={}",
+                    rebuilt, TimeUnit.NANOSECONDS.toMillis(durationNanos));
+        } catch (RuntimeException e) {
+            log.error("Inventory rebuild failed, staying in database mode: {}", e.getMessage(), e);
+            circuitBreaker.reopen();
+        }
+    }
+
+    /**
+     * Writes out deltas recorded before the outage so the database is as current as possible.
+     * Deltas that remain pending are still accounted for by {@code rebuild_stock.lua}; a batch
+     * left in flight aborts the recovery (see {@link #deltasInFlight(String)}).
+     */
+    private void flushPendingDeltas() {
+        try {
+            writeBehindService.flushDeltas();
+        } catch (RuntimeException e) {
+            log.warn("Could not flush pending inventory deltas before rebuild: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Aborts the recovery while a write-behind batch is in flight. Its deltas are neither in the
+     * database nor in the pending hash that {@code rebuild_stock.lua} adds, so a counter rebuilt
+     * now would lose them; the next probe retries once the batch has been written.
+     *
+     * @return {@code true} if the recovery was aborted
+     */
+    private boolean deltasInFlight(String phase) {
+        if (!Boolean.TRUE.equals(redisTemplate.hasKey(InventoryKeys.INFLIGHT_DELTAS))) {
+            return false;
+        }
+        log.warn("Inventory delta batch in flight {} the rebuild, staying in database mode until it is written",
+                phase);
+        circuitBreaker.reopen();
+        return true;
+    }
+
+    private int rebuildAll() {
+        long lastId = 0;
+        int rebuilt = 0;
+        List<OutletItemRepository.StockLevel> chunk;
+        do {
+            chunk = outletItemRepository.findStockLevelsAfter(lastId, PageRequest.ofSize(chunkSize));
+            if (chunk.isEmpty()) {
+                break;
+            }
+            List<InventorySlots> slots = new ArrayList<>(chunk.size());
+            List<Integer> quantities = new ArrayList<>(chunk.size());
+            for (OutletItemRepository.StockLevel item : chunk) {
+                slots.add(inventoryLayout.slots(item.getId(), item.getOutletId()));
+                quantities.add(item.getCurrentQuantity());
+            }
+            rebuilt += rebuildCounters(slots, quantities);
+            lastId = chunk.get(chunk.size() - 1).getId();
+            log.debug("Inventory rebuild progress: counters={}, lastId={}", rebuilt, lastId);
+        } while (chunk.size() == chunkSize);
+        return rebuilt;
+    }
+
+    private int rebuildItems(List<Long> outletItemIds) {
+        List<InventorySlots> slots = new ArrayList<>();
+        List<Integer> quantities = new ArrayList<>();
+        for (OutletItem item : outletItemRepository.findAllById(outletItemIds)) {
+            slots.add(inventoryLayout.slots(item.getId(), item.getOutletId()));
+            quantities.add(item.getCurrentQuantity());
+        }
+        log.info("Rewriting {} inventory counters changed during the rebuild", slots.size());
+        return slots.isEmpty() ? 0 : rebuildCounters(slots, quantities);
+    }
+
+    private int rebuildCounters(List<InventorySlots> slots, List<Integer> quantities) {
+        List<String> keys = new ArrayList<>(slots.size() + 1);
+        List<String> args = new ArrayList<>(slots.size() * 3 + 1);
+        keys.add(InventoryKeys.PENDING_DELTAS);
+        args.add(String.valueOf(slots.size()));
+        for (int i = 0; i < slots.size(); i++) {
+            Integer qty = quantities.get(i);
+            keys.add(slots.get(i).getStockKey());
+            args.add(slots.get(i).getStockField());
+            args.add(String.valueOf(qty != null ? qty : 0));
+            args.add(slots.get(i).getOutletItemId().toString());
+        }
+        Long written = redisTemplate.execute(inventoryScripts.rebuildStock(), keys, args.toArray());
+        return written != null ? written.intValue() : 0;
+    }
+}
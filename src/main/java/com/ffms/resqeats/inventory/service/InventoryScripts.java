@@ -0,0 +1,209 @@
+package com.ffms.resqeats.inventory.service;
+
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.stereotype.Component;
+import org.springframework.util.StreamUtils;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+/**
+ * Server-side Lua scripts backing the inventory reservation engine.
+ *
+ * <p>Each script performs its check-and-mutate sequence in a single atomic Redis call,
+ * so concurrent carts cannot both pass a stock check and oversell (BR-007, BR-009).
+ * Scripts are loaded once from {@code classpath:scripts/inventory/} and executed by SHA.</p>
+ *
+ * <p>Every script is prefixed with {@code _slots.lua}, whose helpers address a counter as a
+ * key plus a field so the same scripts serve both Redis layouts (see {@link InventoryLayout}).</p>
+ *
+ * <p>All scripts return a two-element list {@code [status, value]} where status
+ * {@code 1} means success, {@code 0} means insufficient stock and {@code -1} means the
+ * stock counter is not loaded in Redis.</p>
+ *
+ * @author ResqEats Team
+ * @version 1.0
+ * @since 2024-01-01
+ */
+@Component
+@SuppressWarnings("rawtypes")
+public class InventoryScripts {
+
+    public static final long STATUS_OK = 1L;
+    public static final long STATUS_INSUFFICIENT = 0L;
+    public static final long STATUS_NOT_LOADED = -1L;
+
+    private static final String SCRIPT_PATH = "scripts/inventory/";
+    private static final String PRELUDE = read("_slots.lua");
+
+    private final RedisScript<Long> release = load("release.lua", Long.class);
+    private final RedisScript<List> decrement = load("decrement.lua", List.class);
+    private final RedisScript<List> increment = load("increment.lua", List.class);
+    private final RedisScript<Long> setStock = load("set_stock.lua", Long.class);
+    private final RedisScript<Long> claimDeltas = load("claim_deltas.lua", Long.class);
+    private final RedisScript<List> reclaimExpired = load("reclaim_expired.lua", List.class);
+    private final RedisScript<Long> reconcileReserved = load("reconcile_reserved.lua", Long.class);
+    private final RedisScript<List> loadStock = load("load_stock.lua", List.class);
+    private final RedisScript<List> commitOrder = load("commit_order.lua", List.class);
+    private final RedisScript<List> readCounters = load("read_counters.lua", List.class);
+    private final RedisScript<Long> rebuildStock = load("rebuild_stock.lua", Long.class);
+    private final RedisScript<List> inspectDrift = load("inspect_drift.lua", List.class);
+    private final RedisScript<Long> healStock = load("heal_stock.lua", Long.class);
+    private final RedisScript<List> cartLines = load("cart_lines.lua", List.class);
+    private final RedisScript<List> cartCheckout = load("cart_checkout.lua", List.class);
+    private final RedisScript<List> resetDaily = load("reset_daily.lua", List.class);
+    private final RedisScript<Long> extendHolds = load("extend_holds.lua", Long.class);
+    private final RedisScript<Long> releaseHolds = load("release_holds.lua", Long.class);
+    private final RedisScript<Long> moveDeadlines = load("move_deadlines.lua", Long.class);
+
+    /**
+     * Releases a per-cart hold and returns the released units.
+     */
+    public RedisScript<Long> release() {
+        return release;
+    }
+
+    /**
+     * Check-and-decrement script for confirmed orders; records the write-behind delta.
+     */
+    public RedisScript<List> decrement() {
+        return decrement;
+    }
+
+    /**
+     * Increment script for cancellations and restocks; records the write-behind delta.
+     */
+    public RedisScript<List> increment() {
+        return increment;
+    }
+
+    /**
+     * Absolute stock write that discards the item's unflushed delta.
+     */
+    public RedisScript<Long> setStock() {
+        return setStock;
+    }
+
+    /**
+     * Moves pending write-behind deltas into the in-flight slot for flushing.
+     */
+    public RedisScript<Long> claimDeltas() {
+        return claimDeltas;
+    }
+
+    /**
+     * Reclaims a batch of holds whose deadline has passed; returns {@code [holds, units]}.
+     */
+    public RedisScript<List> reclaimExpired() {
+        return reclaimExpired;
+    }
+
+    /**
+     * Resets a reserved counter to the sum of the item's live holds.
+     */
+    public RedisScript<Long> reconcileReserved() {
+        return reconcileReserved;
+    }
+
+    /**
+     * Loads a stock slot from the persisted value or migrates it from the per-item keys;
+     * returns {@code [status, stock]}.
+     */
+    public RedisScript<List> loadStock() {
+        return loadStock;
+    }
+
+    /**
+     * All-or-nothing decrement of every line of an order, consuming the order's own holds;
+     * returns {@code [status, line, available]}.
+     */
+    public RedisScript<List> commitOrder() {
+        return commitOrder;
+    }
+
+    /**
+     * Atomic read of a (sharded) item's counters; returns {@code [loaded, stock, reserved]}.
+     */
+    public RedisScript<List> readCounters() {
+        return readCounters;
+    }
+
+    /**
+     * Rewrites stock counters from persisted quantities plus pending deltas after an outage.
+     */
+    public RedisScript<Long> rebuildStock() {
+        return rebuildStock;
+    }
+
+    /**
+     * Atomic snapshot of a chunk of items for drift inspection; 5 values per item.
+     */
+    public RedisScript<List> inspectDrift() {
+        return inspectDrift;
+    }
+
+    /**
+     * Compare-and-set correction of a drifted stock counter.
+     */
+    public RedisScript<Long> healStock() {
+        return healStock;
+    }
+
+    /**
+     * Multi-line cart change and hold adjustments in one all-or-nothing step; returns the cart.
+     */
+    public RedisScript<List> cartLines() {
+        return cartLines;
+    }
+
+    /**
+     * Moves a cart's holds to an order and removes the cart; returns {@code [status, value, outletItemId]}.
+     */
+    public RedisScript<List> cartCheckout() {
+        return cartCheckout;
+    }
+
+    /**
+     * Extends a cart's hold deadlines within its maximum hold time; returns the deadline or 0.
+     */
+    public RedisScript<Long> extendHolds() {
+        return extendHolds;
+    }
+
+    /**
+     * Releases one holder's holds on several items; returns the released units.
+     */
+    public RedisScript<Long> releaseHolds() {
+        return releaseHolds;
+    }
+
+    /**
+     * Moves the deadline of existing holds; returns the number of holds moved.
+     */
+    public RedisScript<Long> moveDeadlines() {
+        return moveDeadlines;
+    }
+
+    /**
+     * Daily stock reset of one item, dropping stale cart holds; returns {@code [kept, dropped]}.
+     */
+    public RedisScript<List> resetDaily() {
+        return resetDaily;
+    }
+
+    private static <T> RedisScript<T> load(String name, Class<T> resultType) {
+        return RedisScript.of(PRELUDE + read(name), resultType);
+    }
+
+    private static String read(String name) {
+        try {
+            return StreamUtils.copyToString(
+                    new ClassPathResource(SCRIPT_PATH + name).getInputStream(), StandardCharsets.UTF_8);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to load inventory script " + name, e);
+        }
+    }
+}
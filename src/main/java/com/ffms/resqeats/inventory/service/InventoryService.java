@@ -3,18 +3,39 @@ package com.ffms.resqeats.inventory.service;
 import com.ffms.resqeats.common.exception.BusinessException;
 import com.ffms.resqeats.item.entity.OutletItem;
 import com.ffms.resqeats.item.repository.OutletItemRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import net.javacrumbs.shedlock.spring.annotation.SchedulerLock;
-import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.redis.connection.RedisPipelineException;
+import org.springframework.data.redis.connection.ReturnType;
+import org.springframework.data.redis.connection.StringRedisConnection;
+import org.springframework.data.redis.core.Cursor;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.ScanOptions;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.data.redis.serializer.RedisSerializer;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.nio.charset.StandardCharsets;
 import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
 import java.util.stream.Collectors;
 import java.util.stream.StreamSupport;
 
@@ -25,22 +46,40 @@ import java.util.stream.StreamSupport;
  * using Redis as the primary source for real-time inventory operations and
  * the database as persistent storage with periodic synchronization.</p>
  *
- * <p><strong>Redis Key Structure:</strong></p>
- * <ul>
- *   <li>{@code inventory:{outletItemId}} - Current stock count</li>
- *   <li>{@code inventory:reserved:{outletItemId}} - Temporarily reserved stock (cart holds)</li>
- *   <li>{@code inventory:cart:{cartId}:{outletItemId}} - Per-cart reservation tracking</li>
- * </ul>
+ * <p>Redis is authoritative for stock. Decrements and increments record a per-item delta in
+ * the same script that changes the counter, and {@link InventoryWriteBehindService} flushes
+ * those deltas to {@code outlet_items} in JDBC batches off the request path. Stock counters
+ * therefore carry no TTL: a counter reloaded from the database while deltas are still
+ * unflushed would resurrect sold stock.</p>
+ *
+ * <p><strong>Redis Key Structure:</strong> see {@link InventoryKeys}. Where the stock and
+ * reserved counters live depends on the configured {@link InventoryLayout}, which can also
+ * split the counters of flash-sale items over several shards so reservations spread out.</p>
  *
  * <p><strong>Business Rules:</strong></p>
  * <ul>
  *   <li>BR-007: Inventory cannot go below zero</li>
- *   <li>BR-008: Reserved stock expires after cart timeout (10 minutes)</li>
+ *   <li>BR-008: Reserved stock expires after cart timeout (10 minutes); expired holds are
+ *       reclaimed from the deadline ledger by {@code CartCleanupTask}</li>
  *   <li>BR-009: Stock decremented atomically to prevent overselling</li>
  * </ul>
  *
  * <p>Thread safety is ensured through Redis atomic operations rather than JVM locks,
- * allowing for distributed deployment scenarios.</p>
+ * allowing for distributed deployment scenarios. Reservation, release and decrement each
+ * run as a single server-side script (see {@link InventoryScripts}) so the stock check and
+ * the mutation happen in one round trip with no window for overselling.</p>
+ *
+ * <p>Browse reads ({@link #getAvailableStock(Long)}, {@link #isInStock(Long)},
+ * {@link #getStockLevels(Iterable)}) are served from the node-local {@link InventoryNearCache};
+ * every method that changes stock or reservations invalidates the affected items across nodes.</p>
+ *
+ * <p><strong>Degraded mode:</strong> when Redis is unreachable the {@link InventoryCircuitBreaker}
+ * opens and stock checks and decrements run as conditional SQL updates through
+ * {@link InventoryFallbackService}, so orders keep flowing at database speed. Cart holds are not
+ * tracked meanwhile. {@link InventoryRecoveryService} rebuilds the counters once Redis is back.</p>
+ *
+ * <p>Counters are stored as plain decimal strings through {@link StringRedisTemplate}
+ * so that scripts and INCRBY/DECRBY can operate on them directly.</p>
  *
  * @author ResqEats Team
  * @version 1.0
@@ -51,170 +90,658 @@ import java.util.stream.StreamSupport;
 @Slf4j
 public class InventoryService {
 
-    private final RedisTemplate<String, Object> redisTemplate;
+    private final StringRedisTemplate redisTemplate;
     private final OutletItemRepository outletItemRepository;
+    private final InventoryScripts inventoryScripts;
+    private final InventoryLayout inventoryLayout;
+    private final InventoryNearCache nearCache;
+    private final InventoryCircuitBreaker circuitBreaker;
+    private final InventoryFallbackService fallbackService;
+    private final MeterRegistry meterRegistry;
+
+    @Value("${resqeats.inventory.sync.chunk-size:500}")
+    private int syncChunkSize = 500;
+
+    @Value("${resqeats.inventory.quota.max-units-per-item:10}")
+    private int maxUnitsPerItem = 10;
+
+    @Value("${resqeats.inventory.quota.max-units-per-user:30}")
+    private int maxUnitsPerUser = 30;
+
+    @Value("${resqeats.inventory.quota.max-hold-minutes:30}")
+    private long maxHoldMinutes = 30;
+
+    private final AtomicLong syncProgress = new AtomicLong();
 
-    private static final String INVENTORY_KEY_PREFIX = "inventory:";
-    private static final String RESERVED_KEY_PREFIX = "inventory:reserved:";
-    private static final String CART_RESERVE_PREFIX = "inventory:cart:";
+    /** Daily resets whose Redis step failed, by outlet item id; see {@link #retryFailedDailyResets()}. */
+    private final Map<Long, OutletItemRepository.StockLevel> failedDailyResets = new ConcurrentHashMap<>();
+
+    private static final String RESERVED_KEY_PREFIX = InventoryKeys.RESERVED_KEY_PREFIX;
     private static final Duration CART_RESERVE_TTL = Duration.ofMinutes(10);
-    private static final Duration INVENTORY_CACHE_TTL = Duration.ofHours(1);
 
     /**
      * Retrieves the current available stock for an outlet item.
      *
      * <p>Available stock is calculated as total stock minus reserved stock.
-     * The method first checks Redis cache, falling back to database if not cached.</p>
+     * The method first checks the near cache, then Redis, falling back to database if not cached.
+     * The value may trail Redis by up to the near-cache TTL; reservations and decrements
+     * check the authoritative counters themselves.</p>
      *
      * @param outletItemId the unique identifier of the outlet item
      * @return the available stock quantity, minimum of 0
      */
     public int getAvailableStock(Long outletItemId) {
+        return nearCache.get(outletItemId, id -> withRedis(() -> readAvailableStock(id),
+                () -> fallbackService.getAvailableStock(id)));
+    }
+
+    /**
+     * Reads an item's available stock from Redis, loading it from the database if needed.
+     *
+     * @param outletItemId the unique identifier of the outlet item
+     * @return the available stock quantity, minimum of 0
+     */
+    private int readAvailableStock(Long outletItemId) {
         log.info("Getting available stock for outletItemId={}", outletItemId);
-        
-        String inventoryKey = INVENTORY_KEY_PREFIX + outletItemId;
-        String reservedKey = RESERVED_KEY_PREFIX + outletItemId;
 
-        Integer total = getFromRedisOrDb(inventoryKey, outletItemId);
-        Integer reserved = getReservedCount(reservedKey);
+        InventorySlots slots = inventoryLayout.slots(outletItemId);
+        List<String> values = readCounters(slots);
+        String totalValue = values.get(0);
+        int total = totalValue != null ? Integer.parseInt(totalValue) : loadStockFromDb(slots);
+        int reserved = parseCount(values.get(1));
 
         int availableStock = Math.max(0, total - reserved);
-        log.debug("Stock calculation for outletItemId={}: total={}, reserved={}, available={}", 
+        log.debug("Stock calculation for outletItemId={}: total={}, reserved={}, available={}",
                 outletItemId, total, reserved, availableStock);
-        
+
         return availableStock;
     }
 
     /**
-     * Reserves stock for a shopping cart with automatic expiration.
+     * Releases a cart's stock reservation.
      *
-     * <p>This method implements BR-008: Reserved stock expires after cart timeout (10 minutes).
+     * <p>This method should be called when a cart is abandoned or when an order is placed.
      * Uses Redis atomic operations for thread safety in distributed environments.</p>
      *
-     * @param outletItemId the unique identifier of the outlet item to reserve
-     * @param quantity the quantity to reserve
-     * @param cartId the unique identifier of the cart making the reservation
-     * @return {@code true} if reservation was successful, {@code false} if insufficient stock
+     * @param outletItemId the unique identifier of the outlet item
+     * @param cartId the unique identifier of the cart whose reservation should be released
+     */
+    public void releaseCartReservation(Long outletItemId, String cartId) {
+        log.info("Releasing cart reservation: outletItemId={}, cartId={}", outletItemId, cartId);
+        runWithRedis(() -> releaseInRedis(outletItemId, cartId),
+                () -> log.debug("No holds without Redis, nothing to release: outletItemId={}", outletItemId));
+    }
+
+    /**
+     * Runs the release script.
+     */
+    private void releaseInRedis(Long outletItemId, String cartId) {
+        InventorySlots slots = inventoryLayout.slots(outletItemId);
+        List<String> keys = List.of(
+                slots.getReservedKey(),
+                InventoryKeys.holds(outletItemId),
+                InventoryKeys.HOLD_DEADLINES);
+
+        Long released = redisTemplate.execute(inventoryScripts.release(), keys,
+                slots.getReservedField(), cartId, InventoryKeys.holdMember(cartId, outletItemId));
+        if (released != null && released > 0) {
+            nearCache.invalidate(outletItemId);
+            log.info("Released {} reserved units for cartId={}, outletItemId={}",
+                    released, cartId, outletItemId);
+        } else {
+            log.debug("No reservation found to release for cartId={}, outletItemId={}", cartId, outletItemId);
+        }
+    }
+
+    /**
+     * Changes cart lines and the cart's holds on their items in one atomic script.
+     *
+     * <p>Each hold moves by exactly the difference between the new line quantity and the units
+     * currently held, so there is no window in which the cart and its reservations disagree, and
+     * a user action costs a single Redis round trip however many lines it touches. If any line
+     * lacks stock, nothing changes. Carts live in Redis, so there is no database fallback: while
+     * inventory is in database mode the change is refused.</p>
+     *
+     * @param change the cart line change
+     * @return the script outcome, including the cart fields after a successful change
+     * @throws BusinessException with code INV_005 if inventory is in database mode
+     */
+    public CartLineResult updateCartLines(CartLineChange change) {
+        log.info("Updating cart lines: cartId={}, lines={}, increment={}",
+                change.getCartId(), change.getLines().size(), change.isIncrement());
+        return withRedis(() -> updateCartLinesInRedis(change), () -> {
+            log.warn("Cart line change refused in database mode: cartId={}", change.getCartId());
+            throw new BusinessException("INV_005", "Inventory is temporarily unavailable, please retry");
+        });
+    }
+
+    /**
+     * Runs the cart lines script, loading missing stock counters and retrying as needed.
+     */
+    @SuppressWarnings({"rawtypes", "unchecked"})
+    private CartLineResult updateCartLinesInRedis(CartLineChange change) {
+        List<CartLineChange.Line> lines = change.getLines();
+        Map<Long, InventorySlots> slotsById = new HashMap<>();
+        List<String> keys = new ArrayList<>(lines.size() * 3 + 2);
+        // Line details are binary, so every argument goes to Redis as raw bytes
+        List<byte[]> args = new ArrayList<>(lines.size() * 6 + 6);
+        long now = System.currentTimeMillis();
+        keys.add(change.getCartKey());
+        keys.add(InventoryKeys.HOLD_DEADLINES);
+        args.add(utf8(change.getCartId()));
+        args.add(utf8(String.valueOf(now + CART_RESERVE_TTL.toMillis())));
+        args.add(utf8(change.isIncrement() ? "add" : "set"));
+        args.add(utf8(Objects.toString(change.getOutletId(), "")));
+        args.add(utf8(String.valueOf(change.getCartTtl().toMillis())));
+        args.add(utf8(String.valueOf(lines.size())));
+        for (CartLineChange.Line line : lines) {
+            Long outletItemId = line.getOutletItemId();
+            InventorySlots slots = change.getOutletId() != null
+                    ? inventoryLayout.slots(outletItemId, change.getOutletId())
+                    : inventoryLayout.slots(outletItemId);
+            slotsById.put(outletItemId, slots);
+            keys.add(slots.getStockKey());
+            keys.add(slots.getReservedKey());
+            keys.add(InventoryKeys.holds(outletItemId));
+            args.add(utf8(slots.getStockField()));
+            args.add(utf8(slots.getReservedField()));
+            args.add(utf8(outletItemId.toString()));
+            args.add(utf8(InventoryKeys.holdMember(change.getCartId(), outletItemId)));
+            args.add(utf8(String.valueOf(line.getQuantity())));
+            args.add(line.getDetails() != null ? line.getDetails() : new byte[0]);
+        }
+        keys.add(InventoryKeys.quota(change.getCartId()));
+        args.add(utf8(String.valueOf(maxUnitsPerItem)));
+        args.add(utf8(String.valueOf(maxUnitsPerUser)));
+        args.add(utf8(String.valueOf(Duration.ofMinutes(maxHoldMinutes).toMillis())));
+        args.add(utf8(String.valueOf(now)));
+
+        // Each retry loads the one counter the script reported missing
+        List raw = null;
+        for (int attempt = 0; attempt <= lines.size(); attempt++) {
+            raw = redisTemplate.execute(inventoryScripts.cartLines(), RedisSerializer.byteArray(),
+                    (RedisSerializer<List>) (RedisSerializer) RedisSerializer.byteArray(), keys, args.toArray());
+            if (raw == null || raw.size() < 2
+                    || ((Number) raw.get(0)).longValue() != InventoryScripts.STATUS_NOT_LOADED) {
+                break;
+            }
+            Long missing = ((Number) raw.get(2)).longValue();
+            log.debug("Stock not in Redis cache, loading before retry: outletItemId={}", missing);
+            loadStockFromDb(slotsById.get(missing));
+        }
+        if (raw == null || raw.size() < 2) {
+            throw new BusinessException("INV_004", "Inventory operation failed");
+        }
+
+        long status = ((Number) raw.get(0)).longValue();
+        if (status == InventoryScripts.STATUS_NOT_LOADED) {
+            log.error("Stock counter could not be loaded: outletItemId={}", raw.get(2));
+            throw new BusinessException("INV_003", "Outlet item not found");
+        }
+        if (status == CartLineResult.STATUS_ITEM_QUOTA || status == CartLineResult.STATUS_USER_QUOTA) {
+            meterRegistry.counter("resqeats.inventory.quota.rejected",
+                    "limit", status == CartLineResult.STATUS_ITEM_QUOTA ? "item" : "user").increment();
+        }
+        if (status != InventoryScripts.STATUS_OK) {
+            Long rejected = raw.size() > 2 ? ((Number) raw.get(2)).longValue() : null;
+            int available = ((Number) raw.get(1)).intValue();
+            log.warn("Cart line change rejected: cartId={}, outletItemId={}, status={}, available={}",
+                    change.getCartId(), rejected, status, available);
+            return new CartLineResult(status, rejected, available, Map.of());
+        }
+
+        Map<String, byte[]> cart = new HashMap<>();
+        for (int i = 2; i + 1 < raw.size(); i += 2) {
+            cart.put(new String((byte[]) raw.get(i), StandardCharsets.UTF_8), (byte[]) raw.get(i + 1));
+        }
+        nearCache.invalidate(slotsById.keySet());
+        log.info("Cart lines updated: cartId={}, lines={}", change.getCartId(), lines.size());
+        return new CartLineResult(status, null, 0, cart);
+    }
+
+    /**
+     * Hands a cart's holds over to an order and removes the cart in one atomic script.
+     *
+     * <p>Stock held for the cart stays held, now under the order's holder id and with the order's
+     * deadline, so there is no window between checkout and acceptance in which another cart can
+     * take it. The cart must still contain exactly the checked-out lines; otherwise nothing changes.
+     * Carts live in Redis, so there is no database fallback: while inventory is in database mode
+     * the checkout is refused.</p>
+     *
+     * @param checkout the cart, the order holder and the checked-out quantities
+     * @return the script outcome
+     * @throws BusinessException with code INV_005 if inventory is in database mode
+     */
+    public CartLineResult checkoutCart(CartCheckout checkout) {
+        log.info("Checking out cart: cartId={}, holderId={}, lines={}",
+                checkout.getCartId(), checkout.getHolderId(), checkout.getQuantities().size());
+        return withRedis(() -> checkoutCartInRedis(checkout), () -> {
+            log.warn("Cart checkout refused in database mode: cartId={}", checkout.getCartId());
+            throw new BusinessException("INV_005", "Inventory is temporarily unavailable, please retry");
+        });
+    }
+
+    /**
+     * Runs the cart checkout script, loading missing stock counters and retrying as needed.
      */
-    public boolean reserveForCart(Long outletItemId, int quantity, String cartId) {
-        log.info("Reserving stock for cart: outletItemId={}, quantity={}, cartId={}", 
-                outletItemId, quantity, cartId);
-        
-        int available = getAvailableStock(outletItemId);
+    private CartLineResult checkoutCartInRedis(CartCheckout checkout) {
+        Map<Long, Integer> quantities = checkout.getQuantities();
+        Map<Long, InventorySlots> slotsById = new HashMap<>();
+        List<String> keys = new ArrayList<>(quantities.size() * 3 + 2);
+        List<String> args = new ArrayList<>(quantities.size() * 4 + 4);
+        keys.add(checkout.getCartKey());
+        keys.add(InventoryKeys.HOLD_DEADLINES);
+        args.add(checkout.getCartId());
+        args.add(checkout.getHolderId());
+        args.add(String.valueOf(checkout.getDeadline()));
+        args.add(String.valueOf(quantities.size()));
+        quantities.forEach((outletItemId, quantity) -> {
+            InventorySlots slots = inventoryLayout.slots(outletItemId, checkout.getOutletId());
+            slotsById.put(outletItemId, slots);
+            keys.add(slots.getStockKey());
+            keys.add(slots.getReservedKey());
+            keys.add(InventoryKeys.holds(outletItemId));
+            args.add(slots.getStockField());
+            args.add(slots.getReservedField());
+            args.add(outletItemId.toString());
+            args.add(String.valueOf(quantity));
+        });
+        keys.add(InventoryKeys.quota(checkout.getCartId()));
 
-        if (available < quantity) {
-            log.warn("Insufficient stock for reservation: outletItemId={}, available={}, requested={}", 
-                    outletItemId, available, quantity);
-            return false;
+        // Each retry loads the one counter the script reported missing
+        List<Long> result = null;
+        for (int attempt = 0; attempt <= quantities.size(); attempt++) {
+            result = runScript(inventoryScripts.cartCheckout(), keys, args.toArray(new String[0]));
+            if (result.get(0) != InventoryScripts.STATUS_NOT_LOADED) {
+                break;
+            }
+            log.debug("Stock not in Redis cache, loading before retry: outletItemId={}", result.get(2));
+            loadStockFromDb(slotsById.get(result.get(2)));
         }
 
-        String reservedKey = RESERVED_KEY_PREFIX + outletItemId;
-        String cartReserveKey = CART_RESERVE_PREFIX + cartId + ":" + outletItemId;
+        long status = result.get(0);
+        if (status == InventoryScripts.STATUS_NOT_LOADED) {
+            log.error("Stock counter could not be loaded: outletItemId={}", result.get(2));
+            throw new BusinessException("INV_003", "Outlet item not found");
+        }
+        if (status != InventoryScripts.STATUS_OK) {
+            Long rejected = result.get(2) != 0 ? result.get(2) : null;
+            log.warn("Cart checkout rejected: cartId={}, outletItemId={}, status={}, available={}",
+                    checkout.getCartId(), rejected, status, result.get(1));
+            return new CartLineResult(status, rejected, result.get(1).intValue(), Map.of());
+        }
 
-        Long newReserved = redisTemplate.opsForValue().increment(reservedKey, quantity);
-        log.debug("Reserved {} units for cartId={}, total reserved now: {}", quantity, cartId, newReserved);
+        nearCache.invalidate(slotsById.keySet());
+        log.info("Cart holds moved to order: cartId={}, holderId={}, lines={}",
+                checkout.getCartId(), checkout.getHolderId(), quantities.size());
+        return new CartLineResult(status, null, 0, Map.of());
+    }
+
+    /**
+     * Moves the deadline of an order's holds to its acceptance deadline.
+     *
+     * <p>Called when the order is submitted for acceptance, so stock taken over from the cart
+     * stays held exactly until the outlet must have responded. Holds that already lapsed are
+     * not taken again; acceptance then checks free stock instead.</p>
+     *
+     * @param outletItemIds the outlet items of the order
+     * @param holderId the holder id of the order's holds
+     * @param deadline the new hold deadline in epoch millis
+     * @return the number of holds moved
+     */
+    public int moveHoldDeadlines(Collection<Long> outletItemIds, String holderId, long deadline) {
+        if (outletItemIds.isEmpty() || !circuitBreaker.isClosed()) {
+            return 0;
+        }
+        List<String> args = new ArrayList<>(outletItemIds.size() + 1);
+        args.add(String.valueOf(deadline));
+        outletItemIds.forEach(id -> args.add(InventoryKeys.holdMember(holderId, id)));
 
-        redisTemplate.opsForValue().set(cartReserveKey, quantity, CART_RESERVE_TTL);
-        
-        log.info("Stock reservation successful: outletItemId={}, quantity={}, cartId={}", 
-                outletItemId, quantity, cartId);
-        return true;
+        Long moved = redisTemplate.execute(inventoryScripts.moveDeadlines(),
+                List.of(InventoryKeys.HOLD_DEADLINES), args.toArray());
+        int count = moved != null ? moved.intValue() : 0;
+        log.debug("Moved hold deadlines: holderId={}, holds={}, lines={}", holderId, count, outletItemIds.size());
+        return count;
     }
 
     /**
-     * Releases a cart's stock reservation.
+     * Releases every hold of a holder on the given items in one atomic step.
      *
-     * <p>This method should be called when a cart is abandoned or when an order is placed.
-     * Uses Redis atomic operations for thread safety in distributed environments.</p>
+     * <p>Used when an order that holds stock is declined, cancelled or expires. Releasing
+     * holds that are already gone is a no-op, so the call is safe to repeat.</p>
      *
-     * @param outletItemId the unique identifier of the outlet item
-     * @param cartId the unique identifier of the cart whose reservation should be released
+     * @param outletItemIds the outlet items of the order
+     * @param holderId the holder id of the order's holds
      */
-    public void releaseCartReservation(Long outletItemId, String cartId) {
-        log.info("Releasing cart reservation: outletItemId={}, cartId={}", outletItemId, cartId);
-        
-        String reservedKey = RESERVED_KEY_PREFIX + outletItemId;
-        String cartReserveKey = CART_RESERVE_PREFIX + cartId + ":" + outletItemId;
-
-        Integer reservedByCart = (Integer) redisTemplate.opsForValue().get(cartReserveKey);
-        if (reservedByCart != null && reservedByCart > 0) {
-            redisTemplate.opsForValue().decrement(reservedKey, reservedByCart);
-            redisTemplate.delete(cartReserveKey);
-            log.info("Released {} reserved units for cartId={}, outletItemId={}", 
-                    reservedByCart, cartId, outletItemId);
+    public void releaseHolds(Collection<Long> outletItemIds, String holderId) {
+        if (outletItemIds.isEmpty()) {
+            return;
+        }
+        log.info("Releasing holds: holderId={}, lines={}", holderId, outletItemIds.size());
+        runWithRedis(() -> releaseHoldsInRedis(outletItemIds, holderId),
+                () -> log.debug("No holds without Redis, nothing to release: holderId={}", holderId));
+    }
+
+    /**
+     * Runs the batched release script.
+     */
+    private void releaseHoldsInRedis(Collection<Long> outletItemIds, String holderId) {
+        List<String> keys = new ArrayList<>(outletItemIds.size() * 2 + 1);
+        List<String> args = new ArrayList<>(outletItemIds.size() * 2 + 1);
+        args.add(holderId);
+        for (Long outletItemId : outletItemIds) {
+            InventorySlots slots = inventoryLayout.slots(outletItemId);
+            keys.add(slots.getReservedKey());
+            keys.add(InventoryKeys.holds(outletItemId));
+            args.add(slots.getReservedField());
+            args.add(outletItemId.toString());
+        }
+        keys.add(InventoryKeys.HOLD_DEADLINES);
+
+        Long released = redisTemplate.execute(inventoryScripts.releaseHolds(), keys, args.toArray());
+        if (released != null && released > 0) {
+            nearCache.invalidate(outletItemIds);
+            meterRegistry.counter("resqeats.inventory.holds.released.units").increment(released);
+            log.info("Released {} held units for holderId={}", released, holderId);
         } else {
-            log.debug("No reservation found to release for cartId={}, outletItemId={}", cartId, outletItemId);
+            log.debug("No holds found to release for holderId={}", holderId);
+        }
+    }
+
+    /**
+     * Pushes back the deadline of a cart's holds while the cart is still in use.
+     *
+     * <p>Called when the cart TTL is refreshed so that active carts keep their stock. Only
+     * holds still in the ledger are extended, and never past the cart's first hold plus the
+     * maximum hold time, so a cart cannot keep stock indefinitely by refreshing.</p>
+     *
+     * @param outletItemIds the outlet items held by the cart
+     * @param cartId the unique identifier of the cart
+     */
+    public void extendCartReservations(Collection<Long> outletItemIds, String cartId) {
+        if (outletItemIds.isEmpty() || !circuitBreaker.isClosed()) {
+            return;
+        }
+        List<String> args = new ArrayList<>(outletItemIds.size() + 3);
+        args.add(String.valueOf(System.currentTimeMillis()));
+        args.add(String.valueOf(CART_RESERVE_TTL.toMillis()));
+        args.add(String.valueOf(Duration.ofMinutes(maxHoldMinutes).toMillis()));
+        outletItemIds.forEach(id -> args.add(InventoryKeys.holdMember(cartId, id)));
+
+        Long deadline = redisTemplate.execute(inventoryScripts.extendHolds(),
+                List.of(InventoryKeys.HOLD_DEADLINES, InventoryKeys.quota(cartId)), args.toArray());
+        if (deadline != null && deadline == 0) {
+            meterRegistry.counter("resqeats.inventory.quota.renewals.refused").increment();
+            log.info("Cart holds reached the maximum hold time and were not extended: cartId={}", cartId);
+            return;
+        }
+        log.debug("Extended {} cart reservations for cartId={}", outletItemIds.size(), cartId);
+    }
+
+    /**
+     * Reclaims one batch of cart holds whose deadline has passed.
+     *
+     * <p>This method implements BR-008: each expired hold is removed from the ledger and its
+     * units are returned to the item's reserved counter in a single atomic script, so the
+     * sweep is idempotent and safe to run from several nodes.</p>
+     *
+     * @param batchSize the maximum number of holds to reclaim
+     * @return the number of holds reclaimed; less than {@code batchSize} when none remain
+     */
+    public int reclaimExpiredHolds(int batchSize) {
+        if (!circuitBreaker.isClosed()) {
+            return 0;
+        }
+        List<String> args = new ArrayList<>();
+        args.add(String.valueOf(System.currentTimeMillis()));
+        args.add(String.valueOf(batchSize));
+        args.add(inventoryLayout.name());
+        args.add(String.valueOf(inventoryLayout.shards()));
+        inventoryLayout.shardedItems().forEach(id -> args.add(id.toString()));
+
+        List<Long> result = runScript(inventoryScripts.reclaimExpired(),
+                List.of(InventoryKeys.HOLD_DEADLINES, InventoryKeys.ITEM_OUTLET), args.toArray(new String[0]));
+        int holds = result.get(0).intValue();
+        if (holds > 0) {
+            nearCache.invalidateAll();
+            meterRegistry.counter("resqeats.inventory.holds.reclaimed").increment(holds);
+            meterRegistry.counter("resqeats.inventory.holds.reclaimed.units").increment(result.get(1));
+            log.info("Reclaimed expired cart holds: holds={}, units={}", holds, result.get(1));
+        }
+        return holds;
+    }
+
+    /**
+     * Resets every reserved counter to the sum of its item's live holds.
+     *
+     * <p>Repairs counters left behind by holds that predate the reservation ledger or were
+     * lost outside the scripts, so reserved stock converges to what carts actually hold.</p>
+     *
+     * @return the total number of phantom reserved units removed (negative if units were restored)
+     */
+    public long reconcileReservedCounters() {
+        if (!circuitBreaker.isClosed()) {
+            log.info("Reserved counter reconciliation skipped: inventory is in database mode");
+            return 0;
         }
+        List<InventorySlots> reservedSlots = inventoryLayout.isOutletHash()
+                ? findOutletHashReservedSlots()
+                : scanKeys(RESERVED_KEY_PREFIX + "*").stream()
+                        .map(key -> InventorySlots.perItem(Long.valueOf(key.substring(RESERVED_KEY_PREFIX.length()))))
+                        .collect(Collectors.toCollection(ArrayList::new));
+        inventoryLayout.shardedItems().forEach(id -> reservedSlots.add(inventoryLayout.slots(id)));
+
+        long corrected = 0;
+        List<Long> adjusted = new ArrayList<>();
+        for (InventorySlots slots : reservedSlots) {
+            Long delta = redisTemplate.execute(inventoryScripts.reconcileReserved(),
+                    List.of(slots.getReservedKey(), InventoryKeys.holds(slots.getOutletItemId())),
+                    slots.getReservedField());
+            if (delta != null && delta != 0) {
+                corrected += delta;
+                adjusted.add(slots.getOutletItemId());
+                log.warn("Reserved counter corrected: outletItemId={}, phantomUnits={}", slots.getOutletItemId(), delta);
+            }
+        }
+
+        nearCache.invalidate(adjusted);
+        meterRegistry.counter("resqeats.inventory.reserved.corrected.units").increment(Math.abs(corrected));
+        log.info("Reserved counter reconciliation completed: counters={}, adjusted={}, unitsCorrected={}",
+                reservedSlots.size(), adjusted.size(), corrected);
+        return corrected;
     }
 
     /**
      * Decrements stock atomically when an order is confirmed.
      *
      * <p>This method implements BR-009: Stock is decremented atomically to prevent overselling.
-     * Updates both Redis cache and database for consistency.</p>
+     * The database is updated asynchronously by the write-behind stage.</p>
      *
      * @param outletItemId the unique identifier of the outlet item
      * @param quantity the quantity to decrement
      * @throws BusinessException with code INV_001 if insufficient stock is available
+     * @throws BusinessException with code INV_005 if Redis failed before the outcome of the write was known
      */
-    @Transactional
     public void decrementStock(Long outletItemId, int quantity) {
         log.info("Decrementing stock: outletItemId={}, quantity={}", outletItemId, quantity);
-        
-        String inventoryKey = INVENTORY_KEY_PREFIX + outletItemId;
+        runStockWrite(() -> decrementInRedis(outletItemId, quantity), () -> {
+            fallbackService.decrementStock(outletItemId, quantity);
+            nearCache.invalidate(outletItemId);
+        });
+    }
+
+    /**
+     * Runs the check-and-decrement script.
+     */
+    private void decrementInRedis(Long outletItemId, int quantity) {
+        InventorySlots slots = inventoryLayout.slots(outletItemId);
+        List<String> keys = List.of(
+                slots.getStockKey(),
+                slots.getReservedKey(),
+                InventoryKeys.PENDING_DELTAS,
+                InventoryKeys.PENDING_DELTAS_SINCE);
+
+        List<Long> result = executeWithStockLoaded(slots,
+                () -> runScript(inventoryScripts.decrement(), keys, slots.getStockField(), slots.getReservedField(),
+                        String.valueOf(quantity), outletItemId.toString(), String.valueOf(System.currentTimeMillis())));
 
-        int current = getAvailableStock(outletItemId);
-        if (current < quantity) {
-            log.error("Insufficient stock for decrement: outletItemId={}, available={}, requested={}", 
-                    outletItemId, current, quantity);
-            throw new BusinessException("INV_001", 
-                    "Insufficient stock. Available: " + current + ", Requested: " + quantity);
+        if (result.get(0) != InventoryScripts.STATUS_OK) {
+            log.error("Insufficient stock for decrement: outletItemId={}, available={}, requested={}",
+                    outletItemId, result.get(1), quantity);
+            throw new BusinessException("INV_001",
+                    "Insufficient stock. Available: " + result.get(1) + ", Requested: " + quantity);
         }
 
-        Long newValue = redisTemplate.opsForValue().decrement(inventoryKey, quantity);
+        nearCache.invalidate(outletItemId);
+        log.info("Stock decremented successfully: outletItemId={}, decrementedBy={}, newValue={}",
+                outletItemId, quantity, result.get(1));
+    }
 
-        outletItemRepository.findById(outletItemId).ifPresent(item -> {
-            item.setCurrentQuantity(newValue != null ? newValue.intValue() : 0);
-            outletItemRepository.save(item);
-            log.debug("Database updated for outletItemId={}, newQuantity={}", outletItemId, newValue);
+    /**
+     * Atomically decrements stock for every line of an order.
+     *
+     * <p>This method implements BR-009 for whole baskets: one script validates every line and
+     * only then decrements them all, so an order never leaves a partial decrement behind. Cost
+     * is a single Redis round trip regardless of basket size; the write-behind stage persists
+     * the deltas to the database in one batch.</p>
+     *
+     * @param quantities quantity to decrement per outlet item id
+     * @throws BusinessException with code INV_001 if any line has insufficient stock; no stock is changed
+     */
+    public void commitStock(Map<Long, Integer> quantities) {
+        commitStock(quantities, null);
+    }
+
+    /**
+     * Atomically decrements stock for every line of an order, consuming the order's own holds.
+     *
+     * <p>Units the holder still holds on an item count as available to this commit and are
+     * released by it, so an order that took over its cart's reservations at checkout is never
+     * refused because of them. Items it holds nothing on are checked against free stock.</p>
+     *
+     * @param quantities quantity to decrement per outlet item id
+     * @param holderId the holder id of the order's holds, or {@code null} if it holds none
+     * @throws BusinessException with code INV_001 if any line has insufficient stock; no stock is changed
+     * @throws BusinessException with code INV_005 if Redis failed before the outcome of the write was known
+     */
+    public void commitStock(Map<Long, Integer> quantities, String holderId) {
+        if (quantities.isEmpty()) {
+            return;
+        }
+        log.info("Committing stock for {} order lines, holderId={}", quantities.size(), holderId);
+        runStockWrite(() -> commitInRedis(quantities, holderId), () -> {
+            fallbackService.commitStock(quantities);
+            nearCache.invalidate(quantities.keySet());
         });
+    }
+
+    /**
+     * Runs the all-or-nothing order commit script, loading missing counters between attempts.
+     */
+    private void commitInRedis(Map<Long, Integer> quantities, String holderId) {
+        List<Long> ids = new ArrayList<>(quantities.keySet());
+        List<InventorySlots> lines = ids.stream()
+                .map(inventoryLayout::slots)
+                .collect(Collectors.toList());
+
+        List<String> keys = new ArrayList<>(lines.size() * 3 + 3);
+        List<String> args = new ArrayList<>(lines.size() * 4 + 3);
+        args.add(String.valueOf(lines.size()));
+        args.add(String.valueOf(System.currentTimeMillis()));
+        args.add(Objects.toString(holderId, ""));
+        for (InventorySlots slots : lines) {
+            keys.add(slots.getStockKey());
+            keys.add(slots.getReservedKey());
+            keys.add(InventoryKeys.holds(slots.getOutletItemId()));
+            args.add(slots.getStockField());
+            args.add(slots.getReservedField());
+            args.add(String.valueOf(quantities.get(slots.getOutletItemId())));
+            args.add(slots.getOutletItemId().toString());
+        }
+        keys.add(InventoryKeys.PENDING_DELTAS);
+        keys.add(InventoryKeys.PENDING_DELTAS_SINCE);
+        keys.add(InventoryKeys.HOLD_DEADLINES);
+
+        // Each retry loads at most one missing counter, so bound retries by the number of lines
+        for (int attempt = 0; attempt <= lines.size(); attempt++) {
+            List<Long> result = runScript(inventoryScripts.commitOrder(), keys, args.toArray(new String[0]));
+            if (result.get(0) == InventoryScripts.STATUS_OK) {
+                nearCache.invalidate(ids);
+                log.info("Stock committed successfully for {} order lines", lines.size());
+                return;
+            }
 
-        log.info("Stock decremented successfully: outletItemId={}, decrementedBy={}, newValue={}", 
-                outletItemId, quantity, newValue);
+            InventorySlots failed = lines.get(result.get(1).intValue() - 1);
+            if (result.get(0) == InventoryScripts.STATUS_NOT_LOADED) {
+                log.debug("Stock not in Redis cache, loading before retry: outletItemId={}", failed.getOutletItemId());
+                loadStockFromDb(failed);
+                continue;
+            }
+
+            int requested = quantities.get(failed.getOutletItemId());
+            log.error("Insufficient stock for order commit: outletItemId={}, available={}, requested={}",
+                    failed.getOutletItemId(), result.get(2), requested);
+            throw new BusinessException("INV_001",
+                    "Insufficient stock. Available: " + result.get(2) + ", Requested: " + requested);
+        }
+
+        log.error("Stock counters could not be loaded for order commit: outletItemIds={}", ids);
+        throw new BusinessException("INV_003", "Outlet item not found");
+    }
+
+    /**
+     * Returns stock taken by {@link #commitStock(Map)} when the order fails afterwards.
+     *
+     * @param quantities quantity to restore per outlet item id
+     */
+    public void restoreStock(Map<Long, Integer> quantities) {
+        log.warn("Restoring committed stock for {} order lines", quantities.size());
+        quantities.forEach(this::incrementStock);
     }
 
     /**
      * Increments stock when an order is cancelled or items are restocked.
      *
-     * <p>Updates both Redis cache and database for consistency.
-     * Uses Redis atomic operations for thread safety.</p>
+     * <p>Uses a Redis script for thread safety; the database is updated asynchronously
+     * by the write-behind stage.</p>
      *
      * @param outletItemId the unique identifier of the outlet item
      * @param quantity the quantity to increment
+     * @throws BusinessException with code INV_005 if Redis failed before the outcome of the write was known
      */
-    @Transactional
     public void incrementStock(Long outletItemId, int quantity) {
         log.info("Incrementing stock: outletItemId={}, quantity={}", outletItemId, quantity);
-        
-        String inventoryKey = INVENTORY_KEY_PREFIX + outletItemId;
+        runStockWrite(() -> incrementInRedis(outletItemId, quantity), () -> {
+            fallbackService.incrementStock(outletItemId, quantity);
+            nearCache.invalidate(outletItemId);
+        });
+    }
 
-        Long newValue = redisTemplate.opsForValue().increment(inventoryKey, quantity);
+    /**
+     * Runs the increment script.
+     */
+    private void incrementInRedis(Long outletItemId, int quantity) {
+        InventorySlots slots = inventoryLayout.slots(outletItemId);
+        List<String> keys = List.of(
+                slots.getStockKey(),
+                InventoryKeys.PENDING_DELTAS,
+                InventoryKeys.PENDING_DELTAS_SINCE);
 
-        outletItemRepository.findById(outletItemId).ifPresent(item -> {
-            item.setCurrentQuantity(newValue != null ? newValue.intValue() : 0);
-            outletItemRepository.save(item);
-            log.debug("Database updated for outletItemId={}, newQuantity={}", outletItemId, newValue);
-        });
+        List<Long> result = executeWithStockLoaded(slots,
+                () -> runScript(inventoryScripts.increment(), keys, slots.getStockField(),
+                        String.valueOf(quantity), outletItemId.toString(), String.valueOf(System.currentTimeMillis())));
 
-        log.info("Stock incremented successfully: outletItemId={}, incrementedBy={}, newValue={}", 
-                outletItemId, quantity, newValue);
+        nearCache.invalidate(outletItemId);
+        log.info("Stock incremented successfully: outletItemId={}, incrementedBy={}, newValue={}",
+                outletItemId, quantity, result.get(1));
     }
 
     /**
      * Sets the stock level for an outlet item.
      *
      * <p>This method is typically used by outlet managers to set inventory levels.
-     * Updates both Redis cache and database for consistency.</p>
+     * Updates both Redis and database synchronously and discards any unflushed
+     * write-behind delta for the item, which the absolute value supersedes.</p>
      *
      * @param outletItemId the unique identifier of the outlet item
      * @param quantity the stock quantity to set (must be non-negative)
@@ -224,17 +751,12 @@ public class InventoryService {
     @Transactional
     public void setStock(Long outletItemId, int quantity) {
         log.info("Setting stock: outletItemId={}, quantity={}", outletItemId, quantity);
-        
+
         if (quantity < 0) {
             log.warn("Attempted to set negative stock: outletItemId={}, quantity={}", outletItemId, quantity);
             throw new BusinessException("INV_002", "Stock quantity cannot be negative");
         }
 
-        String inventoryKey = INVENTORY_KEY_PREFIX + outletItemId;
-
-        redisTemplate.opsForValue().set(inventoryKey, quantity, INVENTORY_CACHE_TTL);
-        log.debug("Redis cache updated for outletItemId={}, quantity={}", outletItemId, quantity);
-
         OutletItem item = outletItemRepository.findById(outletItemId)
                 .orElseThrow(() -> {
                     log.error("Outlet item not found: outletItemId={}", outletItemId);
@@ -243,9 +765,118 @@ public class InventoryService {
         item.setCurrentQuantity(quantity);
         outletItemRepository.save(item);
 
+        runWithRedis(() -> {
+            InventorySlots slots = inventoryLayout.slots(outletItemId, item.getOutletId());
+            redisTemplate.execute(inventoryScripts.setStock(),
+                    List.of(slots.getStockKey(), InventoryKeys.PENDING_DELTAS),
+                    slots.getStockField(), String.valueOf(quantity), outletItemId.toString());
+            log.debug("Redis stock updated for outletItemId={}, quantity={}", outletItemId, quantity);
+        }, () -> circuitBreaker.markChanged(List.of(outletItemId)));
+        nearCache.invalidate(outletItemId);
+
         log.info("Stock set successfully: outletItemId={}, quantity={}", outletItemId, quantity);
     }
 
+    /**
+     * Rebuilds the Redis counters of items whose daily stock was just reset in the database.
+     *
+     * <p>Each item is reset by {@code reset_daily.lua}: the stock counter takes the new daily
+     * quantity, unflushed deltas are discarded, cart holds left over from the previous day are
+     * dropped with their cart lines and the reserved counter keeps only the units held by orders
+     * awaiting acceptance. All items go out in one pipelined batch, so a whole outlet costs a
+     * single round trip. While Redis is unavailable the items are marked for the recovery rebuild
+     * instead.</p>
+     *
+     * <p>The database reset has already committed and will not run again, so items whose script
+     * failed are kept and retried by {@link #retryFailedDailyResets()}.</p>
+     *
+     * @param items the reset items with their new current quantity
+     */
+    public void resetDailyStock(List<OutletItemRepository.StockLevel> items) {
+        if (items.isEmpty()) {
+            return;
+        }
+        List<Long> ids = items.stream().map(OutletItemRepository.StockLevel::getId).collect(Collectors.toList());
+        log.info("Resetting daily stock in Redis: items={}", items.size());
+
+        List<OutletItemRepository.StockLevel> failed;
+        try {
+            failed = withRedis(() -> resetDailyInRedis(items), () -> {
+                circuitBreaker.markChanged(ids);
+                // Below the failure threshold the breaker stays closed and no rebuild follows
+                return circuitBreaker.isClosed() ? items : List.of();
+            });
+        } catch (RuntimeException e) {
+            log.error("Daily stock reset in Redis failed: items={}, error={}", items.size(), e.getMessage());
+            failed = items;
+        }
+        nearCache.invalidate(ids);
+
+        ids.forEach(failedDailyResets::remove);
+        failed.forEach(item -> failedDailyResets.put(item.getId(), item));
+        if (!failed.isEmpty()) {
+            log.warn("Daily stock reset pending retry in Redis: items={}", failed.size());
+        }
+        log.info("Daily stock reset in Redis: items={}", items.size() - failed.size());
+    }
+
+    /**
+     * Retries the Redis step of daily resets that failed earlier on this node.
+     *
+     * <p>Items still failing stay queued; once the breaker has opened they are left to the
+     * recovery rebuild.</p>
+     */
+    public void retryFailedDailyResets() {
+        if (failedDailyResets.isEmpty()) {
+            return;
+        }
+        List<OutletItemRepository.StockLevel> items = new ArrayList<>(failedDailyResets.values());
+        log.warn("Retrying failed daily stock resets in Redis: items={}", items.size());
+        resetDailyStock(items);
+    }
+
+    /**
+     * Runs the reset script for every item in one pipeline.
+     *
+     * @return the items whose script did not complete
+     */
+    @SuppressWarnings("rawtypes")
+    private List<OutletItemRepository.StockLevel> resetDailyInRedis(List<OutletItemRepository.StockLevel> items) {
+        RedisScript<List> script = inventoryScripts.resetDaily();
+        // EVALSHA inside a pipeline cannot fall back to EVAL, so make sure the script is cached
+        redisTemplate.execute((RedisCallback<String>) connection ->
+                ((StringRedisConnection) connection).scriptLoad(script.getScriptAsString()));
+
+        List<Object> results;
+        try {
+            results = redisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+                StringRedisConnection stringConnection = (StringRedisConnection) connection;
+                for (OutletItemRepository.StockLevel item : items) {
+                    InventorySlots slots = inventoryLayout.slots(item.getId(), item.getOutletId());
+                    Integer qty = item.getCurrentQuantity();
+                    stringConnection.evalSha(script.getSha1(), ReturnType.MULTI, 6,
+                            slots.getStockKey(), slots.getReservedKey(), InventoryKeys.holds(item.getId()),
+                            InventoryKeys.PENDING_DELTAS, InventoryKeys.HOLD_DEADLINES, InventoryKeys.INFLIGHT_DELTAS,
+                            slots.getStockField(), slots.getReservedField(),
+                            String.valueOf(qty != null ? qty : 0), item.getId().toString());
+                }
+                return null;
+            });
+        } catch (RedisPipelineException e) {
+            results = e.getPipelineResult();
+        }
+
+        List<OutletItemRepository.StockLevel> failed = new ArrayList<>();
+        for (int i = 0; i < items.size(); i++) {
+            Object result = i < results.size() ? results.get(i) : null;
+            if (!(result instanceof List)) {
+                log.warn("Daily stock reset script failed: outletItemId={}, result={}", items.get(i).getId(), result);
+                failed.add(items.get(i));
+            }
+        }
+        return failed;
+    }
+
     /**
      * Initializes stock from database into Redis cache.
      *
@@ -257,17 +888,29 @@ public class InventoryService {
      */
     public void initializeStock(Long outletItemId) {
         log.info("Initializing stock in Redis cache: outletItemId={}", outletItemId);
-        
+        if (!circuitBreaker.isClosed()) {
+            log.info("Stock initialization deferred to Redis recovery: outletItemId={}", outletItemId);
+            return;
+        }
+
         OutletItem item = outletItemRepository.findById(outletItemId)
                 .orElseThrow(() -> {
                     log.error("Outlet item not found during initialization: outletItemId={}", outletItemId);
                     return new BusinessException("INV_003", "Outlet item not found");
                 });
 
-        String inventoryKey = INVENTORY_KEY_PREFIX + outletItemId;
+        InventorySlots slots = inventoryLayout.slots(outletItemId, item.getOutletId());
         Integer qty = item.getCurrentQuantity() != null ? item.getCurrentQuantity() : 0;
-        redisTemplate.opsForValue().set(inventoryKey, qty, INVENTORY_CACHE_TTL);
+        if (slots.isSharded()) {
+            // Shards are only ever written by script so their split stays consistent
+            loadStock(slots, qty);
+        } else if (slots.getStockField().isEmpty()) {
+            redisTemplate.opsForValue().set(slots.getStockKey(), qty.toString());
+        } else {
+            redisTemplate.opsForHash().put(slots.getStockKey(), slots.getStockField(), qty.toString());
+        }
 
+        nearCache.invalidate(outletItemId);
         log.info("Stock initialized successfully: outletItemId={}, quantity={}", outletItemId, qty);
     }
 
@@ -289,132 +932,499 @@ public class InventoryService {
     /**
      * Retrieves stock levels for multiple outlet items in bulk.
      *
-     * <p>Uses Redis MGET for efficient batch fetching instead of individual calls,
-     * providing better performance for large item sets.</p>
+     * <p>Items in the near cache are answered from memory; the rest are read with Redis MGET
+     * for efficient batch fetching instead of individual calls, providing better performance
+     * for large item sets. In the outlet-hash layout the per-item HMGETs are pipelined into
+     * one round trip.</p>
      *
      * @param outletItemIds an iterable collection of outlet item identifiers
      * @return a map of outlet item IDs to their available stock levels
      */
     public Map<Long, Integer> getStockLevels(Iterable<Long> outletItemIds) {
         log.info("Getting stock levels in bulk");
-        
+
         List<Long> ids = StreamSupport.stream(outletItemIds.spliterator(), false)
                 .collect(Collectors.toList());
-        
+
         if (ids.isEmpty()) {
             log.debug("No item IDs provided for bulk stock fetch");
             return Map.of();
         }
+        return nearCache.getAll(ids, missing -> withRedis(() -> readStockLevels(missing),
+                () -> fallbackService.getStockLevels(missing)));
+    }
+
+    /**
+     * Reads the available stock of many items from Redis in one round trip.
+     *
+     * @param outletItemIds the outlet items missing from the near cache
+     * @return a map of outlet item IDs to their available stock levels
+     */
+    private Map<Long, Integer> readStockLevels(Collection<? extends Long> outletItemIds) {
+        List<Long> ids = new ArrayList<>(outletItemIds);
 
         log.debug("Fetching stock levels for {} items using batch operation", ids.size());
 
-        List<String> inventoryKeys = ids.stream()
-                .map(id -> INVENTORY_KEY_PREFIX + id)
+        List<InventorySlots> slots = ids.stream()
+                .map(inventoryLayout::slots)
                 .collect(Collectors.toList());
-        List<String> reservedKeys = ids.stream()
-                .map(id -> RESERVED_KEY_PREFIX + id)
-                .collect(Collectors.toList());
-
-        List<Object> inventoryValues = redisTemplate.opsForValue().multiGet(inventoryKeys);
-        List<Object> reservedValues = redisTemplate.opsForValue().multiGet(reservedKeys);
+        List<List<String>> counters = readCounters(slots);
 
         Map<Long, Integer> result = new ConcurrentHashMap<>();
         for (int i = 0; i < ids.size(); i++) {
-            Long id = ids.get(i);
-            int total = inventoryValues != null && inventoryValues.get(i) != null 
-                    ? ((Number) inventoryValues.get(i)).intValue() : 0;
-            int reserved = reservedValues != null && reservedValues.get(i) != null 
-                    ? ((Number) reservedValues.get(i)).intValue() : 0;
-            result.put(id, Math.max(0, total - reserved));
-        }
-        
+            int total = parseCount(counters.get(i).get(0));
+            int reserved = parseCount(counters.get(i).get(1));
+            result.put(ids.get(i), Math.max(0, total - reserved));
+        }
+
         log.info("Stock levels retrieved successfully for {} items using batch fetch", result.size());
         return result;
     }
 
+    /**
+     * Retrieves available stock for every loaded item of an outlet.
+     *
+     * <p>In the outlet-hash layout this is a single HGETALL of the outlet's hash; otherwise
+     * the outlet's items are looked up and read with one MGET. Items whose counters are
+     * not loaded yet are absent from the result. The values read seed the near cache.</p>
+     *
+     * @param outletId the unique identifier of the outlet
+     * @return a map of outlet item IDs to their available stock levels
+     */
+    public Map<Long, Integer> getOutletStockLevels(Long outletId) {
+        log.info("Getting stock levels for outletId={}", outletId);
+        return withRedis(() -> readOutletStockLevels(outletId), () -> fallbackService.getOutletStockLevels(outletId));
+    }
+
+    /**
+     * Reads an outlet's available stock from Redis.
+     */
+    private Map<Long, Integer> readOutletStockLevels(Long outletId) {
+        if (!inventoryLayout.isOutletHash()) {
+            List<InventorySlots> slots = outletItemRepository.findByOutletId(outletId).stream()
+                    .map(item -> inventoryLayout.slots(item.getId(), outletId))
+                    .collect(Collectors.toList());
+            List<List<String>> counters = readCounters(slots);
+            Map<Long, Integer> result = new HashMap<>();
+            for (int i = 0; i < slots.size(); i++) {
+                if (counters.get(i).get(0) != null) {
+                    result.put(slots.get(i).getOutletItemId(), Math.max(0,
+                            parseCount(counters.get(i).get(0)) - parseCount(counters.get(i).get(1))));
+                }
+            }
+            nearCache.putAll(result);
+            return result;
+        }
+
+        Map<Object, Object> fields = redisTemplate.opsForHash().entries(InventoryKeys.outlet(outletId));
+        Map<Long, Integer> stock = new HashMap<>();
+        Map<Long, Integer> reserved = new HashMap<>();
+        fields.forEach((field, value) -> {
+            String name = field.toString();
+            if (name.startsWith(InventoryKeys.STOCK_FIELD_PREFIX)) {
+                stock.put(Long.valueOf(name.substring(InventoryKeys.STOCK_FIELD_PREFIX.length())),
+                        parseCount(value.toString()));
+            } else if (name.startsWith(InventoryKeys.RESERVED_FIELD_PREFIX)) {
+                reserved.put(Long.valueOf(name.substring(InventoryKeys.RESERVED_FIELD_PREFIX.length())),
+                        parseCount(value.toString()));
+            }
+        });
+
+        Map<Long, Integer> result = new HashMap<>();
+        stock.forEach((id, total) -> result.put(id, Math.max(0, total - reserved.getOrDefault(id, 0))));
+        nearCache.putAll(result);
+        log.debug("Stock levels retrieved for outletId={}: items={}", outletId, result.size());
+        return result;
+    }
+
     /**
      * Synchronizes Redis cache with the database periodically.
      *
      * <p>This scheduled task runs every 5 minutes to ensure Redis and database consistency.
      * Uses ShedLock for distributed locking to prevent concurrent execution in clustered environments.
      * Only items not already cached in Redis are synchronized from the database.</p>
+     *
+     * <p>Outlet items are walked by id with keyset pagination in chunks of
+     * {@code resqeats.inventory.sync.chunk-size}, so memory and Redis command size stay bounded
+     * regardless of catalogue size. Each chunk costs one read round trip and one pipelined batch
+     * of SET NX. In the outlet-hash layout missing counters are loaded through
+     * {@code load_stock.lua}, which also migrates items still held in per-item keys.</p>
      */
     @Scheduled(fixedRate = 300000)
     @SchedulerLock(name = "syncInventoryWithDb", lockAtMostFor = "PT4M", lockAtLeastFor = "PT30S")
     public void syncInventoryWithDb() {
-        log.info("Starting scheduled inventory synchronization");
-        
-        List<OutletItem> items = outletItemRepository.findAll();
-        if (items.isEmpty()) {
-            log.info("No items found to synchronize");
+        if (!circuitBreaker.isClosed()) {
+            log.info("Scheduled inventory synchronization skipped: inventory is in database mode");
             return;
         }
+        log.info("Starting scheduled inventory synchronization");
+        Timer.Sample sample = Timer.start(meterRegistry);
+        AtomicLong progress = meterRegistry.gauge("resqeats.inventory.sync.progress", syncProgress);
+        progress.set(0);
+
+        long lastId = 0;
+        int totalItems = 0;
+        int syncedCount = 0;
+        List<OutletItemRepository.StockLevel> chunk;
+        do {
+            chunk = outletItemRepository.findStockLevelsAfter(lastId, PageRequest.ofSize(syncChunkSize));
+            if (chunk.isEmpty()) {
+                break;
+            }
+            syncedCount += syncChunk(chunk);
+            totalItems += chunk.size();
+            lastId = chunk.get(chunk.size() - 1).getId();
+            progress.set(totalItems);
+            log.debug("Inventory sync progress: scanned={}, newlyCached={}, lastId={}", totalItems, syncedCount, lastId);
+        } while (chunk.size() == syncChunkSize);
 
-        log.debug("Found {} items for potential synchronization", items.size());
+        long durationNanos = sample.stop(meterRegistry.timer("resqeats.inventory.sync.duration"));
+        meterRegistry.counter("resqeats.inventory.sync.loaded").increment(syncedCount);
 
-        List<String> keys = items.stream()
-                .map(item -> INVENTORY_KEY_PREFIX + item.getId())
+        log.info("Inventory synchronization completed: totalItems={}, newlyCached={}, durationMs={}",
+                totalItems, syncedCount, TimeUnit.NANOSECONDS.toMillis(durationNanos));
+    }
+
+    /**
+     * Loads the missing stock counters of one sync chunk into Redis.
+     *
+     * @param chunk a page of outlet item stock levels
+     * @return the number of counters newly cached
+     */
+    private int syncChunk(List<OutletItemRepository.StockLevel> chunk) {
+        List<InventorySlots> slots = chunk.stream()
+                .map(item -> inventoryLayout.slots(item.getId(), item.getOutletId()))
                 .collect(Collectors.toList());
+        List<List<String>> counters = readCounters(slots);
 
-        List<Object> redisValues = redisTemplate.opsForValue().multiGet(keys);
+        List<Integer> missing = new ArrayList<>();
+        for (int i = 0; i < chunk.size(); i++) {
+            if (counters.get(i).get(0) == null) {
+                missing.add(i);
+            }
+        }
+        if (missing.isEmpty()) {
+            return 0;
+        }
 
-        int syncedCount = 0;
-        for (int i = 0; i < items.size(); i++) {
-            OutletItem item = items.get(i);
-            Object redisValue = redisValues != null ? redisValues.get(i) : null;
-            
-            if (redisValue == null) {
-                String inventoryKey = INVENTORY_KEY_PREFIX + item.getId();
-                Integer qty = item.getCurrentQuantity() != null ? item.getCurrentQuantity() : 0;
-                redisTemplate.opsForValue().set(inventoryKey, qty, INVENTORY_CACHE_TTL);
-                syncedCount++;
+        // Hash fields and shards go through load_stock.lua, plain keys through one pipelined SET NX
+        int loaded = 0;
+        List<Integer> plain = new ArrayList<>();
+        for (int i : missing) {
+            if (!inventoryLayout.isOutletHash() && !slots.get(i).isSharded()) {
+                plain.add(i);
+                continue;
+            }
+            Integer qty = chunk.get(i).getCurrentQuantity();
+            if (loadStock(slots.get(i), qty != null ? qty : 0).get(0) != 0) {
+                loaded++;
             }
         }
-        
-        log.info("Inventory synchronization completed: totalItems={}, newlyCached={}", 
-                items.size(), syncedCount);
+        if (plain.isEmpty()) {
+            return loaded;
+        }
+
+        List<Object> replies = redisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+            StringRedisConnection stringConnection = (StringRedisConnection) connection;
+            for (int i : plain) {
+                Integer qty = chunk.get(i).getCurrentQuantity();
+                stringConnection.setNX(slots.get(i).getStockKey(), String.valueOf(qty != null ? qty : 0));
+            }
+            return null;
+        });
+        return loaded + (int) replies.stream().filter(Boolean.TRUE::equals).count();
     }
 
     /**
-     * Retrieves stock quantity from Redis cache or falls back to database.
+     * Runs an operation against Redis, or against the database while Redis is unavailable.
      *
-     * <p>If the value is not found in Redis, it is fetched from the database
-     * and cached in Redis for future requests.</p>
+     * <p>A Redis connection failure or timeout counts towards opening the circuit breaker and
+     * is answered from the database straight away; any other exception propagates.</p>
      *
-     * @param key the Redis key for the inventory item
-     * @param outletItemId the unique identifier of the outlet item
-     * @return the stock quantity, or 0 if not found
+     * @param redisCall the operation on the Redis counters
+     * @param fallback the equivalent database operation
+     * @return the result of whichever ran
      */
-    private Integer getFromRedisOrDb(String key, Long outletItemId) {
-        Object value = redisTemplate.opsForValue().get(key);
-        if (value != null) {
-            log.debug("Stock retrieved from Redis cache: outletItemId={}, value={}", outletItemId, value);
-            return ((Number) value).intValue();
+    private <T> T withRedis(Supplier<T> redisCall, Supplier<T> fallback) {
+        if (!circuitBreaker.isClosed()) {
+            return fallback.get();
         }
+        try {
+            T result = redisCall.get();
+            circuitBreaker.recordSuccess();
+            return result;
+        } catch (RuntimeException e) {
+            if (!circuitBreaker.isRedisFailure(e)) {
+                throw e;
+            }
+            circuitBreaker.recordFailure(e);
+            log.warn("Redis unavailable, serving inventory operation from database: {}", e.getMessage());
+            return fallback.get();
+        }
+    }
+
+    /**
+     * Runs a stock write against Redis, or against the database while Redis is unavailable.
+     *
+     * <p>Unlike {@link #withRedis}, a failure of the call itself only falls back to the database
+     * when the command provably never reached Redis. After a timeout or a connection lost
+     * mid-command the script may already have changed the counter and queued its write-behind
+     * delta, and writing the database as well would apply the change twice, so the request fails
+     * with INV_005 instead. Either way the failure counts towards opening the breaker.</p>
+     *
+     * @param redisCall the write on the Redis counters
+     * @param fallback the equivalent database write
+     * @throws BusinessException with code INV_005 if the outcome of the Redis write is unknown
+     */
+    private void runStockWrite(Runnable redisCall, Runnable fallback) {
+        if (!circuitBreaker.isClosed()) {
+            fallback.run();
+            return;
+        }
+        try {
+            redisCall.run();
+            circuitBreaker.recordSuccess();
+        } catch (RuntimeException e) {
+            if (!circuitBreaker.isRedisFailure(e)) {
+                throw e;
+            }
+            circuitBreaker.recordFailure(e);
+            if (!circuitBreaker.isConnectRefused(e)) {
+                log.error("Redis failed during stock write, outcome unknown, not retrying on database: {}",
+                        e.getMessage());
+                throw new BusinessException("INV_005", "Inventory is temporarily unavailable, please retry");
+            }
+            log.warn("Redis unreachable, serving stock write from database: {}", e.getMessage());
+            fallback.run();
+        }
+    }
+
+    private void runWithRedis(Runnable redisCall, Runnable fallback) {
+        withRedis(() -> {
+            redisCall.run();
+            return null;
+        }, () -> {
+            fallback.run();
+            return null;
+        });
+    }
+
+    /**
+     * Runs an inventory script and, if the stock counter is not yet loaded in Redis,
+     * loads it from the database and retries once.
+     *
+     * @param slots the counter locations of the outlet item
+     * @param script the script invocation returning {@code [status, value]}
+     * @return the script result
+     */
+    private List<Long> executeWithStockLoaded(InventorySlots slots, Supplier<List<Long>> script) {
+        List<Long> result = script.get();
+        if (result.get(0) == InventoryScripts.STATUS_NOT_LOADED) {
+            log.debug("Stock not in Redis cache, loading before retry: outletItemId={}", slots.getOutletItemId());
+            loadStockFromDb(slots);
+            result = script.get();
+        }
+        if (result.get(0) == InventoryScripts.STATUS_NOT_LOADED) {
+            log.error("Stock counter could not be loaded: outletItemId={}", slots.getOutletItemId());
+            throw new BusinessException("INV_003", "Outlet item not found");
+        }
+        return result;
+    }
 
+    /**
+     * Executes a script returning {@code [status, value, ...]}.
+     *
+     * @param script the script to execute
+     * @param keys the script keys
+     * @param args the script arguments
+     * @return the script result as longs
+     */
+    @SuppressWarnings({"rawtypes", "unchecked"})
+    private List<Long> runScript(RedisScript<List> script, List<String> keys, String... args) {
+        List raw = redisTemplate.execute(script, keys, (Object[]) args);
+        if (raw == null || raw.size() < 2) {
+            throw new BusinessException("INV_004", "Inventory operation failed");
+        }
+        List<Long> result = new ArrayList<>(raw.size());
+        for (Object value : raw) {
+            result.add(((Number) value).longValue());
+        }
+        return result;
+    }
+
+    /**
+     * Loads stock from the database into Redis without overwriting a concurrently loaded value.
+     *
+     * <p>Loads only if absent, so a counter that was loaded (and possibly decremented) by another
+     * request in the meantime is never reset to the persisted value.</p>
+     *
+     * @param slots the counter locations of the outlet item
+     * @return the stock quantity now held in Redis, or 0 if the item does not exist
+     */
+    private int loadStockFromDb(InventorySlots slots) {
+        Long outletItemId = slots.getOutletItemId();
         log.debug("Stock not in Redis cache, fetching from database: outletItemId={}", outletItemId);
         OutletItem item = outletItemRepository.findById(outletItemId).orElse(null);
-        if (item != null) {
-            int stock = item.getCurrentQuantity() != null ? item.getCurrentQuantity() : 0;
-            redisTemplate.opsForValue().set(key, stock, INVENTORY_CACHE_TTL);
-            log.debug("Stock cached in Redis: outletItemId={}, value={}", outletItemId, stock);
-            return stock;
+        if (item == null) {
+            log.debug("Outlet item not found in database: outletItemId={}", outletItemId);
+            return 0;
+        }
+
+        int stock = item.getCurrentQuantity() != null ? item.getCurrentQuantity() : 0;
+        List<Long> result = loadStock(slots, stock);
+        if (result.get(0) != 0) {
+            log.debug("Stock cached in Redis: outletItemId={}, value={}", outletItemId, result.get(1));
+        }
+        return result.get(1).intValue();
+    }
+
+    /**
+     * Loads a stock counter unless already present, migrating counters left in the item's
+     * previous slots (see {@link InventoryLayout#previousSlots(InventorySlots)}).
+     *
+     * @param slots the counter locations of the outlet item
+     * @param persistedStock the stock quantity from the database
+     * @return {@code [status, stock]} as returned by {@code load_stock.lua}
+     */
+    private List<Long> loadStock(InventorySlots slots, int persistedStock) {
+        Long outletItemId = slots.getOutletItemId();
+        InventorySlots previous = inventoryLayout.previousSlots(slots);
+        List<Long> result = runScript(inventoryScripts.loadStock(),
+                List.of(slots.getStockKey(), slots.getReservedKey(), previous.getStockKey(), previous.getReservedKey()),
+                slots.getStockField(), slots.getReservedField(), String.valueOf(persistedStock),
+                previous.getStockField(), previous.getReservedField());
+        if (result.get(0) == 2) {
+            log.info("Inventory counters migrated: outletItemId={}, from={}, to={}",
+                    outletItemId, previous.getStockKey(), slots.getStockKey());
         }
+        return result;
+    }
+
+    /**
+     * Reads the stock and reserved counters of one item.
+     *
+     * @param slots the counter locations of the outlet item
+     * @return {@code [stock, reserved]}, either possibly {@code null}
+     */
+    private List<String> readCounters(InventorySlots slots) {
+        return readCounters(List.of(slots)).get(0);
+    }
+
+    /**
+     * Reads the stock and reserved counters of many items in one round trip.
+     *
+     * <p>Sharded items are read separately, one atomic script each, so their totals are exact.</p>
+     *
+     * @param slots the counter locations of the outlet items
+     * @return one {@code [stock, reserved]} pair per item, in order
+     */
+    private List<List<String>> readCounters(List<InventorySlots> slots) {
+        List<List<String>> counters = readUnshardedCounters(slots);
+        for (int i = 0; i < slots.size(); i++) {
+            if (slots.get(i).isSharded()) {
+                counters.set(i, readShardedCounters(slots.get(i)));
+            }
+        }
+        return counters;
+    }
+
+    /**
+     * Reads the totals of a sharded item.
+     *
+     * @param slots the counter locations of the outlet item
+     * @return {@code [stock, reserved]}, stock {@code null} if the shards are not loaded
+     */
+    private List<String> readShardedCounters(InventorySlots slots) {
+        List<Long> result = runScript(inventoryScripts.readCounters(),
+                List.of(slots.getStockKey(), slots.getReservedKey()),
+                slots.getStockField(), slots.getReservedField());
+        return result.get(0) == 0
+                ? Arrays.asList((String) null, null)
+                : Arrays.asList(result.get(1).toString(), result.get(2).toString());
+    }
+
+    /**
+     * Reads plain and outlet-hash counters with one MGET or one pipeline of HMGETs.
+     *
+     * @param slots the counter locations of the outlet items
+     * @return one {@code [stock, reserved]} pair per item, in order
+     */
+    @SuppressWarnings("unchecked")
+    private List<List<String>> readUnshardedCounters(List<InventorySlots> slots) {
+        List<List<String>> counters = new ArrayList<>(slots.size());
+        if (!inventoryLayout.isOutletHash()) {
+            List<String> keys = new ArrayList<>(slots.size() * 2);
+            slots.forEach(s -> {
+                keys.add(s.getStockKey());
+                keys.add(s.getReservedKey());
+            });
+            List<String> values = redisTemplate.opsForValue().multiGet(keys);
+            for (int i = 0; i < slots.size(); i++) {
+                counters.add(values != null
+                        ? Arrays.asList(values.get(2 * i), values.get(2 * i + 1))
+                        : Arrays.asList((String) null, null));
+            }
+            return counters;
+        }
+
+        List<Object> replies = redisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+            StringRedisConnection stringConnection = (StringRedisConnection) connection;
+            slots.forEach(s -> stringConnection.hMGet(s.getStockKey(), s.getStockField(), s.getReservedField()));
+            return null;
+        });
+        replies.forEach(reply -> counters.add((List<String>) reply));
+        return counters;
+    }
+
+    /**
+     * Finds the reserved counters held in outlet hashes.
+     *
+     * @return the counter locations of every item with a reserved field
+     */
+    private List<InventorySlots> findOutletHashReservedSlots() {
+        List<InventorySlots> slots = new ArrayList<>();
+        for (String outletKey : scanKeys(InventoryKeys.OUTLET_KEY_PREFIX + "*")) {
+            Long outletId = Long.valueOf(outletKey.substring(InventoryKeys.OUTLET_KEY_PREFIX.length()));
+            for (Object field : redisTemplate.opsForHash().keys(outletKey)) {
+                String name = field.toString();
+                if (name.startsWith(InventoryKeys.RESERVED_FIELD_PREFIX)) {
+                    Long outletItemId = Long.valueOf(name.substring(InventoryKeys.RESERVED_FIELD_PREFIX.length()));
+                    slots.add(InventorySlots.outletHash(outletItemId, outletId));
+                }
+            }
+        }
+        return slots;
+    }
+
+    /**
+     * Collects the keys matching a pattern with SCAN.
+     *
+     * @param pattern the key pattern
+     * @return the matching keys
+     */
+    private List<String> scanKeys(String pattern) {
+        List<String> keys = redisTemplate.execute((RedisCallback<List<String>>) connection -> {
+            List<String> found = new ArrayList<>();
+            ScanOptions options = ScanOptions.scanOptions().match(pattern).count(500).build();
+            try (Cursor<byte[]> cursor = connection.keyCommands().scan(options)) {
+                cursor.forEachRemaining(key -> found.add(new String(key, StandardCharsets.UTF_8)));
+            }
+            return found;
+        });
+        return keys != null ? keys : List.of();
+    }
 
-        log.debug("Outlet item not found in database: outletItemId={}", outletItemId);
-        return 0;
+    private static byte[] utf8(String value) {
+        return value.getBytes(StandardCharsets.UTF_8);
     }
 
     /**
-     * Retrieves the reserved stock count from Redis.
+     * Parses a Redis counter value.
      *
-     * @param key the Redis key for the reserved inventory
-     * @return the reserved count, or 0 if not found
+     * @param value the raw counter value
+     * @return the count, or 0 if not present
      */
-    private Integer getReservedCount(String key) {
-        Object value = redisTemplate.opsForValue().get(key);
-        int reservedCount = value != null ? ((Number) value).intValue() : 0;
-        log.debug("Reserved count retrieved: key={}, count={}", key, reservedCount);
-        return reservedCount;
+    private int parseCount(String value) {
+        return value != null ? Integer.parseInt(value) : 0;
     }
 }
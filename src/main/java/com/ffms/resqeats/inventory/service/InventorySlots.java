@@ -0,0 +1,46 @@
+package com.ffms.resqeats.inventory.service;
+
+import lombok.Value;
+
+/**
+ * Redis location of one outlet item's stock and reserved counters.
+ *
+ * <p>A blank field means the counter is a plain string key; otherwise it is a field of the
+ * key, which is then a hash. Passed to the inventory scripts as key/field pairs.</p>
+ *
+ * <p>A field starting with {@code #} addresses a sharded counter whose value is spread over
+ * several shard hashes (see {@code _slots.lua}).</p>
+ */
+@Value
+public class InventorySlots {
+
+    Long outletItemId;
+    String stockKey;
+    String stockField;
+    String reservedKey;
+    String reservedField;
+
+    public boolean isSharded() {
+        return stockField.startsWith("#");
+    }
+
+    static InventorySlots perItem(Long outletItemId) {
+        return new InventorySlots(outletItemId,
+                InventoryKeys.stock(outletItemId), "",
+                InventoryKeys.reserved(outletItemId), "");
+    }
+
+    static InventorySlots outletHash(Long outletItemId, Long outletId) {
+        String key = InventoryKeys.outlet(outletId);
+        return new InventorySlots(outletItemId,
+                key, InventoryKeys.stockField(outletItemId),
+                key, InventoryKeys.reservedField(outletItemId));
+    }
+
+    static InventorySlots sharded(Long outletItemId, int shards) {
+        String key = InventoryKeys.shard(outletItemId);
+        return new InventorySlots(outletItemId,
+                key, InventoryKeys.shardField(shards, "s"),
+                key, InventoryKeys.shardField(shards, "r"));
+    }
+}
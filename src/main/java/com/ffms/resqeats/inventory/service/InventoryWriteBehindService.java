@@ -0,0 +1,176 @@
+package com.ffms.resqeats.inventory.service;
+
+import com.ffms.resqeats.inventory.repository.InventoryDeltaBatchRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import net.javacrumbs.shedlock.spring.annotation.SchedulerLock;
+import org.springframework.data.redis.RedisConnectionFailureException;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Write-behind stage that persists Redis inventory deltas to the database.
+ *
+ * <p>{@link InventoryService} records every stock change as a per-item delta in
+ * {@code inventory:deltas:pending}. On each flush the pending hash is atomically renamed to
+ * {@code inventory:deltas:inflight} and tagged with a batch id, the netted deltas are written by
+ * {@link InventoryDeltaWriter}, and only then is the in-flight hash deleted.</p>
+ *
+ * <p><strong>Crash safety:</strong> if the node dies between claim and delete, the in-flight
+ * hash survives in Redis and is replayed on the next flush. The writer records the batch id in
+ * the same transaction as the stock updates, so a batch that was committed before the crash is
+ * skipped rather than applied twice.</p>
+ *
+ * <p><strong>Metrics:</strong></p>
+ * <ul>
+ *   <li>{@code resqeats.inventory.write_behind.lag} - age of the oldest delta in each flushed batch</li>
+ *   <li>{@code resqeats.inventory.write_behind.lag.current} - lag of the most recent batch (gauge, ms)</li>
+ *   <li>{@code resqeats.inventory.write_behind.flush} - time taken to write a batch</li>
+ *   <li>{@code resqeats.inventory.write_behind.rejected} - decrements refused by the database guard</li>
+ * </ul>
+ *
+ * @author ResqEats Team
+ * @version 1.0
+ * @since 2024-01-01
+ */
+@Service
+@Slf4j
+public class InventoryWriteBehindService {
+
+    private static final Duration BATCH_MARKER_RETENTION = Duration.ofDays(7);
+
+    private final StringRedisTemplate redisTemplate;
+    private final InventoryScripts inventoryScripts;
+    private final InventoryDeltaWriter deltaWriter;
+    private final InventoryDeltaBatchRepository batchRepository;
+
+    private final Timer flushLagTimer;
+    private final Timer flushTimer;
+    private final Counter rejectedCounter;
+    private final AtomicLong currentLagMillis = new AtomicLong();
+
+    public InventoryWriteBehindService(StringRedisTemplate redisTemplate,
+                                       InventoryScripts inventoryScripts,
+                                       InventoryDeltaWriter deltaWriter,
+                                       InventoryDeltaBatchRepository batchRepository,
+                                       MeterRegistry meterRegistry) {
+        this.redisTemplate = redisTemplate;
+        this.inventoryScripts = inventoryScripts;
+        this.deltaWriter = deltaWriter;
+        this.batchRepository = batchRepository;
+        this.flushLagTimer = Timer.builder("resqeats.inventory.write_behind.lag")
+                .description("Age of the oldest inventory delta when its batch was flushed")
+                .register(meterRegistry);
+        this.flushTimer = Timer.builder("resqeats.inventory.write_behind.flush")
+                .description("Time taken to write an inventory delta batch")
+                .register(meterRegistry);
+        this.rejectedCounter = Counter.builder("resqeats.inventory.write_behind.rejected")
+                .description("Write-behind decrements rejected by the database stock guard")
+                .register(meterRegistry);
+        meterRegistry.gauge("resqeats.inventory.write_behind.lag.current", currentLagMillis);
+    }
+
+    /**
+     * Flushes pending inventory deltas to the database.
+     *
+     * <p>Runs on a short fixed delay. Uses ShedLock so only one node flushes at a time;
+     * an unfinished in-flight batch is always replayed before a new one is claimed.</p>
+     */
+    @Scheduled(fixedDelayString = "${resqeats.inventory.write-behind.flush-interval-ms:2000}")
+    @SchedulerLock(name = "flushInventoryDeltas", lockAtMostFor = "PT1M")
+    public void flushDeltas() {
+        Map<Object, Object> batch = redisTemplate.opsForHash().entries(InventoryKeys.INFLIGHT_DELTAS);
+        if (!batch.isEmpty()) {
+            log.warn("Replaying unflushed inventory delta batch: batchId={}", batch.get(InventoryKeys.BATCH_ID_FIELD));
+        } else {
+            Long claimed = redisTemplate.execute(inventoryScripts.claimDeltas(),
+                    List.of(InventoryKeys.PENDING_DELTAS, InventoryKeys.PENDING_DELTAS_SINCE,
+                            InventoryKeys.INFLIGHT_DELTAS),
+                    UUID.randomUUID().toString());
+            if (claimed == null || claimed <= 0) {
+                currentLagMillis.set(0);
+                return;
+            }
+            batch = redisTemplate.opsForHash().entries(InventoryKeys.INFLIGHT_DELTAS);
+        }
+
+        String batchId = (String) batch.get(InventoryKeys.BATCH_ID_FIELD);
+        Object since = batch.get(InventoryKeys.BATCH_SINCE_FIELD);
+        Map<Long, Integer> deltas = parseDeltas(batch);
+
+        log.debug("Flushing inventory delta batch: batchId={}, items={}", batchId, deltas.size());
+
+        if (since != null) {
+            long lag = Math.max(0, System.currentTimeMillis() - Long.parseLong(since.toString()));
+            currentLagMillis.set(lag);
+            flushLagTimer.record(Duration.ofMillis(lag));
+        }
+
+        Timer.Sample sample = Timer.start();
+        int rejected = deltaWriter.applyBatch(batchId, deltas);
+        sample.stop(flushTimer);
+        if (rejected > 0) {
+            rejectedCounter.increment(rejected);
+        }
+
+        redisTemplate.delete(InventoryKeys.INFLIGHT_DELTAS);
+        log.info("Inventory delta batch flushed: batchId={}, items={}", batchId, deltas.size());
+    }
+
+    /**
+     * Whether a claimed batch has not been written yet.
+     *
+     * <p>With Redis unreachable no batch can be written either, so this reports {@code false}
+     * rather than failing the caller.</p>
+     */
+    public boolean isBatchInFlight() {
+        try {
+            return Boolean.TRUE.equals(redisTemplate.hasKey(InventoryKeys.INFLIGHT_DELTAS));
+        } catch (RedisConnectionFailureException e) {
+            log.warn("Could not check for an in-flight inventory delta batch: {}", e.getMessage());
+            return false;
+        }
+    }
+
+    /**
+     * Purges applied batch markers older than the retention window.
+     *
+     * <p>Markers only need to outlive any in-flight batch that could still be replayed.</p>
+     */
+    @Scheduled(cron = "0 30 2 * * ?")
+    @SchedulerLock(name = "purgeInventoryDeltaBatches", lockAtMostFor = "PT10M")
+    @Transactional
+    public void purgeAppliedBatches() {
+        int purged = batchRepository.deleteCreatedBefore(LocalDateTime.now().minus(BATCH_MARKER_RETENTION));
+        log.info("Purged {} applied inventory delta batch markers", purged);
+    }
+
+    /**
+     * Extracts per-item deltas from a claimed batch hash, skipping metadata fields.
+     *
+     * @param batch the raw in-flight hash
+     * @return net delta per outlet item id
+     */
+    private Map<Long, Integer> parseDeltas(Map<Object, Object> batch) {
+        Map<Long, Integer> deltas = new HashMap<>();
+        batch.forEach((field, value) -> {
+            String name = field.toString();
+            if (!name.startsWith("_")) {
+                deltas.put(Long.parseLong(name), Integer.parseInt(value.toString()));
+            }
+        });
+        return deltas;
+    }
+}
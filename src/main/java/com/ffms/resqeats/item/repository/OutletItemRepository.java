@@ -2,12 +2,16 @@ package com.ffms.resqeats.item.repository;
 
 import com.ffms.resqeats.common.repository.BaseScopedRepository;
 import com.ffms.resqeats.item.entity.OutletItem;
+import com.ffms.resqeats.item.enums.ItemStatus;
 import com.ffms.resqeats.security.context.SecurityContextHolder;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.math.BigDecimal;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -40,6 +44,8 @@ public interface OutletItemRepository extends BaseScopedRepository<OutletItem> {
 
     boolean existsByOutletIdAndItemId(Long outletId, Long itemId);
 
+    List<OutletItem> findByOutletIdAndItemIdIn(Long outletId, Collection<Long> itemIds);
+
     // ============== ITEM-SCOPED METHODS ==============
     
     List<OutletItem> findByItemId(Long itemId);
@@ -52,6 +58,62 @@ public interface OutletItemRepository extends BaseScopedRepository<OutletItem> {
     @Query("SELECT oi FROM OutletItem oi WHERE oi.outletId IN :outletIds AND oi.isAvailable = true AND oi.currentQuantity > 0")
     List<OutletItem> findAvailableByOutletIds(@Param("outletIds") List<Long> outletIds);
 
+    // ============== CATALOGUE SNAPSHOT METHODS ==============
+
+    /**
+     * Catalogue details of many outlet items in one join, for the catalogue snapshot cache.
+     */
+    @Query("SELECT oi.id AS outletItemId, oi.outletId AS outletId, oi.itemId AS itemId, i.name AS itemName, " +
+           "i.salePrice AS salePrice, i.basePrice AS basePrice, oi.isAvailable AS available, i.status AS status " +
+           "FROM OutletItem oi JOIN Item i ON i.id = oi.itemId WHERE oi.id IN :outletItemIds")
+    List<CatalogueRow> findCatalogueRows(@Param("outletItemIds") Collection<Long> outletItemIds);
+
+    /**
+     * Catalogue projection of an outlet item joined with its item.
+     */
+    interface CatalogueRow {
+        Long getOutletItemId();
+
+        Long getOutletId();
+
+        Long getItemId();
+
+        String getItemName();
+
+        BigDecimal getSalePrice();
+
+        BigDecimal getBasePrice();
+
+        Boolean getAvailable();
+
+        ItemStatus getStatus();
+    }
+
+    // ============== BULK SYNC METHODS ==============
+
+    /**
+     * Keyset page of stock levels ordered by id, for streaming Redis sync.
+     * Pass the last id of the previous page (0 for the first page) and a page size via
+     * {@code PageRequest.ofSize}; no offset is used, so each page is an index range scan.
+     */
+    @Query("SELECT oi.id AS id, oi.outletId AS outletId, oi.currentQuantity AS currentQuantity FROM OutletItem oi WHERE oi.id > :afterId ORDER BY oi.id")
+    List<StockLevel> findStockLevelsAfter(@Param("afterId") Long afterId, Pageable pageable);
+
+    @Query("SELECT oi.id AS id, oi.outletId AS outletId, oi.currentQuantity AS currentQuantity " +
+            "FROM OutletItem oi WHERE oi.outletId IN :outletIds ORDER BY oi.id")
+    List<StockLevel> findStockLevelsByOutletIds(@Param("outletIds") Collection<Long> outletIds);
+
+    /**
+     * Id and stock projection used by bulk inventory operations.
+     */
+    interface StockLevel {
+        Long getId();
+
+        Long getOutletId();
+
+        Integer getCurrentQuantity();
+    }
+
     // ============== MODIFYING OPERATIONS ==============
     // These require proper scope validation at service layer
     
@@ -59,6 +121,15 @@ public interface OutletItemRepository extends BaseScopedRepository<OutletItem> {
     @Query("UPDATE OutletItem oi SET oi.currentQuantity = oi.dailyQuantity WHERE oi.outletId = :outletId")
     void resetDailyQuantities(@Param("outletId") Long outletId);
 
+    /**
+     * Resets stock to the daily quantities for a batch of outlets in one statement.
+     *
+     * @return the number of outlet items reset
+     */
+    @Modifying
+    @Query("UPDATE OutletItem oi SET oi.currentQuantity = oi.dailyQuantity WHERE oi.outletId IN :outletIds")
+    int resetDailyQuantities(@Param("outletIds") Collection<Long> outletIds);
+
     @Modifying
     @Query("UPDATE OutletItem oi SET oi.currentQuantity = oi.currentQuantity - :quantity WHERE oi.id = :id AND oi.currentQuantity >= :quantity")
     int decrementQuantity(@Param("id") Long id, @Param("quantity") int quantity);
@@ -0,0 +1,177 @@
+package com.ffms.resqeats.item.service;
+
+import com.ffms.resqeats.item.repository.OutletItemRepository;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Node-local, read-through cache of {@link CatalogueEntry} snapshots keyed by outlet item id.
+ *
+ * <p>Cart, checkout and order creation only need an outlet item's outlet, name, prices and
+ * status, which change rarely. Reading them here keeps those hot paths off the database (and off
+ * the tenant filter setup of every repository call); misses are loaded in bulk with one join.</p>
+ *
+ * <p><strong>Invalidation:</strong> {@link ItemService} evicts an item or outlet item after its
+ * transaction commits and publishes the eviction on {@value #INVALIDATION_CHANNEL} for the other
+ * nodes. Every eviction bumps a generation counter; a bulk load that overlapped an eviction
+ * returns its snapshots but does not cache them, so a stale read never outlives the eviction
+ * that should have removed it. Entries also expire after {@code resqeats.catalogue.cache.ttl-ms}
+ * in case a pub/sub message is lost.</p>
+ *
+ * <p>Hit and miss counts are exposed as {@code cache.gets{cache="catalogue"}}.</p>
+ *
+ * @author ResqEats Team
+ * @version 1.0
+ * @since 2024-01-01
+ */
+@Component
+@Slf4j
+public class CatalogueCache implements MessageListener {
+
+    public static final String INVALIDATION_CHANNEL = "catalogue:invalidations";
+
+    private static final String ITEM_PREFIX = "item:";
+    private static final String OUTLET_ITEM_PREFIX = "outlet-item:";
+
+    private final OutletItemRepository outletItemRepository;
+    private final StringRedisTemplate redisTemplate;
+    private final Cache<Long, CatalogueEntry> entries;
+    private final AtomicLong generation = new AtomicLong();
+
+    public CatalogueCache(OutletItemRepository outletItemRepository,
+                          StringRedisTemplate redisTemplate,
+                          MeterRegistry meterRegistry,
+                          @Value("${resqeats.catalogue.cache.ttl-ms:600000}") long ttlMillis,
+                          @Value("${resqeats.catalogue.cache.max-size:200000}") long maxSize) {
+        this.outletItemRepository = outletItemRepository;
+        this.redisTemplate = redisTemplate;
+        this.entries = Caffeine.newBuilder()
+                .expireAfterWrite(Duration.ofMillis(ttlMillis))
+                .maximumSize(maxSize)
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, entries, "catalogue");
+        log.info("Catalogue cache: ttlMs={}, maxSize={}", ttlMillis, maxSize);
+    }
+
+    /**
+     * @param outletItemId the outlet item id
+     * @return the catalogue snapshot, or empty if the outlet item does not exist
+     */
+    public Optional<CatalogueEntry> get(Long outletItemId) {
+        return Optional.ofNullable(getAll(List.of(outletItemId)).get(outletItemId));
+    }
+
+    /**
+     * Returns the snapshots of the given outlet items, loading all misses with one query.
+     *
+     * @param outletItemIds the outlet item ids
+     * @return snapshot per outlet item id; ids that do not exist are absent
+     */
+    public Map<Long, CatalogueEntry> getAll(Collection<Long> outletItemIds) {
+        Map<Long, CatalogueEntry> result = new HashMap<>(entries.getAllPresent(outletItemIds));
+        List<Long> missing = new ArrayList<>();
+        for (Long id : outletItemIds) {
+            if (!result.containsKey(id)) {
+                missing.add(id);
+            }
+        }
+        if (missing.isEmpty()) {
+            return result;
+        }
+
+        long version = generation.get();
+        Map<Long, CatalogueEntry> loaded = new HashMap<>();
+        outletItemRepository.findCatalogueRows(missing)
+                .forEach(row -> loaded.put(row.getOutletItemId(), CatalogueEntry.of(row, version)));
+        if (generation.get() == version) {
+            entries.putAll(loaded);
+            if (generation.get() != version) {
+                entries.invalidateAll(loaded.keySet());
+            }
+        }
+        log.debug("Catalogue snapshots loaded: requested={}, found={}", missing.size(), loaded.size());
+        result.putAll(loaded);
+        return result;
+    }
+
+    /**
+     * Evicts every outlet item of an item once the current transaction commits.
+     */
+    public void invalidateItem(Long itemId) {
+        afterCommit(ITEM_PREFIX + itemId);
+    }
+
+    /**
+     * Evicts one outlet item once the current transaction commits.
+     */
+    public void invalidateOutletItem(Long outletItemId) {
+        afterCommit(OUTLET_ITEM_PREFIX + outletItemId);
+    }
+
+    @Override
+    public void onMessage(Message message, byte[] pattern) {
+        evict(new String(message.getBody(), StandardCharsets.UTF_8));
+    }
+
+    private void afterCommit(String target) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            evictAndPublish(target);
+            return;
+        }
+        // Evicting before commit would let a concurrent read re-cache the old row
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                evictAndPublish(target);
+            }
+        });
+    }
+
+    private void evictAndPublish(String target) {
+        evict(target);
+        try {
+            redisTemplate.convertAndSend(INVALIDATION_CHANNEL, target);
+        } catch (RuntimeException e) {
+            // Other nodes fall back to the TTL; the catalogue change itself has been committed
+            log.warn("Failed to publish catalogue invalidation: {}", e.getMessage());
+        }
+    }
+
+    private void evict(String target) {
+        generation.incrementAndGet();
+        try {
+            if (target.startsWith(ITEM_PREFIX)) {
+                Long itemId = Long.valueOf(target.substring(ITEM_PREFIX.length()));
+                entries.asMap().values().removeIf(entry -> entry.getItemId().equals(itemId));
+            } else if (target.startsWith(OUTLET_ITEM_PREFIX)) {
+                entries.invalidate(Long.valueOf(target.substring(OUTLET_ITEM_PREFIX.length())));
+            } else {
+                log.warn("Ignoring malformed catalogue invalidation: {}", target);
+            }
+        } catch (NumberFormatException e) {
+            log.warn("Ignoring malformed catalogue invalidation: {}", target);
+        }
+        log.debug("Catalogue cache evicted: {}", target);
+    }
+}
@@ -0,0 +1,40 @@
+package com.ffms.resqeats.item.service;
+
+import com.ffms.resqeats.item.enums.ItemStatus;
+import com.ffms.resqeats.item.repository.OutletItemRepository;
+import lombok.Value;
+
+import java.math.BigDecimal;
+
+/**
+ * Immutable snapshot of the catalogue details of one outlet item.
+ *
+ * <p>{@code version} is the {@link CatalogueCache} generation the snapshot was read at; a
+ * snapshot is only cached if no invalidation happened while it was being read.</p>
+ */
+@Value
+public class CatalogueEntry {
+
+    Long outletItemId;
+    Long outletId;
+    Long itemId;
+    String itemName;
+    BigDecimal salePrice;
+    BigDecimal basePrice;
+    boolean available;
+    ItemStatus status;
+    long version;
+
+    /**
+     * Whether the item can be added to a cart: offered by the outlet and active.
+     */
+    public boolean isPurchasable() {
+        return available && status == ItemStatus.ACTIVE;
+    }
+
+    static CatalogueEntry of(OutletItemRepository.CatalogueRow row, long version) {
+        return new CatalogueEntry(row.getOutletItemId(), row.getOutletId(), row.getItemId(), row.getItemName(),
+                row.getSalePrice(), row.getBasePrice(), Boolean.TRUE.equals(row.getAvailable()), row.getStatus(),
+                version);
+    }
+}
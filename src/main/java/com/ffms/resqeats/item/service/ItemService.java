@@ -67,6 +67,7 @@ public class ItemService {
     private final UserRepository userRepository;
     private final InventoryService inventoryService;
     private final WebSocketService webSocketService;
+    private final CatalogueCache catalogueCache;
 
     /**
      * Minimum discount percentage required for secret boxes (30%).
@@ -183,6 +184,7 @@ public class ItemService {
         }
 
         item = itemRepository.save(item);
+        catalogueCache.invalidateItem(itemId);
         log.info("Item updated successfully - itemId: {}, name: {}", itemId, item.getName());
         return toItemDto(item);
     }
@@ -322,6 +324,7 @@ public class ItemService {
 
         outletItem.setIsAvailable(false);
         outletItemRepository.save(outletItem);
+        catalogueCache.invalidateOutletItem(outletItemId);
 
         log.info("Item removed from outlet successfully - outletItemId: {}, outletId: {}", 
                 outletItemId, outlet.getId());
@@ -394,11 +397,13 @@ public class ItemService {
     public List<OutletItemDto> getAvailableOutletItems(Long outletId) {
         log.info("Fetching available outlet items with real-time stock - outletId: {}", outletId);
         
+        Map<Long, Integer> stockLevels = inventoryService.getOutletStockLevels(outletId);
         List<OutletItemDto> items = outletItemRepository.findAvailableByOutletId(outletId).stream()
                 .map(oi -> {
                     Item item = itemRepository.findById(oi.getItemId()).orElse(null);
                     OutletItemDto dto = toOutletItemDto(oi, item);
-                    dto.setRealTimeQuantity(inventoryService.getAvailableStock(oi.getId()));
+                    Integer stock = stockLevels.get(oi.getId());
+                    dto.setRealTimeQuantity(stock != null ? stock : inventoryService.getAvailableStock(oi.getId()));
                     return dto;
                 })
                 .collect(Collectors.toList());
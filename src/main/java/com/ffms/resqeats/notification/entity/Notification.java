@@ -1,7 +1,7 @@
 package com.ffms.resqeats.notification.entity;
 
 import com.fasterxml.jackson.annotation.JsonProperty;
-import com.ffms.resqeats.common.entity.BaseEntity;
+import com.ffms.resqeats.common.entity.AuditableEntity;
 import com.ffms.resqeats.notification.enums.NotificationChannel;
 import com.ffms.resqeats.notification.enums.NotificationStatus;
 import com.ffms.resqeats.notification.enums.NotificationType;
@@ -36,7 +36,14 @@ import java.time.LocalDateTime;
 @NoArgsConstructor
 @AllArgsConstructor
 @Builder
-public class Notification extends BaseEntity {
+public class Notification extends AuditableEntity {
+
+    /** Pooled sequence key, so notifications fanned out to several users are inserted in one batch. */
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "notifications_seq")
+    @SequenceGenerator(name = "notifications_seq", sequenceName = "notifications_seq", allocationSize = 50)
+    @Column(name = "id", updatable = false, nullable = false)
+    private Long id;
 
     @NotNull
     @Column(name = "user_id", nullable = false)
@@ -17,8 +17,12 @@ import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDateTime;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 
 /**
  * Service for managing notifications across multiple channels.
@@ -70,19 +74,17 @@ public class NotificationService {
         List<User> outletUsers = userRepository.findByOutletId(order.getOutletId());
         log.debug("Found {} outlet users to notify for order: {}", outletUsers.size(), order.getOrderNumber());
 
-        for (User user : outletUsers) {
-            createAndSendNotification(
-                    user.getId(),
-                    NotificationType.ORDER_CREATED,
-                    "New Order #" + order.getOrderNumber(),
-                    "You have a new order to review. Tap to see details.",
-                    Map.of(
-                            "orderId", order.getId().toString(),
-                            "orderNumber", order.getOrderNumber(),
-                            "total", order.getTotal().toString()
-                    )
-            );
-        }
+        createAndSendNotifications(
+                outletUsers,
+                NotificationType.ORDER_CREATED,
+                "New Order #" + order.getOrderNumber(),
+                "You have a new order to review. Tap to see details.",
+                Map.of(
+                        "orderId", order.getId().toString(),
+                        "orderNumber", order.getOrderNumber(),
+                        "total", order.getTotal().toString()
+                )
+        );
 
         log.info("New order notification successfully sent to {} users at outlet: {}", 
                 outletUsers.size(), order.getOutletId());
@@ -228,6 +230,24 @@ public class NotificationService {
         log.info("Order completed notification successfully sent for order: {}", order.getOrderNumber());
     }
 
+    /**
+     * Notifies the customers of a batch of completed orders.
+     *
+     * <p>Sends the same notification as {@link #notifyOrderCompleted(Order)} to each customer;
+     * the customers are loaded with one query and the records stored with one batched insert.</p>
+     *
+     * @param orders the orders that were completed
+     */
+    @Async
+    public void notifyOrdersCompleted(List<Order> orders) {
+        log.info("Sending order completed notifications for {} orders", orders.size());
+
+        createAndSendOrderNotifications(orders, NotificationType.SYSTEM_ANNOUNCEMENT, "Order Completed",
+                order -> "Thanks for picking up your order! Leave a review to help others.");
+
+        log.info("Order completed notifications successfully sent for {} orders", orders.size());
+    }
+
     /**
      * Notifies the customer that their order has been cancelled.
      *
@@ -285,6 +305,24 @@ public class NotificationService {
         log.info("Order expired notification successfully sent for order: {}", order.getOrderNumber());
     }
 
+    /**
+     * Notifies the customers of a batch of expired orders.
+     *
+     * <p>Sends the same notification as {@link #notifyOrderExpired(Order)} to each customer;
+     * the customers are loaded with one query and the records stored with one batched insert.</p>
+     *
+     * @param orders the orders that have expired
+     */
+    @Async
+    public void notifyOrdersExpired(List<Order> orders) {
+        log.info("Sending order expired notifications for {} orders", orders.size());
+
+        createAndSendOrderNotifications(orders, NotificationType.PICKUP_EXPIRED, "Order Expired",
+                order -> "Your order #" + order.getOrderNumber() + " has expired.");
+
+        log.info("Order expired notifications successfully sent for {} orders", orders.size());
+    }
+
     /**
      * Notifies the customer of a successful payment.
      *
@@ -509,9 +547,8 @@ public class NotificationService {
     /**
      * Creates and sends a notification to a user.
      *
-     * <p>This internal method handles the creation of an in-app notification record
-     * and attempts to send a push notification. If push notification fails, the
-     * notification status is updated accordingly.</p>
+     * <p>This internal method attempts to send a push notification and then stores the
+     * in-app notification record with the outcome, so each notification is a single insert.</p>
      *
      * @param userId the unique identifier of the user to notify
      * @param type the type of notification being sent
@@ -519,10 +556,83 @@ public class NotificationService {
      * @param message the notification message body
      * @param data additional data to include with the notification
      */
-        private void createAndSendNotification(Long userId, NotificationType type, 
-                                            String title, String message, Map<String, String> data) {
+    private void createAndSendNotification(Long userId, NotificationType type,
+                                           String title, String message, Map<String, String> data) {
         log.debug("Creating notification for user: {} with type: {} and title: {}", userId, type, title);
-        
+
+        User user = userRepository.findById(userId).orElse(null);
+        Notification notification = notificationRepository.save(
+                buildAndSend(userId, user, type, title, message, data));
+        log.debug("Notification created with ID: {} for user: {}", notification.getId(), userId);
+    }
+
+    /**
+     * Creates and sends the same notification to several users.
+     *
+     * <p>The records are stored with one batched insert once every push has been attempted.</p>
+     *
+     * @param users the users to notify
+     * @param type the type of notification being sent
+     * @param title the notification title
+     * @param message the notification message body
+     * @param data additional data to include with the notification
+     */
+    private void createAndSendNotifications(List<User> users, NotificationType type,
+                                            String title, String message, Map<String, String> data) {
+        if (users.isEmpty()) {
+            return;
+        }
+        log.debug("Creating {} notifications with type: {} and title: {}", users.size(), type, title);
+
+        List<Notification> notifications = new ArrayList<>(users.size());
+        for (User user : users) {
+            notifications.add(buildAndSend(user.getId(), user, type, title, message, data));
+        }
+        notificationRepository.saveAll(notifications);
+        log.debug("Created {} notifications with type: {}", notifications.size(), type);
+    }
+
+    /**
+     * Creates and sends one notification per order to the order's customer.
+     *
+     * <p>The customers are loaded with one query and the records are stored with one
+     * batched insert once every push has been attempted.</p>
+     *
+     * @param orders the orders whose customers to notify
+     * @param type the type of notification being sent
+     * @param title the notification title
+     * @param message the notification message body of an order
+     */
+    private void createAndSendOrderNotifications(List<Order> orders, NotificationType type, String title,
+                                                 Function<Order, String> message) {
+        if (orders.isEmpty()) {
+            return;
+        }
+        log.debug("Creating {} order notifications with type: {} and title: {}", orders.size(), type, title);
+
+        Set<Long> userIds = orders.stream().map(Order::getUserId).collect(Collectors.toSet());
+        Map<Long, User> users = userRepository.findAllById(userIds).stream()
+                .collect(Collectors.toMap(User::getId, Function.identity()));
+
+        List<Notification> notifications = new ArrayList<>(orders.size());
+        for (Order order : orders) {
+            notifications.add(buildAndSend(order.getUserId(), users.get(order.getUserId()), type, title,
+                    message.apply(order), Map.of(
+                            "orderId", order.getId().toString(),
+                            "orderNumber", order.getOrderNumber()
+                    )));
+        }
+        notificationRepository.saveAll(notifications);
+        log.debug("Created {} order notifications with type: {}", notifications.size(), type);
+    }
+
+    /**
+     * Builds a notification record and attempts the push, recording the outcome on the record.
+     *
+     * @return the unsaved notification, SENT or FAILED
+     */
+    private Notification buildAndSend(Long userId, User user, NotificationType type,
+                                      String title, String message, Map<String, String> data) {
         Notification notification = Notification.builder()
                 .userId(userId)
                 .type(type)
@@ -532,39 +642,34 @@ public class NotificationService {
                 .status(NotificationStatus.PENDING)
                 .build();
 
-        notification = notificationRepository.save(notification);
-        log.debug("Notification created with ID: {} for user: {}", notification.getId(), userId);
-
         try {
-            sendPushNotification(userId, title, message, data);
+            sendPushNotification(userId, user, title, message, data);
             notification.setStatus(NotificationStatus.SENT);
             notification.setSentAt(LocalDateTime.now());
-            log.debug("Push notification successfully sent for notification ID: {}", notification.getId());
+            log.debug("Push notification successfully sent to user: {}", userId);
         } catch (Exception e) {
-            log.error("Failed to send push notification to user: {} for notification ID: {}", 
-                    userId, notification.getId(), e);
+            log.error("Failed to send push notification to user: {}", userId, e);
             notification.setStatus(NotificationStatus.FAILED);
             notification.setFailureReason(e.getMessage());
         }
-
-        notificationRepository.save(notification);
+        return notification;
     }
 
     /**
      * Sends a push notification via Firebase Cloud Messaging.
      *
-     * <p>Retrieves the user's FCM token and sends the push notification.
-     * If no FCM token is available, the notification is silently skipped.</p>
+     * <p>Uses the user's FCM token to send the push notification.
+     * If the user or FCM token is not available, the notification is silently skipped.</p>
      *
      * @param userId the unique identifier of the user to notify
+     * @param user the user to notify, or null if not found
      * @param title the notification title
      * @param body the notification body text
      * @param data additional data payload for the notification
      */
-        private void sendPushNotification(Long userId, String title, String body, Map<String, String> data) {
+    private void sendPushNotification(Long userId, User user, String title, String body, Map<String, String> data) {
         log.debug("Attempting to send push notification to user: {}", userId);
-        
-        User user = userRepository.findById(userId).orElse(null);
+
         if (user == null) {
             log.warn("User not found for push notification: {}", userId);
             return;
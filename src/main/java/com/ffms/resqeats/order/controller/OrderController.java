@@ -2,6 +2,7 @@ package com.ffms.resqeats.order.controller;
 
 import com.ffms.resqeats.common.dto.ApiResponse;
 import com.ffms.resqeats.common.dto.PageResponse;
+import com.ffms.resqeats.order.dto.CheckoutRequest;
 import com.ffms.resqeats.order.dto.CreateOrderRequest;
 import com.ffms.resqeats.order.dto.OrderDto;
 import com.ffms.resqeats.order.dto.OrderFilterDto;
@@ -32,7 +33,8 @@ import org.springframework.web.bind.annotation.*;
  * at the repository level based on the authenticated user's role and context.
  *
  * Endpoints:
- * POST /orders - Create order (checkout)
+ * POST /orders - Create order from explicit items
+ * POST /orders/checkout - Create order from the user's cart
  * POST /orders/{orderId}/submit - Submit order with payment
  * GET /orders - List orders (filtered by user's scope)
  * GET /orders/{orderId} - Get order details
@@ -58,7 +60,7 @@ public class OrderController {
     // =====================
 
     @PostMapping("/orders")
-    @Operation(summary = "Create order (checkout)")
+    @Operation(summary = "Create order from items")
     @PreAuthorize("hasRole('CUSTOMER_USER')")
     public ResponseEntity<ApiResponse<OrderDto>> createOrder(
             @CurrentUser CustomUserDetails currentUser,
@@ -67,6 +69,16 @@ public class OrderController {
         return ResponseEntity.ok(ApiResponse.success(toDto(order), "Order created successfully"));
     }
 
+    @PostMapping("/orders/checkout")
+    @Operation(summary = "Create order from cart (checkout)")
+    @PreAuthorize("hasRole('CUSTOMER_USER')")
+    public ResponseEntity<ApiResponse<OrderDto>> checkout(
+            @CurrentUser CustomUserDetails currentUser,
+            @Valid @RequestBody CheckoutRequest request) {
+        Order order = orderService.checkout(request, currentUser.getId());
+        return ResponseEntity.ok(ApiResponse.success(toDto(order), "Order created successfully"));
+    }
+
     @PostMapping("/orders/{orderId}/submit")
     @Operation(summary = "Submit order with payment")
     @PreAuthorize("hasRole('CUSTOMER_USER')")
@@ -0,0 +1,27 @@
+package com.ffms.resqeats.order.dto;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * Checkout request DTO.
+ *
+ * Lines, quantities and prices come from the user's cart and the catalogue,
+ * never from the client.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class CheckoutRequest {
+
+    @JsonProperty("pickup_by")
+    private LocalDateTime pickupBy;
+
+    private String notes;
+}
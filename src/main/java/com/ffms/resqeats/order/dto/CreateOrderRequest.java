@@ -51,10 +51,15 @@ public class CreateOrderRequest {
         @Positive(message = "Quantity must be positive")
         private Integer quantity;
 
-        @NotNull(message = "Unit price is required")
+        /**
+         * Ignored: lines are priced from the catalogue.
+         */
         @JsonProperty("unit_price")
         private BigDecimal unitPrice;
 
+        /**
+         * Ignored: names are taken from the catalogue.
+         */
         @JsonProperty("item_name")
         private String itemName;
     }
@@ -2,7 +2,7 @@ package com.ffms.resqeats.order.entity;
 
 import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.annotation.JsonProperty;
-import com.ffms.resqeats.common.entity.BaseEntity;
+import com.ffms.resqeats.common.entity.AuditableEntity;
 import com.ffms.resqeats.order.enums.OrderStatus;
 import com.ffms.resqeats.security.tenant.TenantScoped;
 import com.ffms.resqeats.security.tenant.TenantScopeType;
@@ -39,7 +39,12 @@ import java.util.UUID;
         @Index(name = "idx_order_status", columnList = "status"),
         @Index(name = "idx_order_number", columnList = "order_number"),
         // MEDIUM-004 FIX: Composite index for common outlet order queries
-        @Index(name = "idx_order_outlet_status", columnList = "outlet_id, status")
+        @Index(name = "idx_order_outlet_status", columnList = "outlet_id, status"),
+        // Keyset scans of overdue orders by the expiry sweeps
+        @Index(name = "idx_order_status_acceptance_deadline", columnList = "status, acceptance_deadline"),
+        @Index(name = "idx_order_status_pickup_by", columnList = "status, pickup_by"),
+        // Keyset scan of picked-up orders by the completion job
+        @Index(name = "idx_order_status_picked_up_at", columnList = "status, picked_up_at")
 })
 @FilterDefs({
     @FilterDef(name = "orderOutletFilter", parameters = @ParamDef(name = "outletId", type = Long.class)),
@@ -55,7 +60,17 @@ import java.util.UUID;
 @NoArgsConstructor
 @AllArgsConstructor
 @Builder
-public class Order extends BaseEntity {
+public class Order extends AuditableEntity {
+
+    /**
+     * Pooled sequence key: ids are allocated in blocks, so inserts can be JDBC-batched.
+     * On MySQL the sequence is emulated by a single-row table.
+     */
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "orders_seq")
+    @SequenceGenerator(name = "orders_seq", sequenceName = "orders_seq", allocationSize = 50)
+    @Column(name = "id", updatable = false, nullable = false)
+    private Long id;
 
     /**
      * HIGH-006 FIX: Version field for optimistic locking.
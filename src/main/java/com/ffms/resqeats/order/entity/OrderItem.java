@@ -1,7 +1,7 @@
 package com.ffms.resqeats.order.entity;
 
 import com.fasterxml.jackson.annotation.JsonProperty;
-import com.ffms.resqeats.common.entity.BaseEntity;
+import com.ffms.resqeats.common.entity.AuditableEntity;
 import jakarta.persistence.*;
 import jakarta.validation.constraints.NotNull;
 import jakarta.validation.constraints.Positive;
@@ -28,7 +28,14 @@ import java.math.BigDecimal;
 @NoArgsConstructor
 @AllArgsConstructor
 @Builder
-public class OrderItem extends BaseEntity {
+public class OrderItem extends AuditableEntity {
+
+    /** Pooled sequence key, so all lines of an order are inserted in one batch. */
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "order_items_seq")
+    @SequenceGenerator(name = "order_items_seq", sequenceName = "order_items_seq", allocationSize = 50)
+    @Column(name = "id", updatable = false, nullable = false)
+    private Long id;
 
     @NotNull
     @Column(name = "order_id", nullable = false)
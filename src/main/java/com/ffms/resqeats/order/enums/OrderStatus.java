@@ -1,5 +1,8 @@
 package com.ffms.resqeats.order.enums;
 
+import java.util.EnumSet;
+import java.util.Set;
+
 /**
  * Order status per SRS Section 4.6 (FR-M-033).
  * Implements strict state machine with valid transitions.
@@ -8,7 +11,8 @@ package com.ffms.resqeats.order.enums;
  * CREATED → PENDING_OUTLET_ACCEPTANCE (on order submission)
  * PENDING_OUTLET_ACCEPTANCE → PAID (on outlet accept + payment capture)
  * PENDING_OUTLET_ACCEPTANCE → DECLINED (on outlet decline)
- * PENDING_OUTLET_ACCEPTANCE → CANCELLED (on timeout)
+ * PENDING_OUTLET_ACCEPTANCE → EXPIRED (on acceptance timeout)
+ * CREATED/PENDING_OUTLET_ACCEPTANCE → CANCELLED (on customer or system cancellation)
  * PAID → PREPARING (on outlet action)
  * PREPARING → READY_FOR_PICKUP (on outlet action)
  * READY_FOR_PICKUP → PICKED_UP (on verification)
@@ -64,7 +68,7 @@ public enum OrderStatus {
     CANCELLED,
 
     /**
-     * Order expired due to missed pickup window (terminal state).
+     * Order expired due to missed acceptance deadline or pickup window (terminal state).
      */
     EXPIRED,
 
@@ -79,7 +83,8 @@ public enum OrderStatus {
     public boolean canTransitionTo(OrderStatus newStatus) {
         return switch (this) {
             case CREATED -> newStatus == PENDING_OUTLET_ACCEPTANCE || newStatus == CANCELLED;
-            case PENDING_OUTLET_ACCEPTANCE -> newStatus == PAID || newStatus == DECLINED || newStatus == CANCELLED;
+            case PENDING_OUTLET_ACCEPTANCE -> newStatus == PAID || newStatus == DECLINED || newStatus == CANCELLED
+                    || newStatus == EXPIRED;
             case PAID -> newStatus == PREPARING || newStatus == REFUNDED;
             case PREPARING -> newStatus == READY_FOR_PICKUP;
             case READY_FOR_PICKUP -> newStatus == PICKED_UP || newStatus == EXPIRED;
@@ -88,6 +93,19 @@ public enum OrderStatus {
         };
     }
 
+    /**
+     * Statuses this status can be reached from, derived from {@link #canTransitionTo(OrderStatus)}.
+     */
+    public Set<OrderStatus> predecessors() {
+        Set<OrderStatus> predecessors = EnumSet.noneOf(OrderStatus.class);
+        for (OrderStatus status : values()) {
+            if (status.canTransitionTo(this)) {
+                predecessors.add(status);
+            }
+        }
+        return predecessors;
+    }
+
     /**
      * Check if this is a terminal (final) state.
      */
@@ -3,6 +3,7 @@ package com.ffms.resqeats.order.repository;
 import com.ffms.resqeats.order.entity.OrderItem;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.List;
 
 /**
@@ -13,6 +14,8 @@ public interface OrderItemRepository extends com.ffms.resqeats.common.repository
 
     List<OrderItem> findByOrderId(Long orderId);
 
+    List<OrderItem> findByOrderIdIn(Collection<Long> orderIds);
+
     void deleteByOrderId(Long orderId);
 
     @Override
@@ -70,28 +70,56 @@ public interface OrderRepository extends BaseScopedRepository<Order>, JpaSpecifi
     // These bypass tenant filtering for system operations
 
     /**
-     * Find orders pending acceptance that have exceeded their deadline.
-     * Used for auto-expiration per BR-003. SYSTEM USE ONLY.
+     * Next chunk of orders pending acceptance that have exceeded their deadline, in
+     * (deadline, id) order after the given cursor. Used for auto-expiration per BR-003, and
+     * with a far-future bound to rebuild the deadline scheduler; served by
+     * idx_order_status_acceptance_deadline. SYSTEM USE ONLY.
      */
-    @Query("SELECT o FROM Order o WHERE o.status = 'PENDING_OUTLET_ACCEPTANCE' " +
-           "AND o.acceptanceDeadline < :now")
-    List<Order> findExpiredPendingOrders(@Param("now") LocalDateTime now);
+    @Query("SELECT o.id AS id, o.acceptanceDeadline AS deadline FROM Order o " +
+           "WHERE o.status = 'PENDING_OUTLET_ACCEPTANCE' AND o.acceptanceDeadline < :now " +
+           "AND (o.acceptanceDeadline > :afterDeadline " +
+           "OR (o.acceptanceDeadline = :afterDeadline AND o.id > :afterId)) " +
+           "ORDER BY o.acceptanceDeadline, o.id")
+    List<OrderDeadline> findExpiredPendingOrders(@Param("now") LocalDateTime now,
+                                                 @Param("afterDeadline") LocalDateTime afterDeadline,
+                                                 @Param("afterId") Long afterId,
+                                                 Pageable pageable);
 
     /**
-     * Find orders ready for pickup that have exceeded their pickup deadline.
-     * Used for auto-expiration per BR-007. SYSTEM USE ONLY.
+     * Next chunk of orders ready for pickup that have exceeded their pickup deadline, in
+     * (deadline, id) order after the given cursor. Used for auto-expiration per BR-007, and
+     * with a far-future bound to rebuild the deadline scheduler; served by
+     * idx_order_status_pickup_by. SYSTEM USE ONLY.
      */
-    @Query("SELECT o FROM Order o WHERE o.status = 'READY_FOR_PICKUP' " +
-           "AND o.pickupBy < :now")
-    List<Order> findExpiredPickupOrders(@Param("now") LocalDateTime now);
+    @Query("SELECT o.id AS id, o.pickupBy AS deadline FROM Order o " +
+           "WHERE o.status = 'READY_FOR_PICKUP' AND o.pickupBy < :now " +
+           "AND (o.pickupBy > :afterDeadline OR (o.pickupBy = :afterDeadline AND o.id > :afterId)) " +
+           "ORDER BY o.pickupBy, o.id")
+    List<OrderDeadline> findExpiredPickupOrders(@Param("now") LocalDateTime now,
+                                                @Param("afterDeadline") LocalDateTime afterDeadline,
+                                                @Param("afterId") Long afterId,
+                                                Pageable pageable);
 
     /**
-     * Find picked up orders ready to be completed.
-     * SYSTEM USE ONLY.
+     * Next chunk of picked up orders ready to be completed, in (pickedUpAt, id) order after
+     * the given cursor. Served by idx_order_status_picked_up_at. SYSTEM USE ONLY.
      */
-    @Query("SELECT o FROM Order o WHERE o.status = 'PICKED_UP' " +
-           "AND o.pickedUpAt < :cutoff")
-    List<Order> findPickedUpOrdersReadyForCompletion(@Param("cutoff") LocalDateTime cutoff);
+    @Query("SELECT o.id AS id, o.pickedUpAt AS deadline FROM Order o " +
+           "WHERE o.status = 'PICKED_UP' AND o.pickedUpAt < :cutoff " +
+           "AND (o.pickedUpAt > :afterPickedUpAt OR (o.pickedUpAt = :afterPickedUpAt AND o.id > :afterId)) " +
+           "ORDER BY o.pickedUpAt, o.id")
+    List<OrderDeadline> findPickedUpOrdersReadyForCompletion(@Param("cutoff") LocalDateTime cutoff,
+                                                             @Param("afterPickedUpAt") LocalDateTime afterPickedUpAt,
+                                                             @Param("afterId") Long afterId,
+                                                             Pageable pageable);
+
+    /**
+     * Expired orders whose pre-authorization is still held, e.g. because the void after the
+     * expiry failed. Paged by id. SYSTEM USE ONLY.
+     */
+    @Query("SELECT o.id FROM Order o, Payment p WHERE p.orderId = o.id AND o.status = 'EXPIRED' " +
+           "AND p.status = 'AUTHORIZED' AND o.id > :afterId ORDER BY o.id")
+    List<Long> findExpiredOrdersWithAuthorizedPayment(@Param("afterId") Long afterId, Pageable pageable);
 
     @Query("SELECT COUNT(o) FROM Order o WHERE o.createdAt >= :since")
     long countOrdersSince(@Param("since") LocalDateTime since);
@@ -143,4 +171,14 @@ public interface OrderRepository extends BaseScopedRepository<Order>, JpaSpecifi
         // Regular USER can only access their own orders
         requireUserScope(entity.getUserId());
     }
+
+    /**
+     * Order id with one of its deadlines (or, for completion, its pickup time); the pair is
+     * also the keyset cursor of the chunked system queries.
+     */
+    interface OrderDeadline {
+        Long getId();
+
+        LocalDateTime getDeadline();
+    }
 }
@@ -0,0 +1,365 @@
+package com.ffms.resqeats.order.service;
+
+import com.ffms.resqeats.common.scheduling.HierarchicalTimingWheel;
+import com.ffms.resqeats.order.repository.OrderRepository;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import net.javacrumbs.shedlock.core.LockConfiguration;
+import net.javacrumbs.shedlock.core.LockProvider;
+import net.javacrumbs.shedlock.core.SimpleLock;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.redis.connection.StringRedisConnection;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.ZSetOperations;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+
+/**
+ * Fires order deadlines (acceptance timeout, pickup window) within about a second.
+ *
+ * <p>Every deadline is registered when it is set and kept durably in the Redis sorted set
+ * {@value #DEADLINES}, members {@code accept:{orderId}} / {@code pickup:{orderId}} scored by
+ * the deadline in epoch millis. One node at a time holds the ShedLock lock
+ * {@value #LOCK_NAME} and keeps the deadlines of the coming days in a
+ * {@link HierarchicalTimingWheel}, so each {@link #tick()} costs O(1) per due order instead
+ * of a query over all pending orders. Registrations reach the leader through the
+ * {@value #INBOX} list, which it drains on every tick; later deadlines are loaded from the
+ * sorted set as the wheel's horizon moves forward.</p>
+ *
+ * <p>A fired deadline stays in the sorted set until its expiry has run: the caller
+ * {@link #complete completes} it afterwards, or {@link #retry retries} it a few seconds later
+ * if the expiry failed or could not be queued, so a deadline is never left to the safety net
+ * just because one attempt failed.</p>
+ *
+ * <p>A node that gains the lock rebuilds from the database: it re-registers the deadline of
+ * every pending and ready order, paging through them with a (deadline, id) cursor, and loads
+ * the wheel from the sorted set, so registrations lost with a failed Redis write or a crashed
+ * leader are picked up. Entries are never removed when an order moves on; a fired deadline
+ * whose order is no longer in the expected status is skipped by
+ * {@code OrderService.expireOverdueOrder}. The minute-level sweep in {@code OrderExpiryTask}
+ * stays as a low-frequency safety net.</p>
+ *
+ * @author ResqEats Team
+ * @version 1.0
+ * @since 2024-01-01
+ */
+@Service
+@Slf4j
+public class OrderDeadlineScheduler {
+
+    static final String DEADLINES = "order:deadlines";
+    static final String INBOX = "order:deadlines:inbox";
+    static final String LOCK_NAME = "orderDeadlineWheel";
+
+    private static final int WHEEL_SLOTS = 64;
+    private static final int WHEEL_LEVELS = 3;
+    private static final int REBUILD_BATCH = 1000;
+    private static final LocalDateTime KEYSET_START = LocalDateTime.of(1970, 1, 1, 0, 0);
+    /** Upper bound passed to the sweep queries so they return every open deadline. */
+    private static final LocalDateTime KEYSET_END = LocalDateTime.of(9999, 12, 31, 0, 0);
+
+    /**
+     * Deadline kinds and their member prefix in the sorted set.
+     */
+    public enum Kind {
+        ACCEPTANCE("accept:"),
+        PICKUP("pickup:");
+
+        private final String prefix;
+
+        Kind(String prefix) {
+            this.prefix = prefix;
+        }
+
+        String member(Long orderId) {
+            return prefix + orderId;
+        }
+    }
+
+    private final StringRedisTemplate redisTemplate;
+    private final LockProvider lockProvider;
+    private final OrderRepository orderRepository;
+
+    @Value("${resqeats.order.deadlines.tick-ms:1000}")
+    private long tickMillis = 1000;
+
+    @Value("${resqeats.order.deadlines.lease-seconds:15}")
+    private long leaseSeconds = 15;
+
+    @Value("${resqeats.order.deadlines.inbox-size:100000}")
+    private long inboxSize = 100000;
+
+    @Value("${resqeats.order.deadlines.retry-delay-ms:5000}")
+    private long retryDelayMillis = 5000;
+
+    /** Leader state, only touched from the thread calling {@link #tick()}. */
+    private SimpleLock lock;
+    private Instant lockExtendedAt;
+    private HierarchicalTimingWheel wheel;
+    private long loadedUntil;
+
+    public OrderDeadlineScheduler(StringRedisTemplate redisTemplate, LockProvider lockProvider,
+                                  OrderRepository orderRepository) {
+        this.redisTemplate = redisTemplate;
+        this.lockProvider = lockProvider;
+        this.orderRepository = orderRepository;
+    }
+
+    /**
+     * Registers an order deadline once the surrounding transaction commits, or immediately
+     * when no transaction is active. Registration never fails the caller: a deadline that
+     * cannot be written is recovered by the next rebuild or the safety-net sweep.
+     *
+     * @param orderId the order
+     * @param kind which deadline
+     * @param deadline when the order expires; ignored if null
+     */
+    public void scheduleOnCommit(Long orderId, Kind kind, LocalDateTime deadline) {
+        if (deadline == null) {
+            return;
+        }
+        String member = kind.member(orderId);
+        long millis = deadline.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            register(member, millis);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                register(member, millis);
+            }
+        });
+    }
+
+    /**
+     * Removes a fired deadline once its expiry has run.
+     *
+     * @param member the member returned by {@link #tick()}
+     */
+    public void complete(String member) {
+        try {
+            redisTemplate.opsForZSet().remove(DEADLINES, member);
+        } catch (Exception e) {
+            // Left in the set, the deadline fires again after the next rebuild and is skipped then
+            log.warn("Failed to complete order deadline - member: {}, error: {}", member, e.getMessage());
+        }
+    }
+
+    /**
+     * Fires a deadline again after the retry delay, e.g. because its expiry failed.
+     *
+     * @param member the member returned by {@link #tick()}
+     */
+    public void retry(String member) {
+        register(member, System.currentTimeMillis() + retryDelayMillis);
+    }
+
+    /**
+     * The order id of a member returned by {@link #tick()}.
+     */
+    public static Long orderId(String member) {
+        return Long.valueOf(member.substring(member.indexOf(':') + 1));
+    }
+
+    private void register(String member, long millis) {
+        try {
+            redisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+                StringRedisConnection stringConnection = (StringRedisConnection) connection;
+                stringConnection.zAdd(DEADLINES, millis, member);
+                stringConnection.rPush(INBOX, member + "@" + millis);
+                stringConnection.lTrim(INBOX, -inboxSize, -1);
+                return null;
+            });
+            log.debug("Order deadline registered - member: {}, deadline: {}", member, millis);
+        } catch (Exception e) {
+            log.error("Failed to register order deadline - member: {}, error: {}", member, e.getMessage());
+        }
+    }
+
+    /**
+     * Advances the wheel if this node holds the lock, acquiring it (and rebuilding) if free.
+     * Called by the fixed-delay deadline tick, which never overlaps itself, so only one
+     * thread is in here at a time.
+     *
+     * @return the deadlines that passed, each to be {@link #complete completed} or
+     *         {@link #retry retried} by the caller; empty on nodes not holding the lock
+     */
+    public List<String> tick() {
+        Instant now = Instant.now();
+        if (!holdLock(now)) {
+            return List.of();
+        }
+        long nowMillis = now.toEpochMilli();
+        if (wheel == null) {
+            rebuild(nowMillis);
+        }
+
+        drainInbox();
+        loadWindow(nowMillis);
+        List<String> due = wheel.advance(nowMillis);
+        if (!due.isEmpty()) {
+            log.debug("Order deadlines due - count: {}, pending: {}", due.size(), wheel.size());
+        }
+        return due;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (lock != null) {
+            lock.unlock();
+            lock = null;
+            wheel = null;
+        }
+    }
+
+    /**
+     * Keeps or acquires the lock; the lease is extended once a third of it has passed.
+     */
+    private boolean holdLock(Instant now) {
+        Duration lease = Duration.ofSeconds(leaseSeconds);
+        if (lock == null) {
+            Optional<SimpleLock> acquired = lockProvider.lock(
+                    new LockConfiguration(now, LOCK_NAME, lease, Duration.ZERO));
+            if (acquired.isEmpty()) {
+                return false;
+            }
+            lock = acquired.get();
+            lockExtendedAt = now;
+            wheel = null;
+            log.info("Order deadline scheduler acquired lock on this node");
+            return true;
+        }
+
+        if (Duration.between(lockExtendedAt, now).compareTo(lease.dividedBy(3)) < 0) {
+            return true;
+        }
+        Optional<SimpleLock> extended = lock.extend(lease, Duration.ZERO);
+        if (extended.isEmpty()) {
+            log.warn("Order deadline scheduler lost its lock; another node takes over");
+            lock = null;
+            wheel = null;
+            return false;
+        }
+        lock = extended.get();
+        lockExtendedAt = now;
+        return true;
+    }
+
+    /**
+     * Re-registers every open deadline from the database and loads the wheel from Redis.
+     */
+    private void rebuild(long nowMillis) {
+        // Registrations made from here on reach the inbox; earlier ones are in the sorted set
+        redisTemplate.delete(INBOX);
+
+        int registered = 0;
+        registered += addAll(Kind.ACCEPTANCE, (afterDeadline, afterId, page) ->
+                orderRepository.findExpiredPendingOrders(KEYSET_END, afterDeadline, afterId, page));
+        registered += addAll(Kind.PICKUP, (afterDeadline, afterId, page) ->
+                orderRepository.findExpiredPickupOrders(KEYSET_END, afterDeadline, afterId, page));
+
+        wheel = new HierarchicalTimingWheel(tickMillis, WHEEL_SLOTS, WHEEL_LEVELS, nowMillis);
+        loadedUntil = Long.MIN_VALUE;
+        loadWindow(nowMillis);
+        log.info("Order deadline scheduler rebuilt - registered: {}, loaded: {}, horizon: {}ms",
+                registered, wheel.size(), wheel.horizonMillis());
+    }
+
+    /**
+     * Adds the deadlines of one kind to the sorted set, a page at a time.
+     */
+    private int addAll(Kind kind, DeadlineQuery query) {
+        Pageable page = PageRequest.of(0, REBUILD_BATCH);
+        LocalDateTime afterDeadline = KEYSET_START;
+        long afterId = 0;
+        int added = 0;
+
+        List<OrderRepository.OrderDeadline> batch;
+        do {
+            batch = query.next(afterDeadline, afterId, page);
+            if (batch.isEmpty()) {
+                break;
+            }
+            OrderRepository.OrderDeadline last = batch.get(batch.size() - 1);
+            afterDeadline = last.getDeadline();
+            afterId = last.getId();
+            added += batch.size();
+
+            List<OrderRepository.OrderDeadline> deadlines = batch;
+            redisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+                StringRedisConnection stringConnection = (StringRedisConnection) connection;
+                for (OrderRepository.OrderDeadline deadline : deadlines) {
+                    stringConnection.zAdd(DEADLINES,
+                            deadline.getDeadline().atZone(ZoneId.systemDefault()).toInstant().toEpochMilli(),
+                            kind.member(deadline.getId()));
+                }
+                return null;
+            });
+        } while (batch.size() == REBUILD_BATCH);
+        return added;
+    }
+
+    /**
+     * Moves registrations made since the last tick into the wheel. Deadlines beyond the
+     * horizon stay in the sorted set until the window reaches them.
+     */
+    private void drainInbox() {
+        List<String> entries;
+        do {
+            entries = redisTemplate.opsForList().leftPop(INBOX, REBUILD_BATCH);
+            if (entries == null) {
+                return;
+            }
+            for (String entry : entries) {
+                int at = entry.lastIndexOf('@');
+                wheel.schedule(entry.substring(0, at), Long.parseLong(entry.substring(at + 1)));
+            }
+        } while (entries.size() == REBUILD_BATCH);
+    }
+
+    /**
+     * Loads deadlines from the sorted set up to the wheel's horizon.
+     */
+    private void loadWindow(long nowMillis) {
+        // Leave a tick of slack: the wheel still sits at the previous tick until it advances
+        long until = nowMillis + wheel.horizonMillis() - 2 * tickMillis;
+        if (until <= loadedUntil) {
+            return;
+        }
+        // Scores are whole milliseconds, so the next millisecond excludes what is already loaded
+        double from = loadedUntil == Long.MIN_VALUE ? Double.NEGATIVE_INFINITY : loadedUntil + 1;
+        Set<ZSetOperations.TypedTuple<String>> entries =
+                redisTemplate.opsForZSet().rangeByScoreWithScores(DEADLINES, from, until);
+        if (entries != null) {
+            for (ZSetOperations.TypedTuple<String> entry : entries) {
+                long deadline = entry.getScore().longValue();
+                if (!wheel.schedule(entry.getValue(), deadline)) {
+                    loadedUntil = deadline - 1;
+                    return;
+                }
+            }
+        }
+        loadedUntil = until;
+    }
+
+    /**
+     * Keyset query for the next page of open deadlines after a (deadline, id) cursor.
+     */
+    @FunctionalInterface
+    private interface DeadlineQuery {
+        List<OrderRepository.OrderDeadline> next(LocalDateTime afterDeadline, Long afterId, Pageable page);
+    }
+}
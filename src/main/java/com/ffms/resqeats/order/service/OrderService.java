@@ -1,7 +1,14 @@
 package com.ffms.resqeats.order.service;
 
+import com.ffms.resqeats.cart.dto.CartDto;
+import com.ffms.resqeats.cart.service.CartService;
 import com.ffms.resqeats.common.exception.BusinessException;
+import com.ffms.resqeats.inventory.service.InventoryKeys;
 import com.ffms.resqeats.inventory.service.InventoryService;
+import com.ffms.resqeats.item.entity.OutletItem;
+import com.ffms.resqeats.item.repository.OutletItemRepository;
+import com.ffms.resqeats.item.service.CatalogueCache;
+import com.ffms.resqeats.item.service.CatalogueEntry;
 import com.ffms.resqeats.notification.service.NotificationService;
 import com.ffms.resqeats.order.dto.*;
 import com.ffms.resqeats.order.entity.Order;
@@ -21,11 +28,23 @@ import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 import org.springframework.validation.annotation.Validated;
 
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.stream.Collectors;
 
 /**
  * Service for managing order lifecycle with strict state machine transitions.
@@ -35,7 +54,8 @@ import java.util.List;
  *   <li>CREATED → PENDING_OUTLET_ACCEPTANCE (on order submission)</li>
  *   <li>PENDING_OUTLET_ACCEPTANCE → PAID (on outlet accept + payment capture)</li>
  *   <li>PENDING_OUTLET_ACCEPTANCE → DECLINED (on outlet decline)</li>
- *   <li>PENDING_OUTLET_ACCEPTANCE → CANCELLED (on timeout)</li>
+ *   <li>PENDING_OUTLET_ACCEPTANCE → EXPIRED (on acceptance timeout)</li>
+ *   <li>CREATED/PENDING_OUTLET_ACCEPTANCE → CANCELLED (on customer or system cancellation)</li>
  *   <li>PAID → PREPARING (on outlet action)</li>
  *   <li>PREPARING → READY_FOR_PICKUP (on outlet action)</li>
  *   <li>READY_FOR_PICKUP → PICKED_UP (on verification)</li>
@@ -43,6 +63,10 @@ import java.util.List;
  *   <li>READY_FOR_PICKUP → EXPIRED (on pickup window expiry)</li>
  * </ul>
  *
+ * <p>Each transition is written by {@link OrderStateMachine} as one conditional UPDATE before
+ * its side effects (payment, stock), so a transition that lost a race fails without any of
+ * them and a failed side effect rolls the transition back.</p>
+ *
  * @author ResqEats Team
  * @version 1.0
  * @since 2024-01-01
@@ -56,80 +80,98 @@ public class OrderService {
     private final OrderRepository orderRepository;
     private final OrderItemRepository orderItemRepository;
     private final OutletRepository outletRepository;
+    private final OutletItemRepository outletItemRepository;
     private final PaymentService paymentService;
     private final InventoryService inventoryService;
+    private final CartService cartService;
+    private final CatalogueCache catalogueCache;
     private final NotificationService notificationService;
     private final WebSocketService webSocketService;
+    private final OrderStateMachine orderStateMachine;
+    private final OrderDeadlineScheduler orderDeadlineScheduler;
 
-    @Value("${app.order.acceptance-timeout-seconds:300}")
-    private int acceptanceTimeoutSeconds;
-
-    @Value("${app.order.completion-delay-minutes:5}")
-    private int completionDelayMinutes;
+    @Value("${resqeats.order.outlet-response-timeout-minutes:5}")
+    private int outletResponseTimeoutMinutes;
 
     @Value("${resqeats.order.tax-rate:0.10}")
     private double taxRate;
 
     /**
-     * Creates a new order from cart items with calculated totals.
+     * Creates a new order from the requested items with calculated totals.
+     *
+     * <p>Lines are priced from the catalogue; prices and names sent by the client are ignored.
+     * Stock is not held for these orders and is checked only at acceptance; prefer
+     * {@link #checkout(CheckoutRequest, Long)}, which orders the user's cart and keeps its holds.</p>
      *
      * @param request the order creation request containing items and details
      * @param userId the ID of the user placing the order
      * @return the created order entity
-     * @throws BusinessException if outlet not found or not accepting orders
+     * @throws BusinessException if outlet not found or not accepting orders, or an item is unavailable
      */
     @Transactional
     public Order createOrder(CreateOrderRequest request, Long userId) {
         log.info("Creating order for userId: {}, outletId: {}", userId, request.getOutletId());
-        
-        Outlet outlet = outletRepository.findById(request.getOutletId())
-                .orElseThrow(() -> {
-                    log.warn("Order creation failed - outlet not found: {}", request.getOutletId());
-                    return new BusinessException("OUTLET_001", "Outlet not found");
-                });
+        findOutletAcceptingOrders(request.getOutletId());
 
-        if (!outlet.canAcceptOrders()) {
-            log.warn("Order creation failed - outlet not accepting orders: {}", request.getOutletId());
-            throw new BusinessException("OUTLET_002", "Outlet is not accepting orders");
-        }
+        Set<Long> itemIds = request.getItems().stream()
+                .map(CreateOrderRequest.OrderItemRequest::getItemId)
+                .collect(Collectors.toSet());
+        Map<Long, Long> outletItemIds = outletItemRepository.findByOutletIdAndItemIdIn(request.getOutletId(), itemIds)
+                .stream()
+                .collect(Collectors.toMap(OutletItem::getItemId, OutletItem::getId, (first, second) -> first));
 
-        BigDecimal subtotal = BigDecimal.ZERO;
+        Map<Long, Integer> quantities = new LinkedHashMap<>();
         for (CreateOrderRequest.OrderItemRequest itemRequest : request.getItems()) {
-            subtotal = subtotal.add(itemRequest.getUnitPrice()
-                    .multiply(BigDecimal.valueOf(itemRequest.getQuantity())));
+            Long outletItemId = outletItemIds.get(itemRequest.getItemId());
+            if (outletItemId == null) {
+                log.warn("Order creation failed - item not offered by outlet: {}", itemRequest.getItemId());
+                throw new BusinessException("ORDER_013", "Item is no longer available");
+            }
+            quantities.merge(outletItemId, itemRequest.getQuantity(), Integer::sum);
         }
-        BigDecimal tax = subtotal.multiply(BigDecimal.valueOf(taxRate));
-        BigDecimal total = subtotal.add(tax);
-        log.debug("Order totals calculated - subtotal: {}, tax: {}, total: {}", subtotal, tax, total);
 
-        Order order = Order.builder()
-                .userId(userId)
-                .outletId(request.getOutletId())
-                .status(OrderStatus.CREATED)
-                .subtotal(subtotal)
-                .tax(tax)
-                .total(total)
-                .acceptanceDeadline(LocalDateTime.now().plusSeconds(acceptanceTimeoutSeconds))
-                .pickupBy(request.getPickupBy())
-                .notes(request.getNotes())
-                .build();
+        Order order = saveOrder(userId, request.getOutletId(), priceLines(request.getOutletId(), quantities),
+                request.getPickupBy(), request.getNotes());
+        log.info("Order created successfully - orderNumber: {}, userId: {}, total: {}",
+                order.getOrderNumber(), userId, order.getTotal());
+        return order;
+    }
 
-        order = orderRepository.save(order);
-        log.debug("Order entity saved with ID: {}", order.getId());
+    /**
+     * Places an order for the contents of the user's cart.
+     *
+     * <p>The pipeline reads the validated Redis cart, prices every line from the
+     * {@link CatalogueCache}, writes the order and all of its items, and finally hands the cart's
+     * stock holds over to the order in one script that also removes the cart. Clients cannot
+     * influence prices, and the database cost no longer grows with the number of lines.</p>
+     *
+     * <p>The hold hand-over runs last so that a failed insert leaves the cart intact. If the
+     * transaction rolls back after it, the order's holds are released and the cart is put
+     * back.</p>
+     *
+     * @param request pickup time and notes
+     * @param userId the ID of the user checking out
+     * @return the created order entity
+     * @throws BusinessException if the cart is empty or changed, the outlet is not accepting orders,
+     *                           or an item is no longer available
+     */
+    @Transactional
+    public Order checkout(CheckoutRequest request, Long userId) {
+        log.info("Checking out cart - userId: {}", userId);
+        CartDto cart = cartService.getCartForCheckout(userId);
+        findOutletAcceptingOrders(cart.getOutletId());
 
-        for (CreateOrderRequest.OrderItemRequest itemRequest : request.getItems()) {
-            OrderItem orderItem = OrderItem.builder()
-                    .orderId(order.getId())
-                    .itemId(itemRequest.getItemId())
-                    .quantity(itemRequest.getQuantity())
-                    .unitPrice(itemRequest.getUnitPrice())
-                    .itemName(itemRequest.getItemName())
-                    .build();
-            orderItemRepository.save(orderItem);
-        }
+        Map<Long, Integer> quantities = new LinkedHashMap<>();
+        cart.getItems().forEach(item -> quantities.put(item.getOutletItemId(), item.getQuantity()));
+
+        Order order = saveOrder(userId, cart.getOutletId(), priceLines(cart.getOutletId(), quantities),
+                request.getPickupBy(), request.getNotes());
+
+        cartService.transferToOrder(userId, cart, order.getId(), epochMillis(order.getAcceptanceDeadline()));
+        restoreCartOnRollback(userId, cart, order.getId());
 
-        log.info("Order created successfully - orderNumber: {}, userId: {}, total: {}", 
-                order.getOrderNumber(), userId, total);
+        log.info("Order checked out successfully - orderNumber: {}, userId: {}, lines: {}, total: {}",
+                order.getOrderNumber(), userId, quantities.size(), order.getTotal());
         return order;
     }
 
@@ -137,6 +179,9 @@ public class OrderService {
      * Submits an order for outlet acceptance with payment pre-authorization.
      * Transition: CREATED → PENDING_OUTLET_ACCEPTANCE
      *
+     * <p>The acceptance deadline restarts here and the order's holds are moved to it, so the
+     * stock stays held exactly as long as the outlet may take to respond and no longer.</p>
+     *
      * @param orderId the order ID to submit
      * @param paymentMethodId the payment method to use for pre-authorization
      * @return the updated order entity
@@ -148,12 +193,19 @@ public class OrderService {
         Order order = getOrderById(orderId);
         validateTransition(order, OrderStatus.PENDING_OUTLET_ACCEPTANCE);
 
+        order = orderStateMachine.transition(order, OrderStatus.PENDING_OUTLET_ACCEPTANCE,
+                LocalDateTime.now().plusMinutes(outletResponseTimeoutMinutes));
+
         paymentService.preAuthorize(order, paymentMethodId);
         log.debug("Payment pre-authorized for orderId: {}", orderId);
 
-        order.setStatus(OrderStatus.PENDING_OUTLET_ACCEPTANCE);
-        order.setAcceptanceDeadline(LocalDateTime.now().plusSeconds(acceptanceTimeoutSeconds));
-        order = orderRepository.save(order);
+        Collection<Long> outletItemIds = findOutletItemIds(order);
+        int moved = inventoryService.moveHoldDeadlines(outletItemIds, InventoryKeys.orderHolder(orderId),
+                epochMillis(order.getAcceptanceDeadline()));
+        log.debug("Order holds moved to acceptance deadline - orderId: {}, holds: {}, lines: {}",
+                orderId, moved, outletItemIds.size());
+        orderDeadlineScheduler.scheduleOnCommit(orderId, OrderDeadlineScheduler.Kind.ACCEPTANCE,
+                order.getAcceptanceDeadline());
 
         notificationService.notifyNewOrder(order);
         webSocketService.broadcastOrderUpdate(order);
@@ -167,29 +219,31 @@ public class OrderService {
      * Outlet accepts an order - captures payment and reserves inventory.
      * Transition: PENDING_OUTLET_ACCEPTANCE → PAID
      *
+     * <p>Stock for every line is committed in one all-or-nothing step before payment is
+     * captured, so an order that cannot be fulfilled is never charged. Holds the order took
+     * over from its cart at checkout are consumed by the same step. If anything later
+     * rolls the transaction back, the committed stock is restored.</p>
+     *
      * @param orderId the order ID to accept
      * @param outletUserId the outlet user accepting the order
      * @return the updated order entity
-     * @throws BusinessException if order not found or invalid state transition
+     * @throws BusinessException if order not found, invalid state transition or insufficient stock
      */
     @Transactional
     public Order acceptOrder(Long orderId, Long outletUserId) {
         log.info("Accepting order - orderId: {}, outletUserId: {}", orderId, outletUserId);
         Order order = getOrderById(orderId);
         validateTransition(order, OrderStatus.PAID);
-
-        paymentService.capturePayment(order.getId());
-        log.debug("Payment captured for orderId: {}", orderId);
+        order = orderStateMachine.transition(order, OrderStatus.PAID);
 
         List<OrderItem> items = orderItemRepository.findByOrderId(orderId);
-        for (OrderItem item : items) {
-            inventoryService.decrementStock(item.getItemId(), item.getQuantity());
-            log.debug("Inventory decremented - itemId: {}, quantity: {}", item.getItemId(), item.getQuantity());
-        }
+        Map<Long, Integer> quantities = resolveOutletItemQuantities(order.getOutletId(), items);
+        inventoryService.commitStock(quantities, InventoryKeys.orderHolder(orderId));
+        restoreStockOnRollback(quantities);
+        log.debug("Inventory committed for orderId: {}, lines: {}", orderId, quantities.size());
 
-        order.setStatus(OrderStatus.PAID);
-        order.setAcceptedAt(LocalDateTime.now());
-        order = orderRepository.save(order);
+        paymentService.capturePayment(order.getId());
+        log.debug("Payment captured for orderId: {}", orderId);
 
         notificationService.notifyOrderAccepted(order);
         webSocketService.broadcastOrderUpdate(order);
@@ -199,7 +253,7 @@ public class OrderService {
     }
 
     /**
-     * Outlet declines an order - releases payment pre-authorization.
+     * Outlet declines an order - releases payment pre-authorization and held stock.
      * Transition: PENDING_OUTLET_ACCEPTANCE → DECLINED
      *
      * @param orderId the order ID to decline
@@ -213,14 +267,11 @@ public class OrderService {
         log.info("Declining order - orderId: {}, outletUserId: {}, reason: {}", orderId, outletUserId, reason);
         Order order = getOrderById(orderId);
         validateTransition(order, OrderStatus.DECLINED);
+        order = orderStateMachine.transition(order, OrderStatus.DECLINED, reason);
 
         paymentService.voidPreAuthorization(order.getId());
         log.debug("Payment pre-authorization voided for orderId: {}", orderId);
-
-        order.setStatus(OrderStatus.DECLINED);
-        order.setDeclinedAt(LocalDateTime.now());
-        order.setDeclineReason(reason);
-        order = orderRepository.save(order);
+        releaseHoldsOnCommit(order);
 
         notificationService.notifyOrderDeclined(order);
         webSocketService.broadcastOrderUpdate(order);
@@ -243,10 +294,7 @@ public class OrderService {
         log.info("Starting order preparation - orderId: {}, outletUserId: {}", orderId, outletUserId);
         Order order = getOrderById(orderId);
         validateTransition(order, OrderStatus.PREPARING);
-
-        order.setStatus(OrderStatus.PREPARING);
-        order.setPreparingAt(LocalDateTime.now());
-        order = orderRepository.save(order);
+        order = orderStateMachine.transition(order, OrderStatus.PREPARING);
 
         notificationService.notifyOrderPreparing(order);
         webSocketService.broadcastOrderUpdate(order);
@@ -269,10 +317,8 @@ public class OrderService {
         log.info("Marking order ready for pickup - orderId: {}, outletUserId: {}", orderId, outletUserId);
         Order order = getOrderById(orderId);
         validateTransition(order, OrderStatus.READY_FOR_PICKUP);
-
-        order.setStatus(OrderStatus.READY_FOR_PICKUP);
-        order.setReadyAt(LocalDateTime.now());
-        order = orderRepository.save(order);
+        order = orderStateMachine.transition(order, OrderStatus.READY_FOR_PICKUP);
+        orderDeadlineScheduler.scheduleOnCommit(orderId, OrderDeadlineScheduler.Kind.PICKUP, order.getPickupBy());
 
         notificationService.notifyOrderReady(order);
         webSocketService.broadcastOrderUpdate(order);
@@ -302,9 +348,7 @@ public class OrderService {
             throw new BusinessException("ORDER_008", "Invalid pickup code");
         }
 
-        order.setStatus(OrderStatus.PICKED_UP);
-        order.setPickedUpAt(LocalDateTime.now());
-        order = orderRepository.save(order);
+        order = orderStateMachine.transition(order, OrderStatus.PICKED_UP);
 
         webSocketService.broadcastOrderUpdate(order);
 
@@ -313,7 +357,7 @@ public class OrderService {
     }
 
     /**
-     * Completes an order (called automatically after pickup delay).
+     * Completes an order ahead of the bulk completion job ({@code OrderCompletionTask}).
      * Transition: PICKED_UP → COMPLETED
      *
      * @param orderId the order ID to complete
@@ -325,10 +369,7 @@ public class OrderService {
         log.info("Completing order - orderId: {}", orderId);
         Order order = getOrderById(orderId);
         validateTransition(order, OrderStatus.COMPLETED);
-
-        order.setStatus(OrderStatus.COMPLETED);
-        order.setCompletedAt(LocalDateTime.now());
-        order = orderRepository.save(order);
+        order = orderStateMachine.transition(order, OrderStatus.COMPLETED);
 
         webSocketService.broadcastOrderUpdate(order);
 
@@ -337,7 +378,7 @@ public class OrderService {
     }
 
     /**
-     * Cancels an order (by customer).
+     * Cancels an order (by customer) and releases its held stock.
      * Transitions: CREATED/PENDING_OUTLET_ACCEPTANCE → CANCELLED
      *
      * @param orderId the order ID to cancel
@@ -361,15 +402,14 @@ public class OrderService {
             throw new BusinessException("ORDER_005", "Order cannot be cancelled in current state");
         }
 
-        if (order.getStatus() == OrderStatus.PENDING_OUTLET_ACCEPTANCE) {
+        boolean preAuthorized = order.getStatus() == OrderStatus.PENDING_OUTLET_ACCEPTANCE;
+        order = orderStateMachine.transition(order, OrderStatus.CANCELLED, reason);
+
+        if (preAuthorized) {
             paymentService.voidPreAuthorization(order.getId());
             log.debug("Payment pre-authorization voided for orderId: {}", orderId);
         }
-
-        order.setStatus(OrderStatus.CANCELLED);
-        order.setCancelledAt(LocalDateTime.now());
-        order.setCancellationReason(reason);
-        order = orderRepository.save(order);
+        releaseHoldsOnCommit(order);
 
         webSocketService.broadcastOrderUpdate(order);
 
@@ -395,15 +435,14 @@ public class OrderService {
             throw new BusinessException("ORDER_005", "Order cannot be cancelled in current state");
         }
 
-        if (order.getStatus() == OrderStatus.PENDING_OUTLET_ACCEPTANCE) {
+        boolean preAuthorized = order.getStatus() == OrderStatus.PENDING_OUTLET_ACCEPTANCE;
+        order = orderStateMachine.transition(order, OrderStatus.CANCELLED, reason);
+
+        if (preAuthorized) {
             paymentService.voidPreAuthorization(order.getId());
             log.debug("Payment pre-authorization voided for orderId: {}", orderId);
         }
-
-        order.setStatus(OrderStatus.CANCELLED);
-        order.setCancelledAt(LocalDateTime.now());
-        order.setCancellationReason(reason);
-        order = orderRepository.save(order);
+        releaseHoldsOnCommit(order);
 
         webSocketService.broadcastOrderUpdate(order);
 
@@ -424,10 +463,7 @@ public class OrderService {
         log.info("Processing order expiration - orderId: {}", orderId);
         Order order = getOrderById(orderId);
         validateTransition(order, OrderStatus.EXPIRED);
-
-        order.setStatus(OrderStatus.EXPIRED);
-        order.setExpiredAt(LocalDateTime.now());
-        order = orderRepository.save(order);
+        order = orderStateMachine.transition(order, OrderStatus.EXPIRED);
 
         notificationService.notifyOrderExpired(order);
         webSocketService.broadcastOrderUpdate(order);
@@ -436,6 +472,167 @@ public class OrderService {
         return order;
     }
 
+    /**
+     * Expires an order whose acceptance deadline or pickup window has passed.
+     * Transitions: PENDING_OUTLET_ACCEPTANCE → EXPIRED (voids the pre-authorization and
+     * releases held stock, BR-003/BR-005), READY_FOR_PICKUP → EXPIRED (no refund).
+     *
+     * <p>Called for every deadline that fires and by the safety-net sweep, so it is a no-op
+     * for orders that have moved on or whose deadline has not passed. Losing the race against
+     * an outlet or customer action is not an error: nothing is written and false is returned.
+     * The void and the notifications follow the commit, as in {@link #expirePendingOrders}.</p>
+     *
+     * @param orderId the order ID to expire
+     * @return true if the order was expired
+     */
+    @Transactional
+    public boolean expireOverdueOrder(Long orderId) {
+        Order order = orderRepository.findById(orderId).orElse(null);
+        if (order == null) {
+            log.debug("Overdue order not found - orderId: {}", orderId);
+            return false;
+        }
+
+        LocalDateTime now = LocalDateTime.now();
+        boolean pending = order.getStatus() == OrderStatus.PENDING_OUTLET_ACCEPTANCE
+                && order.getAcceptanceDeadline() != null && order.getAcceptanceDeadline().isBefore(now);
+        boolean unpicked = order.getStatus() == OrderStatus.READY_FOR_PICKUP
+                && order.getPickupBy() != null && order.getPickupBy().isBefore(now);
+        if (!pending && !unpicked) {
+            log.debug("Order not overdue - orderId: {}, status: {}", orderId, order.getStatus());
+            return false;
+        }
+
+        try {
+            order = orderStateMachine.transition(order, OrderStatus.EXPIRED);
+        } catch (BusinessException e) {
+            log.info("Order moved on before expiry - orderId: {}, reason: {}", orderId, e.getMessage());
+            return false;
+        }
+
+        Order expired = order;
+        if (pending) {
+            releaseHoldsOnCommit(order);
+        }
+        runAfterCommit(() -> {
+            if (pending) {
+                voidPreAuthorizations(List.of(orderId));
+            }
+            notificationService.notifyOrderExpired(expired);
+            webSocketService.broadcastOrderUpdate(expired);
+        });
+
+        log.info("Order expired - orderNumber: {}, reason: {}", order.getOrderNumber(),
+                pending ? "outlet did not respond in time" : "pickup window exceeded");
+        return true;
+    }
+
+    /**
+     * Expires a chunk of orders whose acceptance deadline has passed, in one transaction.
+     * Transition: PENDING_OUTLET_ACCEPTANCE → EXPIRED (BR-003)
+     *
+     * <p>The chunk is moved with one status UPDATE. Gateway voids cannot be rolled back, so
+     * the pre-authorizations are voided only once the status change has committed, each in
+     * its own transaction (BR-005), followed by the notifications and broadcasts; held stock
+     * is released after commit too. If the chunk rolls back nothing has been voided or sent,
+     * so the caller can retry its orders one by one with {@link #expireOverdueOrder(Long)}.
+     * Orders that left the pending state meanwhile are skipped.</p>
+     *
+     * @param orderIds ids of orders found past their acceptance deadline
+     * @return the orders expired
+     */
+    @Transactional
+    public List<Order> expirePendingOrders(Collection<Long> orderIds) {
+        List<Long> expiredIds = orderStateMachine.transitionAll(orderIds,
+                OrderStatus.PENDING_OUTLET_ACCEPTANCE, OrderStatus.EXPIRED);
+        if (expiredIds.isEmpty()) {
+            return List.of();
+        }
+
+        List<Order> orders = orderRepository.findAllById(expiredIds);
+        releaseHoldsOnCommit(orders);
+        runAfterCommit(() -> {
+            voidPreAuthorizations(expiredIds);
+            notificationService.notifyOrdersExpired(orders);
+            webSocketService.broadcastOrderUpdates(orders);
+        });
+
+        log.info("Expired {} of {} pending orders - outlet did not respond in time", orders.size(), orderIds.size());
+        return orders;
+    }
+
+    /**
+     * Voids the pre-authorizations of orders that have expired, e.g. after a void failed
+     * when the order expired. Payments already voided are skipped.
+     *
+     * @param orderIds ids of expired orders
+     * @return the number of payments voided
+     */
+    public int voidPreAuthorizations(Collection<Long> orderIds) {
+        int voided = 0;
+        for (Long orderId : orderIds) {
+            try {
+                if (paymentService.voidPreAuthorizationIfAuthorized(orderId).isPresent()) {
+                    voided++;
+                }
+            } catch (Exception e) {
+                // The payment stays authorized and is retried by the expiry sweep
+                log.error("Failed to void pre-authorization of expired order {}: {}", orderId, e.getMessage());
+            }
+        }
+        return voided;
+    }
+
+    /**
+     * Expires a chunk of orders whose pickup window has passed, in one transaction.
+     * Transition: READY_FOR_PICKUP → EXPIRED (payment was captured, no refund)
+     *
+     * @param orderIds ids of orders found past their pickup window
+     * @return the orders expired; orders picked up meanwhile are skipped
+     */
+    @Transactional
+    public List<Order> expireUnpickedOrders(Collection<Long> orderIds) {
+        List<Long> expiredIds = orderStateMachine.transitionAll(orderIds,
+                OrderStatus.READY_FOR_PICKUP, OrderStatus.EXPIRED);
+        if (expiredIds.isEmpty()) {
+            return List.of();
+        }
+
+        List<Order> orders = orderRepository.findAllById(expiredIds);
+        notificationService.notifyOrdersExpired(orders);
+        webSocketService.broadcastOrderUpdates(orders);
+
+        log.info("Expired {} of {} ready orders - pickup window exceeded", orders.size(), orderIds.size());
+        return orders;
+    }
+
+    /**
+     * Completes a chunk of picked-up orders in one transaction (called by the completion job).
+     * Transition: PICKED_UP → COMPLETED
+     *
+     * <p>The chunk is moved with one status UPDATE; customers are notified and the updates
+     * broadcast in bulk. Orders no longer picked up (e.g. completed by the outlet meanwhile)
+     * are skipped.</p>
+     *
+     * @param orderIds ids of orders picked up before the completion delay
+     * @return the orders completed
+     */
+    @Transactional
+    public List<Order> completeOrders(Collection<Long> orderIds) {
+        List<Long> completedIds = orderStateMachine.transitionAll(orderIds,
+                OrderStatus.PICKED_UP, OrderStatus.COMPLETED);
+        if (completedIds.isEmpty()) {
+            return List.of();
+        }
+
+        List<Order> orders = orderRepository.findAllById(completedIds);
+        notificationService.notifyOrdersCompleted(orders);
+        webSocketService.broadcastOrderUpdates(orders);
+
+        log.info("Completed {} of {} picked-up orders", orders.size(), orderIds.size());
+        return orders;
+    }
+
     /**
      * Retrieves an order by ID.
      *
@@ -612,7 +809,8 @@ public class OrderService {
     }
 
     /**
-     * Validates a state transition for an order.
+     * Validates a state transition for an order against the status it was loaded with.
+     * Rejects invalid requests early; {@link OrderStateMachine} enforces the transition.
      *
      * @param order the order to validate
      * @param newStatus the target status
@@ -627,4 +825,263 @@ public class OrderService {
                             order.getStatus(), newStatus));
         }
     }
+
+    /**
+     * Loads an outlet and checks that it takes orders.
+     *
+     * @param outletId the outlet ID
+     * @return the outlet entity
+     * @throws BusinessException if outlet not found or not accepting orders
+     */
+    private Outlet findOutletAcceptingOrders(Long outletId) {
+        Outlet outlet = outletRepository.findById(outletId)
+                .orElseThrow(() -> {
+                    log.warn("Order creation failed - outlet not found: {}", outletId);
+                    return new BusinessException("OUTLET_001", "Outlet not found");
+                });
+
+        if (!outlet.canAcceptOrders()) {
+            log.warn("Order creation failed - outlet not accepting orders: {}", outletId);
+            throw new BusinessException("OUTLET_002", "Outlet is not accepting orders");
+        }
+        return outlet;
+    }
+
+    /**
+     * Builds unsaved order lines priced from the catalogue cache with one bulk lookup.
+     *
+     * @param outletId the outlet the order is placed with
+     * @param quantities quantity per outlet item id
+     * @return one order line per outlet item, without an order ID
+     * @throws BusinessException if an item is unknown, not purchasable or offered by another outlet
+     */
+    private List<OrderItem> priceLines(Long outletId, Map<Long, Integer> quantities) {
+        Map<Long, CatalogueEntry> entries = catalogueCache.getAll(quantities.keySet());
+
+        List<OrderItem> lines = new ArrayList<>(quantities.size());
+        quantities.forEach((outletItemId, quantity) -> {
+            CatalogueEntry entry = entries.get(outletItemId);
+            if (entry == null || !entry.isPurchasable() || !entry.getOutletId().equals(outletId)) {
+                log.warn("Order line rejected - item unavailable: outletItemId: {}", outletItemId);
+                throw new BusinessException("ORDER_013", entry != null
+                        ? "Item is no longer available: " + entry.getItemName()
+                        : "Item is no longer available");
+            }
+            lines.add(OrderItem.builder()
+                    .itemId(entry.getItemId())
+                    .quantity(quantity)
+                    .unitPrice(entry.getSalePrice())
+                    .itemName(entry.getItemName())
+                    .build());
+        });
+        return lines;
+    }
+
+    /**
+     * Computes totals and inserts the order followed by all of its lines in one batch.
+     *
+     * @return the saved order
+     */
+    private Order saveOrder(Long userId, Long outletId, List<OrderItem> lines,
+                            LocalDateTime pickupBy, String notes) {
+        BigDecimal subtotal = lines.stream()
+                .map(line -> line.getUnitPrice().multiply(BigDecimal.valueOf(line.getQuantity())))
+                .reduce(BigDecimal.ZERO, BigDecimal::add);
+        BigDecimal tax = subtotal.multiply(BigDecimal.valueOf(taxRate));
+        BigDecimal total = subtotal.add(tax);
+        log.debug("Order totals calculated - subtotal: {}, tax: {}, total: {}", subtotal, tax, total);
+
+        Order order = Order.builder()
+                .userId(userId)
+                .outletId(outletId)
+                .status(OrderStatus.CREATED)
+                .subtotal(subtotal)
+                .tax(tax)
+                .total(total)
+                .acceptanceDeadline(LocalDateTime.now().plusMinutes(outletResponseTimeoutMinutes))
+                .pickupBy(pickupBy)
+                .notes(notes)
+                .build();
+
+        order = orderRepository.save(order);
+        log.debug("Order entity saved with ID: {}", order.getId());
+
+        Long orderId = order.getId();
+        lines.forEach(line -> line.setOrderId(orderId));
+        orderItemRepository.saveAll(lines);
+        log.debug("Saved {} order items for orderId: {}", lines.size(), orderId);
+        return order;
+    }
+
+    /**
+     * Maps order lines to outlet item quantities with one batch lookup.
+     *
+     * <p>Order items reference catalogue items; inventory is tracked per outlet item, so each
+     * line is resolved through the order's outlet. Repeated items are merged.</p>
+     *
+     * @param outletId the outlet the order was placed with
+     * @param items the order lines
+     * @return quantity per outlet item id
+     * @throws BusinessException if an item is no longer offered by the outlet
+     */
+    private Map<Long, Integer> resolveOutletItemQuantities(Long outletId, List<OrderItem> items) {
+        Set<Long> itemIds = items.stream().map(OrderItem::getItemId).collect(Collectors.toSet());
+        Map<Long, Long> outletItemIds = outletItemRepository.findByOutletIdAndItemIdIn(outletId, itemIds).stream()
+                .collect(Collectors.toMap(OutletItem::getItemId, OutletItem::getId, (first, second) -> first));
+
+        Map<Long, Integer> quantities = new HashMap<>();
+        for (OrderItem item : items) {
+            Long outletItemId = outletItemIds.get(item.getItemId());
+            if (outletItemId == null) {
+                log.warn("Order item no longer offered by outlet - outletId: {}, itemId: {}", outletId, item.getItemId());
+                throw new BusinessException("INV_003", "Item is no longer available at this outlet");
+            }
+            quantities.merge(outletItemId, item.getQuantity(), Integer::sum);
+        }
+        return quantities;
+    }
+
+    /**
+     * Releases the holds an order took over from its cart once the current transaction commits.
+     *
+     * <p>Used when an order ends before acceptance (decline, cancellation, acceptance timeout).
+     * Releasing after commit keeps the stock held if the state change rolls back; orders that
+     * hold nothing make this a no-op.</p>
+     *
+     * @param order the order leaving the pending states
+     */
+    public void releaseHoldsOnCommit(Order order) {
+        Collection<Long> outletItemIds = findOutletItemIds(order);
+        String holderId = InventoryKeys.orderHolder(order.getId());
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            inventoryService.releaseHolds(outletItemIds, holderId);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                inventoryService.releaseHolds(outletItemIds, holderId);
+            }
+        });
+    }
+
+    /**
+     * Releases the stock held for a batch of orders once the transaction commits, like
+     * {@link #releaseHoldsOnCommit(Order)}, looking up the lines with one query per outlet.
+     */
+    private void releaseHoldsOnCommit(List<Order> orders) {
+        Map<Long, Order> ordersById = orders.stream().collect(Collectors.toMap(Order::getId, order -> order));
+        Map<Long, Set<Long>> itemIdsByOrder = new HashMap<>();
+        Map<Long, Set<Long>> itemIdsByOutlet = new HashMap<>();
+        for (OrderItem item : orderItemRepository.findByOrderIdIn(ordersById.keySet())) {
+            Long outletId = ordersById.get(item.getOrderId()).getOutletId();
+            itemIdsByOrder.computeIfAbsent(item.getOrderId(), id -> new HashSet<>()).add(item.getItemId());
+            itemIdsByOutlet.computeIfAbsent(outletId, id -> new HashSet<>()).add(item.getItemId());
+        }
+
+        Map<Long, Map<Long, Long>> outletItemIds = new HashMap<>();
+        itemIdsByOutlet.forEach((outletId, itemIds) -> outletItemIds.put(outletId,
+                outletItemRepository.findByOutletIdAndItemIdIn(outletId, itemIds).stream()
+                        .collect(Collectors.toMap(OutletItem::getItemId, OutletItem::getId))));
+
+        Map<String, Collection<Long>> holds = new LinkedHashMap<>();
+        itemIdsByOrder.forEach((orderId, itemIds) -> {
+            Map<Long, Long> offered = outletItemIds.get(ordersById.get(orderId).getOutletId());
+            holds.put(InventoryKeys.orderHolder(orderId), itemIds.stream()
+                    .map(offered::get)
+                    .filter(Objects::nonNull)
+                    .collect(Collectors.toSet()));
+        });
+
+        Runnable release = () -> holds.forEach((holderId, outletItemIdsOfOrder) ->
+                inventoryService.releaseHolds(outletItemIdsOfOrder, holderId));
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            release.run();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                release.run();
+            }
+        });
+    }
+
+    /**
+     * Outlet item ids of an order's lines; lines no longer offered by the outlet are skipped.
+     */
+    private Collection<Long> findOutletItemIds(Order order) {
+        Set<Long> itemIds = orderItemRepository.findByOrderId(order.getId()).stream()
+                .map(OrderItem::getItemId)
+                .collect(Collectors.toSet());
+        if (itemIds.isEmpty()) {
+            return List.of();
+        }
+        return outletItemRepository.findByOutletIdAndItemIdIn(order.getOutletId(), itemIds).stream()
+                .map(OutletItem::getId)
+                .collect(Collectors.toSet());
+    }
+
+    private static long epochMillis(LocalDateTime time) {
+        return time.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+    }
+
+    /**
+     * Runs an action once the surrounding transaction commits, or straight away without one.
+     */
+    private void runAfterCommit(Runnable action) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            action.run();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                action.run();
+            }
+        });
+    }
+
+    /**
+     * Hands a checked-out cart back from the order if the surrounding transaction rolls back.
+     */
+    private void restoreCartOnRollback(Long userId, CartDto cart, Long orderId) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                if (status != STATUS_ROLLED_BACK) {
+                    return;
+                }
+                try {
+                    cartService.restoreFromOrder(userId, cart, orderId);
+                } catch (Exception e) {
+                    // Holds still on the order lapse at its hold deadline
+                    log.error("Failed to restore cart after rolled back checkout - userId: {}, orderId: {}, error: {}",
+                            userId, orderId, e.getMessage());
+                }
+            }
+        });
+    }
+
+    /**
+     * Restores committed stock if the surrounding transaction rolls back.
+     *
+     * @param quantities the committed quantity per outlet item id
+     */
+    private void restoreStockOnRollback(Map<Long, Integer> quantities) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                if (status == STATUS_ROLLED_BACK) {
+                    inventoryService.restoreStock(quantities);
+                }
+            }
+        });
+    }
 }
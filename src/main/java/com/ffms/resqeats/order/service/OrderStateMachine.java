@@ -0,0 +1,252 @@
+package com.ffms.resqeats.order.service;
+
+import com.ffms.resqeats.common.exception.BusinessException;
+import com.ffms.resqeats.order.entity.Order;
+import com.ffms.resqeats.order.enums.OrderStatus;
+import jakarta.persistence.EntityManager;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.domain.AuditorAware;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.BiConsumer;
+import java.util.stream.Collectors;
+
+/**
+ * Applies order status transitions as compare-and-set UPDATEs.
+ *
+ * <p>For every status with predecessors in the {@link OrderStatus} transition table, one
+ * statement is generated at startup:
+ * {@code UPDATE orders SET status = ?, <timestamp> = ?, ... WHERE id = ? AND status IN (<predecessors>)}.
+ * It writes only the status, the transition's timestamp and detail column, and the version and
+ * audit columns. A transition succeeds when the statement updates the row, so a concurrent
+ * transition of the same order (e.g. the outlet accepting while the expiry task runs) makes
+ * exactly one of them win, in one round trip and without optimistic-lock retries. The row
+ * stays locked until the surrounding transaction ends, so later steps of the loser wait for
+ * the winner instead of overwriting it.</p>
+ *
+ * <p>The statements run through {@link JdbcTemplate} on the transaction's connection. The
+ * order passed in is detached first and updated in memory to the written state, so the
+ * persistence context never flushes a stale copy over it.</p>
+ *
+ * <p>{@link #transitionAll} moves a batch of orders with one locking SELECT and one UPDATE,
+ * for system jobs that would otherwise issue a statement pair per order.</p>
+ *
+ * @author ResqEats Team
+ * @version 1.0
+ * @since 2024-01-01
+ */
+@Service
+@Slf4j
+public class OrderStateMachine {
+
+    private static final String STATUS_SQL = "SELECT status FROM orders WHERE id = ?";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final EntityManager entityManager;
+    private final AuditorAware<String> auditorProvider;
+    private final Map<OrderStatus, Transition> transitions = new EnumMap<>(OrderStatus.class);
+
+    public OrderStateMachine(JdbcTemplate jdbcTemplate, EntityManager entityManager,
+                             AuditorAware<String> auditorProvider) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.entityManager = entityManager;
+        this.auditorProvider = auditorProvider;
+        for (OrderStatus target : OrderStatus.values()) {
+            Set<OrderStatus> predecessors = target.predecessors();
+            if (!predecessors.isEmpty()) {
+                transitions.put(target, Transition.of(target, predecessors));
+            }
+        }
+    }
+
+    /**
+     * Moves an order to a new status.
+     *
+     * @param order the order as loaded; detached and updated to the new state
+     * @param target the status to move to
+     * @return the order in its new state
+     * @throws BusinessException if the order no longer exists or its current status cannot
+     *                           move to the target; nothing is written
+     */
+    public Order transition(Order order, OrderStatus target) {
+        return transition(order, target, null);
+    }
+
+    /**
+     * Moves an order to a new status and writes the transition's detail column: the acceptance
+     * deadline on submission, the reason on decline and cancellation.
+     *
+     * @param order the order as loaded; detached and updated to the new state
+     * @param target the status to move to
+     * @param detail the value of the detail column, ignored for transitions without one
+     * @return the order in its new state
+     * @throws BusinessException if the order no longer exists or its current status cannot
+     *                           move to the target; nothing is written
+     */
+    public Order transition(Order order, OrderStatus target, Object detail) {
+        Transition transition = transitions.get(target);
+        if (transition == null) {
+            throw invalidTransition(order.getId(), order.getStatus(), target);
+        }
+
+        LocalDateTime now = LocalDateTime.now();
+        String auditor = auditorProvider.getCurrentAuditor().orElse(null);
+        List<Object> args = transition.setArgs(target, now, auditor, detail);
+        args.add(order.getId());
+        int updated = jdbcTemplate.update(transition.sql(), args.toArray());
+        if (updated == 0) {
+            List<String> current = jdbcTemplate.queryForList(STATUS_SQL, String.class, order.getId());
+            if (current.isEmpty()) {
+                log.warn("Order not found for transition - orderId: {}, to: {}", order.getId(), target);
+                throw new BusinessException("ORDER_003", "Order not found");
+            }
+            throw invalidTransition(order.getId(), OrderStatus.valueOf(current.get(0)), target);
+        }
+
+        entityManager.detach(order);
+        order.setStatus(target);
+        order.setVersion(order.getVersion() != null ? order.getVersion() + 1 : 1L);
+        order.setUpdatedAt(now);
+        order.setUpdatedBy(auditor);
+        if (transition.timestamp() != null) {
+            transition.timestamp().accept(order, now);
+        }
+        if (transition.detail() != null) {
+            transition.detail().accept(order, detail);
+        }
+        log.debug("Order transitioned - orderId: {}, to: {}", order.getId(), target);
+        return order;
+    }
+
+    /**
+     * Moves a batch of orders from one status to another, for transitions without a detail
+     * column. Must run inside a transaction: the orders still in {@code from} are locked with
+     * {@code SELECT ... FOR UPDATE} and then updated with one statement, so the returned ids
+     * are exactly the orders that moved; the others had moved on and are left untouched.
+     * Entities of the batch loaded before the call are stale afterwards.
+     *
+     * @param orderIds the orders to move
+     * @param from the status the orders are expected in
+     * @param target the status to move to
+     * @return ids of the orders that moved
+     * @throws BusinessException if {@code from} cannot move to the target
+     * @throws IllegalArgumentException if the transition writes a detail column
+     */
+    public List<Long> transitionAll(Collection<Long> orderIds, OrderStatus from, OrderStatus target) {
+        Transition transition = transitions.get(target);
+        if (transition == null || !from.canTransitionTo(target)) {
+            throw invalidTransition(null, from, target);
+        }
+        if (transition.detail() != null) {
+            throw new IllegalArgumentException("Batch transition to " + target + " needs a detail value");
+        }
+        if (orderIds.isEmpty()) {
+            return List.of();
+        }
+
+        String placeholders = String.join(", ", Collections.nCopies(orderIds.size(), "?"));
+        List<Object> lockArgs = new ArrayList<>(orderIds);
+        lockArgs.add(from.name());
+        List<Long> locked = jdbcTemplate.queryForList(
+                "SELECT id FROM orders WHERE id IN (" + placeholders + ") AND status = ? FOR UPDATE",
+                Long.class, lockArgs.toArray());
+        if (locked.isEmpty()) {
+            return locked;
+        }
+
+        LocalDateTime now = LocalDateTime.now();
+        String auditor = auditorProvider.getCurrentAuditor().orElse(null);
+        List<Object> args = transition.setArgs(target, now, auditor, null);
+        args.addAll(locked);
+        args.add(from.name());
+        jdbcTemplate.update(transition.set() + " WHERE id IN ("
+                + String.join(", ", Collections.nCopies(locked.size(), "?")) + ") AND status = ?", args.toArray());
+        log.debug("Orders transitioned - from: {}, to: {}, count: {}/{}", from, target, locked.size(), orderIds.size());
+        return locked;
+    }
+
+    private BusinessException invalidTransition(Long orderId, OrderStatus from, OrderStatus to) {
+        log.error("Invalid state transition - from: {} to: {} for orderId: {}", from, to, orderId);
+        return new BusinessException("ORDER_003",
+                String.format("Invalid state transition from %s to %s", from, to));
+    }
+
+    /**
+     * Generated statement of one target status and the in-memory setters matching its columns.
+     */
+    private record Transition(String set, String sql, BiConsumer<Order, LocalDateTime> timestamp,
+                              BiConsumer<Order, Object> detail) {
+
+        static Transition of(OrderStatus target, Set<OrderStatus> predecessors) {
+            String timestampColumn = null;
+            BiConsumer<Order, LocalDateTime> timestamp = null;
+            switch (target) {
+                case PAID -> { timestampColumn = "accepted_at"; timestamp = Order::setAcceptedAt; }
+                case PREPARING -> { timestampColumn = "preparing_at"; timestamp = Order::setPreparingAt; }
+                case READY_FOR_PICKUP -> { timestampColumn = "ready_at"; timestamp = Order::setReadyAt; }
+                case PICKED_UP -> { timestampColumn = "picked_up_at"; timestamp = Order::setPickedUpAt; }
+                case COMPLETED -> { timestampColumn = "completed_at"; timestamp = Order::setCompletedAt; }
+                case DECLINED -> { timestampColumn = "declined_at"; timestamp = Order::setDeclinedAt; }
+                case CANCELLED -> { timestampColumn = "cancelled_at"; timestamp = Order::setCancelledAt; }
+                case EXPIRED -> { timestampColumn = "expired_at"; timestamp = Order::setExpiredAt; }
+                default -> { }
+            }
+
+            String detailColumn = null;
+            BiConsumer<Order, Object> detail = null;
+            switch (target) {
+                case PENDING_OUTLET_ACCEPTANCE -> {
+                    detailColumn = "acceptance_deadline";
+                    detail = (order, value) -> order.setAcceptanceDeadline((LocalDateTime) value);
+                }
+                case DECLINED -> {
+                    detailColumn = "decline_reason";
+                    detail = (order, value) -> order.setDeclineReason((String) value);
+                }
+                case CANCELLED -> {
+                    detailColumn = "cancellation_reason";
+                    detail = (order, value) -> order.setCancellationReason((String) value);
+                }
+                default -> { }
+            }
+
+            StringBuilder sql = new StringBuilder(
+                    "UPDATE orders SET status = ?, version = COALESCE(version, 0) + 1, updated_at = ?, updated_by = ?");
+            if (timestampColumn != null) {
+                sql.append(", ").append(timestampColumn).append(" = ?");
+            }
+            if (detailColumn != null) {
+                sql.append(", ").append(detailColumn).append(" = ?");
+            }
+            String set = sql.toString();
+            sql.append(" WHERE id = ? AND status IN (")
+                    .append(predecessors.stream().map(status -> "'" + status.name() + "'")
+                            .collect(Collectors.joining(", ")))
+                    .append(")");
+            return new Transition(set, sql.toString(), timestamp, detail);
+        }
+
+        List<Object> setArgs(OrderStatus target, LocalDateTime now, String auditor, Object detailValue) {
+            List<Object> args = new ArrayList<>(6);
+            args.add(target.name());
+            args.add(now);
+            args.add(auditor);
+            if (timestamp != null) {
+                args.add(now);
+            }
+            if (detail != null) {
+                args.add(detailValue);
+            }
+            return args;
+        }
+    }
+}
@@ -2,6 +2,7 @@ package com.ffms.resqeats.outlet.controller;
 
 import com.ffms.resqeats.common.dto.ApiResponse;
 import com.ffms.resqeats.common.dto.PageResponse;
+import com.ffms.resqeats.drop.dto.ScheduleDropRequest;
 import com.ffms.resqeats.geo.service.GeoService;
 import com.ffms.resqeats.outlet.dto.CreateOutletRequest;
 import com.ffms.resqeats.outlet.dto.UpdateOutletRequest;
@@ -47,6 +48,8 @@ import java.util.stream.Collectors;
  * POST /outlets/{id}/deactivate        - Deactivate outlet
  * POST /outlets/{id}/open              - Open outlet
  * POST /outlets/{id}/close             - Close outlet
+ * POST /outlets/{id}/drop              - Schedule a drop behind a waiting room
+ * DELETE /outlets/{id}/drop            - Cancel a scheduled drop
  */
 @RestController
 @RequestMapping
@@ -212,6 +215,26 @@ public class OutletController {
         return ResponseEntity.ok(ApiResponse.success(outlet, "Outlet is now closed"));
     }
 
+    @PostMapping("/outlets/{id}/drop")
+    @Operation(summary = "Schedule a drop (release items at a set time behind a waiting room)")
+    @PreAuthorize("hasAnyRole('MERCHANT_USER', 'OUTLET_USER')")
+    public ResponseEntity<ApiResponse<ScheduleDropRequest>> scheduleDrop(
+            @PathVariable Long id,
+            @Valid @RequestBody ScheduleDropRequest request) {
+        log.info("Schedule drop request for outletId: {}", id);
+        ScheduleDropRequest drop = outletService.scheduleDrop(id, request);
+        return ResponseEntity.ok(ApiResponse.success(drop, "Drop scheduled"));
+    }
+
+    @DeleteMapping("/outlets/{id}/drop")
+    @Operation(summary = "Cancel a scheduled drop")
+    @PreAuthorize("hasAnyRole('MERCHANT_USER', 'OUTLET_USER')")
+    public ResponseEntity<ApiResponse<Void>> cancelDrop(@PathVariable Long id) {
+        log.info("Cancel drop request for outletId: {}", id);
+        outletService.cancelDrop(id);
+        return ResponseEntity.ok(ApiResponse.success(null, "Drop cancelled"));
+    }
+
     // =====================
     // Outlet User Self-Service Endpoints
     // =====================
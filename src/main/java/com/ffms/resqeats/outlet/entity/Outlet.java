@@ -15,6 +15,7 @@ import org.hibernate.annotations.FilterDef;
 import org.hibernate.annotations.ParamDef;
 
 import java.math.BigDecimal;
+import java.time.LocalDateTime;
 
 /**
  * Outlet entity per SRS Section 7.2.
@@ -27,7 +28,8 @@ import java.math.BigDecimal;
 @Table(name = "outlets", indexes = {
         @Index(name = "idx_outlet_merchant", columnList = "merchant_id"),
         @Index(name = "idx_outlet_status", columnList = "status"),
-        @Index(name = "idx_outlet_location", columnList = "latitude, longitude")
+        @Index(name = "idx_outlet_location", columnList = "latitude, longitude"),
+        @Index(name = "idx_outlet_next_stock_reset", columnList = "next_stock_reset_at")
 })
 @FilterDef(name = "outletMerchantFilter", parameters = @ParamDef(name = "merchantId", type = Long.class))
 @Filter(name = "outletMerchantFilter", condition = "merchant_id = :merchantId")
@@ -110,6 +112,21 @@ public class Outlet extends BaseEntity {
     @Builder.Default
     private Integer totalRatings = 0;
 
+    /**
+     * IANA time zone of the outlet (e.g. Asia/Colombo); the configured default when null.
+     */
+    @Column(name = "timezone", length = 40)
+    @JsonProperty("timezone")
+    private String timezone;
+
+    /**
+     * When stock is next reset to the daily quantities (the outlet's next opening time, in
+     * server time); null until the reset scheduler plans it.
+     */
+    @Column(name = "next_stock_reset_at")
+    @JsonProperty("next_stock_reset_at")
+    private LocalDateTime nextStockResetAt;
+
     /**
      * Check if outlet is active and can accept orders.
      * BR-017: Outlets must be approved before appearing in customer app.
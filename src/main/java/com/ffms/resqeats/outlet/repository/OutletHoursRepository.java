@@ -6,6 +6,7 @@ import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -17,6 +18,8 @@ public interface OutletHoursRepository extends com.ffms.resqeats.common.reposito
 
     List<OutletHours> findByOutletId(Long outletId);
 
+    List<OutletHours> findByOutletIdIn(Collection<Long> outletIds);
+
     Optional<OutletHours> findByOutletIdAndDayOfWeek(Long outletId, Integer dayOfWeek);
 
     @Modifying
@@ -6,10 +6,12 @@ import com.ffms.resqeats.outlet.enums.OutletStatus;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDateTime;
 import java.util.List;
 
 /**
@@ -78,6 +80,63 @@ public interface OutletRepository extends BaseScopedRepository<Outlet>, JpaSpeci
      */
     List<Outlet> findAllByStatus(OutletStatus status);
 
+    // ============== DAILY STOCK RESET ==============
+
+    /**
+     * Active outlets whose stock reset is due, oldest first.
+     */
+    @Query("SELECT o.id AS id, o.timezone AS timezone, o.nextStockResetAt AS nextStockResetAt FROM Outlet o " +
+            "WHERE o.nextStockResetAt <= :now AND o.status = :status ORDER BY o.nextStockResetAt, o.id")
+    List<StockResetSlot> findDueStockResets(@Param("now") LocalDateTime now,
+                                            @Param("status") OutletStatus status,
+                                            Pageable pageable);
+
+    /**
+     * Active outlets whose stock reset has not been planned yet.
+     */
+    @Query("SELECT o.id AS id, o.timezone AS timezone, o.nextStockResetAt AS nextStockResetAt FROM Outlet o " +
+            "WHERE o.nextStockResetAt IS NULL AND o.status = :status ORDER BY o.id")
+    List<StockResetSlot> findUnplannedStockResets(@Param("status") OutletStatus status, Pageable pageable);
+
+    /**
+     * Moves an outlet's stock reset from {@code expected} to {@code next} if no other node did
+     * so first.
+     *
+     * @return 1 if this caller claimed the reset, 0 otherwise
+     */
+    @Modifying
+    @Query("UPDATE Outlet o SET o.nextStockResetAt = :next WHERE o.id = :id AND o.nextStockResetAt = :expected")
+    int claimStockReset(@Param("id") Long id,
+                        @Param("expected") LocalDateTime expected,
+                        @Param("next") LocalDateTime next);
+
+    /**
+     * Plans the first stock reset of an outlet unless another node already did.
+     *
+     * @return 1 if this caller planned the reset, 0 otherwise
+     */
+    @Modifying
+    @Query("UPDATE Outlet o SET o.nextStockResetAt = :next WHERE o.id = :id AND o.nextStockResetAt IS NULL")
+    int planStockReset(@Param("id") Long id, @Param("next") LocalDateTime next);
+
+    /**
+     * Forgets an outlet's planned stock reset so it is planned again from its current hours.
+     */
+    @Modifying
+    @Query("UPDATE Outlet o SET o.nextStockResetAt = NULL WHERE o.id = :id")
+    void unplanStockReset(@Param("id") Long id);
+
+    /**
+     * Reset scheduling projection.
+     */
+    interface StockResetSlot {
+        Long getId();
+
+        String getTimezone();
+
+        LocalDateTime getNextStockResetAt();
+    }
+
     // ============== SCOPE VALIDATION ==============
 
     /**
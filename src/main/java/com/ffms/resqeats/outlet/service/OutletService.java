@@ -1,6 +1,8 @@
 package com.ffms.resqeats.outlet.service;
 
 import com.ffms.resqeats.common.exception.BusinessException;
+import com.ffms.resqeats.drop.dto.ScheduleDropRequest;
+import com.ffms.resqeats.drop.service.WaitingRoomService;
 import com.ffms.resqeats.geo.service.GeoService;
 import com.ffms.resqeats.item.repository.OutletItemRepository;
 import com.ffms.resqeats.merchant.entity.Merchant;
@@ -70,6 +72,7 @@ public class OutletService {
     private final OutletItemRepository outletItemRepository;
     private final GeoService geoService;
     private final WebSocketService webSocketService;
+    private final WaitingRoomService waitingRoomService;
 
     // =====================
     // Admin Commands
@@ -607,6 +610,8 @@ public class OutletService {
                 .collect(Collectors.toList());
 
         outletHoursRepository.saveAll(newHours);
+        // Plan the daily stock reset again from the new opening times
+        outletRepository.unplanStockReset(outletId);
     }
 
     /**
@@ -726,6 +731,46 @@ public class OutletService {
         return toDtoMerchantDetail(outlet);
     }
 
+    /**
+     * Schedules a drop: the outlet's items are released at the given instant behind a waiting room.
+     *
+     * @param outletId the unique identifier of the outlet
+     * @param request the release instant and optional admission limits
+     * @return the scheduled drop with every limit resolved
+     * @throws BusinessException with code OUTLET_004 if outlet is not found
+     * @throws BusinessException with code AUTH_003 if user is not authorized
+     * @throws BusinessException with code OUTLET_003 if the outlet is not active
+     */
+    public ScheduleDropRequest scheduleDrop(Long outletId, ScheduleDropRequest request) {
+        var context = SecurityContextHolder.getContext();
+        log.info("Scheduling drop for outlet: {} by user: {}", outletId, context.getUserId());
+
+        Outlet outlet = getOutletOrThrow(outletId);
+        validateOutletAccess(outlet);
+
+        if (outlet.getStatus() != OutletStatus.ACTIVE) {
+            throw new BusinessException("OUTLET_003", "Only active outlets can schedule a drop");
+        }
+
+        return waitingRoomService.scheduleDrop(outletId, request);
+    }
+
+    /**
+     * Cancels an outlet's drop; its items become available to everyone.
+     *
+     * @param outletId the unique identifier of the outlet
+     * @throws BusinessException with code OUTLET_004 if outlet is not found
+     * @throws BusinessException with code AUTH_003 if user is not authorized
+     */
+    public void cancelDrop(Long outletId) {
+        var context = SecurityContextHolder.getContext();
+        log.info("Cancelling drop for outlet: {} by user: {}", outletId, context.getUserId());
+
+        Outlet outlet = getOutletOrThrow(outletId);
+        validateOutletAccess(outlet);
+        waitingRoomService.cancelDrop(outletId);
+    }
+
     /**
      * Checks if an outlet is currently open based on its operating hours.
      *
@@ -10,10 +10,12 @@ import com.ffms.resqeats.payment.repository.PaymentRepository;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDateTime;
 import java.util.List;
+import java.util.Optional;
 import java.util.UUID;
 
 /**
@@ -227,6 +229,43 @@ public class PaymentService {
         }
     }
 
+    /**
+     * Voids an order's pre-authorization in a transaction of its own, for orders whose
+     * status change has already committed (e.g. orders expired together).
+     *
+     * <p>Per BR-005, like {@link #voidPreAuthorization(Long)}. The gateway void cannot be
+     * rolled back, so the VOIDED state is committed right after it, independently of the
+     * caller; a retry finds the payment no longer voidable and skips it. Orders without a
+     * voidable payment are skipped as well.</p>
+     *
+     * @param orderId the ID of the order whose payment should be voided
+     * @return the voided payment, or empty if there was nothing to void
+     * @throws BusinessException with code PAY_002 when the void operation fails
+     */
+    @Transactional(propagation = Propagation.REQUIRES_NEW)
+    public Optional<Payment> voidPreAuthorizationIfAuthorized(Long orderId) {
+        Payment payment = paymentRepository.findByOrderId(orderId).orElse(null);
+        if (payment == null || !payment.canBeVoided()) {
+            log.debug("No pre-authorization to void for order: {}, currentStatus={}",
+                    orderId, payment != null ? payment.getStatus() : null);
+            return Optional.empty();
+        }
+
+        try {
+            log.debug("Calling IPG for void: paymentId={}", payment.getId());
+            simulateVoid(payment);
+        } catch (Exception e) {
+            log.error("Payment void failed for order: {}, paymentId={}, error: {}",
+                    orderId, payment.getId(), e.getMessage(), e);
+            throw new BusinessException("PAY_002", "Payment void failed: " + e.getMessage());
+        }
+        payment.setStatus(PaymentStatus.VOIDED);
+        payment.setVoidedAt(LocalDateTime.now());
+
+        log.info("Payment voided successfully: paymentId={}, orderId={}", payment.getId(), orderId);
+        return Optional.of(paymentRepository.save(payment));
+    }
+
     /**
      * Processes a refund for a previously captured payment.
      *
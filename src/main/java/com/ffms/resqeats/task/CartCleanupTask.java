@@ -1,34 +1,72 @@
 package com.ffms.resqeats.task;
 
+import com.ffms.resqeats.inventory.service.InventoryService;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import net.javacrumbs.shedlock.spring.annotation.SchedulerLock;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Component;
 
 /**
  * Task to manage cart cleanup.
  * Per SRS Section 6.7: Cart is soft-state stored in Redis with TTL.
- * Redis handles expiry automatically via TTL.
- * This task handles any additional cleanup operations.
+ * Redis handles cart expiry automatically via TTL; stock held by expired
+ * carts is returned to the pool by this task.
  */
 @Component
 @RequiredArgsConstructor
 @Slf4j
 public class CartCleanupTask {
 
+    /**
+     * Upper bound on holds reclaimed per run so one sweep cannot monopolise Redis.
+     */
+    private static final int MAX_BATCHES_PER_RUN = 20;
+
+    private final InventoryService inventoryService;
+
+    @Value("${resqeats.inventory.holds.sweep-batch-size:500}")
+    private int sweepBatchSize;
+
+    /**
+     * Periodic task to reclaim cart reservations whose deadline has passed.
+     * Per SRS BR-008: Reserved stock expires after cart timeout (10 minutes).
+     * Walks the hold deadline ledger in batches; each batch is atomic and idempotent.
+     * Runs every 30 seconds by default.
+     */
+    @Scheduled(fixedDelayString = "${resqeats.inventory.holds.sweep-interval-ms:30000}")
+    @SchedulerLock(name = "reclaimExpiredReservations", lockAtMostFor = "PT2M")
+    public void reclaimExpiredReservations() {
+        try {
+            int reclaimed = 0;
+            for (int batch = 0; batch < MAX_BATCHES_PER_RUN; batch++) {
+                int holds = inventoryService.reclaimExpiredHolds(sweepBatchSize);
+                reclaimed += holds;
+                if (holds < sweepBatchSize) {
+                    break;
+                }
+            }
+            if (reclaimed > 0) {
+                log.info("Cart reservation sweep reclaimed {} expired holds", reclaimed);
+            }
+        } catch (Exception e) {
+            log.error("Error in cart reservation sweep: {}", e.getMessage());
+        }
+    }
+
     /**
      * Periodic task to release any orphaned inventory reservations.
-     * Per SRS BR-010: Cart items do NOT lock inventory.
-     * Reservations are only made during order submission validation.
-     * This task cleans up any stale reservation keys in Redis.
+     * Resets reserved counters to the sum of live holds so stale
+     * reservations cannot make stock look sold out.
      * Runs every 10 minutes.
      */
     @Scheduled(fixedRate = 600000) // 10 minutes
+    @SchedulerLock(name = "cleanupOrphanedReservations", lockAtMostFor = "PT5M")
     public void cleanupOrphanedReservations() {
         try {
-            // Cart expiry is handled by Redis TTL (10 minutes per SRS)
-            // This task just logs for monitoring
-            log.debug("Cart cleanup task running - Redis TTL handles cart expiry");
+            long corrected = inventoryService.reconcileReservedCounters();
+            log.debug("Cart cleanup task completed - phantom reserved units corrected: {}", corrected);
         } catch (Exception e) {
             log.error("Error in cart cleanup task: {}", e.getMessage());
         }
@@ -0,0 +1,80 @@
+package com.ffms.resqeats.task;
+
+import com.ffms.resqeats.inventory.service.DailyStockResetService;
+import com.ffms.resqeats.inventory.service.InventoryService;
+import com.ffms.resqeats.inventory.service.InventoryWriteBehindService;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+/**
+ * Task to reset outlet stock to the daily quantities at each outlet's opening time.
+ * Each batch is committed in the database first, then the Redis counters of its items
+ * are rebuilt in one pipelined round trip; items whose Redis step failed are retried on the
+ * next run. Resets wait while a write-behind batch is in flight, so deltas from before the
+ * reset are never written on top of the new quantities.
+ * Not guarded by ShedLock: every node sweeps, and the per-outlet claims in
+ * {@link DailyStockResetService} split due outlets between them.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class DailyStockResetTask {
+
+    private final DailyStockResetService dailyStockResetService;
+    private final InventoryService inventoryService;
+    private final InventoryWriteBehindService writeBehindService;
+
+    @Value("${resqeats.inventory.daily-reset.batch-size:50}")
+    private int batchSize;
+
+    @Value("${resqeats.inventory.daily-reset.max-batches-per-run:20}")
+    private int maxBatchesPerRun;
+
+    /**
+     * Periodic task to plan new outlets and reset the outlets whose opening time has passed.
+     * Runs every minute by default.
+     */
+    @Scheduled(fixedDelayString = "${resqeats.inventory.daily-reset.interval-ms:60000}")
+    public void resetDailyStock() {
+        try {
+            inventoryService.retryFailedDailyResets();
+            dailyStockResetService.planUnplannedResets(batchSize * maxBatchesPerRun);
+            if (deltaBatchInFlight()) {
+                log.info("Daily stock reset deferred: inventory delta batch still in flight");
+                return;
+            }
+
+            int items = 0;
+            for (int batch = 0; batch < maxBatchesPerRun; batch++) {
+                DailyStockResetService.ResetBatch reset = dailyStockResetService.resetDueBatch(batchSize);
+                inventoryService.resetDailyStock(reset.items());
+                items += reset.items().size();
+                if (reset.due() < batchSize) {
+                    break;
+                }
+            }
+            if (items > 0) {
+                log.info("Daily stock reset task reset {} items", items);
+            }
+        } catch (Exception e) {
+            log.error("Error in daily stock reset task: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Writes out any in-flight delta batch before resets are claimed.
+     *
+     * @return {@code true} if a batch is still in flight, e.g. because another node is writing it
+     */
+    private boolean deltaBatchInFlight() {
+        try {
+            writeBehindService.flushDeltas();
+        } catch (RuntimeException e) {
+            log.warn("Could not flush inventory deltas before daily reset: {}", e.getMessage());
+        }
+        return writeBehindService.isBatchInFlight();
+    }
+}
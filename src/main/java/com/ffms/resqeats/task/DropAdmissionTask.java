@@ -0,0 +1,36 @@
+package com.ffms.resqeats.task;
+
+import com.ffms.resqeats.drop.service.WaitingRoomService;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+/**
+ * Task to admit users from the waiting rooms of scheduled drops.
+ * Not guarded by ShedLock: the admission rate is enforced in Redis, and every node
+ * has to tick to push queue progress to its own WebSocket subscribers.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class DropAdmissionTask {
+
+    private final WaitingRoomService waitingRoomService;
+
+    /**
+     * Periodic task to admit the next users of every running drop.
+     * Runs every second by default.
+     */
+    @Scheduled(fixedDelayString = "${resqeats.drop.tick-ms:1000}")
+    public void admitWaitingUsers() {
+        try {
+            int admitted = waitingRoomService.admitNext();
+            if (admitted > 0) {
+                log.debug("Drop admission task admitted {} users", admitted);
+            }
+        } catch (Exception e) {
+            log.error("Error in drop admission task: {}", e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,80 @@
+package com.ffms.resqeats.task;
+
+import com.ffms.resqeats.order.repository.OrderRepository;
+import com.ffms.resqeats.order.repository.OrderRepository.OrderDeadline;
+import com.ffms.resqeats.order.service.OrderService;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import net.javacrumbs.shedlock.spring.annotation.SchedulerLock;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Scheduled task that completes picked-up orders once the completion delay has passed.
+ * Orders are paged with a (pickedUpAt, id) cursor and completed one batch per transaction
+ * with a single status UPDATE, so the cost grows with the number of batches rather than
+ * one transaction per order. Guarded by ShedLock so only one instance completes orders.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class OrderCompletionTask {
+
+    private static final LocalDateTime KEYSET_START = LocalDateTime.of(1970, 1, 1, 0, 0);
+
+    private final OrderRepository orderRepository;
+    private final OrderService orderService;
+    private final MeterRegistry meterRegistry;
+
+    @Value("${resqeats.order.completion-delay-minutes:5}")
+    private int completionDelayMinutes = 5;
+
+    @Value("${resqeats.order.completion.batch-size:500}")
+    private int batchSize = 500;
+
+    /**
+     * Task to complete orders picked up more than the completion delay ago.
+     * Transition: PICKED_UP → COMPLETED
+     * Runs every minute by default.
+     */
+    @Scheduled(fixedRateString = "${resqeats.order.completion.interval-ms:60000}")
+    @SchedulerLock(name = "completePickedUpOrders", lockAtMostFor = "PT50S", lockAtLeastFor = "PT10S")
+    public void completePickedUpOrders() {
+        LocalDateTime cutoff = LocalDateTime.now().minusMinutes(completionDelayMinutes);
+        Pageable batch = PageRequest.of(0, batchSize);
+        LocalDateTime afterPickedUpAt = KEYSET_START;
+        long afterId = 0;
+        int found = 0;
+        int completed = 0;
+
+        List<OrderDeadline> page;
+        do {
+            page = orderRepository.findPickedUpOrdersReadyForCompletion(cutoff, afterPickedUpAt, afterId, batch);
+            if (page.isEmpty()) {
+                break;
+            }
+            OrderDeadline last = page.get(page.size() - 1);
+            afterPickedUpAt = last.getDeadline();
+            afterId = last.getId();
+            found += page.size();
+
+            try {
+                completed += orderService.completeOrders(page.stream().map(OrderDeadline::getId).toList()).size();
+            } catch (Exception e) {
+                log.error("Failed to complete batch of {} orders: {}", page.size(), e.getMessage());
+            }
+        } while (page.size() == batchSize);
+
+        if (found > 0) {
+            meterRegistry.counter("resqeats.order.completion.completed").increment(completed);
+            log.info("Completed {} of {} picked-up orders", completed, found);
+        }
+    }
+}
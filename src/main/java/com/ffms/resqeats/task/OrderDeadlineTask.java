@@ -0,0 +1,91 @@
+package com.ffms.resqeats.task;
+
+import com.ffms.resqeats.order.service.OrderDeadlineScheduler;
+import com.ffms.resqeats.order.service.OrderService;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.concurrent.Executor;
+
+/**
+ * Task to expire orders as their acceptance deadline or pickup window passes.
+ * Not guarded by @SchedulerLock: every node ticks, and {@link OrderDeadlineScheduler} keeps
+ * its own lease so only the node holding it fires deadlines.
+ *
+ * The tick only advances the wheel and renews the lease; the due orders are expired on the
+ * orderDeadlineExecutor pool, so a burst of deadlines cannot delay the next tick or let the
+ * lease lapse. A deadline is completed once its expiry has run; one that fails or cannot be
+ * queued is retried a few seconds later.
+ */
+@Component
+@Slf4j
+public class OrderDeadlineTask {
+
+    private final OrderDeadlineScheduler orderDeadlineScheduler;
+    private final OrderService orderService;
+    private final Executor orderDeadlineExecutor;
+    private final MeterRegistry meterRegistry;
+
+    public OrderDeadlineTask(OrderDeadlineScheduler orderDeadlineScheduler, OrderService orderService,
+                             @Qualifier("orderDeadlineExecutor") Executor orderDeadlineExecutor,
+                             MeterRegistry meterRegistry) {
+        this.orderDeadlineScheduler = orderDeadlineScheduler;
+        this.orderService = orderService;
+        this.orderDeadlineExecutor = orderDeadlineExecutor;
+        this.meterRegistry = meterRegistry;
+    }
+
+    /**
+     * Periodic task to hand the orders whose deadline fell due since the last tick to the
+     * expiry workers. Runs every second by default.
+     */
+    @Scheduled(fixedDelayString = "${resqeats.order.deadlines.tick-ms:1000}")
+    public void fireDeadlines() {
+        List<String> due;
+        try {
+            due = orderDeadlineScheduler.tick();
+        } catch (Exception e) {
+            log.error("Error in order deadline task: {}", e.getMessage());
+            return;
+        }
+        if (due.isEmpty()) {
+            return;
+        }
+
+        int rejected = 0;
+        for (String member : due) {
+            try {
+                orderDeadlineExecutor.execute(() -> expire(member));
+            } catch (TaskRejectedException e) {
+                rejected++;
+                orderDeadlineScheduler.retry(member);
+            }
+        }
+
+        meterRegistry.counter("resqeats.order.deadlines.fired").increment(due.size());
+        if (rejected > 0) {
+            meterRegistry.counter("resqeats.order.deadlines.rejected").increment(rejected);
+            log.warn("Order deadline workers saturated, retrying {} of {} due orders later",
+                    rejected, due.size());
+        }
+        log.debug("Order deadline task fired {} deadlines", due.size());
+    }
+
+    private void expire(String member) {
+        Long orderId = OrderDeadlineScheduler.orderId(member);
+        try {
+            if (orderService.expireOverdueOrder(orderId)) {
+                meterRegistry.counter("resqeats.order.deadlines.expired").increment();
+            }
+            orderDeadlineScheduler.complete(member);
+        } catch (Exception e) {
+            log.error("Failed to expire order {}, retrying later: {}", orderId, e.getMessage());
+            orderDeadlineScheduler.retry(member);
+        }
+    }
+}
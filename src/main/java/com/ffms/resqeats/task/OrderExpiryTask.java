@@ -1,119 +1,200 @@
 package com.ffms.resqeats.task;
 
-import com.ffms.resqeats.order.enums.OrderStatus;
 import com.ffms.resqeats.order.entity.Order;
 import com.ffms.resqeats.order.repository.OrderRepository;
-import com.ffms.resqeats.notification.service.NotificationService;
-import com.ffms.resqeats.payment.service.PaymentService;
-import lombok.RequiredArgsConstructor;
+import com.ffms.resqeats.order.repository.OrderRepository.OrderDeadline;
+import com.ffms.resqeats.order.service.OrderService;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 import lombok.extern.slf4j.Slf4j;
 import net.javacrumbs.shedlock.spring.annotation.SchedulerLock;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Component;
-import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDateTime;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
 
 /**
  * Scheduled task for order expiration handling.
- * 
+ *
  * MEDIUM FIX (Issue #10): Added ShedLock annotations to prevent duplicate
  * execution in multi-instance deployments.
+ *
+ * Deadlines are fired within about a second by {@link OrderDeadlineTask}; these sweeps are
+ * the low-frequency safety net for deadlines it missed (failed registration, Redis outage).
+ * Overdue orders are paged with a keyset cursor and expired in chunks, one transaction per
+ * chunk, on the bounded orderExpiryExecutor pool, so a backlog after an outage never turns
+ * into one long transaction. A chunk that fails is retried order by order. Pre-authorizations
+ * are voided only after an expiry commits; voids that failed are retried by the pending sweep.
  */
 @Component
-@RequiredArgsConstructor
 @Slf4j
 public class OrderExpiryTask {
 
-    private final OrderRepository orderRepository;
-    private final PaymentService paymentService;
-    private final NotificationService notificationService;
-
-    @Value("${app.order.outlet-response-timeout-minutes:5}")
-    private int outletResponseTimeoutMinutes;
+    private static final LocalDateTime KEYSET_START = LocalDateTime.of(1970, 1, 1, 0, 0);
 
-    @Value("${app.order.pickup-window-minutes:60}")
-    private int pickupWindowMinutes;
+    private final OrderRepository orderRepository;
+    private final OrderService orderService;
+    private final Executor orderExpiryExecutor;
+    private final MeterRegistry meterRegistry;
+
+    @Value("${resqeats.order.deadlines.sweep-chunk-size:200}")
+    private int chunkSize = 200;
+
+    public OrderExpiryTask(OrderRepository orderRepository, OrderService orderService,
+                           @Qualifier("orderExpiryExecutor") Executor orderExpiryExecutor,
+                           MeterRegistry meterRegistry) {
+        this.orderRepository = orderRepository;
+        this.orderService = orderService;
+        this.orderExpiryExecutor = orderExpiryExecutor;
+        this.meterRegistry = meterRegistry;
+    }
 
     /**
      * Task to expire orders that outlets haven't responded to within the timeout period.
      * Per SRS BR-003: Outlets must respond within 5 minutes or order auto-cancels.
      * Per SRS BR-005: Pre-authorization is voided if outlet times out.
-     * Runs every minute.
-     * 
+     * Stock the order holds since checkout is released once the expiry commits; the holds
+     * share the order's acceptance deadline, so they never outlive it.
+     * Runs every 5 minutes by default.
+     *
      * MEDIUM FIX: Added ShedLock to prevent duplicate execution across instances.
      */
-    @Scheduled(fixedRate = 60000) // 1 minute
-    @SchedulerLock(name = "expirePendingOrders", lockAtMostFor = "PT50S", lockAtLeastFor = "PT10S")
-    @Transactional
+    @Scheduled(fixedRateString = "${resqeats.order.deadlines.sweep-interval-ms:300000}")
+    @SchedulerLock(name = "expirePendingOrders", lockAtMostFor = "PT4M", lockAtLeastFor = "PT30S")
     public void expirePendingOrders() {
-        LocalDateTime expiryTime = LocalDateTime.now();
-        List<Order> expiredOrders = orderRepository.findExpiredPendingOrders(expiryTime);
+        int expired = sweep("pending", orderRepository::findExpiredPendingOrders, orderService::expirePendingOrders);
 
-        for (Order order : expiredOrders) {
-            try {
-                log.info("Expiring pending order {} - outlet didn't respond in time", order.getOrderNumber());
-                
-                // Void the payment pre-authorization (BR-005)
-                paymentService.voidPreAuthorization(order.getId());
-                
-                // Per SRS BR-002: Inventory is reserved only after payment capture
-                // For PENDING_OUTLET_ACCEPTANCE orders, inventory was NOT reserved
-                
-                // Update order status
-                order.setStatus(OrderStatus.EXPIRED);
-                order.setExpiredAt(LocalDateTime.now());
-                orderRepository.save(order);
-
-                // Notify user
-                notificationService.notifyOrderExpired(order);
-
-                log.info("Order {} expired successfully", order.getOrderNumber());
-            } catch (Exception e) {
-                log.error("Failed to expire order {}: {}", order.getOrderNumber(), e.getMessage());
-            }
+        if (expired > 0) {
+            log.warn("Safety-net sweep expired {} pending orders missed by the deadline scheduler", expired);
         }
+        retryFailedVoids();
+    }
 
-        if (!expiredOrders.isEmpty()) {
-            log.info("Expired {} pending orders", expiredOrders.size());
+    /**
+     * Voids the pre-authorizations still held by expired orders. Voids run after the expiry
+     * commits, so one that failed leaves its order expired with the payment authorized.
+     */
+    private void retryFailedVoids() {
+        Pageable chunk = PageRequest.of(0, chunkSize);
+        long afterId = 0;
+        int voided = 0;
+
+        List<Long> orderIds;
+        do {
+            orderIds = orderRepository.findExpiredOrdersWithAuthorizedPayment(afterId, chunk);
+            if (orderIds.isEmpty()) {
+                break;
+            }
+            afterId = orderIds.get(orderIds.size() - 1);
+            voided += orderService.voidPreAuthorizations(orderIds);
+        } while (orderIds.size() == chunkSize);
+
+        if (voided > 0) {
+            meterRegistry.counter("resqeats.order.expiry.voids.retried").increment(voided);
+            log.warn("Voided {} pre-authorizations left behind by failed voids of expired orders", voided);
         }
     }
 
     /**
      * Task to mark orders as expired if not picked up within the pickup window.
      * Per SRS: No refunds after pickup window closes.
-     * Runs every 5 minutes.
-     * 
+     * Runs every 5 minutes by default.
+     *
      * MEDIUM FIX: Added ShedLock to prevent duplicate execution across instances.
      */
-    @Scheduled(fixedRate = 300000) // 5 minutes
+    @Scheduled(fixedRateString = "${resqeats.order.deadlines.sweep-interval-ms:300000}")
     @SchedulerLock(name = "expireUnpickedOrders", lockAtMostFor = "PT4M", lockAtLeastFor = "PT30S")
-    @Transactional
     public void expireUnpickedOrders() {
-        LocalDateTime now = LocalDateTime.now();
-        List<Order> unpickedOrders = orderRepository.findExpiredPickupOrders(now);
+        int expired = sweep("unpicked", orderRepository::findExpiredPickupOrders, orderService::expireUnpickedOrders);
 
-        for (Order order : unpickedOrders) {
-            try {
-                log.info("Expiring unpicked order {} - pickup window exceeded", order.getOrderNumber());
+        if (expired > 0) {
+            log.warn("Safety-net sweep marked {} orders as not picked up missed by the deadline scheduler", expired);
+        }
+    }
 
-                // Payment was already captured, no refund is processed
-                order.setStatus(OrderStatus.EXPIRED);
-                order.setExpiredAt(LocalDateTime.now());
-                orderRepository.save(order);
+    /**
+     * Pages through the overdue orders and hands each chunk to the worker pool.
+     *
+     * @return the number of orders expired
+     */
+    private int sweep(String kind, OverdueQuery query, Function<List<Long>, List<Order>> expireAll) {
+        Timer.Sample sample = Timer.start(meterRegistry);
+        LocalDateTime now = LocalDateTime.now();
+        Pageable chunk = PageRequest.of(0, chunkSize);
+        LocalDateTime afterDeadline = KEYSET_START;
+        long afterId = 0;
+        int found = 0;
+        AtomicInteger expired = new AtomicInteger();
+        List<CompletableFuture<Void>> chunks = new ArrayList<>();
+
+        List<OrderDeadline> page;
+        do {
+            page = query.next(now, afterDeadline, afterId, chunk);
+            if (page.isEmpty()) {
+                break;
+            }
+            OrderDeadline last = page.get(page.size() - 1);
+            afterDeadline = last.getDeadline();
+            afterId = last.getId();
+            found += page.size();
+
+            List<Long> orderIds = page.stream().map(OrderDeadline::getId).toList();
+            chunks.add(CompletableFuture.runAsync(
+                    () -> expired.addAndGet(expireChunk(kind, orderIds, expireAll)), orderExpiryExecutor));
+        } while (page.size() == chunkSize);
+        CompletableFuture.allOf(chunks.toArray(CompletableFuture[]::new)).join();
+
+        long durationNanos = sample.stop(meterRegistry.timer("resqeats.order.expiry.sweep.duration", "kind", kind));
+        meterRegistry.summary("resqeats.order.expiry.backlog", "kind", kind).record(found);
+        meterRegistry.counter("resqeats.order.expiry.expired", "kind", kind).increment(expired.get());
+        if (found > 0) {
+            log.info("Order expiry sweep finished - kind: {}, overdue: {}, expired: {}, chunks: {}, duration: {}ms",
+                    kind, found, expired.get(), chunks.size(), durationNanos / 1_000_000);
+        }
+        return expired.get();
+    }
 
-                notificationService.notifyOrderExpired(order);
+    /**
+     * Expires one chunk in its own transaction, falling back to one transaction per order
+     * so a single failing order (e.g. a declined void) does not hold back the rest.
+     */
+    private int expireChunk(String kind, List<Long> orderIds, Function<List<Long>, List<Order>> expireAll) {
+        try {
+            return expireAll.apply(orderIds).size();
+        } catch (Exception e) {
+            log.warn("Order expiry chunk failed, retrying order by order - kind: {}, orders: {}, error: {}",
+                    kind, orderIds.size(), e.getMessage());
+            meterRegistry.counter("resqeats.order.expiry.chunk.fallbacks", "kind", kind).increment();
+        }
 
-                log.info("Order {} marked as not picked up", order.getOrderNumber());
+        int expired = 0;
+        for (Long orderId : orderIds) {
+            try {
+                if (orderService.expireOverdueOrder(orderId)) {
+                    expired++;
+                }
             } catch (Exception e) {
-                log.error("Failed to mark order {} as not picked up: {}", order.getOrderNumber(), e.getMessage());
+                log.error("Failed to expire order {}: {}", orderId, e.getMessage());
             }
         }
+        return expired;
+    }
 
-        if (!unpickedOrders.isEmpty()) {
-            log.info("Marked {} orders as not picked up", unpickedOrders.size());
-        }
+    /**
+     * Keyset query for the next chunk of overdue orders after a (deadline, id) cursor.
+     */
+    @FunctionalInterface
+    private interface OverdueQuery {
+        List<OrderDeadline> next(LocalDateTime now, LocalDateTime afterDeadline, Long afterId, Pageable chunk);
     }
 }
@@ -7,6 +7,7 @@ import org.springframework.messaging.simp.SimpMessagingTemplate;
 import org.springframework.scheduling.annotation.Async;
 import org.springframework.stereotype.Service;
 
+import java.util.List;
 import java.util.Map;
 
 /**
@@ -21,6 +22,7 @@ import java.util.Map;
  *   <li>/topic/orders/{outletId} - New orders for outlet (outlet staff subscription)</li>
  *   <li>/topic/order/{orderId} - Order status updates (customer subscription)</li>
  *   <li>/topic/inventory/{outletId} - Inventory updates (real-time stock)</li>
+ *   <li>/topic/drop/{outletId} - Waiting room progress of a scheduled drop</li>
  *   <li>/user/{userId}/queue/notifications - Personal notifications</li>
  * </ul>
  *
@@ -48,6 +50,26 @@ public class WebSocketService {
      */
     @Async
     public void broadcastOrderUpdate(Order order) {
+        sendOrderUpdate(order);
+    }
+
+    /**
+     * Broadcasts the updates of a batch of orders, e.g. orders expired or completed together.
+     *
+     * <p>Clients receive the same messages as from {@link #broadcastOrderUpdate(Order)}; the
+     * batch is sent from one asynchronous task instead of one task per order.</p>
+     *
+     * @param orders the updated orders
+     */
+    @Async
+    public void broadcastOrderUpdates(List<Order> orders) {
+        log.info("Broadcasting order updates for {} orders", orders.size());
+        for (Order order : orders) {
+            sendOrderUpdate(order);
+        }
+    }
+
+    private void sendOrderUpdate(Order order) {
         log.info("Broadcasting order update for order: {}, status: {}", 
                 order.getOrderNumber(), order.getStatus());
         log.debug("Order update details - orderId: {}, userId: {}, outletId: {}", 
@@ -229,6 +251,29 @@ public class WebSocketService {
         log.debug("Order countdown broadcast completed for order: {}", order.getOrderNumber());
     }
 
+    /**
+     * Broadcasts the progress of a drop's waiting room.
+     *
+     * <p>Queued users compare their ticket with {@code admittedThrough} to show their position
+     * and to learn that they have been admitted. Sent to this node's subscribers only; every
+     * node broadcasts on its own admission tick.</p>
+     *
+     * @param outletId the outlet running the drop
+     * @param admittedThrough the highest ticket admitted so far
+     * @param queueLength the number of users still waiting
+     */
+    public void broadcastDropQueue(Long outletId, long admittedThrough, long queueLength) {
+        log.debug("Broadcasting drop queue for outlet: {}, admittedThrough: {}, waiting: {}",
+                outletId, admittedThrough, queueLength);
+
+        sendToTopic("drop/" + outletId, Map.of(
+                "type", "DROP_QUEUE",
+                "outletId", outletId.toString(),
+                "admittedThrough", admittedThrough,
+                "queueLength", queueLength
+        ));
+    }
+
     /**
      * Sends a message to a specific WebSocket topic.
      *
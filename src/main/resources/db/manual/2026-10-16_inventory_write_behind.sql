@@ -0,0 +1,20 @@
+-- Manual migration for inventory write-behind persistence
+--
+-- Applies the following changes:
+-- - inventory_delta_batches: NEW table recording applied write-behind batches,
+--   so a batch replayed after a crash is not applied twice
+--
+-- NOTE: The app uses spring.jpa.hibernate.ddl-auto=validate, so schema must be updated before startup.
+
+CREATE TABLE IF NOT EXISTS inventory_delta_batches (
+    id          BIGINT       NOT NULL AUTO_INCREMENT,
+    batch_id    VARCHAR(36)  NOT NULL,
+    item_count  INT          NOT NULL,
+    created_at  DATETIME(6)  NOT NULL,
+    updated_at  DATETIME(6)  NOT NULL,
+    created_by  VARCHAR(100) NULL,
+    updated_by  VARCHAR(100) NULL,
+    PRIMARY KEY (id),
+    UNIQUE KEY idx_inventory_delta_batch_id (batch_id),
+    KEY idx_inventory_delta_batch_created (created_at)
+);
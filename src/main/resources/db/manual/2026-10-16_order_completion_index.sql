@@ -0,0 +1,8 @@
+-- Manual migration for bulk order auto-completion
+--
+-- Applies the following changes:
+-- - idx_order_status_picked_up_at: NEW index used to page through picked-up orders due for completion
+--
+-- NOTE: The app uses spring.jpa.hibernate.ddl-auto=validate, so schema must be updated before startup.
+
+CREATE INDEX idx_order_status_picked_up_at ON orders (status, picked_up_at);
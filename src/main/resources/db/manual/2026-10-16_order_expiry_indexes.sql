@@ -0,0 +1,12 @@
+-- Manual migration for chunked order expiry
+--
+-- Applies the following changes:
+-- - idx_order_status_acceptance_deadline: NEW index used to page through orders past their
+--   acceptance deadline
+-- - idx_order_status_pickup_by: NEW index used to page through orders past their pickup window
+--
+-- NOTE: The app uses spring.jpa.hibernate.ddl-auto=validate, so schema must be updated before startup.
+
+CREATE INDEX idx_order_status_acceptance_deadline ON orders (status, acceptance_deadline);
+
+CREATE INDEX idx_order_status_pickup_by ON orders (status, pickup_by);
@@ -0,0 +1,15 @@
+-- Manual migration for the timezone-aware daily stock reset
+--
+-- Applies the following changes:
+-- - outlets.timezone: NEW nullable column, IANA zone of the outlet (server zone when NULL)
+-- - outlets.next_stock_reset_at: NEW nullable column, next reset to the daily quantities in
+--   server time; NULL outlets are planned by the reset task on its next run
+-- - idx_outlet_next_stock_reset: NEW index used to find due resets
+--
+-- NOTE: The app uses spring.jpa.hibernate.ddl-auto=validate, so schema must be updated before startup.
+
+ALTER TABLE outlets
+    ADD COLUMN timezone VARCHAR(40) NULL,
+    ADD COLUMN next_stock_reset_at DATETIME(6) NULL;
+
+CREATE INDEX idx_outlet_next_stock_reset ON outlets (next_stock_reset_at);
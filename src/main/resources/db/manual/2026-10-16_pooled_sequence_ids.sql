@@ -0,0 +1,21 @@
+-- Manual migration for pooled sequence keys on orders, order items and notifications
+--
+-- Applies the following changes:
+-- - orders_seq, order_items_seq, notifications_seq: NEW single-row tables emulating the id
+--   sequences on MySQL (Hibernate's table structure for dialects without sequences)
+-- - next_val holds the first id of the next block of 50 (pooled-lo optimizer), seeded above
+--   the current maximum id so new rows never collide with existing ones
+-- - the id columns keep AUTO_INCREMENT; rows inserted by the app carry their own ids
+--
+-- NOTE: The app uses spring.jpa.hibernate.ddl-auto=validate, so schema must be updated before startup.
+-- Stop all app nodes before running it: a node still on IDENTITY keys could take an id the
+-- sequence hands out later.
+
+CREATE TABLE orders_seq (next_val BIGINT) ENGINE=InnoDB;
+INSERT INTO orders_seq (next_val) SELECT COALESCE(MAX(id), 0) + 1 FROM orders;
+
+CREATE TABLE order_items_seq (next_val BIGINT) ENGINE=InnoDB;
+INSERT INTO order_items_seq (next_val) SELECT COALESCE(MAX(id), 0) + 1 FROM order_items;
+
+CREATE TABLE notifications_seq (next_val BIGINT) ENGINE=InnoDB;
+INSERT INTO notifications_seq (next_val) SELECT COALESCE(MAX(id), 0) + 1 FROM notifications;
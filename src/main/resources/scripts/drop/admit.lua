@@ -0,0 +1,52 @@
+-- Admits the next waiting users of a released drop, at most at the drop's admission rate.
+--
+-- Every node runs this on its own tick; the token bucket lives in the drop hash, so the
+-- combined admission rate stays at the configured rate however many nodes tick. Users are
+-- admitted in ticket order and no more than maxActive admissions are live at once.
+--
+-- KEYS[1] drop:{outletId}            drop definition and admission state
+-- KEYS[2] drop:queue:{outletId}      waiting users scored by ticket
+-- KEYS[3] drop:admitted:{outletId}   admitted users scored by admission deadline
+-- ARGV[1] current time in epoch millis
+--
+-- Returns {admitted, admittedThrough, queueLength, released}; released is 0 before the
+-- release instant and -1 when no drop exists.
+local now = tonumber(ARGV[1])
+local drop = redis.call('HMGET', KEYS[1], 'releaseAt', 'endsAt', 'rate', 'maxActive',
+    'admitMillis', 'credit', 'lastTick', 'head')
+if not drop[1] then
+    return {0, 0, 0, -1}
+end
+local head = tonumber(drop[8] or '0')
+if now < tonumber(drop[1]) or now >= tonumber(drop[2]) then
+    return {0, head, redis.call('ZCARD', KEYS[2]), 0}
+end
+
+local rate = tonumber(drop[3])
+local last = tonumber(drop[7] or drop[1])
+local credit = tonumber(drop[6] or '0') + math.max(now - last, 0) * rate / 1000
+-- No saving up: at most one second of admissions at a time
+credit = math.min(credit, rate)
+
+redis.call('ZREMRANGEBYSCORE', KEYS[3], '-inf', now)
+local slots = tonumber(drop[4]) - redis.call('ZCARD', KEYS[3])
+local n = math.min(math.floor(credit), slots)
+
+local admitted = 0
+if n > 0 then
+    local popped = redis.call('ZPOPMIN', KEYS[2], n)
+    local deadline = now + tonumber(drop[5])
+    for i = 1, #popped, 2 do
+        redis.call('ZADD', KEYS[3], deadline, popped[i])
+        head = math.max(head, tonumber(popped[i + 1]))
+        admitted = admitted + 1
+    end
+    credit = credit - admitted
+    if admitted > 0 then
+        redis.call('PEXPIREAT', KEYS[3], tonumber(drop[2]) + tonumber(drop[5]))
+    end
+end
+
+-- Store credit as a string so fractions survive the Lua-to-Redis conversion
+redis.call('HSET', KEYS[1], 'credit', tostring(credit), 'lastTick', now, 'head', head)
+return {admitted, head, redis.call('ZCARD', KEYS[2]), 1}
@@ -0,0 +1,22 @@
+-- Checks whether a user may reserve stock of an outlet that may be running a drop.
+--
+-- KEYS[1] drop:{outletId}            drop definition and admission state
+-- KEYS[2] drop:admitted:{outletId}   admitted users scored by admission deadline
+-- ARGV[1] user id
+-- ARGV[2] current time in epoch millis
+--
+-- Returns 1 when the user may reserve (no drop running, or admitted), 0 before the drop's
+-- release instant and -1 when the user has not been admitted.
+local now = tonumber(ARGV[2])
+local drop = redis.call('HMGET', KEYS[1], 'releaseAt', 'endsAt')
+if not drop[1] or now >= tonumber(drop[2]) then
+    return 1
+end
+if now < tonumber(drop[1]) then
+    return 0
+end
+local admittedUntil = redis.call('ZSCORE', KEYS[2], ARGV[1])
+if admittedUntil and tonumber(admittedUntil) > now then
+    return 1
+end
+return -1
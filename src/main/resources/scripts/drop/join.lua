@@ -0,0 +1,42 @@
+-- Gives a user a place in a drop's waiting room (FIFO by ticket number).
+--
+-- Joining is idempotent: a user already queued keeps their ticket and a user still admitted
+-- is told so. A user whose admission lapsed joins again at the back.
+--
+-- KEYS[1] drop:{outletId}            drop definition and admission state
+-- KEYS[2] drop:queue:{outletId}      waiting users scored by ticket
+-- KEYS[3] drop:admitted:{outletId}   admitted users scored by admission deadline
+-- ARGV[1] user id
+-- ARGV[2] current time in epoch millis
+--
+-- Returns {status, ticket, admittedThrough, value}:
+--   { 1, ticket, head, queueLength }  queued
+--   { 2, 0, head, admittedUntil }     already admitted
+--   {-1, 0, 0, 0}                     no drop scheduled, or the drop has ended
+--   {-2, 0, head, queueLength}        the waiting room is full
+local now = tonumber(ARGV[2])
+local drop = redis.call('HMGET', KEYS[1], 'endsAt', 'maxQueue', 'head', 'admitMillis')
+if not drop[1] or now >= tonumber(drop[1]) then
+    return {-1, 0, 0, 0}
+end
+local head = tonumber(drop[3] or '0')
+
+local admittedUntil = redis.call('ZSCORE', KEYS[3], ARGV[1])
+if admittedUntil and tonumber(admittedUntil) > now then
+    return {2, 0, head, tonumber(admittedUntil)}
+end
+
+local ticket = redis.call('ZSCORE', KEYS[2], ARGV[1])
+local length = redis.call('ZCARD', KEYS[2])
+if ticket then
+    return {1, tonumber(ticket), head, length}
+end
+if length >= tonumber(drop[2]) then
+    return {-2, 0, head, length}
+end
+
+ticket = redis.call('HINCRBY', KEYS[1], 'seq', 1)
+redis.call('ZADD', KEYS[2], ticket, ARGV[1])
+-- The queue goes away with the drop
+redis.call('PEXPIREAT', KEYS[2], tonumber(drop[1]) + tonumber(drop[4]))
+return {1, ticket, head, length + 1}
@@ -0,0 +1,198 @@
+-- Shared helpers prepended to every inventory script.
+--
+-- A counter "slot" is a key plus a field. An empty field addresses a plain string key
+-- (per-item layout: inventory:{id}, inventory:reserved:{id}); a non-empty field addresses
+-- a field of the per-outlet hash (outlet-hash layout: inventory:outlet:{outletId}).
+--
+-- A field of the form '#{n}:{name}' addresses a sharded counter (hot items): field {name}
+-- summed over the shard hashes {key}:0 .. {key}:{n-1}. Every shard carries its own stock
+-- ('s') and reserved ('r') fields, so a reservation only touches the shard it draws from.
+
+local function shard_spec(field)
+    local n, name = string.match(field, '^#(%d+):(%a)$')
+    if n then
+        return tonumber(n), name
+    end
+    return nil, nil
+end
+
+-- Picks a shard from the server clock; scripts cannot use a seeded random generator.
+local function shard_pick(n)
+    local time = redis.call('TIME')
+    return tonumber(time[2]) % n
+end
+
+local function shard_sum(key, n, name)
+    local total = nil
+    for i = 0, n - 1 do
+        local value = redis.call('HGET', key .. ':' .. i, name)
+        if value then
+            total = (total or 0) + tonumber(value)
+        end
+    end
+    return total
+end
+
+-- Takes units from a sharded counter starting at a random shard and spilling over to the
+-- next ones. A stock shard gives up only its unreserved units; anything left over is taken
+-- from the first shard for stock and dropped for reserved (which never goes below zero).
+local function shard_take(key, n, name, units)
+    local start = shard_pick(n)
+    for i = 0, n - 1 do
+        if units <= 0 then
+            break
+        end
+        local shard = key .. ':' .. ((start + i) % n)
+        local floor = 0
+        if name == 's' then
+            floor = tonumber(redis.call('HGET', shard, 'r') or '0')
+        end
+        local take = math.min(units, tonumber(redis.call('HGET', shard, name) or '0') - floor)
+        if take > 0 then
+            redis.call('HINCRBY', shard, name, -take)
+            units = units - take
+        end
+    end
+    if units > 0 and name == 's' then
+        redis.call('HINCRBY', key .. ':' .. start, name, -units)
+    end
+end
+
+local function slot_get(key, field)
+    if field == '' then
+        return redis.call('GET', key)
+    end
+    local n, name = shard_spec(field)
+    if n then
+        return shard_sum(key, n, name)
+    end
+    return redis.call('HGET', key, field)
+end
+
+local function slot_incr(key, field, by)
+    if field == '' then
+        return redis.call('INCRBY', key, by)
+    end
+    local n, name = shard_spec(field)
+    if n then
+        if by >= 0 then
+            redis.call('HINCRBY', key .. ':' .. shard_pick(n), name, by)
+        else
+            shard_take(key, n, name, -by)
+        end
+        return shard_sum(key, n, name)
+    end
+    return redis.call('HINCRBY', key, field, by)
+end
+
+local function slot_set(key, field, value)
+    if field == '' then
+        return redis.call('SET', key, value)
+    end
+    local n, name = shard_spec(field)
+    if n then
+        value = tonumber(value)
+        local current = shard_sum(key, n, name)
+        if not current then
+            -- First load: spread evenly so reservations rarely need to rebalance
+            for i = 0, n - 1 do
+                local share = math.floor(value / n)
+                if i < value % n then
+                    share = share + 1
+                end
+                redis.call('HSET', key .. ':' .. i, name, share)
+            end
+        elseif value > current then
+            redis.call('HINCRBY', key .. ':' .. shard_pick(n), name, value - current)
+        elseif value < current then
+            shard_take(key, n, name, current - value)
+        end
+        return value
+    end
+    return redis.call('HSET', key, field, value)
+end
+
+local function slot_del(key, field)
+    if field == '' then
+        return redis.call('DEL', key)
+    end
+    local n = shard_spec(field)
+    if n then
+        for i = 0, n - 1 do
+            redis.call('DEL', key .. ':' .. i)
+        end
+        return n
+    end
+    return redis.call('HDEL', key, field)
+end
+
+-- Returns held units to a reserved counter without letting it go below zero.
+local function slot_release(key, field, units)
+    local reserved = tonumber(slot_get(key, field) or '0')
+    if reserved <= units then
+        slot_set(key, field, 0)
+    else
+        slot_incr(key, field, -units)
+    end
+end
+
+-- Reserves units against a stock/reserved slot pair.
+--
+-- Returns status, available: 1 and the units left after reserving, 0 and the units
+-- available when stock is insufficient, -1 when the stock counter is not loaded.
+-- A sharded pair draws from one random shard; only when that shard runs dry is unreserved
+-- stock moved over from its siblings, and the value returned on that fast path is the
+-- shard's own remainder rather than the item total.
+local function slot_reserve(stock_key, stock_field, reserved_key, reserved_field, qty)
+    local n = shard_spec(stock_field)
+    if not n then
+        local stock = slot_get(stock_key, stock_field)
+        if not stock then
+            return -1, 0
+        end
+        local available = tonumber(stock) - tonumber(slot_get(reserved_key, reserved_field) or '0')
+        if available < qty then
+            return 0, math.max(available, 0)
+        end
+        slot_incr(reserved_key, reserved_field, qty)
+        return 1, available - qty
+    end
+
+    local pick = shard_pick(n)
+    local target = stock_key .. ':' .. pick
+    local counters = redis.call('HMGET', target, 's', 'r')
+    if not counters[1] then
+        return -1, 0
+    end
+    local free = tonumber(counters[1]) - tonumber(counters[2] or '0')
+    if free >= qty then
+        redis.call('HINCRBY', target, 'r', qty)
+        return 1, free - qty
+    end
+
+    -- Rebalance: the item total decides, then siblings hand over unreserved stock
+    local frees = {}
+    local available = 0
+    for i = 0, n - 1 do
+        local shard = redis.call('HMGET', stock_key .. ':' .. i, 's', 'r')
+        frees[i] = tonumber(shard[1] or '0') - tonumber(shard[2] or '0')
+        available = available + frees[i]
+    end
+    if available < qty then
+        return 0, math.max(available, 0)
+    end
+    local needed = qty - free
+    for i = 0, n - 1 do
+        if needed <= 0 then
+            break
+        end
+        if i ~= pick and frees[i] > 0 then
+            local move = math.min(needed, frees[i])
+            redis.call('HINCRBY', stock_key .. ':' .. i, 's', -move)
+            redis.call('HINCRBY', target, 's', move)
+            needed = needed - move
+        end
+    end
+    redis.call('HINCRBY', target, 'r', qty)
+    return 1, available - qty
+end
@@ -0,0 +1,88 @@
+-- Atomically turns a cart's holds into holds of an order and removes the cart.
+--
+-- The cart must still hold exactly the checked-out lines, so a change that raced with
+-- checkout fails the whole step instead of ordering a stale basket. Each hold is moved to
+-- the order's holder id at the line quantity: units the cart held above it are released,
+-- units the expiry sweep reclaimed meanwhile are taken again. All lines succeed or none
+-- changes.
+--
+-- KEYS[1]    cart:{userId}                          cart hash (outletId, l:{id}, q:{id})
+-- KEYS[2]    inventory:holds:deadlines             hold expiry ledger
+-- KEYS[3i]   stock slot key of line i
+-- KEYS[3i+1] reserved slot key of line i
+-- KEYS[3i+2] inventory:holds:{outletItemId} of line i
+-- KEYS[3n+3] inventory:quota:{cartId}              reservation quota of the cart, dropped with it
+-- ARGV[1]    cart id
+-- ARGV[2]    holder id of the order (order:{orderId})
+-- ARGV[3]    order hold deadline (epoch millis)
+-- ARGV[4]    number of lines (n)
+-- ARGV[4i+1] stock slot field of line i
+-- ARGV[4i+2] reserved slot field of line i
+-- ARGV[4i+3] outlet item id of line i
+-- ARGV[4i+4] quantity of line i
+--
+-- (with i counted from 0 for ARGV and from 1 for KEYS)
+--
+-- Returns {status, value, outletItemId}:
+--   { 1, n, 0 }                   when every hold was moved and the cart removed
+--   { 0, available, outletItemId} when a reclaimed hold cannot be taken again
+--   {-1, 0, outletItemId}         when a stock counter is not loaded in Redis
+--   {-4, 0, outletItemId}         when the cart no longer matches the checked-out lines
+local cart = KEYS[1]
+local n = tonumber(ARGV[4])
+
+local cartLines = 0
+for _, field in ipairs(redis.call('HKEYS', cart)) do
+    if string.sub(field, 1, 2) == 'q:' then
+        cartLines = cartLines + 1
+    end
+end
+if cartLines ~= n then
+    return {-4, 0, 0}
+end
+
+local lines = {}
+for i = 1, n do
+    local a = 4 * (i - 1) + 4
+    local line = {
+        stock_key = KEYS[3 * i], reserved_key = KEYS[3 * i + 1], holds_key = KEYS[3 * i + 2],
+        stock_field = ARGV[a + 1], reserved_field = ARGV[a + 2], id = ARGV[a + 3],
+        qty = tonumber(ARGV[a + 4])
+    }
+    if tonumber(redis.call('HGET', cart, 'q:' .. line.id) or '0') ~= line.qty then
+        return {-4, 0, tonumber(line.id)}
+    end
+    line.held = tonumber(redis.call('HGET', line.holds_key, ARGV[1]) or '0')
+    line.delta = line.qty - line.held
+    lines[i] = line
+end
+
+for i, line in ipairs(lines) do
+    if line.delta > 0 then
+        local status, available = slot_reserve(line.stock_key, line.stock_field,
+            line.reserved_key, line.reserved_field, line.delta)
+        if status ~= 1 then
+            for j = 1, i - 1 do
+                if lines[j].delta > 0 then
+                    slot_release(lines[j].reserved_key, lines[j].reserved_field, lines[j].delta)
+                end
+            end
+            if status == -1 then
+                return {-1, 0, tonumber(line.id)}
+            end
+            return {0, available + line.held, tonumber(line.id)}
+        end
+    end
+end
+
+for _, line in ipairs(lines) do
+    if line.delta < 0 then
+        slot_release(line.reserved_key, line.reserved_field, -line.delta)
+    end
+    redis.call('HDEL', line.holds_key, ARGV[1])
+    redis.call('ZREM', KEYS[2], line.id .. ':' .. ARGV[1])
+    redis.call('HSET', line.holds_key, ARGV[2], line.qty)
+    redis.call('ZADD', KEYS[2], ARGV[3], line.id .. ':' .. ARGV[2])
+end
+redis.call('DEL', cart, KEYS[3 * n + 3])
+return {1, n, 0}
@@ -0,0 +1,180 @@
+-- Atomically sets or adds to one or more cart lines, moves the cart's hold on each item by
+-- exactly the difference, then returns the whole cart. All lines succeed or none changes.
+--
+-- The hold, not the cart line, is the reference for the difference, so a hold reclaimed by
+-- the expiry sweep while the cart lived on is re-taken on the next change.
+--
+-- Reservation quotas: a change may not raise a line above the per-item cap or the cart's
+-- total above the per-user cap (lowering is always allowed). The cart's held units and the
+-- time it first took a hold are kept in its quota hash, which expires with the holds. Hold
+-- deadlines never run past that first hold plus the maximum hold time, so holds cannot be
+-- renewed indefinitely.
+--
+-- KEYS[1]    cart:{userId}                          cart hash (outletId, l:{id}, q:{id})
+-- KEYS[2]    inventory:holds:deadlines             hold expiry ledger
+-- KEYS[3i]   stock slot key of line i
+-- KEYS[3i+1] reserved slot key of line i
+-- KEYS[3i+2] inventory:holds:{outletItemId} of line i
+-- KEYS[3n+3] inventory:quota:{cartId}              held units and first hold time of the cart
+-- ARGV[1]    cart id
+-- ARGV[2]    hold deadline (epoch millis), before the maximum hold time is applied
+-- ARGV[3]    'add' to add the quantities to the lines, 'set' to replace them
+-- ARGV[4]    outlet id of the items ('add' only)
+-- ARGV[5]    cart TTL (millis)
+-- ARGV[6]    number of lines (n)
+-- ARGV[6i+1] stock slot field of line i
+-- ARGV[6i+2] reserved slot field of line i
+-- ARGV[6i+3] outlet item id of line i
+-- ARGV[6i+4] ledger member ({outletItemId}:{cartId}) of line i
+-- ARGV[6i+5] quantity of line i
+-- ARGV[6i+6] encoded cart line i, written only if the line is new
+-- ARGV[6n+7] per-item cap in units (0 = none)
+-- ARGV[6n+8] per-user cap in units over the whole cart (0 = none)
+-- ARGV[6n+9] maximum hold time in millis (0 = none)
+-- ARGV[6n+10] current time (epoch millis)
+--
+-- (with i counted from 0 for ARGV and from 1 for KEYS)
+--
+-- Returns {status, value, ...}:
+--   { 1, new quantity of the first line, field1, value1, ...} with the cart after the change
+--   { 0, units the cart could hold in total, outletItemId} when stock is insufficient
+--   {-1, 0, outletItemId}                    when a stock counter is not loaded in Redis
+--   {-2, 0}                                  when the cart holds items of another outlet
+--   {-3, 0, outletItemId}                    when 'set' targets a line not in the cart
+--   {-5, per-item cap, outletItemId}         when a line would exceed the per-item cap
+--   {-6, units the cart may still add, outletItemId} when the cart would exceed the per-user cap
+local cart = KEYS[1]
+local add = ARGV[3] == 'add'
+local n = tonumber(ARGV[6])
+local quota = KEYS[3 * n + 3]
+local max_item = tonumber(ARGV[6 * n + 7])
+local max_user = tonumber(ARGV[6 * n + 8])
+local max_hold = tonumber(ARGV[6 * n + 9])
+local now = tonumber(ARGV[6 * n + 10])
+
+if add then
+    local outlet = redis.call('HGET', cart, 'outletId')
+    if outlet and outlet ~= ARGV[4] then
+        for _, field in ipairs(redis.call('HKEYS', cart)) do
+            if string.sub(field, 1, 2) == 'q:' then
+                return {-2, 0}
+            end
+        end
+    end
+end
+
+local lines = {}
+for i = 1, n do
+    local a = 6 * (i - 1) + 6
+    local line = {
+        stock_key = KEYS[3 * i], reserved_key = KEYS[3 * i + 1], holds_key = KEYS[3 * i + 2],
+        stock_field = ARGV[a + 1], reserved_field = ARGV[a + 2], id = ARGV[a + 3],
+        member = ARGV[a + 4], qty = tonumber(ARGV[a + 5]), encoded = ARGV[a + 6]
+    }
+    local current = 0
+    if redis.call('HEXISTS', cart, 'l:' .. line.id) == 1 then
+        current = tonumber(redis.call('HGET', cart, 'q:' .. line.id) or '0')
+    end
+    if add then
+        line.target = current + line.qty
+    else
+        line.target = line.qty
+        if current == 0 and line.target > 0 then
+            return {-3, 0, tonumber(line.id)}
+        end
+    end
+    if max_item > 0 and line.target > max_item and line.target > current then
+        return {-5, max_item, tonumber(line.id)}
+    end
+    line.current = current
+    line.held = tonumber(redis.call('HGET', line.holds_key, ARGV[1]) or '0')
+    line.delta = line.target - line.held
+    lines[i] = line
+end
+
+-- Whole-cart total before and after the change, from the cart's own quantities
+local changed = {}
+for _, line in ipairs(lines) do
+    changed[line.id] = line
+end
+local before, after = 0, 0
+local fields = redis.call('HGETALL', cart)
+for i = 1, #fields, 2 do
+    if string.sub(fields[i], 1, 2) == 'q:' then
+        local units = tonumber(fields[i + 1])
+        before = before + units
+        if not changed[string.sub(fields[i], 3)] then
+            after = after + units
+        end
+    end
+end
+local rising = nil
+for _, line in ipairs(lines) do
+    after = after + line.target
+    if not rising and line.target > line.current then
+        rising = line
+    end
+end
+if max_user > 0 and after > max_user and after > before then
+    return {-6, math.max(max_user - before, 0), tonumber(rising.id)}
+end
+
+-- Holds of this cart expire at most max_hold after its first hold
+local deadline = tonumber(ARGV[2])
+local since = tonumber(redis.call('HGET', quota, 'since') or now)
+if max_hold > 0 and since + max_hold > now then
+    deadline = math.min(deadline, since + max_hold)
+else
+    since = now
+end
+
+-- Take every additional unit first; undo them all if any line falls short
+for i, line in ipairs(lines) do
+    if line.delta > 0 then
+        local status, available = slot_reserve(line.stock_key, line.stock_field,
+            line.reserved_key, line.reserved_field, line.delta)
+        if status ~= 1 then
+            for j = 1, i - 1 do
+                if lines[j].delta > 0 then
+                    slot_release(lines[j].reserved_key, lines[j].reserved_field, lines[j].delta)
+                end
+            end
+            if status == -1 then
+                return {-1, 0, tonumber(line.id)}
+            end
+            return {0, available + line.held, tonumber(line.id)}
+        end
+    end
+end
+
+for _, line in ipairs(lines) do
+    if line.delta < 0 then
+        slot_release(line.reserved_key, line.reserved_field, -line.delta)
+    end
+    if line.target > 0 then
+        redis.call('HSET', line.holds_key, ARGV[1], line.target)
+        redis.call('ZADD', KEYS[2], deadline, line.member)
+        redis.call('HSET', cart, 'q:' .. line.id, line.target)
+        redis.call('HSETNX', cart, 'l:' .. line.id, line.encoded)
+    else
+        redis.call('HDEL', line.holds_key, ARGV[1])
+        redis.call('ZREM', KEYS[2], line.member)
+        redis.call('HDEL', cart, 'l:' .. line.id, 'q:' .. line.id)
+    end
+end
+if add then
+    redis.call('HSET', cart, 'outletId', ARGV[4])
+end
+redis.call('PEXPIRE', cart, ARGV[5])
+if after > 0 then
+    redis.call('HSET', quota, 'units', after, 'since', since)
+    redis.call('PEXPIREAT', quota, deadline)
+else
+    redis.call('DEL', quota)
+end
+
+local result = {1, lines[1] and lines[1].target or 0}
+for _, value in ipairs(redis.call('HGETALL', cart)) do
+    table.insert(result, value)
+end
+return result
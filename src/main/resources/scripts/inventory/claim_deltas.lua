@@ -0,0 +1,26 @@
+-- Moves the pending delta hash to the in-flight slot so new deltas keep
+-- accumulating while the claimed batch is written to the database.
+--
+-- KEYS[1] inventory:deltas:pending                 unflushed per-item deltas
+-- KEYS[2] inventory:deltas:pending:since           oldest unflushed delta timestamp
+-- KEYS[3] inventory:deltas:inflight                batch being written
+-- ARGV[1] batch id
+--
+-- Returns the number of item deltas claimed, or -1 if a batch is already in flight.
+if redis.call('EXISTS', KEYS[3]) == 1 then
+    return -1
+end
+if redis.call('EXISTS', KEYS[1]) == 0 then
+    redis.call('DEL', KEYS[2])
+    return 0
+end
+
+local count = redis.call('HLEN', KEYS[1])
+redis.call('RENAME', KEYS[1], KEYS[3])
+redis.call('HSET', KEYS[3], '_batch', ARGV[1])
+local since = redis.call('GET', KEYS[2])
+if since then
+    redis.call('HSET', KEYS[3], '_since', since)
+end
+redis.call('DEL', KEYS[2])
+return count
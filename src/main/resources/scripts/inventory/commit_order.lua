@@ -0,0 +1,62 @@
+-- Atomically validates and decrements every line of an order (BR-007, BR-009).
+--
+-- All lines are checked before any counter is touched, so either every line is
+-- decremented and its write-behind delta recorded, or nothing changes. When the order
+-- holds stock of its own (see cart_checkout.lua), those units count as available to it
+-- and the hold is consumed by the commit.
+--
+-- KEYS[3i-2] stock slot key of line i
+-- KEYS[3i-1] reserved slot key of line i
+-- KEYS[3i]   inventory:holds:{outletItemId} of line i
+-- KEYS[3n+1] inventory:deltas:pending              unflushed per-item deltas
+-- KEYS[3n+2] inventory:deltas:pending:since        oldest unflushed delta timestamp
+-- KEYS[3n+3] inventory:holds:deadlines             hold expiry ledger
+-- ARGV[1]    number of lines (n); each outlet item must appear at most once
+-- ARGV[2]    current time in epoch millis
+-- ARGV[3]    holder id of the order's holds, or '' when it holds nothing
+-- ARGV[4i]   stock slot field of line i
+-- ARGV[4i+1] reserved slot field of line i
+-- ARGV[4i+2] quantity of line i
+-- ARGV[4i+3] outlet item id of line i (delta field)
+--
+-- Returns {status, line, value}:
+--   { 1, n, 0 } when every line was decremented
+--   { 0, i, available } when line i has insufficient stock
+--   {-1, i, 0} when the stock counter of line i is not loaded in Redis
+local n = tonumber(ARGV[1])
+local holder = ARGV[3]
+local pending = KEYS[3 * n + 1]
+local since = KEYS[3 * n + 2]
+local deadlines = KEYS[3 * n + 3]
+
+local held = {}
+for i = 1, n do
+    local stock = slot_get(KEYS[3 * i - 2], ARGV[4 * i])
+    if not stock then
+        return {-1, i, 0}
+    end
+    held[i] = 0
+    if holder ~= '' then
+        held[i] = tonumber(redis.call('HGET', KEYS[3 * i], holder) or '0')
+    end
+    local reserved = tonumber(slot_get(KEYS[3 * i - 1], ARGV[4 * i + 1]) or '0')
+    local available = tonumber(stock) - reserved + held[i]
+    if available < tonumber(ARGV[4 * i + 2]) then
+        return {0, i, math.max(available, 0)}
+    end
+end
+
+for i = 1, n do
+    local qty = tonumber(ARGV[4 * i + 2])
+    if holder ~= '' then
+        if held[i] > 0 then
+            slot_release(KEYS[3 * i - 1], ARGV[4 * i + 1], held[i])
+        end
+        redis.call('HDEL', KEYS[3 * i], holder)
+        redis.call('ZREM', deadlines, ARGV[4 * i + 3] .. ':' .. holder)
+    end
+    slot_incr(KEYS[3 * i - 2], ARGV[4 * i], -qty)
+    redis.call('HINCRBY', pending, ARGV[4 * i + 3], -qty)
+end
+redis.call('SET', since, ARGV[2], 'NX')
+return {1, n, 0}
@@ -0,0 +1,33 @@
+-- Atomically checks unreserved stock, decrements it (BR-007, BR-009) and records
+-- the delta for write-behind persistence.
+--
+-- KEYS[1] stock slot key
+-- KEYS[2] reserved slot key
+-- KEYS[3] inventory:deltas:pending                 unflushed per-item deltas
+-- KEYS[4] inventory:deltas:pending:since           oldest unflushed delta timestamp
+-- ARGV[1] stock slot field
+-- ARGV[2] reserved slot field
+-- ARGV[3] quantity to decrement
+-- ARGV[4] outlet item id (delta field)
+-- ARGV[5] current time in epoch millis
+--
+-- Returns {status, value}:
+--   { 1, stock after decrement }
+--   { 0, available stock } when stock is insufficient
+--   {-1, 0} when the stock counter is not loaded in Redis
+local stock = slot_get(KEYS[1], ARGV[1])
+if not stock then
+    return {-1, 0}
+end
+
+local qty = tonumber(ARGV[3])
+local reserved = tonumber(slot_get(KEYS[2], ARGV[2]) or '0')
+local available = tonumber(stock) - reserved
+if available < qty then
+    return {0, math.max(available, 0)}
+end
+
+local remaining = slot_incr(KEYS[1], ARGV[1], -qty)
+redis.call('HINCRBY', KEYS[3], ARGV[4], -qty)
+redis.call('SET', KEYS[4], ARGV[5], 'NX')
+return {1, remaining}
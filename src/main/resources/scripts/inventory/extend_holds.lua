@@ -0,0 +1,30 @@
+-- Pushes back the deadline of a cart's holds while the cart is in use, but never past the
+-- cart's first hold plus the maximum hold time (see cart_lines.lua).
+--
+-- KEYS[1] inventory:holds:deadlines             hold expiry ledger
+-- KEYS[2] inventory:quota:{cartId}              held units and first hold time of the cart
+-- ARGV[1] current time (epoch millis)
+-- ARGV[2] hold TTL in millis
+-- ARGV[3] maximum hold time in millis (0 = none)
+-- ARGV[4..] ledger members ({outletItemId}:{cartId}) of the cart's holds
+--
+-- Returns the deadline applied, or 0 when the holds have reached the maximum hold time and
+-- were left to expire.
+local now = tonumber(ARGV[1])
+local deadline = now + tonumber(ARGV[2])
+local max_hold = tonumber(ARGV[3])
+local since = redis.call('HGET', KEYS[2], 'since')
+if max_hold > 0 and since then
+    deadline = math.min(deadline, tonumber(since) + max_hold)
+    if deadline <= now then
+        return 0
+    end
+end
+
+for i = 4, #ARGV do
+    redis.call('ZADD', KEYS[1], 'XX', deadline, ARGV[i])
+end
+if since then
+    redis.call('PEXPIREAT', KEYS[2], deadline)
+end
+return deadline
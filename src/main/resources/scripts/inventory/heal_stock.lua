@@ -0,0 +1,22 @@
+-- Corrects a drifted stock counter if nothing touched it since it was inspected.
+--
+-- KEYS[1] inventory:deltas:pending                 unflushed per-item deltas
+-- KEYS[2] inventory:deltas:inflight                delta batch being written to the database
+-- KEYS[3] stock slot key
+-- ARGV[1] stock slot field
+-- ARGV[2] stock observed by inspect_drift.lua
+-- ARGV[3] pending delta observed by inspect_drift.lua
+-- ARGV[4] corrected stock (persisted quantity plus pending delta)
+-- ARGV[5] outlet item id (delta field)
+--
+-- Returns 1 when the counter was corrected, 0 when it changed in the meantime.
+if redis.call('HEXISTS', KEYS[2], ARGV[5]) == 1 then
+    return 0
+end
+local stock = tonumber(slot_get(KEYS[3], ARGV[1]) or '-1')
+local pending = tonumber(redis.call('HGET', KEYS[1], ARGV[5]) or '0')
+if stock ~= tonumber(ARGV[2]) or pending ~= tonumber(ARGV[3]) then
+    return 0
+end
+slot_set(KEYS[3], ARGV[1], ARGV[4])
+return 1
@@ -0,0 +1,21 @@
+-- Atomically increments stock and records the delta for write-behind persistence.
+--
+-- KEYS[1] stock slot key
+-- KEYS[2] inventory:deltas:pending                 unflushed per-item deltas
+-- KEYS[3] inventory:deltas:pending:since           oldest unflushed delta timestamp
+-- ARGV[1] stock slot field
+-- ARGV[2] quantity to increment
+-- ARGV[3] outlet item id (delta field)
+-- ARGV[4] current time in epoch millis
+--
+-- Returns {status, value}:
+--   { 1, stock after increment }
+--   {-1, 0} when the stock counter is not loaded in Redis
+if not slot_get(KEYS[1], ARGV[1]) then
+    return {-1, 0}
+end
+
+local total = slot_incr(KEYS[1], ARGV[1], tonumber(ARGV[2]))
+redis.call('HINCRBY', KEYS[2], ARGV[3], ARGV[2])
+redis.call('SET', KEYS[3], ARGV[4], 'NX')
+return {1, total}
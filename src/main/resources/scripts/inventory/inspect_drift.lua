@@ -0,0 +1,40 @@
+-- Snapshots the Redis side of a chunk of items for drift inspection.
+--
+-- Everything is read in one atomic step so stock, pending delta and holds of an item are
+-- mutually consistent; the caller compares them with the database quantities it read.
+--
+-- KEYS[1]    inventory:deltas:pending              unflushed per-item deltas
+-- KEYS[2]    inventory:deltas:inflight             delta batch being written to the database
+-- KEYS[3i]   stock slot key of item i
+-- KEYS[3i+1] reserved slot key of item i
+-- KEYS[3i+2] inventory:holds:{outletItemId} of item i
+-- ARGV[1]    number of items (n)
+-- ARGV[3i-1] stock slot field of item i
+-- ARGV[3i]   reserved slot field of item i
+-- ARGV[3i+1] outlet item id of item i
+--
+-- Returns 5 values per item: state, stock, reserved, pending delta, live hold units.
+-- State is 0 when the stock counter is not loaded, 2 when the item has a delta in flight
+-- (the database may or may not include it yet) and 1 otherwise.
+local n = tonumber(ARGV[1])
+local result = {}
+for i = 1, n do
+    local id = ARGV[3 * i + 1]
+    local stock = slot_get(KEYS[3 * i], ARGV[3 * i - 1])
+    local state = 1
+    if not stock then
+        state = 0
+    elseif redis.call('HEXISTS', KEYS[2], id) == 1 then
+        state = 2
+    end
+    local held = 0
+    for _, qty in ipairs(redis.call('HVALS', KEYS[3 * i + 2])) do
+        held = held + tonumber(qty)
+    end
+    table.insert(result, state)
+    table.insert(result, tonumber(stock or '0'))
+    table.insert(result, tonumber(slot_get(KEYS[3 * i + 1], ARGV[3 * i]) or '0'))
+    table.insert(result, tonumber(redis.call('HGET', KEYS[1], id) or '0'))
+    table.insert(result, held)
+end
+return result
@@ -0,0 +1,42 @@
+-- Loads an item's stock slot without overwriting a value already in Redis.
+--
+-- An item whose counters still live in another slot (per-item keys after switching to
+-- the outlet-hash layout, or the other side of a sharding switch) is migrated instead:
+-- its stock and reserved counters are moved into the new slots and the old ones deleted,
+-- so live counters are never replaced by the persisted value.
+--
+-- KEYS[1] stock slot key
+-- KEYS[2] reserved slot key
+-- KEYS[3] previous stock slot key
+-- KEYS[4] previous reserved slot key
+-- ARGV[1] stock slot field
+-- ARGV[2] reserved slot field
+-- ARGV[3] persisted stock quantity
+-- ARGV[4] previous stock slot field
+-- ARGV[5] previous reserved slot field
+--
+-- Returns {status, stock}:
+--   { 0, stock } when the slot was already loaded
+--   { 1, stock } when the slot was loaded from the persisted quantity
+--   { 2, stock } when the slot was migrated from the previous slots
+local current = slot_get(KEYS[1], ARGV[1])
+if current then
+    return {0, tonumber(current)}
+end
+
+if KEYS[3] ~= KEYS[1] or ARGV[4] ~= ARGV[1] then
+    local previous = slot_get(KEYS[3], ARGV[4])
+    if previous then
+        slot_set(KEYS[1], ARGV[1], previous)
+        local previousReserved = slot_get(KEYS[4], ARGV[5])
+        if previousReserved then
+            slot_incr(KEYS[2], ARGV[2], tonumber(previousReserved))
+        end
+        slot_del(KEYS[3], ARGV[4])
+        slot_del(KEYS[4], ARGV[5])
+        return {2, tonumber(previous)}
+    end
+end
+
+slot_set(KEYS[1], ARGV[1], ARGV[3])
+return {1, tonumber(ARGV[3])}
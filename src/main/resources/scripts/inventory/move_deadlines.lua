@@ -0,0 +1,19 @@
+-- Moves the deadline of existing holds to a new point in time.
+--
+-- Used when an order is submitted and its acceptance deadline is reset, so its holds last
+-- exactly as long as the outlet may take to respond. Holds the expiry sweep has already
+-- reclaimed are not recreated.
+--
+-- KEYS[1] inventory:holds:deadlines             hold expiry ledger
+-- ARGV[1] new deadline (epoch millis)
+-- ARGV[2..] ledger members ({outletItemId}:{holder}) of the holds
+--
+-- Returns the number of holds whose deadline was moved.
+local moved = 0
+for i = 2, #ARGV do
+    if redis.call('ZSCORE', KEYS[1], ARGV[i]) then
+        redis.call('ZADD', KEYS[1], ARGV[1], ARGV[i])
+        moved = moved + 1
+    end
+end
+return moved
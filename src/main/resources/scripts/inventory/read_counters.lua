@@ -0,0 +1,16 @@
+-- Reads an item's stock and reserved counters in one atomic step.
+--
+-- Used for sharded items, whose totals span several shard hashes: reading them in one
+-- script keeps a concurrent rebalance from being counted twice or not at all.
+--
+-- KEYS[1] stock slot key
+-- KEYS[2] reserved slot key
+-- ARGV[1] stock slot field
+-- ARGV[2] reserved slot field
+--
+-- Returns {loaded, stock, reserved}: loaded is 0 when the stock counter is not in Redis.
+local stock = slot_get(KEYS[1], ARGV[1])
+if not stock then
+    return {0, 0, 0}
+end
+return {1, tonumber(stock), tonumber(slot_get(KEYS[2], ARGV[2]) or '0')}
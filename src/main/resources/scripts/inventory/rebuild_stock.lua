@@ -0,0 +1,21 @@
+-- Rewrites a chunk of stock slots from the database after a Redis outage.
+--
+-- The database lags Redis only by the deltas still pending write-behind, so each item's
+-- counter is set to its persisted quantity plus its pending delta. The caller makes sure no
+-- write-behind batch is in flight, since those deltas are in neither. Reserved counters are
+-- left alone; the reserved-counter reconciliation realigns them with the live holds.
+--
+-- KEYS[1]    inventory:deltas:pending              unflushed per-item deltas
+-- KEYS[i+1]  stock slot key of item i
+-- ARGV[1]    number of items (n)
+-- ARGV[3i-1] stock slot field of item i
+-- ARGV[3i]   persisted stock quantity of item i
+-- ARGV[3i+1] outlet item id of item i (delta field)
+--
+-- Returns the number of counters written.
+local n = tonumber(ARGV[1])
+for i = 1, n do
+    local pending = tonumber(redis.call('HGET', KEYS[1], ARGV[3 * i + 1]) or '0')
+    slot_set(KEYS[i + 1], ARGV[3 * i - 1], tonumber(ARGV[3 * i]) + pending)
+end
+return n
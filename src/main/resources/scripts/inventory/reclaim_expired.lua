@@ -0,0 +1,51 @@
+-- Reclaims a batch of cart holds whose deadline has passed.
+--
+-- Each expired ledger member is removed together with its hold, and the held units
+-- are returned to the item's reserved counter, all in one atomic step. Running the
+-- script twice for the same member is a no-op, so concurrent sweepers are safe.
+--
+-- Hold and reserved keys are derived from the member, so this script assumes a
+-- single (non-cluster) Redis, as does the rest of the inventory engine.
+--
+-- KEYS[1] inventory:holds:deadlines                hold expiry ledger
+-- KEYS[2] inventory:item-outlet                    outlet item id -> outlet id
+-- ARGV[1] now (epoch millis)
+-- ARGV[2] maximum holds to reclaim
+-- ARGV[3] layout: 'keys' or 'outlet-hash'
+-- ARGV[4] shard count of sharded items
+-- ARGV[5..] outlet item ids whose counters are sharded
+--
+-- Returns {holds reclaimed, units reclaimed}.
+local sharded = {}
+for i = 5, #ARGV do
+    sharded[ARGV[i]] = true
+end
+
+local expired = redis.call('ZRANGEBYSCORE', KEYS[1], '-inf', ARGV[1], 'LIMIT', 0, tonumber(ARGV[2]))
+local units = 0
+for _, member in ipairs(expired) do
+    redis.call('ZREM', KEYS[1], member)
+    local itemId, cartId = string.match(member, '^(%d+):(.+)$')
+    if itemId then
+        local holdsKey = 'inventory:holds:' .. itemId
+        local held = tonumber(redis.call('HGET', holdsKey, cartId) or '0')
+        redis.call('HDEL', holdsKey, cartId)
+        if held > 0 then
+            local reservedKey = 'inventory:reserved:' .. itemId
+            local reservedField = ''
+            if sharded[itemId] then
+                reservedKey = 'inventory:shard:' .. itemId
+                reservedField = '#' .. ARGV[4] .. ':r'
+            elseif ARGV[3] == 'outlet-hash' then
+                local outletId = redis.call('HGET', KEYS[2], itemId)
+                if outletId then
+                    reservedKey = 'inventory:outlet:' .. outletId
+                    reservedField = 'r:' .. itemId
+                end
+            end
+            slot_release(reservedKey, reservedField, held)
+            units = units + held
+        end
+    end
+end
+return {#expired, units}
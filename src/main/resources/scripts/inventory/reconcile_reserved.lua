@@ -0,0 +1,16 @@
+-- Resets an item's reserved counter to the sum of its live holds.
+--
+-- KEYS[1] reserved slot key
+-- KEYS[2] inventory:holds:{outletItemId}           per-cart holds (field cartId)
+-- ARGV[1] reserved slot field
+--
+-- Returns the correction applied (previous counter minus live total).
+local live = 0
+for _, qty in ipairs(redis.call('HVALS', KEYS[2])) do
+    live = live + tonumber(qty)
+end
+local reserved = tonumber(slot_get(KEYS[1], ARGV[1]) or '0')
+if reserved ~= live then
+    slot_set(KEYS[1], ARGV[1], live)
+end
+return reserved - live
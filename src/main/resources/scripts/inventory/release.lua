@@ -0,0 +1,19 @@
+-- Atomically releases a per-cart hold and returns its units to the pool.
+--
+-- KEYS[1] reserved slot key
+-- KEYS[2] inventory:holds:{outletItemId}           per-cart holds (field cartId)
+-- KEYS[3] inventory:holds:deadlines                hold expiry ledger
+-- ARGV[1] reserved slot field
+-- ARGV[2] cart id
+-- ARGV[3] ledger member ({outletItemId}:{cartId})
+--
+-- Returns the number of units released (0 when no hold exists).
+local held = tonumber(redis.call('HGET', KEYS[2], ARGV[2]) or '0')
+redis.call('HDEL', KEYS[2], ARGV[2])
+redis.call('ZREM', KEYS[3], ARGV[3])
+if held <= 0 then
+    return 0
+end
+
+slot_release(KEYS[1], ARGV[1], held)
+return held
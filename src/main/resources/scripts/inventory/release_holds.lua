@@ -0,0 +1,28 @@
+-- Atomically releases one holder's holds on several items and returns their units to the pool.
+--
+-- Used when an order that took over its cart's holds is declined, cancelled or expires, so
+-- every line is released in one step. Running it twice is a no-op.
+--
+-- KEYS[2i-1] reserved slot key of line i
+-- KEYS[2i]   inventory:holds:{outletItemId} of line i
+-- KEYS[2n+1] inventory:holds:deadlines             hold expiry ledger
+-- ARGV[1]    holder id (order:{orderId})
+-- ARGV[2i]   reserved slot field of line i
+-- ARGV[2i+1] outlet item id of line i
+--
+-- Returns the number of units released (0 when the holder held nothing).
+local n = (#KEYS - 1) / 2
+local deadlines = KEYS[2 * n + 1]
+local holder = ARGV[1]
+
+local units = 0
+for i = 1, n do
+    local held = tonumber(redis.call('HGET', KEYS[2 * i], holder) or '0')
+    redis.call('HDEL', KEYS[2 * i], holder)
+    redis.call('ZREM', deadlines, ARGV[2 * i + 1] .. ':' .. holder)
+    if held > 0 then
+        slot_release(KEYS[2 * i - 1], ARGV[2 * i], held)
+        units = units + held
+    end
+end
+return units
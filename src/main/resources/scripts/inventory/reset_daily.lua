@@ -0,0 +1,60 @@
+-- Resets an item's stock to its daily quantity at the start of the outlet's day.
+--
+-- The database already holds the new quantity, so any unflushed delta for the item is
+-- discarded, including one left in an in-flight write-behind batch that would otherwise be
+-- replayed on top of the reset. Cart holds left over from the previous day are dropped
+-- together with the cart's line for the item, and the cart's reservation quota is recounted
+-- from its remaining lines; holds of orders still awaiting acceptance (holder 'order:{id}')
+-- are kept and become the new reserved count.
+--
+-- Cart and quota keys are derived from the holder, so this script assumes a single
+-- (non-cluster) Redis, as does the rest of the inventory engine.
+--
+-- KEYS[1] stock slot key
+-- KEYS[2] reserved slot key
+-- KEYS[3] inventory:holds:{outletItemId}           per-holder holds
+-- KEYS[4] inventory:deltas:pending                 unflushed per-item deltas
+-- KEYS[5] inventory:holds:deadlines                hold expiry ledger
+-- KEYS[6] inventory:deltas:inflight                batch being written
+-- ARGV[1] stock slot field
+-- ARGV[2] reserved slot field
+-- ARGV[3] daily quantity
+-- ARGV[4] outlet item id
+--
+-- Returns {units still held by orders, cart holds dropped}.
+local kept = 0
+local dropped = 0
+local holds = redis.call('HGETALL', KEYS[3])
+for i = 1, #holds, 2 do
+    local holder = holds[i]
+    if string.sub(holder, 1, 6) == 'order:' then
+        kept = kept + tonumber(holds[i + 1])
+    else
+        redis.call('HDEL', KEYS[3], holder)
+        redis.call('ZREM', KEYS[5], ARGV[4] .. ':' .. holder)
+        dropped = dropped + 1
+
+        local cart = 'cart:' .. holder
+        local quota = 'inventory:quota:' .. holder
+        redis.call('HDEL', cart, 'l:' .. ARGV[4], 'q:' .. ARGV[4])
+        local units = 0
+        local fields = redis.call('HGETALL', cart)
+        for j = 1, #fields, 2 do
+            if string.sub(fields[j], 1, 2) == 'q:' then
+                units = units + tonumber(fields[j + 1])
+            end
+        end
+        if units == 0 then
+            redis.call('DEL', quota)
+        elseif redis.call('EXISTS', quota) == 1 then
+            redis.call('HSET', quota, 'units', units)
+        end
+    end
+end
+
+-- Reserved first, so a sharded stock counter is not held up by yesterday's reservations
+slot_set(KEYS[2], ARGV[2], kept)
+slot_set(KEYS[1], ARGV[1], ARGV[3])
+redis.call('HDEL', KEYS[4], ARGV[4])
+redis.call('HDEL', KEYS[6], ARGV[4])
+return {kept, dropped}
@@ -0,0 +1,11 @@
+-- Sets an absolute stock level and discards any unflushed delta for the item,
+-- since the absolute value is written to the database synchronously.
+--
+-- KEYS[1] stock slot key
+-- KEYS[2] inventory:deltas:pending                 unflushed per-item deltas
+-- ARGV[1] stock slot field
+-- ARGV[2] stock quantity
+-- ARGV[3] outlet item id (delta field)
+slot_set(KEYS[1], ARGV[1], ARGV[2])
+redis.call('HDEL', KEYS[2], ARGV[3])
+return 1
@@ -0,0 +1,117 @@
+package com.ffms.resqeats.cart;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.ffms.resqeats.cart.dto.CartDto;
+import com.ffms.resqeats.cart.service.CartLineCodec;
+import com.ffms.resqeats.cart.service.CartService;
+import com.ffms.resqeats.drop.service.WaitingRoomService;
+import com.ffms.resqeats.inventory.RedisInventoryTestSupport;
+import com.ffms.resqeats.inventory.service.InventoryKeys;
+import com.ffms.resqeats.item.enums.ItemStatus;
+import com.ffms.resqeats.item.service.CatalogueCache;
+import com.ffms.resqeats.item.service.CatalogueEntry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.Map;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Putting a checked-out cart back when the checkout transaction rolls back.
+ *
+ * Tests:
+ * - The cart's lines and holds come back and the order's holds are gone
+ * - If the stock was taken meanwhile, the order's holds are still released
+ */
+@Testcontainers(disabledWithoutDocker = true)
+@DisplayName("Cart Checkout Rollback Tests")
+class CartCheckoutRollbackTest extends RedisInventoryTestSupport {
+
+    private static final long USER_ID = 1001L;
+    private static final long OUTLET_ID = 7L;
+    private static final long ITEM_A = 42L;
+    private static final long ITEM_B = 43L;
+    private static final long ORDER_ID = 9L;
+
+    private CartService cartService;
+
+    @BeforeEach
+    void setup() {
+        CatalogueCache catalogueCache = mock(CatalogueCache.class);
+        Map<Long, CatalogueEntry> entries = Map.of(ITEM_A, entry(ITEM_A), ITEM_B, entry(ITEM_B));
+        entries.forEach((id, entry) -> when(catalogueCache.get(id)).thenReturn(Optional.of(entry)));
+        when(catalogueCache.getAll(anyCollection())).thenReturn(entries);
+
+        cartService = new CartService(binaryRedisTemplate, inventoryService, catalogueCache,
+                new CartLineCodec(new ObjectMapper(), "compact"), mock(WaitingRoomService.class));
+
+        for (long id : entries.keySet()) {
+            redisTemplate.opsForValue().set("inventory:" + id, "10");
+        }
+    }
+
+    @Test
+    @DisplayName("A rolled back checkout puts the cart and its holds back")
+    void rolledBackCheckoutShouldRestoreCart() {
+        CartDto cart = checkOut(Map.of(ITEM_A, 2, ITEM_B, 3));
+
+        assertTrue(cartService.restoreFromOrder(USER_ID, cart, ORDER_ID));
+
+        CartDto restored = cartService.getCart(USER_ID);
+        assertEquals(2, restored.getItemCount());
+        assertEquals(5, restored.getTotalQuantity());
+        assertEquals(0, cart.getSubtotal().compareTo(restored.getSubtotal()));
+        assertHeldByCart(ITEM_A, 2);
+        assertHeldByCart(ITEM_B, 3);
+    }
+
+    @Test
+    @DisplayName("Stock taken meanwhile leaves the cart empty but releases the order's holds")
+    void restoreShouldReleaseOrderHoldsWhenStockIsGone() {
+        CartDto cart = checkOut(Map.of(ITEM_A, 2));
+        redisTemplate.opsForValue().set("inventory:" + ITEM_A, "2");
+        redisTemplate.opsForValue().set("inventory:reserved:" + ITEM_A, "3");
+
+        assertFalse(cartService.restoreFromOrder(USER_ID, cart, ORDER_ID));
+
+        assertEquals(0, cartService.getCart(USER_ID).getItemCount());
+        assertNull(redisTemplate.opsForHash().get(InventoryKeys.holds(ITEM_A), InventoryKeys.orderHolder(ORDER_ID)));
+        assertEquals("1", redisTemplate.opsForValue().get("inventory:reserved:" + ITEM_A));
+    }
+
+    /**
+     * Fills the cart and hands its holds to the order, as checkout does before commit.
+     */
+    private CartDto checkOut(Map<Long, Integer> quantities) {
+        cartService.addItems(USER_ID, quantities);
+        CartDto cart = cartService.getCartForCheckout(USER_ID);
+        cartService.transferToOrder(USER_ID, cart, ORDER_ID,
+                System.currentTimeMillis() + Duration.ofMinutes(10).toMillis());
+
+        assertFalse(Boolean.TRUE.equals(redisTemplate.hasKey("cart:" + USER_ID)));
+        quantities.forEach((id, quantity) -> assertEquals(String.valueOf(quantity),
+                redisTemplate.opsForHash().get(InventoryKeys.holds(id), InventoryKeys.orderHolder(ORDER_ID))));
+        return cart;
+    }
+
+    private static CatalogueEntry entry(long outletItemId) {
+        return new CatalogueEntry(outletItemId, OUTLET_ID, outletItemId, "Item " + outletItemId,
+                new BigDecimal("2.50"), new BigDecimal("5.00"), true, ItemStatus.ACTIVE, 1L);
+    }
+
+    private void assertHeldByCart(long outletItemId, int quantity) {
+        String expected = String.valueOf(quantity);
+        assertEquals(expected, redisTemplate.opsForHash().get(InventoryKeys.holds(outletItemId), String.valueOf(USER_ID)));
+        assertNull(redisTemplate.opsForHash().get(InventoryKeys.holds(outletItemId), InventoryKeys.orderHolder(ORDER_ID)));
+        assertEquals(expected, redisTemplate.opsForValue().get("inventory:reserved:" + outletItemId));
+    }
+}
@@ -0,0 +1,82 @@
+package com.ffms.resqeats.cart;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.ffms.resqeats.cart.service.CartLine;
+import com.ffms.resqeats.cart.service.CartLineCodec;
+import com.ffms.resqeats.common.codec.CounterCodec;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.data.redis.serializer.GenericJackson2JsonRedisSerializer;
+
+import java.math.BigDecimal;
+import java.util.function.Function;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Encoded size and encode/decode time of cart values with the generic JSON serializer and the
+ * Redis codecs.
+ *
+ * Run with: mvn test -Dtest=CartLineCodecBenchmarkTest -Dbenchmark=true
+ *
+ * Compares:
+ * - Cart line: GenericJackson2JsonRedisSerializer (with @class metadata) vs CartLineCodec (compact v1)
+ * - Counter: GenericJackson2JsonRedisSerializer vs CounterCodec (raw decimal)
+ *
+ * Legacy JSON lines must still decode with the compact codec.
+ */
+@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+@DisplayName("Cart Line Codec Benchmark")
+class CartLineCodecBenchmarkTest {
+
+    private static final int WARMUP = 50_000;
+    private static final int ITERATIONS = 500_000;
+
+    private static final CartLine LINE = CartLine.builder()
+            .itemId(184_223L)
+            .itemName("Chicken Kottu (Large)")
+            .unitPrice(new BigDecimal("1250.00"))
+            .originalPrice(new BigDecimal("1800.00"))
+            .build();
+
+    private final GenericJackson2JsonRedisSerializer json = new GenericJackson2JsonRedisSerializer();
+    private final CartLineCodec codec = new CartLineCodec(new ObjectMapper(), "compact");
+
+    @Test
+    @DisplayName("Compact codec is smaller than the JSON serializer and reads legacy lines")
+    void compareCartLineEncodings() {
+        byte[] jsonBytes = json.serialize(LINE);
+        byte[] compactBytes = codec.encode(LINE);
+
+        assertEquals(LINE, codec.decode(compactBytes));
+        assertEquals(LINE, codec.decode(new CartLineCodec(new ObjectMapper(), "json").encode(LINE)));
+
+        double jsonNanos = measure(value -> json.deserialize(json.serialize(value)));
+        double compactNanos = measure(value -> codec.decode(codec.encode(value)));
+
+        byte[] jsonCounter = json.serialize(42L);
+        byte[] rawCounter = CounterCodec.INSTANCE.encode(42L);
+
+        System.out.printf("Cart line codec benchmark (%d iterations)%n", ITERATIONS);
+        System.out.printf("  generic JSON: %3d bytes, %.0f ns per round trip%n", jsonBytes.length, jsonNanos);
+        System.out.printf("  compact v1:   %3d bytes, %.0f ns per round trip (%.2fx)%n",
+                compactBytes.length, compactNanos, jsonNanos / compactNanos);
+        System.out.printf("  counter 42:   %d bytes as JSON, %d bytes raw%n", jsonCounter.length, rawCounter.length);
+
+        assertTrue(compactBytes.length < jsonBytes.length / 2,
+                "Compact line should be less than half the JSON size");
+    }
+
+    private double measure(Function<CartLine, Object> roundTrip) {
+        for (int i = 0; i < WARMUP; i++) {
+            roundTrip.apply(LINE);
+        }
+        long begin = System.nanoTime();
+        for (int i = 0; i < ITERATIONS; i++) {
+            roundTrip.apply(LINE);
+        }
+        return (System.nanoTime() - begin) / (double) ITERATIONS;
+    }
+}
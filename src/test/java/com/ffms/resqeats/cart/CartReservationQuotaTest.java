@@ -0,0 +1,180 @@
+package com.ffms.resqeats.cart;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.ffms.resqeats.cart.service.CartLineCodec;
+import com.ffms.resqeats.cart.service.CartService;
+import com.ffms.resqeats.common.exception.BusinessException;
+import com.ffms.resqeats.drop.service.WaitingRoomService;
+import com.ffms.resqeats.inventory.RedisInventoryTestSupport;
+import com.ffms.resqeats.inventory.service.InventoryKeys;
+import com.ffms.resqeats.item.enums.ItemStatus;
+import com.ffms.resqeats.item.service.CatalogueCache;
+import com.ffms.resqeats.item.service.CatalogueEntry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.Map;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Functional tests for reservation quotas on the cart path.
+ *
+ * Tests:
+ * - A line cannot be raised above the per-item cap (CART_010)
+ * - A cart cannot grow above the per-user cap (CART_011)
+ * - Lowering a line is allowed even above a cap
+ * - Reading the cart extends its holds only up to the maximum hold time
+ * - Clearing the cart drops its lines, holds and quota together
+ */
+@Testcontainers(disabledWithoutDocker = true)
+@DisplayName("Cart Reservation Quota Tests")
+class CartReservationQuotaTest extends RedisInventoryTestSupport {
+
+    private static final long USER_ID = 1001L;
+    private static final long OUTLET_ID = 7L;
+    private static final long ITEM_A = 42L;
+    private static final long ITEM_B = 43L;
+    private static final long ITEM_C = 44L;
+    private static final int MAX_PER_ITEM = 5;
+    private static final int MAX_PER_USER = 8;
+    private static final long MAX_HOLD_MILLIS = Duration.ofMinutes(30).toMillis();
+
+    private CartService cartService;
+
+    @BeforeEach
+    void setup() {
+        ReflectionTestUtils.setField(inventoryService, "maxUnitsPerItem", MAX_PER_ITEM);
+        ReflectionTestUtils.setField(inventoryService, "maxUnitsPerUser", MAX_PER_USER);
+
+        CatalogueCache catalogueCache = mock(CatalogueCache.class);
+        Map<Long, CatalogueEntry> entries = Map.of(ITEM_A, entry(ITEM_A), ITEM_B, entry(ITEM_B), ITEM_C, entry(ITEM_C));
+        entries.forEach((id, entry) -> when(catalogueCache.get(id)).thenReturn(Optional.of(entry)));
+        when(catalogueCache.getAll(anyCollection())).thenReturn(entries);
+
+        cartService = new CartService(binaryRedisTemplate, inventoryService, catalogueCache,
+                new CartLineCodec(new ObjectMapper(), "compact"), mock(WaitingRoomService.class));
+
+        for (long id : entries.keySet()) {
+            redisTemplate.opsForValue().set("inventory:" + id, "100");
+        }
+    }
+
+    @Test
+    @DisplayName("Raising a line above the per-item cap is refused with CART_010")
+    void perItemCapShouldRefuseWithCart010() {
+        cartService.addItem(USER_ID, ITEM_A, MAX_PER_ITEM);
+
+        BusinessException added = assertThrows(BusinessException.class,
+                () -> cartService.addItem(USER_ID, ITEM_A, 1));
+        assertEquals("CART_010", added.getErrorCode());
+
+        BusinessException updated = assertThrows(BusinessException.class,
+                () -> cartService.updateItemQuantity(USER_ID, ITEM_A, MAX_PER_ITEM + 1));
+        assertEquals("CART_010", updated.getErrorCode());
+
+        assertHeld(ITEM_A, MAX_PER_ITEM);
+    }
+
+    @Test
+    @DisplayName("Growing the cart above the per-user cap is refused with CART_011")
+    void perUserCapShouldRefuseWithCart011() {
+        cartService.addItem(USER_ID, ITEM_A, 5);
+        cartService.addItem(USER_ID, ITEM_B, 3);
+
+        BusinessException single = assertThrows(BusinessException.class,
+                () -> cartService.addItem(USER_ID, ITEM_C, 1));
+        assertEquals("CART_011", single.getErrorCode());
+
+        BusinessException bulk = assertThrows(BusinessException.class,
+                () -> cartService.addItems(USER_ID, Map.of(ITEM_B, 1, ITEM_C, 1)));
+        assertEquals("CART_011", bulk.getErrorCode());
+
+        assertHeld(ITEM_A, 5);
+        assertHeld(ITEM_B, 3);
+        assertNull(redisTemplate.opsForHash().get(InventoryKeys.holds(ITEM_C), String.valueOf(USER_ID)));
+        assertEquals(String.valueOf(MAX_PER_USER),
+                redisTemplate.opsForHash().get(InventoryKeys.quota(String.valueOf(USER_ID)), "units"));
+
+        cartService.updateItemQuantity(USER_ID, ITEM_A, 4);
+        cartService.addItem(USER_ID, ITEM_C, 1);
+        assertHeld(ITEM_C, 1);
+    }
+
+    @Test
+    @DisplayName("Lowering a line is allowed above a cap that was tightened meanwhile")
+    void loweringShouldBeAllowedAboveCap() {
+        cartService.addItem(USER_ID, ITEM_A, MAX_PER_ITEM);
+        ReflectionTestUtils.setField(inventoryService, "maxUnitsPerItem", 2);
+
+        cartService.updateItemQuantity(USER_ID, ITEM_A, 4);
+
+        assertHeld(ITEM_A, 4);
+    }
+
+    @Test
+    @DisplayName("Reading the cart extends holds no further than the maximum hold time")
+    void cartReadShouldCapHoldsAtMaximumHoldTime() {
+        cartService.addItem(USER_ID, ITEM_A, 1);
+        String quota = InventoryKeys.quota(String.valueOf(USER_ID));
+        String member = InventoryKeys.holdMember(String.valueOf(USER_ID), ITEM_A);
+
+        long since = System.currentTimeMillis() - MAX_HOLD_MILLIS + Duration.ofMinutes(1).toMillis();
+        redisTemplate.opsForHash().put(quota, "since", String.valueOf(since));
+        cartService.getCart(USER_ID);
+        assertEquals((double) (since + MAX_HOLD_MILLIS),
+                redisTemplate.opsForZSet().score(InventoryKeys.HOLD_DEADLINES, member));
+
+        redisTemplate.opsForHash().put(quota, "since", String.valueOf(since - Duration.ofMinutes(2).toMillis()));
+        Double before = redisTemplate.opsForZSet().score(InventoryKeys.HOLD_DEADLINES, member);
+        cartService.getCart(USER_ID);
+        assertEquals(before, redisTemplate.opsForZSet().score(InventoryKeys.HOLD_DEADLINES, member));
+    }
+
+    @Test
+    @DisplayName("Clearing the cart drops its lines, holds and quota together")
+    void clearCartShouldDropLinesHoldsAndQuota() {
+        cartService.addItem(USER_ID, ITEM_A, 3);
+        cartService.addItem(USER_ID, ITEM_B, 2);
+
+        cartService.clearCart(USER_ID);
+
+        assertEquals(0, cartService.getCart(USER_ID).getItemCount());
+        for (long outletItemId : new long[]{ITEM_A, ITEM_B}) {
+            assertNull(redisTemplate.opsForHash().get("cart:" + USER_ID, "q:" + outletItemId));
+            assertNull(redisTemplate.opsForHash().get(InventoryKeys.holds(outletItemId), String.valueOf(USER_ID)));
+            assertNull(redisTemplate.opsForZSet().score(InventoryKeys.HOLD_DEADLINES,
+                    InventoryKeys.holdMember(String.valueOf(USER_ID), outletItemId)));
+            assertEquals("0", redisTemplate.opsForValue().get("inventory:reserved:" + outletItemId));
+        }
+        assertFalse(Boolean.TRUE.equals(redisTemplate.hasKey(InventoryKeys.quota(String.valueOf(USER_ID)))));
+
+        // The emptied cart does not count against the caps
+        cartService.addItem(USER_ID, ITEM_C, MAX_PER_ITEM);
+        assertHeld(ITEM_C, MAX_PER_ITEM);
+    }
+
+    private static CatalogueEntry entry(long outletItemId) {
+        return new CatalogueEntry(outletItemId, OUTLET_ID, outletItemId, "Item " + outletItemId,
+                new BigDecimal("2.50"), new BigDecimal("5.00"), true, ItemStatus.ACTIVE, 1L);
+    }
+
+    /**
+     * Asserts that the cart line, the cart's hold and the item's reserved counter all equal the quantity.
+     */
+    private void assertHeld(long outletItemId, int quantity) {
+        String expected = String.valueOf(quantity);
+        assertEquals(expected, redisTemplate.opsForHash().get("cart:" + USER_ID, "q:" + outletItemId));
+        assertEquals(expected, redisTemplate.opsForHash().get(InventoryKeys.holds(outletItemId), String.valueOf(USER_ID)));
+        assertEquals(expected, redisTemplate.opsForValue().get("inventory:reserved:" + outletItemId));
+    }
+}
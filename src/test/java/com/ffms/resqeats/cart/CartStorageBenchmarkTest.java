@@ -0,0 +1,156 @@
+package com.ffms.resqeats.cart;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.redis.connection.lettuce.LettuceConnectionFactory;
+import org.springframework.data.redis.core.RedisOperations;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.SessionCallback;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.serializer.GenericJackson2JsonRedisSerializer;
+import org.springframework.data.redis.serializer.StringRedisSerializer;
+import org.testcontainers.containers.GenericContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+import org.testcontainers.utility.DockerImageName;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Payload size and latency of a cart quantity change with the two cart storage formats.
+ *
+ * Run with: mvn test -Dtest=CartStorageBenchmarkTest -Dbenchmark=true
+ *
+ * Compares:
+ * - Whole cart as one JSON value (GET, mutate, SET with GenericJackson2JsonRedisSerializer)
+ * - Cart hash (HINCRBY q:{id}, EXPIRE and HGETALL in one MULTI/EXEC)
+ */
+@Testcontainers(disabledWithoutDocker = true)
+@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+@DisplayName("Cart Storage Benchmark")
+class CartStorageBenchmarkTest {
+
+    private static final int LINES = 10;
+    private static final int MUTATIONS = 5_000;
+    private static final Duration TTL = Duration.ofMinutes(10);
+
+    @Container
+    private static final GenericContainer<?> REDIS =
+            new GenericContainer<>(DockerImageName.parse("redis:7-alpine")).withExposedPorts(6379);
+
+    private static LettuceConnectionFactory connectionFactory;
+    private static StringRedisTemplate stringTemplate;
+    private static RedisTemplate<String, Object> jsonTemplate;
+    private static final GenericJackson2JsonRedisSerializer JSON = new GenericJackson2JsonRedisSerializer();
+
+    @BeforeAll
+    static void connect() {
+        connectionFactory = new LettuceConnectionFactory(REDIS.getHost(), REDIS.getMappedPort(6379));
+        connectionFactory.afterPropertiesSet();
+        stringTemplate = new StringRedisTemplate(connectionFactory);
+        jsonTemplate = new RedisTemplate<>();
+        jsonTemplate.setConnectionFactory(connectionFactory);
+        jsonTemplate.setKeySerializer(new StringRedisSerializer());
+        jsonTemplate.setValueSerializer(JSON);
+        jsonTemplate.afterPropertiesSet();
+    }
+
+    @AfterAll
+    static void disconnect() {
+        connectionFactory.destroy();
+    }
+
+    @Test
+    @DisplayName("Cart hash writes fewer bytes per quantity change")
+    @SuppressWarnings("unchecked")
+    void compareFormats() {
+        jsonTemplate.opsForValue().set("cart:json", legacyCart(), TTL);
+        long[] jsonNanos = new long[MUTATIONS];
+        long jsonBytes = 0;
+        for (int i = 0; i < MUTATIONS; i++) {
+            long begin = System.nanoTime();
+            Map<String, Object> cart = (Map<String, Object>) jsonTemplate.opsForValue().get("cart:json");
+            Map<String, Map<String, Object>> items = (Map<String, Map<String, Object>>) cart.get("items");
+            Map<String, Object> line = items.get(String.valueOf(i % LINES));
+            line.put("quantity", (int) line.get("quantity") + 1);
+            jsonTemplate.opsForValue().set("cart:json", cart, TTL);
+            jsonNanos[i] = System.nanoTime() - begin;
+            jsonBytes += JSON.serialize(cart).length;
+        }
+
+        stringTemplate.opsForHash().putAll("cart:hash", hashCart());
+        long[] hashNanos = new long[MUTATIONS];
+        long hashBytes = 0;
+        for (int i = 0; i < MUTATIONS; i++) {
+            String field = "q:" + (i % LINES);
+            long begin = System.nanoTime();
+            stringTemplate.execute(new SessionCallback<List<Object>>() {
+                @Override
+                public <K, V> List<Object> execute(RedisOperations<K, V> operations) throws DataAccessException {
+                    RedisOperations<String, String> ops = (RedisOperations<String, String>) operations;
+                    ops.multi();
+                    ops.opsForHash().increment("cart:hash", field, 1);
+                    ops.expire("cart:hash", TTL);
+                    ops.opsForHash().entries("cart:hash");
+                    return ops.exec();
+                }
+            });
+            hashNanos[i] = System.nanoTime() - begin;
+            hashBytes += field.getBytes(StandardCharsets.UTF_8).length + 1;
+        }
+
+        System.out.printf("Cart storage benchmark (%d lines, %d quantity changes)%n", LINES, MUTATIONS);
+        System.out.printf("  JSON value: %d bytes written/mutation, p99=%d us%n",
+                jsonBytes / MUTATIONS, p99(jsonNanos) / 1000);
+        System.out.printf("  cart hash:  %d bytes written/mutation, p99=%d us%n",
+                hashBytes / MUTATIONS, p99(hashNanos) / 1000);
+
+        assertTrue(hashBytes < jsonBytes, "cart hash should write fewer bytes per mutation");
+    }
+
+    private static Map<String, Object> legacyCart() {
+        Map<String, Map<String, Object>> items = new HashMap<>();
+        for (int i = 0; i < LINES; i++) {
+            Map<String, Object> line = new HashMap<>();
+            line.put("outletItemId", String.valueOf(i));
+            line.put("itemId", String.valueOf(1000 + i));
+            line.put("itemName", "Surprise bag " + i);
+            line.put("unitPrice", "4.99");
+            line.put("originalPrice", "12.50");
+            line.put("quantity", 1);
+            items.put(String.valueOf(i), line);
+        }
+        Map<String, Object> cart = new HashMap<>();
+        cart.put("outletId", "42");
+        cart.put("items", items);
+        return cart;
+    }
+
+    private static Map<String, String> hashCart() {
+        Map<String, String> cart = new HashMap<>();
+        cart.put("outletId", "42");
+        for (int i = 0; i < LINES; i++) {
+            cart.put("l:" + i, "{\"itemId\":" + (1000 + i) + ",\"itemName\":\"Surprise bag " + i
+                    + "\",\"unitPrice\":4.99,\"originalPrice\":12.50}");
+            cart.put("q:" + i, "1");
+        }
+        return cart;
+    }
+
+    private static long p99(long[] nanos) {
+        long[] sorted = nanos.clone();
+        Arrays.sort(sorted);
+        return sorted[(int) (sorted.length * 0.99)];
+    }
+}
@@ -0,0 +1,82 @@
+package com.ffms.resqeats.common.scheduling;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for HierarchicalTimingWheel.
+ *
+ * Tests:
+ * - Timers fire no earlier than their deadline and at most one tick after it
+ * - Timers cascading from higher levels
+ * - Cancellation, rescheduling and the horizon
+ */
+@DisplayName("HierarchicalTimingWheel Tests")
+class HierarchicalTimingWheelTest {
+
+    private static final long TICK = 1000;
+    private static final long START = 1_700_000_000_000L;
+
+    @Test
+    @DisplayName("Every timer fires within one tick after its deadline, across all levels")
+    void firesWithinOneTickOfDeadline() {
+        HierarchicalTimingWheel wheel = new HierarchicalTimingWheel(TICK, 8, 3, START);
+        Random random = new Random(42);
+        Map<String, Long> deadlines = new HashMap<>();
+        for (int i = 0; i < 2000; i++) {
+            long deadline = START + random.nextInt((int) wheel.horizonMillis());
+            deadlines.put("order-" + i, deadline);
+            assertTrue(wheel.schedule("order-" + i, deadline));
+        }
+
+        Map<String, Long> firedAt = new HashMap<>();
+        for (long now = START; now <= START + wheel.horizonMillis() + TICK; now += 250) {
+            for (String key : wheel.advance(now)) {
+                assertNull(firedAt.put(key, now), "Fired twice: " + key);
+            }
+        }
+
+        assertEquals(deadlines.keySet(), firedAt.keySet());
+        deadlines.forEach((key, deadline) -> {
+            long fired = firedAt.get(key);
+            assertTrue(fired >= deadline, key + " fired early");
+            assertTrue(fired < deadline + 2 * TICK, key + " fired late");
+        });
+        assertEquals(0, wheel.size());
+    }
+
+    @Test
+    @DisplayName("Cancelled timers do not fire and rescheduled timers fire once at the new deadline")
+    void cancelAndReschedule() {
+        HierarchicalTimingWheel wheel = new HierarchicalTimingWheel(TICK, 8, 3, START);
+        wheel.schedule("cancelled", START + 5 * TICK);
+        wheel.schedule("moved", START + 5 * TICK);
+        wheel.cancel("cancelled");
+        wheel.schedule("moved", START + 20 * TICK);
+
+        assertTrue(wheel.advance(START + 10 * TICK).isEmpty());
+        assertEquals(List.of("moved"), wheel.advance(START + 20 * TICK));
+        assertTrue(wheel.advance(START + 30 * TICK).isEmpty());
+    }
+
+    @Test
+    @DisplayName("Past deadlines fire on the next advance and deadlines beyond the horizon are refused")
+    void pastDeadlinesAndHorizon() {
+        HierarchicalTimingWheel wheel = new HierarchicalTimingWheel(TICK, 8, 3, START);
+
+        assertTrue(wheel.schedule("overdue", START - 60_000));
+        assertFalse(wheel.schedule("too-late", START + wheel.horizonMillis() + TICK));
+
+        List<String> due = new ArrayList<>(wheel.advance(START));
+        assertEquals(List.of("overdue"), due);
+        assertEquals(0, wheel.size());
+    }
+}
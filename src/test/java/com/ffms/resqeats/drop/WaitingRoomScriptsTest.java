@@ -0,0 +1,231 @@
+package com.ffms.resqeats.drop;
+
+import com.ffms.resqeats.common.exception.BusinessException;
+import com.ffms.resqeats.drop.dto.ScheduleDropRequest;
+import com.ffms.resqeats.drop.service.DropKeys;
+import com.ffms.resqeats.drop.service.WaitingRoomService;
+import com.ffms.resqeats.inventory.RedisInventoryTestSupport;
+import com.ffms.resqeats.websocket.service.WebSocketService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.mock;
+
+/**
+ * Functional tests for the waiting room scripts ({@code join.lua}, {@code admit.lua},
+ * {@code gate.lua}) against a real Redis.
+ *
+ * The scripts take the current time as an argument, so every tick below runs at a chosen
+ * instant relative to the release. Alternate ticks stand for two nodes sharing the drop.
+ *
+ * Tests:
+ * - The token bucket admits at most one second of credit, however long since the last tick
+ * - Two nodes ticking together admit at the drop's rate, not twice it
+ * - Users are admitted in ticket order and the head is the last admitted ticket
+ * - No more than maxActive admissions are live; lapsed admissions free their slots
+ * - The gate lets admitted users in, holds everyone before release and opens after the end
+ * - A drop can be rescheduled once it has ended, but not while it runs
+ */
+@Testcontainers(disabledWithoutDocker = true)
+@DisplayName("Waiting Room Scripts Tests")
+@SuppressWarnings("rawtypes")
+class WaitingRoomScriptsTest extends RedisInventoryTestSupport {
+
+    private static final long OUTLET_ID = 7L;
+    private static final long ADMIT_MILLIS = 500L;
+
+    private static final RedisScript<List> JOIN = script("join.lua");
+    private static final RedisScript<List> ADMIT = script("admit.lua");
+    private static final RedisScript<Long> GATE =
+            RedisScript.of(new ClassPathResource("scripts/drop/gate.lua"), Long.class);
+
+    /** In the future, so the keys the scripts expire at the drop's end stay alive. */
+    private long releaseAt;
+    private long endsAt;
+
+    @BeforeEach
+    void setup() {
+        releaseAt = System.currentTimeMillis() + 3_600_000L;
+        endsAt = releaseAt + 3_600_000L;
+        schedule(10, 100);
+    }
+
+    @Test
+    @DisplayName("Credit is capped at one second of admissions")
+    void creditShouldBeCappedAtOneSecond() {
+        joinAll(30);
+
+        // Five seconds after release, but only a second's worth may be admitted at once
+        assertEquals(10, admit(releaseAt + 5_000).admitted());
+        assertEquals(0, admit(releaseAt + 5_000).admitted());
+        assertEquals(1, admit(releaseAt + 5_100).admitted());
+    }
+
+    @Test
+    @DisplayName("Two nodes ticking together admit at the drop's rate")
+    void twoNodesShouldShareTheRate() {
+        joinAll(50);
+
+        int admitted = 0;
+        for (long at = releaseAt + 100; at <= releaseAt + 2_000; at += 100) {
+            admitted += admit(at).admitted();       // node A
+            admitted += admit(at + 10).admitted();  // node B, a little later
+        }
+
+        // 10 per second over 2 seconds
+        assertEquals(20, admitted);
+        assertEquals(30L, redisTemplate.opsForZSet().zCard(DropKeys.queue(OUTLET_ID)));
+    }
+
+    @Test
+    @DisplayName("Users are admitted in ticket order")
+    void admissionShouldFollowTicketOrder() {
+        List<Long> tickets = joinAll(15);
+        assertEquals(List.of(1L, 2L, 3L), tickets.subList(0, 3));
+
+        Admission first = admit(releaseAt + 1_000);
+        assertEquals(10, first.admitted());
+        assertEquals(10, first.head());
+        assertEquals(5, first.queueLength());
+        Set<String> admitted = redisTemplate.opsForZSet().range(DropKeys.admitted(OUTLET_ID), 0, -1);
+        for (int user = 1; user <= 10; user++) {
+            assertTrue(admitted.contains(String.valueOf(user)), "user " + user + " should be admitted");
+        }
+        assertEquals("11", redisTemplate.opsForZSet().range(DropKeys.queue(OUTLET_ID), 0, 0).iterator().next());
+
+        Admission second = admit(releaseAt + 1_300);
+        assertEquals(3, second.admitted());
+        assertEquals(13, second.head());
+    }
+
+    @Test
+    @DisplayName("Live admissions never exceed maxActive")
+    void admissionsShouldRespectMaxActive() {
+        schedule(10, 3);
+        joinAll(10);
+
+        assertEquals(3, admit(releaseAt + 1_000).admitted());
+        assertEquals(0, admit(releaseAt + 1_400).admitted());
+
+        // The first admissions lapse at +1500ms and free their slots
+        Admission afterLapse = admit(releaseAt + 1_600);
+        assertEquals(3, afterLapse.admitted());
+        assertEquals(6, afterLapse.head());
+    }
+
+    @Test
+    @DisplayName("Nothing is admitted before release or after the end")
+    void admitShouldOnlyRunWhileReleased() {
+        joinAll(5);
+
+        Admission before = admit(releaseAt - 1);
+        assertEquals(0, before.released());
+        assertEquals(0, before.admitted());
+
+        Admission after = admit(endsAt);
+        assertEquals(0, after.released());
+        assertEquals(0, after.admitted());
+
+        redisTemplate.delete(DropKeys.drop(OUTLET_ID));
+        assertEquals(-1, admit(releaseAt + 1_000).released());
+    }
+
+    @Test
+    @DisplayName("The gate admits only admitted users while the drop runs")
+    void gateShouldFollowAdmission() {
+        joinAll(2);
+        redisTemplate.opsForHash().put(DropKeys.drop(OUTLET_ID), "rate", "1");
+        admit(releaseAt + 1_000);
+
+        assertEquals(0L, gate(1, releaseAt - 1));
+        assertEquals(1L, gate(1, releaseAt + 1_000));
+        assertEquals(-1L, gate(2, releaseAt + 1_000));
+        // The admission lapses after ADMIT_MILLIS
+        assertEquals(-1L, gate(1, releaseAt + 1_000 + ADMIT_MILLIS));
+        assertEquals(1L, gate(2, endsAt));
+
+        redisTemplate.delete(DropKeys.drop(OUTLET_ID));
+        assertEquals(1L, gate(2, releaseAt + 1_000));
+    }
+
+    @Test
+    @DisplayName("An ended drop can be rescheduled while its hash lingers; a running one cannot")
+    void scheduleShouldOnlyRefuseRunningDrop() {
+        WaitingRoomService waitingRoomService =
+                new WaitingRoomService(redisTemplate, mock(WebSocketService.class), meterRegistry);
+        ScheduleDropRequest request = ScheduleDropRequest.builder()
+                .releaseAt(LocalDateTime.now().plusHours(1))
+                .build();
+
+        // Ended a minute ago, still within the admission window that keeps the hash alive
+        long now = System.currentTimeMillis();
+        redisTemplate.opsForHash().putAll(DropKeys.drop(OUTLET_ID), Map.of(
+                "releaseAt", String.valueOf(now - 3_600_000L),
+                "endsAt", String.valueOf(now - 60_000L)));
+        assertNotNull(waitingRoomService.scheduleDrop(OUTLET_ID, request));
+
+        redisTemplate.opsForHash().putAll(DropKeys.drop(OUTLET_ID), Map.of(
+                "releaseAt", String.valueOf(now - 60_000L),
+                "endsAt", String.valueOf(now + 3_600_000L)));
+        BusinessException running = assertThrows(BusinessException.class,
+                () -> waitingRoomService.scheduleDrop(OUTLET_ID, request));
+        assertEquals("DROP_004", running.getErrorCode());
+    }
+
+    private void schedule(int rate, int maxActive) {
+        redisTemplate.delete(List.of(DropKeys.drop(OUTLET_ID), DropKeys.queue(OUTLET_ID), DropKeys.admitted(OUTLET_ID)));
+        redisTemplate.opsForHash().putAll(DropKeys.drop(OUTLET_ID), Map.of(
+                "releaseAt", String.valueOf(releaseAt),
+                "endsAt", String.valueOf(endsAt),
+                "rate", String.valueOf(rate),
+                "maxActive", String.valueOf(maxActive),
+                "maxQueue", "1000",
+                "admitMillis", String.valueOf(ADMIT_MILLIS)));
+    }
+
+    /**
+     * Queues users 1..count before the release and returns their tickets.
+     */
+    private List<Long> joinAll(int count) {
+        List<Long> tickets = new ArrayList<>();
+        for (int user = 1; user <= count; user++) {
+            List result = redisTemplate.execute(JOIN, keys(), String.valueOf(user), String.valueOf(releaseAt - 1_000));
+            assertEquals(1L, ((Number) result.get(0)).longValue());
+            tickets.add(((Number) result.get(1)).longValue());
+        }
+        return tickets;
+    }
+
+    private Admission admit(long now) {
+        List result = redisTemplate.execute(ADMIT, keys(), String.valueOf(now));
+        return new Admission(((Number) result.get(0)).intValue(), ((Number) result.get(1)).longValue(),
+                ((Number) result.get(2)).longValue(), ((Number) result.get(3)).intValue());
+    }
+
+    private Long gate(long userId, long now) {
+        return redisTemplate.execute(GATE, List.of(DropKeys.drop(OUTLET_ID), DropKeys.admitted(OUTLET_ID)),
+                String.valueOf(userId), String.valueOf(now));
+    }
+
+    private static List<String> keys() {
+        return List.of(DropKeys.drop(OUTLET_ID), DropKeys.queue(OUTLET_ID), DropKeys.admitted(OUTLET_ID));
+    }
+
+    private static RedisScript<List> script(String name) {
+        return RedisScript.of(new ClassPathResource("scripts/drop/" + name), List.class);
+    }
+
+    private record Admission(int admitted, long head, long queueLength, int released) {
+    }
+}
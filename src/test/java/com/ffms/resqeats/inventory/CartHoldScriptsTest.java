@@ -0,0 +1,258 @@
+package com.ffms.resqeats.inventory;
+
+import com.ffms.resqeats.inventory.service.CartCheckout;
+import com.ffms.resqeats.inventory.service.CartLineChange;
+import com.ffms.resqeats.inventory.service.CartLineResult;
+import com.ffms.resqeats.inventory.service.InventoryKeys;
+import com.ffms.resqeats.inventory.service.InventoryScripts;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Functional tests for the cart hold scripts ({@code cart_lines.lua}, {@code cart_checkout.lua}).
+ *
+ * Tests:
+ * - Adding, raising, lowering and removing a line moves the hold by exactly the difference
+ * - Outlet mismatch and lines missing from the cart are refused without changes
+ * - Concurrent changes from two tabs on one cart keep lines and holds in step
+ * - Checkout moves the cart's holds to the order and refuses a stale basket
+ */
+@Testcontainers(disabledWithoutDocker = true)
+@DisplayName("Cart Hold Scripts Tests")
+class CartHoldScriptsTest extends RedisInventoryTestSupport {
+
+    private static final long OUTLET_ID = 7L;
+    private static final long ITEM_ID = 42L;
+    private static final long OTHER_ITEM_ID = 43L;
+    private static final String CART_ID = "1001";
+    private static final String CART_KEY = "cart:" + CART_ID;
+    private static final byte[] DETAILS = "line".getBytes(StandardCharsets.UTF_8);
+
+    @BeforeEach
+    void setup() {
+        redisTemplate.opsForValue().set("inventory:" + ITEM_ID, "100");
+        redisTemplate.opsForValue().set("inventory:" + OTHER_ITEM_ID, "100");
+    }
+
+    @Test
+    @DisplayName("Add, raise, lower and remove move the hold by exactly the difference")
+    void lineChangesShouldMoveHoldByDelta() {
+        assertTrue(add(ITEM_ID, 3).isOk());
+        assertLine(ITEM_ID, 3);
+
+        assertTrue(add(ITEM_ID, 2).isOk());
+        assertLine(ITEM_ID, 5);
+
+        assertTrue(set(ITEM_ID, 2).isOk());
+        assertLine(ITEM_ID, 2);
+
+        CartLineResult removed = set(ITEM_ID, 0);
+        assertTrue(removed.isOk());
+        assertFalse(removed.getCart().containsKey("q:" + ITEM_ID));
+        assertNull(redisTemplate.opsForHash().get(InventoryKeys.holds(ITEM_ID), CART_ID));
+        assertNull(redisTemplate.opsForZSet().score(InventoryKeys.HOLD_DEADLINES,
+                InventoryKeys.holdMember(CART_ID, ITEM_ID)));
+        assertEquals("0", redisTemplate.opsForValue().get("inventory:reserved:" + ITEM_ID));
+        assertFalse(Boolean.TRUE.equals(redisTemplate.hasKey(InventoryKeys.quota(CART_ID))));
+    }
+
+    @Test
+    @DisplayName("A reclaimed hold is taken again by the next change")
+    void changeShouldRetakeReclaimedHold() {
+        assertTrue(add(ITEM_ID, 4).isOk());
+        redisTemplate.opsForZSet().add(InventoryKeys.HOLD_DEADLINES, InventoryKeys.holdMember(CART_ID, ITEM_ID), 0);
+        assertEquals(1, inventoryService.reclaimExpiredHolds(10));
+        assertEquals("0", redisTemplate.opsForValue().get("inventory:reserved:" + ITEM_ID));
+
+        assertTrue(set(ITEM_ID, 4).isOk());
+        assertLine(ITEM_ID, 4);
+    }
+
+    @Test
+    @DisplayName("Insufficient stock reports what the cart could hold and changes nothing")
+    void insufficientStockShouldReportFreePlusHeld() {
+        redisTemplate.opsForValue().set("inventory:" + ITEM_ID, "6");
+        assertTrue(add(ITEM_ID, 4).isOk());
+
+        CartLineResult result = set(ITEM_ID, 8);
+
+        assertEquals(InventoryScripts.STATUS_INSUFFICIENT, result.getStatus());
+        assertEquals(ITEM_ID, result.getOutletItemId());
+        assertEquals(6, result.getAvailable());
+        assertLine(ITEM_ID, 4);
+    }
+
+    @Test
+    @DisplayName("Items of another outlet are refused while the cart has lines")
+    void otherOutletShouldBeRefused() {
+        assertTrue(add(ITEM_ID, 2).isOk());
+
+        CartLineResult result = inventoryService.updateCartLines(CartLineChange.builder()
+                .cartKey(CART_KEY)
+                .cartId(CART_ID)
+                .outletId(OUTLET_ID + 1)
+                .increment(true)
+                .cartTtl(Duration.ofMinutes(10))
+                .line(new CartLineChange.Line(OTHER_ITEM_ID, 1, DETAILS))
+                .build());
+
+        assertEquals(CartLineResult.STATUS_OUTLET_MISMATCH, result.getStatus());
+        assertNull(redisTemplate.opsForHash().get(CART_KEY, "q:" + OTHER_ITEM_ID));
+        assertNull(redisTemplate.opsForValue().get("inventory:reserved:" + OTHER_ITEM_ID));
+        assertLine(ITEM_ID, 2);
+    }
+
+    @Test
+    @DisplayName("Setting a line that is not in the cart is refused")
+    void setShouldRefuseMissingLine() {
+        assertTrue(add(ITEM_ID, 2).isOk());
+
+        CartLineResult result = set(OTHER_ITEM_ID, 3);
+
+        assertEquals(CartLineResult.STATUS_NOT_IN_CART, result.getStatus());
+        assertEquals(OTHER_ITEM_ID, result.getOutletItemId());
+        assertNull(redisTemplate.opsForHash().get(InventoryKeys.holds(OTHER_ITEM_ID), CART_ID));
+        assertLine(ITEM_ID, 2);
+    }
+
+    @Test
+    @DisplayName("Concurrent changes from two tabs keep every line and hold in step")
+    void concurrentTabsShouldKeepLinesAndHoldsInStep() throws Exception {
+        ReflectionTestUtils.setField(inventoryService, "maxUnitsPerItem", 0);
+        ReflectionTestUtils.setField(inventoryService, "maxUnitsPerUser", 0);
+        redisTemplate.opsForValue().set("inventory:" + ITEM_ID, "1000");
+        int changesPerTab = 50;
+
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        CountDownLatch start = new CountDownLatch(1);
+        try {
+            List<Future<Boolean>> tabs = new ArrayList<>();
+            for (long ownItem : List.of(ITEM_ID, OTHER_ITEM_ID)) {
+                tabs.add(executor.submit(() -> {
+                    start.await();
+                    boolean ok = true;
+                    for (int i = 0; i < changesPerTab; i++) {
+                        ok &= add(ITEM_ID, 1).isOk();
+                        ok &= add(ownItem, 1).isOk();
+                    }
+                    return ok;
+                }));
+            }
+            start.countDown();
+            for (Future<Boolean> tab : tabs) {
+                assertTrue(tab.get(30, TimeUnit.SECONDS));
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        assertLine(ITEM_ID, 3 * changesPerTab);
+        assertLine(OTHER_ITEM_ID, changesPerTab);
+        assertEquals(String.valueOf(4 * changesPerTab),
+                redisTemplate.opsForHash().get(InventoryKeys.quota(CART_ID), "units"));
+    }
+
+    @Test
+    @DisplayName("Checkout moves the cart's holds to the order and removes the cart")
+    void checkoutShouldMoveHoldsToOrder() {
+        assertTrue(add(ITEM_ID, 3).isOk());
+        assertTrue(add(OTHER_ITEM_ID, 2).isOk());
+        String holder = InventoryKeys.orderHolder(9L);
+        long deadline = System.currentTimeMillis() + 60_000;
+
+        CartLineResult result = inventoryService.checkoutCart(checkout(holder, deadline, 3, 2));
+
+        assertTrue(result.isOk());
+        assertFalse(Boolean.TRUE.equals(redisTemplate.hasKey(CART_KEY)));
+        assertFalse(Boolean.TRUE.equals(redisTemplate.hasKey(InventoryKeys.quota(CART_ID))));
+        assertNull(redisTemplate.opsForHash().get(InventoryKeys.holds(ITEM_ID), CART_ID));
+        assertEquals("3", redisTemplate.opsForHash().get(InventoryKeys.holds(ITEM_ID), holder));
+        assertEquals("2", redisTemplate.opsForHash().get(InventoryKeys.holds(OTHER_ITEM_ID), holder));
+        assertEquals("3", redisTemplate.opsForValue().get("inventory:reserved:" + ITEM_ID));
+        assertEquals("2", redisTemplate.opsForValue().get("inventory:reserved:" + OTHER_ITEM_ID));
+        assertNull(redisTemplate.opsForZSet().score(InventoryKeys.HOLD_DEADLINES,
+                InventoryKeys.holdMember(CART_ID, ITEM_ID)));
+        assertEquals((double) deadline, redisTemplate.opsForZSet().score(InventoryKeys.HOLD_DEADLINES,
+                InventoryKeys.holdMember(holder, ITEM_ID)));
+    }
+
+    @Test
+    @DisplayName("Checkout of a basket changed since validation is refused without changes")
+    void checkoutShouldRefuseStaleBasket() {
+        assertTrue(add(ITEM_ID, 3).isOk());
+        assertTrue(add(OTHER_ITEM_ID, 2).isOk());
+        String holder = InventoryKeys.orderHolder(9L);
+
+        assertTrue(add(ITEM_ID, 1).isOk());
+        CartLineResult changedQuantity = inventoryService.checkoutCart(
+                checkout(holder, System.currentTimeMillis() + 60_000, 3, 2));
+        assertEquals(CartLineResult.STATUS_CART_CHANGED, changedQuantity.getStatus());
+
+        assertTrue(set(OTHER_ITEM_ID, 0).isOk());
+        CartLineResult removedLine = inventoryService.checkoutCart(
+                checkout(holder, System.currentTimeMillis() + 60_000, 4, 2));
+        assertEquals(CartLineResult.STATUS_CART_CHANGED, removedLine.getStatus());
+
+        assertNull(redisTemplate.opsForHash().get(InventoryKeys.holds(ITEM_ID), holder));
+        assertLine(ITEM_ID, 4);
+        assertTrue(Boolean.TRUE.equals(redisTemplate.hasKey(InventoryKeys.quota(CART_ID))));
+    }
+
+    private CartLineResult add(long outletItemId, int quantity) {
+        return inventoryService.updateCartLines(CartLineChange.builder()
+                .cartKey(CART_KEY)
+                .cartId(CART_ID)
+                .outletId(OUTLET_ID)
+                .increment(true)
+                .cartTtl(Duration.ofMinutes(10))
+                .line(new CartLineChange.Line(outletItemId, quantity, DETAILS))
+                .build());
+    }
+
+    private CartLineResult set(long outletItemId, int quantity) {
+        return inventoryService.updateCartLines(CartLineChange.builder()
+                .cartKey(CART_KEY)
+                .cartId(CART_ID)
+                .increment(false)
+                .cartTtl(Duration.ofMinutes(10))
+                .line(new CartLineChange.Line(outletItemId, quantity, null))
+                .build());
+    }
+
+    private CartCheckout checkout(String holder, long deadline, int quantity, int otherQuantity) {
+        return CartCheckout.builder()
+                .cartKey(CART_KEY)
+                .cartId(CART_ID)
+                .outletId(OUTLET_ID)
+                .holderId(holder)
+                .deadline(deadline)
+                .quantity(ITEM_ID, quantity)
+                .quantity(OTHER_ITEM_ID, otherQuantity)
+                .build();
+    }
+
+    /**
+     * Asserts that the cart line, the cart's hold and the item's reserved counter all equal the quantity.
+     */
+    private void assertLine(long outletItemId, int quantity) {
+        String expected = String.valueOf(quantity);
+        assertEquals(expected, redisTemplate.opsForHash().get(CART_KEY, "q:" + outletItemId));
+        assertEquals(expected, redisTemplate.opsForHash().get(InventoryKeys.holds(outletItemId), CART_ID));
+        assertEquals(expected, redisTemplate.opsForValue().get("inventory:reserved:" + outletItemId));
+    }
+}
@@ -0,0 +1,136 @@
+package com.ffms.resqeats.inventory;
+
+import com.ffms.resqeats.inventory.service.CartLineChange;
+import com.ffms.resqeats.inventory.service.CartLineResult;
+import com.ffms.resqeats.inventory.service.InventoryKeys;
+import com.ffms.resqeats.item.repository.OutletItemRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Functional tests for the daily reset script ({@code reset_daily.lua}).
+ *
+ * Tests:
+ * - Order holds are kept and become the reserved count; cart holds are dropped
+ * - Dropped cart lines leave the cart's other lines and recount its quota
+ * - Unflushed and in-flight deltas of the reset item are discarded
+ */
+@Testcontainers(disabledWithoutDocker = true)
+@DisplayName("Daily Stock Reset Script Tests")
+class DailyStockResetScriptTest extends RedisInventoryTestSupport {
+
+    private static final long OUTLET_ID = 7L;
+    private static final long ITEM_ID = 42L;
+    private static final long OTHER_ITEM_ID = 43L;
+    private static final String CART_ID = "1001";
+    private static final String OTHER_CART_ID = "1002";
+    private static final String ORDER_HOLDER = InventoryKeys.orderHolder(9L);
+    private static final byte[] DETAILS = "line".getBytes(StandardCharsets.UTF_8);
+
+    @BeforeEach
+    void setup() {
+        redisTemplate.opsForValue().set("inventory:" + ITEM_ID, "10");
+        redisTemplate.opsForValue().set("inventory:" + OTHER_ITEM_ID, "10");
+
+        assertTrue(add(CART_ID, ITEM_ID, 3).isOk());
+        assertTrue(add(CART_ID, OTHER_ITEM_ID, 2).isOk());
+        assertTrue(add(OTHER_CART_ID, ITEM_ID, 1).isOk());
+
+        // An order awaiting acceptance that took over 2 units at checkout
+        redisTemplate.opsForHash().put(InventoryKeys.holds(ITEM_ID), ORDER_HOLDER, "2");
+        redisTemplate.opsForValue().increment("inventory:reserved:" + ITEM_ID, 2);
+        assertEquals("6", redisTemplate.opsForValue().get("inventory:reserved:" + ITEM_ID));
+    }
+
+    @Test
+    @DisplayName("Order holds are kept and cart holds are dropped")
+    void resetShouldKeepOrderHoldsAndDropCartHolds() {
+        inventoryService.resetDailyStock(List.of(level(ITEM_ID, 20)));
+
+        assertEquals("20", redisTemplate.opsForValue().get("inventory:" + ITEM_ID));
+        assertEquals("2", redisTemplate.opsForValue().get("inventory:reserved:" + ITEM_ID));
+        assertEquals("2", redisTemplate.opsForHash().get(InventoryKeys.holds(ITEM_ID), ORDER_HOLDER));
+        assertNull(redisTemplate.opsForHash().get(InventoryKeys.holds(ITEM_ID), CART_ID));
+        assertNull(redisTemplate.opsForHash().get(InventoryKeys.holds(ITEM_ID), OTHER_CART_ID));
+        assertNull(redisTemplate.opsForZSet().score(InventoryKeys.HOLD_DEADLINES,
+                InventoryKeys.holdMember(CART_ID, ITEM_ID)));
+        assertNull(redisTemplate.opsForZSet().score(InventoryKeys.HOLD_DEADLINES,
+                InventoryKeys.holdMember(OTHER_CART_ID, ITEM_ID)));
+
+        // Other items are untouched
+        assertEquals("2", redisTemplate.opsForValue().get("inventory:reserved:" + OTHER_ITEM_ID));
+        assertEquals("2", redisTemplate.opsForHash().get(InventoryKeys.holds(OTHER_ITEM_ID), CART_ID));
+        assertNotNull(redisTemplate.opsForZSet().score(InventoryKeys.HOLD_DEADLINES,
+                InventoryKeys.holdMember(CART_ID, OTHER_ITEM_ID)));
+    }
+
+    @Test
+    @DisplayName("Dropped lines leave the cart's other lines and recount its quota")
+    void resetShouldDropCartLinesAndRecountQuota() {
+        inventoryService.resetDailyStock(List.of(level(ITEM_ID, 20)));
+
+        String cart = "cart:" + CART_ID;
+        assertNull(redisTemplate.opsForHash().get(cart, "q:" + ITEM_ID));
+        assertNull(redisTemplate.opsForHash().get(cart, "l:" + ITEM_ID));
+        assertEquals("2", redisTemplate.opsForHash().get(cart, "q:" + OTHER_ITEM_ID));
+        assertEquals("2", redisTemplate.opsForHash().get(InventoryKeys.quota(CART_ID), "units"));
+
+        // A cart left without lines loses its quota
+        assertNull(redisTemplate.opsForHash().get("cart:" + OTHER_CART_ID, "q:" + ITEM_ID));
+        assertFalse(Boolean.TRUE.equals(redisTemplate.hasKey(InventoryKeys.quota(OTHER_CART_ID))));
+    }
+
+    @Test
+    @DisplayName("Unflushed and in-flight deltas of the reset item are discarded")
+    void resetShouldDiscardDeltas() {
+        redisTemplate.opsForHash().put(InventoryKeys.PENDING_DELTAS, String.valueOf(ITEM_ID), "-3");
+        redisTemplate.opsForHash().put(InventoryKeys.PENDING_DELTAS, String.valueOf(OTHER_ITEM_ID), "-1");
+        redisTemplate.opsForHash().put(InventoryKeys.INFLIGHT_DELTAS, InventoryKeys.BATCH_ID_FIELD, "batch-1");
+        redisTemplate.opsForHash().put(InventoryKeys.INFLIGHT_DELTAS, String.valueOf(ITEM_ID), "-2");
+
+        inventoryService.resetDailyStock(List.of(level(ITEM_ID, 20)));
+
+        assertNull(redisTemplate.opsForHash().get(InventoryKeys.PENDING_DELTAS, String.valueOf(ITEM_ID)));
+        assertEquals("-1", redisTemplate.opsForHash().get(InventoryKeys.PENDING_DELTAS, String.valueOf(OTHER_ITEM_ID)));
+        assertNull(redisTemplate.opsForHash().get(InventoryKeys.INFLIGHT_DELTAS, String.valueOf(ITEM_ID)));
+        assertEquals("batch-1", redisTemplate.opsForHash().get(InventoryKeys.INFLIGHT_DELTAS, InventoryKeys.BATCH_ID_FIELD));
+    }
+
+    private CartLineResult add(String cartId, long outletItemId, int quantity) {
+        return inventoryService.updateCartLines(CartLineChange.builder()
+                .cartKey("cart:" + cartId)
+                .cartId(cartId)
+                .outletId(OUTLET_ID)
+                .increment(true)
+                .cartTtl(Duration.ofMinutes(10))
+                .line(new CartLineChange.Line(outletItemId, quantity, DETAILS))
+                .build());
+    }
+
+    private static OutletItemRepository.StockLevel level(long outletItemId, int quantity) {
+        return new OutletItemRepository.StockLevel() {
+            @Override
+            public Long getId() {
+                return outletItemId;
+            }
+
+            @Override
+            public Long getOutletId() {
+                return OUTLET_ID;
+            }
+
+            @Override
+            public Integer getCurrentQuantity() {
+                return quantity;
+            }
+        };
+    }
+}
@@ -0,0 +1,123 @@
+package com.ffms.resqeats.inventory;
+
+import com.ffms.resqeats.common.exception.BusinessException;
+import com.ffms.resqeats.inventory.service.InventoryCircuitBreaker;
+import com.ffms.resqeats.inventory.service.InventoryFallbackService;
+import com.ffms.resqeats.inventory.service.InventoryLayout;
+import com.ffms.resqeats.inventory.service.InventoryNearCache;
+import com.ffms.resqeats.inventory.service.InventoryScripts;
+import com.ffms.resqeats.inventory.service.InventoryService;
+import com.ffms.resqeats.item.repository.OutletItemRepository;
+import io.lettuce.core.RedisConnectionException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.QueryTimeoutException;
+import org.springframework.data.redis.RedisConnectionFailureException;
+import org.springframework.data.redis.core.StringRedisTemplate;
+
+import java.io.IOException;
+import java.net.ConnectException;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyMap;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+
+/**
+ * Stock writes while Redis fails.
+ *
+ * Tests:
+ * - A timed-out write fails with INV_005 and is not repeated on the database
+ * - A connection lost mid-command fails the same way
+ * - A refused connection is served from the database
+ * - Once the breaker is open, writes go to the database without trying Redis
+ */
+@DisplayName("Inventory Degraded Write Tests")
+class InventoryDegradedWriteTest {
+
+    private static final long OUTLET_ITEM_ID = 42L;
+
+    private final AtomicReference<RuntimeException> redisFailure = new AtomicReference<>();
+
+    private InventoryFallbackService fallbackService;
+    private InventoryCircuitBreaker circuitBreaker;
+    private InventoryService inventoryService;
+
+    @BeforeEach
+    void setup() {
+        // Every Redis command fails with whatever the test sets
+        StringRedisTemplate redisTemplate = mock(StringRedisTemplate.class, invocation -> {
+            throw redisFailure.get();
+        });
+        OutletItemRepository outletItemRepository = mock(OutletItemRepository.class);
+        fallbackService = mock(InventoryFallbackService.class);
+
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        circuitBreaker = new InventoryCircuitBreaker(meterRegistry, 3);
+        inventoryService = new InventoryService(redisTemplate, outletItemRepository, new InventoryScripts(),
+                new InventoryLayout(redisTemplate, outletItemRepository, InventoryLayout.KEYS, "", 8),
+                new InventoryNearCache(redisTemplate, meterRegistry, 1000, 1000), circuitBreaker,
+                fallbackService, meterRegistry);
+    }
+
+    @Test
+    @DisplayName("A timed-out write fails with INV_005 instead of writing the database too")
+    void timeoutShouldNotFallBack() {
+        redisFailure.set(new QueryTimeoutException("Redis command timed out"));
+
+        assertInv005(() -> inventoryService.decrementStock(OUTLET_ITEM_ID, 1));
+        assertInv005(() -> inventoryService.commitStock(Map.of(OUTLET_ITEM_ID, 1), "order:9"));
+
+        verify(fallbackService, never()).decrementStock(anyLong(), anyInt());
+        verify(fallbackService, never()).commitStock(anyMap());
+    }
+
+    @Test
+    @DisplayName("A connection lost mid-command fails with INV_005 instead of writing the database too")
+    void droppedConnectionShouldNotFallBack() {
+        redisFailure.set(new RedisConnectionFailureException("Connection reset",
+                new IOException("Connection reset by peer")));
+
+        assertInv005(() -> inventoryService.incrementStock(OUTLET_ITEM_ID, 1));
+
+        verify(fallbackService, never()).incrementStock(anyLong(), anyInt());
+    }
+
+    @Test
+    @DisplayName("A refused connection is served from the database")
+    void refusedConnectionShouldFallBack() {
+        redisFailure.set(new RedisConnectionFailureException("Unable to connect to Redis",
+                new RedisConnectionException("Unable to connect to localhost:6379",
+                        new ConnectException("Connection refused"))));
+
+        inventoryService.decrementStock(OUTLET_ITEM_ID, 1);
+
+        verify(fallbackService).decrementStock(OUTLET_ITEM_ID, 1);
+    }
+
+    @Test
+    @DisplayName("Timeouts trip the breaker, after which writes go to the database")
+    void openBreakerShouldServeWritesFromDatabase() {
+        redisFailure.set(new QueryTimeoutException("Redis command timed out"));
+        for (int i = 0; i < 3; i++) {
+            assertInv005(() -> inventoryService.incrementStock(OUTLET_ITEM_ID, 1));
+        }
+        assertFalse(circuitBreaker.isClosed());
+
+        inventoryService.incrementStock(OUTLET_ITEM_ID, 1);
+
+        verify(fallbackService).incrementStock(OUTLET_ITEM_ID, 1);
+    }
+
+    private static void assertInv005(Runnable write) {
+        BusinessException e = assertThrows(BusinessException.class, write::run);
+        assertEquals("INV_005", e.getErrorCode());
+    }
+}
@@ -0,0 +1,149 @@
+package com.ffms.resqeats.inventory;
+
+import com.ffms.resqeats.inventory.service.InventoryDriftService;
+import com.ffms.resqeats.inventory.service.InventoryKeys;
+import com.ffms.resqeats.inventory.service.InventoryLayout;
+import com.ffms.resqeats.inventory.service.InventoryNearCache;
+import com.ffms.resqeats.inventory.service.InventoryScripts;
+import com.ffms.resqeats.item.repository.OutletItemRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.when;
+
+/**
+ * Drift inspection and healing against a real Redis.
+ *
+ * The database is a mocked repository. Its second read of a chunk happens after the Redis
+ * snapshot and before any heal, so the tests use it to change things mid-inspection.
+ *
+ * Tests:
+ * - A drifting stock counter is healed to persisted quantity plus pending delta
+ * - A counter that changes between inspect_drift.lua and heal_stock.lua is not overwritten
+ * - An item whose persisted quantity changed during the snapshot is skipped
+ * - An item with a write-behind batch in flight is skipped
+ */
+@Testcontainers(disabledWithoutDocker = true)
+@DisplayName("Inventory Drift Service Tests")
+class InventoryDriftServiceTest extends RedisInventoryTestSupport {
+
+    private static final long OUTLET_ID = 7L;
+    private static final long ITEM_ID = 42L;
+    private static final String STOCK_KEY = "inventory:" + ITEM_ID;
+
+    private InventoryDriftService driftService;
+
+    @BeforeEach
+    void setup() {
+        driftService = new InventoryDriftService(redisTemplate, outletItemRepository, new InventoryScripts(),
+                new InventoryLayout(redisTemplate, outletItemRepository, InventoryLayout.KEYS, "", 8),
+                circuitBreaker, new InventoryNearCache(redisTemplate, meterRegistry, 1000, 1000), meterRegistry);
+        ReflectionTestUtils.setField(driftService, "autoHeal", true);
+
+        // Persisted 10, pending -2: Redis should hold 8 but holds 11
+        redisTemplate.opsForValue().set(STOCK_KEY, "11");
+        redisTemplate.opsForHash().put(InventoryKeys.PENDING_DELTAS, String.valueOf(ITEM_ID), "-2");
+        when(outletItemRepository.findStockLevelsAfter(eq(0L), any())).thenReturn(List.of(level(10)));
+    }
+
+    @Test
+    @DisplayName("Stock drift is healed to persisted quantity plus pending delta")
+    void driftShouldBeHealed() {
+        secondReadReturns(10, null);
+
+        driftService.inspectDrift();
+
+        assertEquals("8", redisTemplate.opsForValue().get(STOCK_KEY));
+        assertEquals(1.0, meterRegistry.counter("resqeats.inventory.drift.healed", "type", "stock").count());
+    }
+
+    @Test
+    @DisplayName("A counter that changes after the snapshot is not overwritten")
+    void counterChangedAfterSnapshotShouldNotBeHealed() {
+        // An order takes a unit between inspect_drift.lua and heal_stock.lua
+        secondReadReturns(10, () -> redisTemplate.opsForValue().decrement(STOCK_KEY));
+
+        driftService.inspectDrift();
+
+        assertEquals("10", redisTemplate.opsForValue().get(STOCK_KEY));
+        assertEquals(1.0, meterRegistry.counter("resqeats.inventory.drift.items", "type", "stock").count());
+        assertEquals(0.0, meterRegistry.counter("resqeats.inventory.drift.healed", "type", "stock").count());
+    }
+
+    @Test
+    @DisplayName("A pending delta that changes after the snapshot blocks the heal")
+    void pendingChangedAfterSnapshotShouldNotBeHealed() {
+        secondReadReturns(10, () -> redisTemplate.opsForHash()
+                .increment(InventoryKeys.PENDING_DELTAS, String.valueOf(ITEM_ID), -1));
+
+        driftService.inspectDrift();
+
+        assertEquals("11", redisTemplate.opsForValue().get(STOCK_KEY));
+        assertEquals(0.0, meterRegistry.counter("resqeats.inventory.drift.healed", "type", "stock").count());
+    }
+
+    @Test
+    @DisplayName("An item whose persisted quantity changed during the snapshot is skipped")
+    void persistedChangeShouldSkipItem() {
+        secondReadReturns(9, null);
+
+        driftService.inspectDrift();
+
+        assertEquals("11", redisTemplate.opsForValue().get(STOCK_KEY));
+        assertEquals(1.0, meterRegistry.counter("resqeats.inventory.drift.skipped").count());
+        assertEquals(0.0, meterRegistry.counter("resqeats.inventory.drift.items", "type", "stock").count());
+    }
+
+    @Test
+    @DisplayName("An item with a write-behind batch in flight is skipped")
+    void inFlightBatchShouldSkipItem() {
+        redisTemplate.opsForHash().put(InventoryKeys.INFLIGHT_DELTAS, InventoryKeys.BATCH_ID_FIELD, "batch-1");
+        redisTemplate.opsForHash().put(InventoryKeys.INFLIGHT_DELTAS, String.valueOf(ITEM_ID), "-1");
+        secondReadReturns(10, null);
+
+        driftService.inspectDrift();
+
+        assertEquals("11", redisTemplate.opsForValue().get(STOCK_KEY));
+        assertEquals(1.0, meterRegistry.counter("resqeats.inventory.drift.skipped").count());
+        assertEquals(0.0, meterRegistry.counter("resqeats.inventory.drift.items", "type", "stock").count());
+    }
+
+    /**
+     * Stubs the re-read that follows the snapshot, optionally changing Redis first.
+     */
+    private void secondReadReturns(int persisted, Runnable meanwhile) {
+        when(outletItemRepository.findStockLevelsAfter(eq(ITEM_ID - 1), any())).thenAnswer(invocation -> {
+            if (meanwhile != null) {
+                meanwhile.run();
+            }
+            return List.of(level(persisted));
+        });
+    }
+
+    private static OutletItemRepository.StockLevel level(int quantity) {
+        return new OutletItemRepository.StockLevel() {
+            @Override
+            public Long getId() {
+                return ITEM_ID;
+            }
+
+            @Override
+            public Long getOutletId() {
+                return OUTLET_ID;
+            }
+
+            @Override
+            public Integer getCurrentQuantity() {
+                return quantity;
+            }
+        };
+    }
+}
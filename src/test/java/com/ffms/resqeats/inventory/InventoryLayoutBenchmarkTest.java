@@ -0,0 +1,146 @@
+package com.ffms.resqeats.inventory;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.data.redis.connection.StringRedisConnection;
+import org.springframework.data.redis.connection.lettuce.LettuceConnectionFactory;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.testcontainers.containers.GenericContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+import org.testcontainers.utility.DockerImageName;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Memory and read-latency comparison of the two inventory Redis layouts.
+ *
+ * Run with: mvn test -Dtest=InventoryLayoutBenchmarkTest -Dbenchmark=true
+ *
+ * Compares:
+ * - Per-item string keys (inventory:{id}, inventory:reserved:{id}) read with MGET
+ * - Per-outlet hash (inventory:outlet:{outletId}) read with HGETALL
+ */
+@Testcontainers(disabledWithoutDocker = true)
+@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+@DisplayName("Inventory Layout Benchmark")
+class InventoryLayoutBenchmarkTest {
+
+    private static final int OUTLETS = 500;
+    private static final int ITEMS_PER_OUTLET = 40;
+    private static final int READS = 5_000;
+
+    @Container
+    private static final GenericContainer<?> REDIS =
+            new GenericContainer<>(DockerImageName.parse("redis:7-alpine")).withExposedPorts(6379);
+
+    private static LettuceConnectionFactory connectionFactory;
+    private static StringRedisTemplate redisTemplate;
+
+    @BeforeAll
+    static void connect() {
+        connectionFactory = new LettuceConnectionFactory(REDIS.getHost(), REDIS.getMappedPort(6379));
+        connectionFactory.afterPropertiesSet();
+        redisTemplate = new StringRedisTemplate(connectionFactory);
+    }
+
+    @AfterAll
+    static void disconnect() {
+        connectionFactory.destroy();
+    }
+
+    @Test
+    @DisplayName("Outlet hash layout uses less memory and reads a menu in one command")
+    void compareLayouts() {
+        long keysMemory = measureMemory(this::populatePerItemKeys);
+        long keysLatency = measureMenuReads(outletId -> redisTemplate.opsForValue().multiGet(menuKeys(outletId)));
+
+        long hashMemory = measureMemory(this::populateOutletHashes);
+        long hashLatency = measureMenuReads(outletId ->
+                redisTemplate.opsForHash().entries("inventory:outlet:" + outletId));
+
+        System.out.printf("Inventory layout benchmark (%d outlets x %d items)%n", OUTLETS, ITEMS_PER_OUTLET);
+        System.out.printf("  per-item keys: memory=%d bytes, menu read=%d us%n", keysMemory, keysLatency / 1000);
+        System.out.printf("  outlet hash:   memory=%d bytes, menu read=%d us%n", hashMemory, hashLatency / 1000);
+
+        assertTrue(hashMemory < keysMemory, "outlet hash layout should use less memory");
+    }
+
+    private void populatePerItemKeys() {
+        redisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+            StringRedisConnection conn = (StringRedisConnection) connection;
+            for (int outlet = 0; outlet < OUTLETS; outlet++) {
+                for (int item = 0; item < ITEMS_PER_OUTLET; item++) {
+                    long id = itemId(outlet, item);
+                    conn.set("inventory:" + id, "25");
+                    conn.set("inventory:reserved:" + id, "3");
+                }
+            }
+            return null;
+        });
+    }
+
+    private void populateOutletHashes() {
+        redisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+            StringRedisConnection conn = (StringRedisConnection) connection;
+            for (int outlet = 0; outlet < OUTLETS; outlet++) {
+                for (int item = 0; item < ITEMS_PER_OUTLET; item++) {
+                    long id = itemId(outlet, item);
+                    conn.hSet("inventory:outlet:" + outlet, "s:" + id, "25");
+                    conn.hSet("inventory:outlet:" + outlet, "r:" + id, "3");
+                }
+            }
+            return null;
+        });
+    }
+
+    private long measureMemory(Runnable populate) {
+        redisTemplate.getRequiredConnectionFactory().getConnection().serverCommands().flushAll();
+        long before = usedMemory();
+        populate.run();
+        return usedMemory() - before;
+    }
+
+    private long measureMenuReads(MenuRead read) {
+        for (int i = 0; i < READS / 10; i++) {
+            read.run(i % OUTLETS);
+        }
+        long start = System.nanoTime();
+        for (int i = 0; i < READS; i++) {
+            read.run(i % OUTLETS);
+        }
+        return (System.nanoTime() - start) / READS;
+    }
+
+    private List<String> menuKeys(int outlet) {
+        List<String> keys = new ArrayList<>(ITEMS_PER_OUTLET * 2);
+        for (int item = 0; item < ITEMS_PER_OUTLET; item++) {
+            long id = itemId(outlet, item);
+            keys.add("inventory:" + id);
+            keys.add("inventory:reserved:" + id);
+        }
+        return keys;
+    }
+
+    private static long itemId(int outlet, int item) {
+        return (long) outlet * ITEMS_PER_OUTLET + item + 1;
+    }
+
+    private static long usedMemory() {
+        Properties info = redisTemplate.getRequiredConnectionFactory().getConnection().serverCommands().info("memory");
+        return Long.parseLong(info.getProperty("used_memory"));
+    }
+
+    @FunctionalInterface
+    private interface MenuRead {
+        void run(int outletId);
+    }
+}
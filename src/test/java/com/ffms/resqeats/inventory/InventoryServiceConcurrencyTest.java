@@ -0,0 +1,179 @@
+package com.ffms.resqeats.inventory;
+
+import com.ffms.resqeats.common.exception.BusinessException;
+import com.ffms.resqeats.inventory.service.CartLineChange;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Concurrency tests for the scripted inventory reservation engine.
+ *
+ * Tests:
+ * - No oversell when hundreds of carts reserve a single item at once
+ * - No oversell when hundreds of orders decrement a single item at once
+ * - Releasing holds returns exactly the reserved units
+ * - Concurrent sweeps reclaim expired holds exactly once
+ * - Multi-item order commits are all-or-nothing
+ */
+@Testcontainers(disabledWithoutDocker = true)
+@DisplayName("Inventory Service Concurrency Tests")
+class InventoryServiceConcurrencyTest extends RedisInventoryTestSupport {
+
+    private static final int THREADS = 300;
+    private static final long OUTLET_ITEM_ID = 42L;
+    private static final long OUTLET_ID = 7L;
+    private static final byte[] DETAILS = "line".getBytes(StandardCharsets.UTF_8);
+
+    @Test
+    @DisplayName("Concurrent cart reservations never exceed stock")
+    void concurrentReservationsShouldNotOversell() throws Exception {
+        int stock = 100;
+        redisTemplate.opsForValue().set("inventory:" + OUTLET_ITEM_ID, String.valueOf(stock));
+
+        List<Boolean> results = runConcurrently(i ->
+                reserve("cart-" + i));
+
+        long successes = results.stream().filter(Boolean::booleanValue).count();
+        assertEquals(stock, successes);
+        assertEquals(String.valueOf(stock), redisTemplate.opsForValue().get("inventory:reserved:" + OUTLET_ITEM_ID));
+        assertEquals(0, inventoryService.getAvailableStock(OUTLET_ITEM_ID));
+    }
+
+    @Test
+    @DisplayName("Concurrent decrements never drive stock below zero")
+    void concurrentDecrementsShouldNotOversell() throws Exception {
+        int stock = 50;
+        redisTemplate.opsForValue().set("inventory:" + OUTLET_ITEM_ID, String.valueOf(stock));
+
+        List<Boolean> results = runConcurrently(i -> {
+            try {
+                inventoryService.decrementStock(OUTLET_ITEM_ID, 1);
+                return true;
+            } catch (BusinessException e) {
+                assertEquals("INV_001", e.getErrorCode());
+                return false;
+            }
+        });
+
+        long successes = results.stream().filter(Boolean::booleanValue).count();
+        assertEquals(stock, successes);
+        assertEquals("0", redisTemplate.opsForValue().get("inventory:" + OUTLET_ITEM_ID));
+    }
+
+    @Test
+    @DisplayName("Releasing every hold returns reserved stock to zero")
+    void releasingHoldsShouldRestoreAvailability() throws Exception {
+        int stock = 100;
+        redisTemplate.opsForValue().set("inventory:" + OUTLET_ITEM_ID, String.valueOf(stock));
+
+        runConcurrently(i -> reserve("cart-" + i));
+        runConcurrently(i -> {
+            inventoryService.releaseCartReservation(OUTLET_ITEM_ID, "cart-" + i);
+            return true;
+        });
+
+        assertEquals("0", redisTemplate.opsForValue().get("inventory:reserved:" + OUTLET_ITEM_ID));
+        assertEquals(stock, inventoryService.getAvailableStock(OUTLET_ITEM_ID));
+    }
+
+    @Test
+    @DisplayName("Concurrent sweeps reclaim each expired hold exactly once")
+    void concurrentSweepsShouldReclaimExpiredHoldsOnce() throws Exception {
+        int stock = 100;
+        redisTemplate.opsForValue().set("inventory:" + OUTLET_ITEM_ID, String.valueOf(stock));
+
+        runConcurrently(i -> reserve("cart-" + i));
+        for (int i = 0; i < THREADS; i++) {
+            redisTemplate.opsForZSet().add("inventory:holds:deadlines", OUTLET_ITEM_ID + ":cart-" + i, 0);
+        }
+
+        List<Boolean> results = runConcurrently(i -> inventoryService.reclaimExpiredHolds(10) > 0);
+
+        assertTrue(results.contains(true));
+        assertEquals("0", redisTemplate.opsForValue().get("inventory:reserved:" + OUTLET_ITEM_ID));
+        assertEquals(0, redisTemplate.opsForHash().size("inventory:holds:" + OUTLET_ITEM_ID));
+        assertEquals(stock, inventoryService.getAvailableStock(OUTLET_ITEM_ID));
+    }
+
+    @Test
+    @DisplayName("Concurrent order commits decrement every line or none")
+    void concurrentOrderCommitsShouldBeAllOrNothing() throws Exception {
+        long otherItemId = OUTLET_ITEM_ID + 1;
+        redisTemplate.opsForValue().set("inventory:" + OUTLET_ITEM_ID, "100");
+        redisTemplate.opsForValue().set("inventory:" + otherItemId, "30");
+
+        List<Boolean> results = runConcurrently(i -> {
+            try {
+                inventoryService.commitStock(Map.of(OUTLET_ITEM_ID, 1, otherItemId, 1));
+                return true;
+            } catch (BusinessException e) {
+                assertEquals("INV_001", e.getErrorCode());
+                return false;
+            }
+        });
+
+        long successes = results.stream().filter(Boolean::booleanValue).count();
+        assertEquals(30, successes);
+        assertEquals("0", redisTemplate.opsForValue().get("inventory:" + otherItemId));
+        assertEquals("70", redisTemplate.opsForValue().get("inventory:" + OUTLET_ITEM_ID));
+    }
+
+    /**
+     * Adds one unit of the item to a cart through the cart lines script, as the cart does.
+     */
+    private boolean reserve(String cartId) {
+        return inventoryService.updateCartLines(CartLineChange.builder()
+                .cartKey("cart:" + cartId)
+                .cartId(cartId)
+                .outletId(OUTLET_ID)
+                .increment(true)
+                .cartTtl(Duration.ofMinutes(10))
+                .line(new CartLineChange.Line(OUTLET_ITEM_ID, 1, DETAILS))
+                .build()).isOk();
+    }
+
+    private List<Boolean> runConcurrently(IndexedTask task) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        CountDownLatch start = new CountDownLatch(1);
+        try {
+            List<Future<Boolean>> futures = new ArrayList<>();
+            for (int i = 0; i < THREADS; i++) {
+                int index = i;
+                Callable<Boolean> call = () -> {
+                    start.await();
+                    return task.run(index);
+                };
+                futures.add(executor.submit(call));
+            }
+            start.countDown();
+
+            List<Boolean> results = new ArrayList<>();
+            for (Future<Boolean> future : futures) {
+                results.add(future.get(30, TimeUnit.SECONDS));
+            }
+            return results;
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @FunctionalInterface
+    private interface IndexedTask {
+        boolean run(int index);
+    }
+}
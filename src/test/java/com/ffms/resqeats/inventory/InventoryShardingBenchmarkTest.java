@@ -0,0 +1,113 @@
+package com.ffms.resqeats.inventory;
+
+import com.ffms.resqeats.inventory.service.CartLineChange;
+import com.ffms.resqeats.inventory.service.InventoryService;
+import com.ffms.resqeats.item.entity.OutletItem;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.when;
+
+/**
+ * Reservation throughput of a single hot item with plain and sharded counters.
+ *
+ * Run with: mvn test -Dtest=InventoryShardingBenchmarkTest -Dbenchmark=true
+ *
+ * Compares:
+ * - Plain counters (inventory:{id}, inventory:reserved:{id})
+ * - Sharded counters (inventory:shard:{id}:{n}) drawing from a random shard
+ *
+ * Both runs must sell exactly the available stock.
+ */
+@Testcontainers(disabledWithoutDocker = true)
+@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+@DisplayName("Inventory Sharding Benchmark")
+class InventoryShardingBenchmarkTest extends RedisInventoryTestSupport {
+
+    private static final long HOT_ITEM_ID = 7L;
+    private static final int STOCK = 20_000;
+    private static final int THREADS = 64;
+    private static final int SHARDS = 8;
+    private static final long OUTLET_ID = 1L;
+    private static final byte[] DETAILS = "line".getBytes(StandardCharsets.UTF_8);
+
+    @Test
+    @DisplayName("Sharded counters sustain contended reservations without overselling")
+    void compareCounterModes() throws Exception {
+        double plainRate = measureReservations("");
+        double shardedRate = measureReservations(String.valueOf(HOT_ITEM_ID));
+
+        System.out.printf("Hot item reservation benchmark (%d units, %d threads)%n", STOCK, THREADS);
+        System.out.printf("  plain counters:   %.0f reservations/s%n", plainRate);
+        System.out.printf("  %d shards:         %.0f reservations/s (%.2fx)%n",
+                SHARDS, shardedRate, shardedRate / plainRate);
+    }
+
+    private double measureReservations(String shardedItems) throws Exception {
+        flushRedis();
+        when(outletItemRepository.findById(anyLong())).thenReturn(Optional.of(
+                OutletItem.builder().outletId(OUTLET_ID).itemId(1L).currentQuantity(STOCK).build()));
+        InventoryService inventoryService = newInventoryService(shardedItems, SHARDS);
+        assertEquals(STOCK, inventoryService.getAvailableStock(HOT_ITEM_ID));
+
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        CountDownLatch start = new CountDownLatch(1);
+        try {
+            List<Future<Integer>> futures = new ArrayList<>();
+            for (int t = 0; t < THREADS; t++) {
+                int thread = t;
+                futures.add(executor.submit(() -> {
+                    start.await();
+                    int reserved = 0;
+                    while (reserve(inventoryService, "cart-" + thread + "-" + reserved)) {
+                        reserved++;
+                    }
+                    return reserved;
+                }));
+            }
+
+            long begin = System.nanoTime();
+            start.countDown();
+            int total = 0;
+            for (Future<Integer> future : futures) {
+                total += future.get(5, TimeUnit.MINUTES);
+            }
+            long elapsed = System.nanoTime() - begin;
+
+            assertEquals(STOCK, total);
+            assertEquals(0, inventoryService.getAvailableStock(HOT_ITEM_ID));
+            return total / (elapsed / 1_000_000_000.0);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * Adds one unit of the hot item to a cart through the cart lines script, as the cart does.
+     */
+    private static boolean reserve(InventoryService inventoryService, String cartId) {
+        return inventoryService.updateCartLines(CartLineChange.builder()
+                .cartKey("cart:" + cartId)
+                .cartId(cartId)
+                .outletId(OUTLET_ID)
+                .increment(true)
+                .cartTtl(Duration.ofMinutes(10))
+                .line(new CartLineChange.Line(HOT_ITEM_ID, 1, DETAILS))
+                .build()).isOk();
+    }
+}
@@ -0,0 +1,147 @@
+package com.ffms.resqeats.inventory;
+
+import com.ffms.resqeats.config.AuditConfig;
+import com.ffms.resqeats.inventory.entity.InventoryDeltaBatch;
+import com.ffms.resqeats.inventory.repository.InventoryDeltaBatchRepository;
+import com.ffms.resqeats.inventory.service.InventoryDeltaWriter;
+import com.ffms.resqeats.inventory.service.InventoryKeys;
+import com.ffms.resqeats.inventory.service.InventoryScripts;
+import com.ffms.resqeats.inventory.service.InventoryWriteBehindService;
+import com.ffms.resqeats.item.entity.OutletItem;
+import com.ffms.resqeats.item.repository.OutletItemRepository;
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Crash-safe replay of write-behind delta batches against H2 and a real Redis.
+ *
+ * Tests:
+ * - An in-flight batch already recorded in inventory_delta_batches is skipped on replay
+ * - An in-flight batch not yet recorded is applied exactly once
+ * - claim_deltas.lua refuses a new claim while a batch is in flight
+ */
+@DataJpaTest(properties = {
+        "spring.jpa.hibernate.ddl-auto=create-drop",
+        "spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect"
+})
+@Import({AuditConfig.class, InventoryDeltaWriter.class})
+@Testcontainers(disabledWithoutDocker = true)
+@DisplayName("Inventory Write-Behind Replay Tests")
+class InventoryWriteBehindReplayTest extends RedisInventoryTestSupport {
+
+    @Autowired
+    private InventoryDeltaWriter deltaWriter;
+
+    @Autowired
+    private InventoryDeltaBatchRepository batchRepository;
+
+    @Autowired
+    private OutletItemRepository jpaOutletItemRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    private InventoryScripts inventoryScripts;
+    private InventoryWriteBehindService writeBehindService;
+    private Long outletItemId;
+
+    @BeforeEach
+    void setup() {
+        inventoryScripts = new InventoryScripts();
+        writeBehindService = new InventoryWriteBehindService(redisTemplate, inventoryScripts, deltaWriter,
+                batchRepository, meterRegistry);
+
+        outletItemId = jpaOutletItemRepository.save(OutletItem.builder()
+                .outletId(1L)
+                .itemId(1L)
+                .dailyQuantity(10)
+                .currentQuantity(10)
+                .build()).getId();
+        entityManager.flush();
+    }
+
+    @Test
+    @DisplayName("A replayed batch that was already recorded is skipped")
+    void recordedBatchShouldBeSkipped() {
+        batchRepository.save(InventoryDeltaBatch.builder().batchId("batch-1").itemCount(1).build());
+        entityManager.flush();
+        leaveInFlight("batch-1", -3);
+
+        writeBehindService.flushDeltas();
+
+        assertEquals(10, currentQuantity());
+        assertFalse(writeBehindService.isBatchInFlight());
+    }
+
+    @Test
+    @DisplayName("A replayed batch that was not recorded is applied exactly once")
+    void unrecordedBatchShouldBeAppliedOnce() {
+        leaveInFlight("batch-2", -3);
+
+        writeBehindService.flushDeltas();
+
+        assertEquals(7, currentQuantity());
+        assertTrue(batchRepository.existsByBatchId("batch-2"));
+        assertFalse(writeBehindService.isBatchInFlight());
+
+        // The same batch surviving in Redis once more, e.g. a crash before the delete
+        leaveInFlight("batch-2", -3);
+        writeBehindService.flushDeltas();
+        assertEquals(0, deltaWriter.applyBatch("batch-2", Map.of(outletItemId, -3)));
+        assertEquals(7, currentQuantity());
+    }
+
+    @Test
+    @DisplayName("No new batch is claimed while one is in flight")
+    void claimShouldBeRefusedWhileBatchInFlight() {
+        leaveInFlight("batch-3", -2);
+        redisTemplate.opsForHash().put(InventoryKeys.PENDING_DELTAS, String.valueOf(outletItemId), "-1");
+
+        Long claimed = redisTemplate.execute(inventoryScripts.claimDeltas(),
+                List.of(InventoryKeys.PENDING_DELTAS, InventoryKeys.PENDING_DELTAS_SINCE,
+                        InventoryKeys.INFLIGHT_DELTAS),
+                "batch-4");
+        assertEquals(-1L, claimed);
+        assertEquals("batch-3", redisTemplate.opsForHash().get(InventoryKeys.INFLIGHT_DELTAS, InventoryKeys.BATCH_ID_FIELD));
+        assertEquals("-1", redisTemplate.opsForHash().get(InventoryKeys.PENDING_DELTAS, String.valueOf(outletItemId)));
+
+        // The flush replays the in-flight batch first and claims the pending deltas next time
+        writeBehindService.flushDeltas();
+        assertEquals(8, currentQuantity());
+        assertTrue(Boolean.TRUE.equals(redisTemplate.hasKey(InventoryKeys.PENDING_DELTAS)));
+
+        writeBehindService.flushDeltas();
+        assertEquals(7, currentQuantity());
+        assertFalse(Boolean.TRUE.equals(redisTemplate.hasKey(InventoryKeys.PENDING_DELTAS)));
+        assertFalse(writeBehindService.isBatchInFlight());
+    }
+
+    /**
+     * Leaves a claimed batch in Redis as a node that died before deleting it would.
+     */
+    private void leaveInFlight(String batchId, int delta) {
+        redisTemplate.opsForHash().putAll(InventoryKeys.INFLIGHT_DELTAS, Map.of(
+                InventoryKeys.BATCH_ID_FIELD, batchId,
+                String.valueOf(outletItemId), String.valueOf(delta)));
+    }
+
+    private int currentQuantity() {
+        return jdbcTemplate.queryForObject("SELECT current_quantity FROM outlet_items WHERE id = ?",
+                Integer.class, outletItemId);
+    }
+}
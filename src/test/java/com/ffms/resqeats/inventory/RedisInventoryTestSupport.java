@@ -0,0 +1,90 @@
+package com.ffms.resqeats.inventory;
+
+import com.ffms.resqeats.config.RedisConfig;
+import com.ffms.resqeats.inventory.service.InventoryCircuitBreaker;
+import com.ffms.resqeats.inventory.service.InventoryFallbackService;
+import com.ffms.resqeats.inventory.service.InventoryLayout;
+import com.ffms.resqeats.inventory.service.InventoryNearCache;
+import com.ffms.resqeats.inventory.service.InventoryScripts;
+import com.ffms.resqeats.inventory.service.InventoryService;
+import com.ffms.resqeats.item.repository.OutletItemRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.springframework.data.redis.connection.lettuce.LettuceConnectionFactory;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.testcontainers.containers.GenericContainer;
+import org.testcontainers.junit.jupiter.Testcontainers;
+import org.testcontainers.utility.DockerImageName;
+
+import java.util.Optional;
+
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Shared fixture for tests that run the inventory scripts against a real Redis.
+ *
+ * One redis:7-alpine container is started for the whole test run. Before each test the
+ * database is flushed and a fresh {@link InventoryService} is wired with a mocked
+ * {@link OutletItemRepository} (no rows by default), so a new service dependency only
+ * needs adding here.
+ */
+@Testcontainers(disabledWithoutDocker = true)
+public abstract class RedisInventoryTestSupport {
+
+    private static final GenericContainer<?> REDIS =
+            new GenericContainer<>(DockerImageName.parse("redis:7-alpine")).withExposedPorts(6379);
+
+    protected static LettuceConnectionFactory connectionFactory;
+    protected static StringRedisTemplate redisTemplate;
+    protected static RedisTemplate<String, byte[]> binaryRedisTemplate;
+
+    protected OutletItemRepository outletItemRepository;
+    protected SimpleMeterRegistry meterRegistry;
+    protected InventoryCircuitBreaker circuitBreaker;
+    protected InventoryService inventoryService;
+
+    @BeforeAll
+    protected static void connect() {
+        if (!REDIS.isRunning()) {
+            REDIS.start();
+        }
+        connectionFactory = new LettuceConnectionFactory(REDIS.getHost(), REDIS.getMappedPort(6379));
+        connectionFactory.afterPropertiesSet();
+        redisTemplate = new StringRedisTemplate(connectionFactory);
+        binaryRedisTemplate = new RedisConfig().binaryRedisTemplate(connectionFactory);
+    }
+
+    @AfterAll
+    protected static void disconnect() {
+        connectionFactory.destroy();
+    }
+
+    @BeforeEach
+    protected void setUpInventory() {
+        flushRedis();
+        outletItemRepository = mock(OutletItemRepository.class);
+        when(outletItemRepository.findById(anyLong())).thenReturn(Optional.empty());
+        meterRegistry = new SimpleMeterRegistry();
+        circuitBreaker = new InventoryCircuitBreaker(meterRegistry, 3);
+        inventoryService = newInventoryService("", 8);
+    }
+
+    protected static void flushRedis() {
+        redisTemplate.getRequiredConnectionFactory().getConnection().serverCommands().flushAll();
+    }
+
+    /**
+     * Wires an inventory service on the per-item key layout, sharding the given items.
+     */
+    protected InventoryService newInventoryService(String shardedItems, int shards) {
+        return new InventoryService(redisTemplate, outletItemRepository, new InventoryScripts(),
+                new InventoryLayout(redisTemplate, outletItemRepository, InventoryLayout.KEYS, shardedItems, shards),
+                new InventoryNearCache(redisTemplate, meterRegistry, 1000, 1000), circuitBreaker,
+                new InventoryFallbackService(outletItemRepository, circuitBreaker), meterRegistry);
+    }
+}
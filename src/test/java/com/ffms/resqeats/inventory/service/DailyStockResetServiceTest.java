@@ -0,0 +1,218 @@
+package com.ffms.resqeats.inventory.service;
+
+import com.ffms.resqeats.item.repository.OutletItemRepository;
+import com.ffms.resqeats.outlet.entity.OutletHours;
+import com.ffms.resqeats.outlet.enums.OutletStatus;
+import com.ffms.resqeats.outlet.repository.OutletHoursRepository;
+import com.ffms.resqeats.outlet.repository.OutletRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Unit tests for planning and claiming daily stock resets.
+ *
+ * Expectations are written as instants, so the tests hold whatever the server's time zone.
+ *
+ * Tests:
+ * - The next opening is found in the outlet's own time zone
+ * - Opening times follow a daylight saving change, including a skipped hour
+ * - Closed days are skipped, and an outlet closed all week falls back to the default time
+ * - outlet_hours days (0=Sunday .. 6=Saturday) map to the right calendar days
+ * - An overdue reset is moved to the next opening after now, not replayed day by day
+ * - Only outlets whose claim succeeds are reset
+ */
+@DisplayName("Daily Stock Reset Service Tests")
+class DailyStockResetServiceTest {
+
+    private static final long OUTLET_ID = 7L;
+
+    private OutletRepository outletRepository;
+    private OutletHoursRepository outletHoursRepository;
+    private OutletItemRepository outletItemRepository;
+    private DailyStockResetService service;
+
+    @BeforeEach
+    void setup() {
+        outletRepository = mock(OutletRepository.class);
+        outletHoursRepository = mock(OutletHoursRepository.class);
+        outletItemRepository = mock(OutletItemRepository.class);
+        service = new DailyStockResetService(outletRepository, outletHoursRepository, outletItemRepository,
+                new SimpleMeterRegistry());
+    }
+
+    @Test
+    @DisplayName("The next opening is computed in the outlet's time zone")
+    void nextOpeningShouldUseOutletZone() {
+        // 05:30 in Colombo (UTC+05:30), before the 08:00 opening
+        List<OutletHours> hours = everyDay(LocalTime.of(8, 0));
+
+        assertEquals(Instant.parse("2024-03-04T02:30:00Z"),
+                nextOpening("Asia/Colombo", hours, "2024-03-04T00:00:00Z"));
+        // 20:00 in New York (UTC-05:00) is already the next day in UTC
+        assertEquals(Instant.parse("2024-03-05T13:00:00Z"),
+                nextOpening("America/New_York", hours, "2024-03-05T01:00:00Z"));
+    }
+
+    @Test
+    @DisplayName("Openings follow a daylight saving change")
+    void nextOpeningShouldFollowDaylightSavingChange() {
+        // London moves to BST (UTC+1) at 01:00 UTC on Sunday 31 March 2024
+        assertEquals(Instant.parse("2024-03-31T05:00:00Z"),
+                nextOpening("Europe/London", everyDay(LocalTime.of(6, 0)), "2024-03-30T07:00:00Z"));
+
+        // 01:30 does not exist that night and becomes 02:30 BST
+        assertEquals(Instant.parse("2024-03-31T01:30:00Z"),
+                nextOpening("Europe/London", everyDay(LocalTime.of(1, 30)), "2024-03-30T12:00:00Z"));
+    }
+
+    @Test
+    @DisplayName("Closed days are skipped; an outlet closed all week uses the default time tomorrow")
+    void nextOpeningShouldSkipClosedDays() {
+        // Sunday evening, Monday (1) closed: the next opening is Tuesday
+        List<OutletHours> hours = everyDay(LocalTime.of(9, 0));
+        hours.set(1, closed(1));
+        assertEquals(Instant.parse("2024-03-05T09:00:00Z"),
+                nextOpening("UTC", hours, "2024-03-03T18:00:00Z"));
+
+        List<OutletHours> closedAllWeek = new ArrayList<>();
+        for (int day = 0; day < 7; day++) {
+            closedAllWeek.add(closed(day));
+        }
+        assertEquals(Instant.parse("2024-03-04T06:00:00Z"),
+                nextOpening("UTC", closedAllWeek, "2024-03-03T18:00:00Z"));
+    }
+
+    @Test
+    @DisplayName("outlet_hours day 0 is Sunday and day 6 is Saturday")
+    void nextOpeningShouldMapDaysOfWeek() {
+        // Wednesday 6 March 2024
+        assertEquals(Instant.parse("2024-03-10T09:00:00Z"),
+                nextOpening("UTC", onlyOpenOn(0), "2024-03-06T12:00:00Z"));
+        assertEquals(Instant.parse("2024-03-09T09:00:00Z"),
+                nextOpening("UTC", onlyOpenOn(6), "2024-03-06T12:00:00Z"));
+        assertEquals(Instant.parse("2024-03-11T09:00:00Z"),
+                nextOpening("UTC", onlyOpenOn(1), "2024-03-06T12:00:00Z"));
+    }
+
+    @Test
+    @DisplayName("A reset overdue by days is moved to the next opening after now")
+    void overdueResetShouldMoveToNextOpeningAfterNow() {
+        LocalDateTime overdue = LocalDateTime.now().minusDays(3);
+        when(outletRepository.findDueStockResets(any(), eq(OutletStatus.ACTIVE), any()))
+                .thenReturn(List.of(slot(OUTLET_ID, "UTC", overdue)));
+        when(outletHoursRepository.findByOutletIdIn(anyCollection())).thenReturn(everyDay(LocalTime.of(6, 0)));
+        when(outletRepository.claimStockReset(eq(OUTLET_ID), eq(overdue), any())).thenReturn(1);
+
+        LocalDateTime before = LocalDateTime.now();
+        service.resetDueBatch(10);
+
+        ArgumentCaptor<LocalDateTime> next = ArgumentCaptor.forClass(LocalDateTime.class);
+        verify(outletRepository).claimStockReset(eq(OUTLET_ID), eq(overdue), next.capture());
+        assertTrue(next.getValue().isAfter(before));
+        assertFalse(next.getValue().isAfter(before.plusDays(1)));
+        verify(outletItemRepository).resetDailyQuantities(List.of(OUTLET_ID));
+    }
+
+    @Test
+    @DisplayName("Outlets claimed by another node are not reset")
+    void onlyClaimedOutletsShouldBeReset() {
+        LocalDateTime due = LocalDateTime.now().minusMinutes(1);
+        when(outletRepository.findDueStockResets(any(), eq(OutletStatus.ACTIVE), any()))
+                .thenReturn(List.of(slot(1L, "UTC", due), slot(2L, "UTC", due)));
+        when(outletHoursRepository.findByOutletIdIn(anyCollection())).thenReturn(List.of());
+        when(outletRepository.claimStockReset(eq(1L), eq(due), any())).thenReturn(0);
+        when(outletRepository.claimStockReset(eq(2L), eq(due), any())).thenReturn(1);
+
+        DailyStockResetService.ResetBatch batch = service.resetDueBatch(10);
+
+        assertEquals(2, batch.due());
+        verify(outletItemRepository).resetDailyQuantities(List.of(2L));
+        verify(outletItemRepository).findStockLevelsByOutletIds(List.of(2L));
+    }
+
+    @Test
+    @DisplayName("Nothing is reset when every claim is lost")
+    void lostClaimsShouldResetNothing() {
+        LocalDateTime due = LocalDateTime.now().minusMinutes(1);
+        when(outletRepository.findDueStockResets(any(), eq(OutletStatus.ACTIVE), any()))
+                .thenReturn(List.of(slot(OUTLET_ID, "UTC", due)));
+        when(outletHoursRepository.findByOutletIdIn(anyCollection())).thenReturn(List.of());
+        when(outletRepository.claimStockReset(eq(OUTLET_ID), eq(due), any())).thenReturn(0);
+
+        DailyStockResetService.ResetBatch batch = service.resetDueBatch(10);
+
+        assertEquals(1, batch.due());
+        assertTrue(batch.items().isEmpty());
+        verify(outletItemRepository, never()).resetDailyQuantities(anyCollection());
+    }
+
+    /**
+     * Runs nextOpening from an instant and returns its result as an instant.
+     */
+    private Instant nextOpening(String zone, List<OutletHours> hours, String after) {
+        LocalDateTime serverTime = LocalDateTime.ofInstant(Instant.parse(after), ZoneId.systemDefault());
+        return service.nextOpening(slot(OUTLET_ID, zone, null), hours, serverTime)
+                .atZone(ZoneId.systemDefault()).toInstant();
+    }
+
+    /** Hours for days 0..6, indexed by outlet_hours day. */
+    private static List<OutletHours> everyDay(LocalTime opening) {
+        List<OutletHours> hours = new ArrayList<>();
+        for (int day = 0; day < 7; day++) {
+            hours.add(OutletHours.builder().outletId(OUTLET_ID).dayOfWeek(day).openTime(opening).build());
+        }
+        return hours;
+    }
+
+    private static List<OutletHours> onlyOpenOn(int openDay) {
+        List<OutletHours> hours = everyDay(LocalTime.of(9, 0));
+        for (int day = 0; day < 7; day++) {
+            if (day != openDay) {
+                hours.set(day, closed(day));
+            }
+        }
+        return hours;
+    }
+
+    private static OutletHours closed(int day) {
+        return OutletHours.builder().outletId(OUTLET_ID).dayOfWeek(day).isClosed(true).build();
+    }
+
+    private static OutletRepository.StockResetSlot slot(Long id, String timezone, LocalDateTime nextStockResetAt) {
+        return new OutletRepository.StockResetSlot() {
+            @Override
+            public Long getId() {
+                return id;
+            }
+
+            @Override
+            public String getTimezone() {
+                return timezone;
+            }
+
+            @Override
+            public LocalDateTime getNextStockResetAt() {
+                return nextStockResetAt;
+            }
+        };
+    }
+}
@@ -0,0 +1,155 @@
+package com.ffms.resqeats.order;
+
+import com.ffms.resqeats.config.AuditConfig;
+import com.ffms.resqeats.order.entity.Order;
+import com.ffms.resqeats.order.entity.OrderItem;
+import com.ffms.resqeats.order.enums.OrderStatus;
+import com.ffms.resqeats.order.repository.OrderItemRepository;
+import com.ffms.resqeats.order.repository.OrderRepository;
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Import;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.math.BigDecimal;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Insert round trips of an order and its lines.
+ *
+ * Orders and order items use pooled sequence keys, so Hibernate batches their inserts:
+ * an order costs one INSERT round trip for the order row and one per 50 lines, however
+ * many lines it has. Round trips are counted at the JDBC level (executeUpdate/executeBatch
+ * of INSERT statements); id allocation from the sequences is not counted.
+ */
+@DataJpaTest(properties = {
+        "spring.jpa.hibernate.ddl-auto=create-drop",
+        "spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect"
+})
+@Import(AuditConfig.class)
+@DisplayName("Order Insert Batching Tests")
+class OrderInsertBatchingTest {
+
+    private static final AtomicInteger INSERT_ROUND_TRIPS = new AtomicInteger();
+    private static final Set<String> EXECUTE_METHODS = Set.of("execute", "executeUpdate", "executeBatch");
+
+    @Autowired
+    private OrderRepository orderRepository;
+
+    @Autowired
+    private OrderItemRepository orderItemRepository;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @Test
+    @DisplayName("N-line order takes the same number of insert round trips for any N up to the batch size")
+    void orderLinesAreInsertedInOneBatch() {
+        int single = insertOrder(1);
+        int small = insertOrder(5);
+        int large = insertOrder(40);
+
+        assertEquals(2, single, "Order row plus one batch of lines");
+        assertEquals(single, small);
+        assertEquals(single, large);
+    }
+
+    private int insertOrder(int lines) {
+        INSERT_ROUND_TRIPS.set(0);
+
+        Order order = orderRepository.save(Order.builder()
+                .userId(1L)
+                .outletId(1L)
+                .status(OrderStatus.CREATED)
+                .subtotal(BigDecimal.TEN)
+                .tax(BigDecimal.ONE)
+                .total(BigDecimal.valueOf(11))
+                .acceptanceDeadline(LocalDateTime.now().plusMinutes(15))
+                .build());
+
+        List<OrderItem> items = new ArrayList<>(lines);
+        for (int i = 0; i < lines; i++) {
+            items.add(OrderItem.builder()
+                    .orderId(order.getId())
+                    .itemId((long) i + 1)
+                    .quantity(1)
+                    .unitPrice(BigDecimal.ONE)
+                    .itemName("Item " + i)
+                    .build());
+        }
+        orderItemRepository.saveAll(items);
+        entityManager.flush();
+        entityManager.clear();
+
+        return INSERT_ROUND_TRIPS.get();
+    }
+
+    /**
+     * Wraps the test DataSource so INSERT executions can be counted.
+     */
+    @TestConfiguration
+    static class CountingDataSourceConfig {
+
+        @Bean
+        static BeanPostProcessor countingDataSource() {
+            return new BeanPostProcessor() {
+                @Override
+                public Object postProcessAfterInitialization(Object bean, String beanName) {
+                    return bean instanceof DataSource dataSource ? wrap(dataSource) : bean;
+                }
+            };
+        }
+
+        private static DataSource wrap(DataSource dataSource) {
+            return proxy(DataSource.class, dataSource, (method, result, args) ->
+                    "getConnection".equals(method) ? wrap((Connection) result) : result);
+        }
+
+        private static Connection wrap(Connection connection) {
+            return proxy(Connection.class, connection, (method, result, args) -> {
+                if ("prepareStatement".equals(method) && args[0] instanceof String sql
+                        && sql.trim().toLowerCase(Locale.ROOT).startsWith("insert")) {
+                    return proxy(PreparedStatement.class, (PreparedStatement) result, (call, value, callArgs) -> {
+                        if (EXECUTE_METHODS.contains(call)) {
+                            INSERT_ROUND_TRIPS.incrementAndGet();
+                        }
+                        return value;
+                    });
+                }
+                return result;
+            });
+        }
+
+        @SuppressWarnings("unchecked")
+        private static <T> T proxy(Class<T> type, T target, Interceptor interceptor) {
+            return (T) Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[]{type}, (proxy, method, args) -> {
+                try {
+                    return interceptor.after(method.getName(), method.invoke(target, args), args);
+                } catch (InvocationTargetException e) {
+                    throw e.getCause();
+                }
+            });
+        }
+
+        private interface Interceptor {
+            Object after(String method, Object result, Object[] args);
+        }
+    }
+}
@@ -0,0 +1,177 @@
+package com.ffms.resqeats.order;
+
+import com.ffms.resqeats.common.exception.BusinessException;
+import com.ffms.resqeats.config.AuditConfig;
+import com.ffms.resqeats.order.entity.Order;
+import com.ffms.resqeats.order.enums.OrderStatus;
+import com.ffms.resqeats.order.repository.OrderRepository;
+import com.ffms.resqeats.order.service.OrderStateMachine;
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.TreeSet;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Compare-and-set status transitions of {@link OrderStateMachine} against the orders table.
+ *
+ * Tests:
+ * - A legal transition writes only the status, its timestamp and the version and audit columns
+ * - The loser of a race gets ORDER_003 and writes nothing
+ * - Batch transitions skip orders that have moved on
+ * - Pending orders can expire
+ */
+@DataJpaTest(properties = {
+        "spring.jpa.hibernate.ddl-auto=create-drop",
+        "spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect"
+})
+@Import({AuditConfig.class, OrderStateMachine.class})
+@DisplayName("Order State Machine Tests")
+class OrderStateMachineTest {
+
+    private static final Set<String> TRANSITION_COLUMNS = Set.of("status", "version", "updated_at", "updated_by");
+
+    @Autowired
+    private OrderStateMachine orderStateMachine;
+
+    @Autowired
+    private OrderRepository orderRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @Test
+    @DisplayName("A legal transition writes only its own columns")
+    void transitionWritesOnlyExpectedColumns() {
+        Long orderId = createOrder(OrderStatus.PAID);
+        Map<String, Object> before = row(orderId);
+
+        Order order = orderRepository.findById(orderId).orElseThrow();
+        Order moved = orderStateMachine.transition(order, OrderStatus.PREPARING);
+        entityManager.flush();
+        Map<String, Object> after = row(orderId);
+
+        Set<String> changed = changedColumns(before, after);
+        assertTrue(changed.containsAll(Set.of("status", "version", "preparing_at")), "changed: " + changed);
+        Set<String> allowed = new TreeSet<>(TRANSITION_COLUMNS);
+        allowed.add("preparing_at");
+        assertTrue(allowed.containsAll(changed), "changed: " + changed);
+
+        assertEquals(OrderStatus.PREPARING.name(), after.get("status"));
+        assertEquals(((Number) before.get("version")).longValue() + 1, ((Number) after.get("version")).longValue());
+        assertEquals(OrderStatus.PREPARING, moved.getStatus());
+        assertNotNull(moved.getPreparingAt());
+        assertFalse(entityManager.contains(moved));
+    }
+
+    @Test
+    @DisplayName("The loser of a concurrent transition gets ORDER_003 and writes nothing")
+    void raceLoserGetsOrder003() {
+        Long orderId = createOrder(OrderStatus.PENDING_OUTLET_ACCEPTANCE);
+        Order winner = orderRepository.findById(orderId).orElseThrow();
+        entityManager.detach(winner);
+        Order loser = orderRepository.findById(orderId).orElseThrow();
+
+        orderStateMachine.transition(winner, OrderStatus.PAID);
+        Map<String, Object> afterWinner = row(orderId);
+
+        BusinessException e = assertThrows(BusinessException.class,
+                () -> orderStateMachine.transition(loser, OrderStatus.EXPIRED));
+        assertEquals("ORDER_003", e.getErrorCode());
+        entityManager.flush();
+
+        Map<String, Object> afterLoser = row(orderId);
+        assertEquals(afterWinner, afterLoser);
+        assertEquals(OrderStatus.PAID.name(), afterLoser.get("status"));
+        assertNull(afterLoser.get("expired_at"));
+    }
+
+    @Test
+    @DisplayName("A batch transition moves only the orders still in the expected status")
+    void transitionAllSkipsOrdersThatMovedOn() {
+        Long first = createOrder(OrderStatus.PENDING_OUTLET_ACCEPTANCE);
+        Long accepted = createOrder(OrderStatus.PENDING_OUTLET_ACCEPTANCE);
+        Long last = createOrder(OrderStatus.PENDING_OUTLET_ACCEPTANCE);
+        orderStateMachine.transition(orderRepository.findById(accepted).orElseThrow(), OrderStatus.PAID);
+        Map<String, Object> acceptedRow = row(accepted);
+
+        List<Long> moved = orderStateMachine.transitionAll(List.of(first, accepted, last),
+                OrderStatus.PENDING_OUTLET_ACCEPTANCE, OrderStatus.EXPIRED);
+
+        assertEquals(Set.of(first, last), Set.copyOf(moved));
+        assertEquals(OrderStatus.EXPIRED.name(), row(first).get("status"));
+        assertEquals(OrderStatus.EXPIRED.name(), row(last).get("status"));
+        assertNotNull(row(first).get("expired_at"));
+        assertEquals(acceptedRow, row(accepted));
+        assertTrue(orderStateMachine.transitionAll(List.of(first, last),
+                OrderStatus.PENDING_OUTLET_ACCEPTANCE, OrderStatus.EXPIRED).isEmpty());
+    }
+
+    @Test
+    @DisplayName("An order pending acceptance can expire")
+    void pendingAcceptanceCanExpire() {
+        assertTrue(OrderStatus.EXPIRED.predecessors().contains(OrderStatus.PENDING_OUTLET_ACCEPTANCE));
+        Long orderId = createOrder(OrderStatus.PENDING_OUTLET_ACCEPTANCE);
+
+        Order expired = orderStateMachine.transition(orderRepository.findById(orderId).orElseThrow(),
+                OrderStatus.EXPIRED);
+
+        assertEquals(OrderStatus.EXPIRED, expired.getStatus());
+        assertNotNull(expired.getExpiredAt());
+        Map<String, Object> row = row(orderId);
+        assertEquals(OrderStatus.EXPIRED.name(), row.get("status"));
+        assertNotNull(row.get("expired_at"));
+    }
+
+    private Long createOrder(OrderStatus status) {
+        Order order = orderRepository.save(Order.builder()
+                .userId(1L)
+                .outletId(1L)
+                .status(status)
+                .subtotal(BigDecimal.TEN)
+                .tax(BigDecimal.ONE)
+                .total(BigDecimal.valueOf(11))
+                .acceptanceDeadline(LocalDateTime.now().plusMinutes(15))
+                .build());
+        entityManager.flush();
+        entityManager.clear();
+        return order.getId();
+    }
+
+    /**
+     * Reads an order row straight from the table, column names in lower case.
+     */
+    private Map<String, Object> row(Long orderId) {
+        Map<String, Object> row = new HashMap<>();
+        jdbcTemplate.queryForMap("SELECT * FROM orders WHERE id = ?", orderId)
+                .forEach((column, value) -> row.put(column.toLowerCase(Locale.ROOT), value));
+        return row;
+    }
+
+    private static Set<String> changedColumns(Map<String, Object> before, Map<String, Object> after) {
+        Set<String> changed = new TreeSet<>();
+        after.forEach((column, value) -> {
+            if (!Objects.equals(before.get(column), value)) {
+                changed.add(column);
+            }
+        });
+        return changed;
+    }
+}